@@ -37,6 +37,7 @@ import app.nzyme.core.ouis.OuiService;
 import app.nzyme.core.quota.QuotaService;
 import app.nzyme.core.registry.RegistryChangeMonitorImpl;
 import app.nzyme.core.registry.RegistryImpl;
+import app.nzyme.core.registry.RegistryStore;
 import app.nzyme.core.rest.server.NzymeHttpServer;
 import app.nzyme.core.security.authentication.AuthenticationService;
 import app.nzyme.core.subsystems.Subsystems;
@@ -100,9 +101,11 @@ public class MockNzyme implements NzymeNode {
     private final ClusterManager clusterManager;
     private final AuthenticationService authenticationService;
     private final GeoIpService geoIp;
+    private final RegistryStore registryStore;
     private final Registry registry;
     private final RegistryChangeMonitor registryChangeMonitor;
     private final EventEngine eventEngine;
+    private final Dot11 dot11;
 
     public MockNzyme() {
         this(Integer.MAX_VALUE, TimeUnit.DAYS);
@@ -137,6 +140,7 @@ public class MockNzyme implements NzymeNode {
             throw new RuntimeException(e);
         }
 
+        this.registryStore = new RegistryStore(this);
         this.registry = new RegistryImpl(this, "core");
         this.registryChangeMonitor = new RegistryChangeMonitorImpl(this);
 
@@ -173,6 +177,8 @@ public class MockNzyme implements NzymeNode {
 
         this.authenticationService = new AuthenticationService(this);
 
+        this.dot11 = new Dot11(this);
+
 
         this.database.useHandle(handle -> handle.execute("TRUNCATE sentry_ssids"));
 
@@ -242,7 +248,7 @@ public class MockNzyme implements NzymeNode {
 
     @Override
     public Dot11 getDot11() {
-        return null;
+        return dot11;
     }
 
     @Override
@@ -345,6 +351,11 @@ public class MockNzyme implements NzymeNode {
         return registryChangeMonitor;
     }
 
+    @Override
+    public RegistryStore getRegistryStore() {
+        return registryStore;
+    }
+
     @Override
     public DetectionAlertService getDetectionAlertService() {
         return null;
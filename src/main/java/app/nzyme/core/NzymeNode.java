@@ -17,6 +17,7 @@
 
 package app.nzyme.core;
 
+import app.nzyme.core.registry.RegistryStore;
 import app.nzyme.core.bluetooth.Bluetooth;
 import app.nzyme.core.bluetooth.sig.BluetoothSigService;
 import app.nzyme.core.configuration.base.BaseConfiguration;
@@ -106,6 +107,7 @@ public interface NzymeNode extends PluginEntryPoint, DatabaseProvider, NodeIdent
 
     Registry getDatabaseCoreRegistry();
     RegistryChangeMonitor getRegistryChangeMonitor();
+    RegistryStore getRegistryStore();
 
     DetectionAlertService getDetectionAlertService();
 
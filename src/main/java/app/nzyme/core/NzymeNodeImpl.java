@@ -27,13 +27,13 @@ import app.nzyme.core.database.tasks.handlers.OrganizationPurgeCategoryTaskHandl
 import app.nzyme.core.database.tasks.handlers.TenantPurgeCategoryTaskHandler;
 import app.nzyme.core.detection.alerts.DetectionAlertService;
 import app.nzyme.core.distributed.ClusterManager;
+import app.nzyme.core.distributed.LeaderElection;
 import app.nzyme.core.distributed.NodeManager;
 import app.nzyme.core.distributed.messaging.postgres.PostgresMessageBusImpl;
 import app.nzyme.core.distributed.tasksqueue.postgres.PostgresTasksQueueImpl;
 import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.dot11.monitoring.Dot11SignalTrackMonitor;
 import app.nzyme.core.dot11.monitoring.clients.KnownClientMonitor;
-import app.nzyme.core.dot11.monitoring.disco.Dot11DiscoMonitor;
 import app.nzyme.core.dot11.monitoring.ssids.KnownSSIDMonitor;
 import app.nzyme.core.ethernet.EthernetConnectionCleaner;
 import app.nzyme.core.events.EventEngine;
@@ -49,6 +49,7 @@ import app.nzyme.core.periodicals.distributed.NodeUpdater;
 import app.nzyme.core.periodicals.housekeeping.DatabaseRetentionCleaner;
 import app.nzyme.core.quota.QuotaService;
 import app.nzyme.core.registry.RegistryChangeMonitorImpl;
+import app.nzyme.core.registry.RegistryStore;
 import app.nzyme.core.rest.server.NzymeHttpServer;
 import app.nzyme.core.security.authentication.AuthenticationService;
 import app.nzyme.core.subsystems.Subsystems;
@@ -67,6 +68,7 @@ import app.nzyme.core.configuration.base.BaseConfiguration;
 import app.nzyme.core.configuration.node.NodeConfiguration;
 import app.nzyme.core.crypto.Crypto;
 import app.nzyme.core.database.DatabaseImpl;
+import app.nzyme.core.database.PostgresNotificationListener;
 import app.nzyme.core.ethernet.Ethernet;
 import app.nzyme.core.periodicals.PeriodicalManager;
 import app.nzyme.core.periodicals.versioncheck.VersioncheckThread;
@@ -101,8 +103,10 @@ public class NzymeNodeImpl implements NzymeNode {
     private final Path dataDirectory;
 
     private final DatabaseImpl database;
+    private final PostgresNotificationListener notificationListener;
     private final AuthenticationService authenticationService;
 
+    private final RegistryStore registryStore;
     private final RegistryImpl registry;
     private final RegistryChangeMonitor registryChangeMonitor;
 
@@ -141,6 +145,9 @@ public class NzymeNodeImpl implements NzymeNode {
 
     private final ScheduledIntegrationsManager scheduledIntegrationsManager;
 
+    private LeaderElection leaderElection;
+    private PeriodicalManager periodicalManager;
+
     private List<String> plugins;
 
     private Optional<RetroService> retroService = Optional.empty();
@@ -159,6 +166,10 @@ public class NzymeNodeImpl implements NzymeNode {
         this.database = database;
         this.configuration = configuration;
 
+        this.notificationListener = new PostgresNotificationListener(database);
+        this.registryStore = new RegistryStore(this);
+        this.registryStore.registerNotifications(notificationListener);
+
         this.registry = new RegistryImpl(this, "core");
         this.registryChangeMonitor = new RegistryChangeMonitorImpl(this);
 
@@ -177,8 +188,12 @@ public class NzymeNodeImpl implements NzymeNode {
         }
 
         this.clusterManager = new ClusterManager(this);
-        this.messageBus = new PostgresMessageBusImpl(this);
-        this.tasksQueue = new PostgresTasksQueueImpl(this);
+        PostgresMessageBusImpl postgresMessageBus = new PostgresMessageBusImpl(this);
+        postgresMessageBus.registerNotifications(notificationListener);
+        this.messageBus = postgresMessageBus;
+        PostgresTasksQueueImpl postgresTasksQueue = new PostgresTasksQueueImpl(this);
+        postgresTasksQueue.registerNotifications(notificationListener);
+        this.tasksQueue = postgresTasksQueue;
 
         this.geoIpService = new GeoIpService(this);
         this.ouiService = new OuiService(this);
@@ -226,6 +241,10 @@ public class NzymeNodeImpl implements NzymeNode {
     public void initialize() {
         LOG.info("Initializing nzyme version: {}.", version.getVersionString());
 
+        LOG.info("Starting database notification listener...");
+        this.notificationListener.start();
+        LOG.info("Done.");
+
         LOG.info("Initializing cluster manager...");
         this.clusterManager.initialize();
         LOG.info("Done.");
@@ -289,18 +308,28 @@ public class NzymeNodeImpl implements NzymeNode {
 
         // Database metrics.
         metrics.register(MetricNames.DATABASE_SIZE, (Gauge<Long>) database::getTotalSize);
+        database.registerMetrics(metrics);
+
+        // Leader election. Some periodicals only run on the leader.
+        this.leaderElection = new LeaderElection(this);
+        this.leaderElection.initialize();
 
-        // Periodicals. (TODO: Replace with scheduler service)
-        PeriodicalManager periodicalManager = new PeriodicalManager();
+        // Periodicals.
+        this.periodicalManager = new PeriodicalManager(
+                metrics,
+                configuration.performance().periodicalWorkers().orElse(10), // Default: 10
+                leaderElection::isLeader
+        );
         periodicalManager.scheduleAtFixedRate(new NodeUpdater(this), 0, 5, TimeUnit.SECONDS);
         periodicalManager.scheduleAtFixedRate(new ConnectStatusReporter(this), 0, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new EthernetConnectionCleaner(this), 0, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new Dot11SignalTrackMonitor(this), 1, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new Dot11DiscoMonitor(this), 1, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new ContextCleaner(getContextService()), 0, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new KnownSSIDMonitor(this), 1, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new KnownClientMonitor(this), 1, 1, TimeUnit.MINUTES);
-        periodicalManager.scheduleAtFixedRate(new DatabaseRetentionCleaner(this), 1, 60, TimeUnit.MINUTES);
+        periodicalManager.scheduleAtFixedRateOnLeader(new EthernetConnectionCleaner(this), 0, 1, TimeUnit.MINUTES);
+        periodicalManager.scheduleAtFixedRateOnLeader(new Dot11SignalTrackMonitor(this), 1, 1, TimeUnit.MINUTES);
+        // Re-raises ongoing anomalies. Must run more often than alerts turn inactive. (DetectionAlertService)
+        periodicalManager.scheduleAtFixedRateOnLeader(dot11.getDiscoMonitor(), 1, 1, TimeUnit.MINUTES);
+        periodicalManager.scheduleAtFixedRateOnLeader(new ContextCleaner(getContextService()), 0, 1, TimeUnit.MINUTES);
+        periodicalManager.scheduleAtFixedRateOnLeader(new KnownSSIDMonitor(this), 1, 1, TimeUnit.MINUTES);
+        periodicalManager.scheduleAtFixedRateOnLeader(new KnownClientMonitor(this), 1, 1, TimeUnit.MINUTES);
+        periodicalManager.scheduleAtFixedRateOnLeader(new DatabaseRetentionCleaner(this), 1, 60, TimeUnit.MINUTES);
         if (configuration.versionchecksEnabled()) {
             periodicalManager.scheduleAtFixedRate(new VersioncheckThread(version, this), 0, 60, TimeUnit.MINUTES);
         } else {
@@ -347,6 +376,39 @@ public class NzymeNodeImpl implements NzymeNode {
             httpServer.shutdownNow();
         }
 
+        // Finish processing of already accepted tap reports.
+        if (tablesService != null) {
+            tablesService.shutdown();
+        }
+
+        // Write pending detection alerts.
+        if (detectionAlertService != null) {
+            detectionAlertService.shutdown();
+        }
+
+        // Execute already queued event actions.
+        if (eventEngine != null) {
+            eventEngine.shutdown();
+        }
+
+        // Write buffered tap metrics.
+        if (tapManager != null) {
+            tapManager.shutdown();
+        }
+
+        // Stop periodicals and hand leadership to another node.
+        if (periodicalManager != null) {
+            periodicalManager.shutdown();
+        }
+        if (leaderElection != null) {
+            leaderElection.shutdown();
+        }
+
+        notificationListener.shutdown();
+
+        LOG.info("Closing database connection pool.");
+        database.close();
+
         LOG.info("Shutdown complete.");
     }
 
@@ -535,6 +597,11 @@ public class NzymeNodeImpl implements NzymeNode {
         return registryChangeMonitor;
     }
 
+    @Override
+    public RegistryStore getRegistryStore() {
+        return registryStore;
+    }
+
     @Override
     public DetectionAlertService getDetectionAlertService() {
         return detectionAlertService;
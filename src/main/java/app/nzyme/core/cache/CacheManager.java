@@ -1,6 +1,7 @@
 package app.nzyme.core.cache;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.events.EventEngineImpl;
 import app.nzyme.plugin.distributed.messaging.MessageHandler;
 import app.nzyme.plugin.distributed.messaging.MessageProcessingResult;
 import app.nzyme.plugin.distributed.messaging.MessageType;
@@ -36,6 +37,26 @@ public class CacheManager {
                                     message.sender());
                             nzyme.getContextService().invalidateMacAddressCache();
                             break;
+                        case "dot11_monitoring":
+                            LOG.info("Invalidating 802.11 monitoring snapshots on request by node [{}].",
+                                    message.sender());
+                            nzyme.getDot11().invalidateMonitoringSnapshots();
+                            break;
+                        case "tap_secrets":
+                            LOG.info("Invalidating tap secret index on request by node [{}].",
+                                    message.sender());
+                            nzyme.getAuthenticationService().invalidateTapSecretIndex();
+                            break;
+                        case "event_subscriptions":
+                            LOG.info("Invalidating event subscription cache on request by node [{}].",
+                                    message.sender());
+                            ((EventEngineImpl) nzyme.getEventEngine()).invalidateSubscriptionCache();
+                            break;
+                        case "uav_types":
+                            LOG.info("Invalidating custom UAV type indexes on request by node [{}].",
+                                    message.sender());
+                            nzyme.getUav().invalidateCustomTypeIndexes();
+                            break;
                         default:
                             LOG.error("Could not handle [{}] message: Unknown cache type.",
                                     MessageType.INVALIDATE_CACHE);
@@ -34,6 +34,26 @@ public class ConfigurationKeys {
     public static final String SLOW_QUERY_LOG_THRESHOLD = "slow_query_log_threshold";
     public static final String PERFORMANCE = "performance";
     public static final String REPORT_PROCESSOR_POOL_SIZE = "report_processor_pool_size";
+    public static final String REPORT_INGEST_WORKERS = "report_ingest_workers";
+    public static final String REPORT_INGEST_QUEUE_SIZE = "report_ingest_queue_size";
+    public static final String TAP_METRICS_FLUSH_INTERVAL_MS = "tap_metrics_flush_interval_ms";
+    public static final String TAP_METRICS_FLUSH_BATCH_SIZE = "tap_metrics_flush_batch_size";
+    public static final String TAP_METRICS_BUFFER_CAPACITY = "tap_metrics_buffer_capacity";
+    public static final String GEOIP_CACHE_SIZE = "geoip_cache_size";
+    public static final String GEOIP_CACHE_TTL_MINUTES = "geoip_cache_ttl_minutes";
+    public static final String DETECTION_ALERT_FLUSH_INTERVAL_MS = "detection_alert_flush_interval_ms";
+    public static final String EVENT_ACTION_WORKERS = "event_action_workers";
+    public static final String EVENT_ACTION_QUEUE_SIZE = "event_action_queue_size";
+    public static final String PERIODICAL_WORKERS = "periodical_workers";
+    public static final String TASKS_QUEUE_WORKERS = "tasks_queue_workers";
+    public static final String TASKS_QUEUE_BATCH_SIZE = "tasks_queue_batch_size";
+    public static final String METRICS_MEMORY_MAX_SERIES = "metrics_memory_max_series";
+    public static final String DATABASE = "database";
+    public static final String DATABASE_POOL_MIN_IDLE = "pool_min_idle";
+    public static final String DATABASE_POOL_MAX_SIZE = "pool_max_size";
+    public static final String DATABASE_POOL_ACQUIRE_TIMEOUT_MS = "pool_acquire_timeout_ms";
+    public static final String DATABASE_POOL_IDLE_TIMEOUT_SECONDS = "pool_idle_timeout_seconds";
+    public static final String DATABASE_POOL_LEAK_DETECTION_THRESHOLD_MS = "pool_leak_detection_threshold_ms";
     public static final String MISC = "misc";
     public static final String CUSTOM_TITLE = "custom_title";
     public static final String CUSTOM_FAVICON_URL = "custom_favicon_url";
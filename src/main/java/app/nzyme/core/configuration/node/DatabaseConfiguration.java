@@ -0,0 +1,44 @@
+package app.nzyme.core.configuration.node;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.Optional;
+
+@AutoValue
+public abstract class DatabaseConfiguration {
+
+    public abstract Optional<Integer> poolMinIdle();
+    public abstract Optional<Integer> poolMaxSize();
+    public abstract Optional<Integer> poolAcquireTimeoutMs();
+    public abstract Optional<Integer> poolIdleTimeoutSeconds();
+    public abstract Optional<Integer> poolLeakDetectionThresholdMs();
+
+    public static DatabaseConfiguration create(Optional<Integer> poolMinIdle, Optional<Integer> poolMaxSize, Optional<Integer> poolAcquireTimeoutMs, Optional<Integer> poolIdleTimeoutSeconds, Optional<Integer> poolLeakDetectionThresholdMs) {
+        return builder()
+                .poolMinIdle(poolMinIdle)
+                .poolMaxSize(poolMaxSize)
+                .poolAcquireTimeoutMs(poolAcquireTimeoutMs)
+                .poolIdleTimeoutSeconds(poolIdleTimeoutSeconds)
+                .poolLeakDetectionThresholdMs(poolLeakDetectionThresholdMs)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_DatabaseConfiguration.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder poolMinIdle(Optional<Integer> poolMinIdle);
+
+        public abstract Builder poolMaxSize(Optional<Integer> poolMaxSize);
+
+        public abstract Builder poolAcquireTimeoutMs(Optional<Integer> poolAcquireTimeoutMs);
+
+        public abstract Builder poolIdleTimeoutSeconds(Optional<Integer> poolIdleTimeoutSeconds);
+
+        public abstract Builder poolLeakDetectionThresholdMs(Optional<Integer> poolLeakDetectionThresholdMs);
+
+        public abstract DatabaseConfiguration build();
+    }
+}
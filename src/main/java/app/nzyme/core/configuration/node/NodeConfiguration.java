@@ -30,9 +30,10 @@ public abstract class NodeConfiguration {
     public abstract boolean connectSkip();
 
     public abstract PerformanceConfiguration performance();
+    public abstract DatabaseConfiguration database();
     public abstract MiscConfiguration misc();
 
-    public static NodeConfiguration create(boolean versionchecksEnabled, String databasePath, URI restListenUri, URI httpExternalUri, Optional<Integer> httpMaxPostSize, String pluginDirectory, String cryptoDirectory, Optional<Integer> slowQueryLogThreshold, String ntpServer, Optional<ProtocolsConfiguration> protocols, Optional<String> connectApiUri, boolean connectSkip, PerformanceConfiguration performance, MiscConfiguration misc) {
+    public static NodeConfiguration create(boolean versionchecksEnabled, String databasePath, URI restListenUri, URI httpExternalUri, Optional<Integer> httpMaxPostSize, String pluginDirectory, String cryptoDirectory, Optional<Integer> slowQueryLogThreshold, String ntpServer, Optional<ProtocolsConfiguration> protocols, Optional<String> connectApiUri, boolean connectSkip, PerformanceConfiguration performance, DatabaseConfiguration database, MiscConfiguration misc) {
         return builder()
                 .versionchecksEnabled(versionchecksEnabled)
                 .databasePath(databasePath)
@@ -47,6 +48,7 @@ public abstract class NodeConfiguration {
                 .connectApiUri(connectApiUri)
                 .connectSkip(connectSkip)
                 .performance(performance)
+                .database(database)
                 .misc(misc)
                 .build();
     }
@@ -83,6 +85,8 @@ public abstract class NodeConfiguration {
 
         public abstract Builder performance(PerformanceConfiguration performance);
 
+        public abstract Builder database(DatabaseConfiguration database);
+
         public abstract Builder misc(MiscConfiguration misc);
 
         public abstract NodeConfiguration build();
@@ -40,6 +40,9 @@ public class NodeConfigurationLoader {
     private final Config interfaces;
     private final Config performance;
 
+    @Nullable
+    private final Config database;
+
     @Nullable
     private final Config misc;
 
@@ -55,6 +58,7 @@ public class NodeConfigurationLoader {
             this.interfaces = root.getConfig(ConfigurationKeys.INTERFACES);
             this.performance = root.getConfig(ConfigurationKeys.PERFORMANCE);
 
+            this.database = root.hasPath(ConfigurationKeys.DATABASE) ? root.getConfig(ConfigurationKeys.DATABASE) : null;
             this.misc = root.hasPath(ConfigurationKeys.MISC) ? root.getConfig(ConfigurationKeys.MISC) : null;
         } catch(ConfigException e) {
             throw new IncompleteConfigurationException("Incomplete configuration.", e);
@@ -80,6 +84,7 @@ public class NodeConfigurationLoader {
                 parseConnectUri(),
                 parseConnectSkip(),
                 parsePerformance(),
+                parseDatabase(),
                 parseMisc()
         );
     }
@@ -169,7 +174,49 @@ public class NodeConfigurationLoader {
     }
 
     private PerformanceConfiguration parsePerformance() {
-        return PerformanceConfiguration.create(performance.getInt(ConfigurationKeys.REPORT_PROCESSOR_POOL_SIZE));
+        return PerformanceConfiguration.create(
+                performance.getInt(ConfigurationKeys.REPORT_PROCESSOR_POOL_SIZE),
+                parseOptionalPerformanceInt(ConfigurationKeys.REPORT_INGEST_WORKERS),
+                parseOptionalPerformanceInt(ConfigurationKeys.REPORT_INGEST_QUEUE_SIZE),
+                parseOptionalPerformanceInt(ConfigurationKeys.TAP_METRICS_FLUSH_INTERVAL_MS),
+                parseOptionalPerformanceInt(ConfigurationKeys.TAP_METRICS_FLUSH_BATCH_SIZE),
+                parseOptionalPerformanceInt(ConfigurationKeys.TAP_METRICS_BUFFER_CAPACITY),
+                parseOptionalPerformanceInt(ConfigurationKeys.GEOIP_CACHE_SIZE),
+                parseOptionalPerformanceInt(ConfigurationKeys.GEOIP_CACHE_TTL_MINUTES),
+                parseOptionalPerformanceInt(ConfigurationKeys.DETECTION_ALERT_FLUSH_INTERVAL_MS),
+                parseOptionalPerformanceInt(ConfigurationKeys.EVENT_ACTION_WORKERS),
+                parseOptionalPerformanceInt(ConfigurationKeys.EVENT_ACTION_QUEUE_SIZE),
+                parseOptionalPerformanceInt(ConfigurationKeys.PERIODICAL_WORKERS),
+                parseOptionalPerformanceInt(ConfigurationKeys.TASKS_QUEUE_WORKERS),
+                parseOptionalPerformanceInt(ConfigurationKeys.TASKS_QUEUE_BATCH_SIZE),
+                parseOptionalPerformanceInt(ConfigurationKeys.METRICS_MEMORY_MAX_SERIES)
+        );
+    }
+
+    private Optional<Integer> parseOptionalPerformanceInt(String key) {
+        if (performance.hasPath(key)) {
+            return Optional.of(performance.getInt(key));
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    private DatabaseConfiguration parseDatabase() {
+        return DatabaseConfiguration.create(
+                parseOptionalDatabaseInt(ConfigurationKeys.DATABASE_POOL_MIN_IDLE),
+                parseOptionalDatabaseInt(ConfigurationKeys.DATABASE_POOL_MAX_SIZE),
+                parseOptionalDatabaseInt(ConfigurationKeys.DATABASE_POOL_ACQUIRE_TIMEOUT_MS),
+                parseOptionalDatabaseInt(ConfigurationKeys.DATABASE_POOL_IDLE_TIMEOUT_SECONDS),
+                parseOptionalDatabaseInt(ConfigurationKeys.DATABASE_POOL_LEAK_DETECTION_THRESHOLD_MS)
+        );
+    }
+
+    private Optional<Integer> parseOptionalDatabaseInt(String key) {
+        if (database != null && database.hasPath(key)) {
+            return Optional.of(database.getInt(key));
+        } else {
+            return Optional.empty();
+        }
     }
 
     private MiscConfiguration parseMisc() {
@@ -2,14 +2,44 @@ package app.nzyme.core.configuration.node;
 
 import com.google.auto.value.AutoValue;
 
+import java.util.Optional;
+
 @AutoValue
 public abstract class PerformanceConfiguration {
 
     public abstract int reportProcessorPoolSize();
+    public abstract Optional<Integer> reportIngestWorkers();
+    public abstract Optional<Integer> reportIngestQueueSize();
+    public abstract Optional<Integer> tapMetricsFlushIntervalMs();
+    public abstract Optional<Integer> tapMetricsFlushBatchSize();
+    public abstract Optional<Integer> tapMetricsBufferCapacity();
+    public abstract Optional<Integer> geoIpCacheSize();
+    public abstract Optional<Integer> geoIpCacheTtlMinutes();
+    public abstract Optional<Integer> detectionAlertFlushIntervalMs();
+    public abstract Optional<Integer> eventActionWorkers();
+    public abstract Optional<Integer> eventActionQueueSize();
+    public abstract Optional<Integer> periodicalWorkers();
+    public abstract Optional<Integer> tasksQueueWorkers();
+    public abstract Optional<Integer> tasksQueueBatchSize();
+    public abstract Optional<Integer> metricsMemoryMaxSeries();
 
-    public static PerformanceConfiguration create(int reportProcessorPoolSize) {
+    public static PerformanceConfiguration create(int reportProcessorPoolSize, Optional<Integer> reportIngestWorkers, Optional<Integer> reportIngestQueueSize, Optional<Integer> tapMetricsFlushIntervalMs, Optional<Integer> tapMetricsFlushBatchSize, Optional<Integer> tapMetricsBufferCapacity, Optional<Integer> geoIpCacheSize, Optional<Integer> geoIpCacheTtlMinutes, Optional<Integer> detectionAlertFlushIntervalMs, Optional<Integer> eventActionWorkers, Optional<Integer> eventActionQueueSize, Optional<Integer> periodicalWorkers, Optional<Integer> tasksQueueWorkers, Optional<Integer> tasksQueueBatchSize, Optional<Integer> metricsMemoryMaxSeries) {
         return builder()
                 .reportProcessorPoolSize(reportProcessorPoolSize)
+                .reportIngestWorkers(reportIngestWorkers)
+                .reportIngestQueueSize(reportIngestQueueSize)
+                .tapMetricsFlushIntervalMs(tapMetricsFlushIntervalMs)
+                .tapMetricsFlushBatchSize(tapMetricsFlushBatchSize)
+                .tapMetricsBufferCapacity(tapMetricsBufferCapacity)
+                .geoIpCacheSize(geoIpCacheSize)
+                .geoIpCacheTtlMinutes(geoIpCacheTtlMinutes)
+                .detectionAlertFlushIntervalMs(detectionAlertFlushIntervalMs)
+                .eventActionWorkers(eventActionWorkers)
+                .eventActionQueueSize(eventActionQueueSize)
+                .periodicalWorkers(periodicalWorkers)
+                .tasksQueueWorkers(tasksQueueWorkers)
+                .tasksQueueBatchSize(tasksQueueBatchSize)
+                .metricsMemoryMaxSeries(metricsMemoryMaxSeries)
                 .build();
     }
 
@@ -21,6 +51,34 @@ public abstract class PerformanceConfiguration {
     public abstract static class Builder {
         public abstract Builder reportProcessorPoolSize(int reportProcessorPoolSize);
 
+        public abstract Builder reportIngestWorkers(Optional<Integer> reportIngestWorkers);
+
+        public abstract Builder reportIngestQueueSize(Optional<Integer> reportIngestQueueSize);
+
+        public abstract Builder tapMetricsFlushIntervalMs(Optional<Integer> tapMetricsFlushIntervalMs);
+
+        public abstract Builder tapMetricsFlushBatchSize(Optional<Integer> tapMetricsFlushBatchSize);
+
+        public abstract Builder tapMetricsBufferCapacity(Optional<Integer> tapMetricsBufferCapacity);
+
+        public abstract Builder geoIpCacheSize(Optional<Integer> geoIpCacheSize);
+
+        public abstract Builder geoIpCacheTtlMinutes(Optional<Integer> geoIpCacheTtlMinutes);
+
+        public abstract Builder detectionAlertFlushIntervalMs(Optional<Integer> detectionAlertFlushIntervalMs);
+
+        public abstract Builder eventActionWorkers(Optional<Integer> eventActionWorkers);
+
+        public abstract Builder eventActionQueueSize(Optional<Integer> eventActionQueueSize);
+
+        public abstract Builder periodicalWorkers(Optional<Integer> periodicalWorkers);
+
+        public abstract Builder tasksQueueWorkers(Optional<Integer> tasksQueueWorkers);
+
+        public abstract Builder tasksQueueBatchSize(Optional<Integer> tasksQueueBatchSize);
+
+        public abstract Builder metricsMemoryMaxSeries(Optional<Integer> metricsMemoryMaxSeries);
+
         public abstract PerformanceConfiguration build();
     }
 }
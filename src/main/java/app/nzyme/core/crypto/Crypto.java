@@ -1,6 +1,7 @@
 package app.nzyme.core.crypto;
 
 import app.nzyme.core.crypto.database.TLSKeyAndCertificateEntry;
+import app.nzyme.core.crypto.pgp.PGPClusterKeys;
 import app.nzyme.core.crypto.pgp.PGPKeyMessageBusReceiver;
 import app.nzyme.core.crypto.pgp.PGPKeyProviderTaskHandler;
 import app.nzyme.core.crypto.pgp.PGPKeys;
@@ -39,6 +40,7 @@ import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.util.io.Streams;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
 import java.io.*;
 import java.math.BigInteger;
 import java.nio.file.Paths;
@@ -105,6 +107,8 @@ public class Crypto {
 
     private final BouncyCastleProvider bcProvider;
 
+    private final PGPClusterKeys clusterKeys;
+
     private PGPKeys nodeLocalPGPKeys = null;
 
     public Crypto(NzymeNode nzyme) {
@@ -120,6 +124,11 @@ public class Crypto {
 
         this.bcProvider = new BouncyCastleProvider();
         Security.addProvider(this.bcProvider);
+
+        this.clusterKeys = new PGPClusterKeys(
+                Paths.get(cryptoDirectoryConfig.toString(), PGP_PRIVATE_KEY_FILE_NAME).toFile(),
+                Paths.get(cryptoDirectoryConfig.toString(), PGP_PUBLIC_KEY_FILE_NAME).toFile()
+        );
     }
 
     public void initialize() throws CryptoInitializationException {
@@ -193,6 +202,9 @@ public class Crypto {
             }
         }
 
+        // Keys might have been re-generated or received from other nodes above.
+        clusterKeys.invalidate();
+
         // Load Keys. Build fingerprint.
         String keySignature;
         DateTime keyDate;
@@ -384,9 +396,8 @@ public class Crypto {
     }
 
     public byte[] encryptWithClusterKey(byte[] value) throws CryptoOperationException {
-        File publicKeyLocation = Paths.get(cryptoDirectoryConfig.toString(), PGP_PUBLIC_KEY_FILE_NAME).toFile();
         try {
-            return encrypt(value, readPublicKey(publicKeyLocation));
+            return encrypt(value, clusterKeys.getPublicKey());
         } catch (IOException | PGPException e) {
             throw new CryptoOperationException("Cannot encrypt value.", e);
         }
@@ -424,16 +435,42 @@ public class Crypto {
     }
 
     public byte[] decryptWithClusterKey(byte[] value) throws CryptoOperationException {
-        File privateKeyLocation = Paths.get(cryptoDirectoryConfig.toString(), PGP_PRIVATE_KEY_FILE_NAME).toFile();
+        return decrypt(value, clusterKeys::findPrivateKey);
+    }
 
-        try(InputStream keyIn = new FileInputStream(privateKeyLocation)) {
-            return decrypt(value, keyIn);
-        } catch (CryptoOperationException | IOException e) {
-            throw new CryptoOperationException("Cannot decrypt value.", e);
+    /**
+     * Decrypts multiple values with the cluster key. The returned list has the same order as the passed list.
+     */
+    public List<byte[]> decryptAll(List<byte[]> values) throws CryptoOperationException {
+        List<byte[]> result = Lists.newArrayListWithCapacity(values.size());
+        for (byte[] value : values) {
+            result.add(decrypt(value, clusterKeys::findPrivateKey));
         }
+
+        return result;
+    }
+
+    /**
+     * Drops the parsed cluster keys. Must be called after the PGP key files have been replaced.
+     */
+    public void invalidateClusterKeys() {
+        clusterKeys.invalidate();
     }
 
     public byte[] decrypt(byte[] value, InputStream keyInput) throws CryptoOperationException {
+        PGPSecretKeyRingCollection pgpSec;
+        try {
+            pgpSec = new PGPSecretKeyRingCollection(
+                    PGPUtil.getDecoderStream(keyInput), new JcaKeyFingerprintCalculator()
+            );
+        } catch (IOException | PGPException e) {
+            throw new CryptoOperationException("Cannot decrypt value.", e);
+        }
+
+        return decrypt(value, keyId -> Optional.ofNullable(findSecretKey(pgpSec, keyId)));
+    }
+
+    private byte[] decrypt(byte[] value, PrivateKeyLookup keyLookup) throws CryptoOperationException {
         try(InputStream dataIn = PGPUtil.getDecoderStream(new ByteArrayInputStream(value))) {
             Timer.Context timer = decryptionTimer.time();
 
@@ -452,13 +489,10 @@ public class Crypto {
             Iterator<PGPEncryptedData> it = enc.getEncryptedDataObjects();
             PGPPrivateKey sKey = null;
             PGPPublicKeyEncryptedData pbe = null;
-            PGPSecretKeyRingCollection pgpSec = new PGPSecretKeyRingCollection(
-                    PGPUtil.getDecoderStream(keyInput), new JcaKeyFingerprintCalculator()
-            );
 
             while (sKey == null && it.hasNext()) {
                 pbe = (PGPPublicKeyEncryptedData) it.next();
-                sKey = findSecretKey(pgpSec, pbe.getKeyID());
+                sKey = keyLookup.find(pbe.getKeyID()).orElse(null);
             }
 
             if (sKey == null) {
@@ -879,7 +913,8 @@ public class Crypto {
                 .orElse(Boolean.parseBoolean(CryptoRegistryKeys.PGP_KEY_SYNC_ENABLED.defaultValue().get()));
     }
 
-    private PGPPrivateKey findSecretKey(PGPSecretKeyRingCollection pgpSec, long keyID) throws PGPException {
+    @Nullable
+    public static PGPPrivateKey findSecretKey(PGPSecretKeyRingCollection pgpSec, long keyID) throws PGPException {
         PGPSecretKey pgpSecKey = pgpSec.getSecretKey(keyID);
 
         if (pgpSecKey == null) {
@@ -1047,6 +1082,11 @@ public class Crypto {
         }
     }
 
+    @FunctionalInterface
+    private interface PrivateKeyLookup {
+        Optional<PGPPrivateKey> find(long keyId) throws IOException, PGPException;
+    }
+
     public static final class CryptoInitializationException extends Throwable {
         public CryptoInitializationException(String msg) {
             super(msg);
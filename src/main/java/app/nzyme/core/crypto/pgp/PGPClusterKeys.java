@@ -0,0 +1,108 @@
+package app.nzyme.core.crypto.pgp;
+
+import app.nzyme.core.crypto.Crypto;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.jcajce.JcaKeyFingerprintCalculator;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed PGP cluster key material. The key files are read once and kept in memory until {@link #invalidate()} is
+ * called, for example after new keys were written to disk by PGP key sync.
+ */
+public class PGPClusterKeys {
+
+    private static final Logger LOG = LogManager.getLogger(PGPClusterKeys.class);
+
+    private final File privateKeyFile;
+    private final File publicKeyFile;
+
+    @Nullable
+    private volatile Loaded loaded = null;
+
+    public PGPClusterKeys(File privateKeyFile, File publicKeyFile) {
+        this.privateKeyFile = privateKeyFile;
+        this.publicKeyFile = publicKeyFile;
+    }
+
+    public PGPPublicKey getPublicKey() throws IOException, PGPException {
+        return load().publicKey;
+    }
+
+    /**
+     * @return The extracted private key with the given key ID or empty if the cluster keyring does not contain it.
+     */
+    public Optional<PGPPrivateKey> findPrivateKey(long keyId) throws IOException, PGPException {
+        Loaded keys = load();
+
+        PGPPrivateKey cached = keys.privateKeys.get(keyId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // Extracting the private key is expensive. Only do it once per key ID.
+        PGPPrivateKey extracted = Crypto.findSecretKey(keys.secretKeys, keyId);
+        if (extracted == null) {
+            return Optional.empty();
+        }
+
+        keys.privateKeys.put(keyId, extracted);
+        return Optional.of(extracted);
+    }
+
+    public void invalidate() {
+        loaded = null;
+    }
+
+    private Loaded load() throws IOException, PGPException {
+        Loaded current = loaded;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (loaded == null) {
+                PGPSecretKeyRingCollection secretKeys;
+                try (InputStream keyIn = new BufferedInputStream(new FileInputStream(privateKeyFile))) {
+                    secretKeys = new PGPSecretKeyRingCollection(
+                            PGPUtil.getDecoderStream(keyIn), new JcaKeyFingerprintCalculator()
+                    );
+                }
+
+                loaded = new Loaded(Crypto.readPublicKey(publicKeyFile), secretKeys);
+                LOG.debug("Loaded PGP cluster keys from [{}].", privateKeyFile.getParent());
+            }
+
+            return loaded;
+        }
+    }
+
+    private static final class Loaded {
+
+        private final PGPPublicKey publicKey;
+        private final PGPSecretKeyRingCollection secretKeys;
+        private final Map<Long, PGPPrivateKey> privateKeys;
+
+        private Loaded(PGPPublicKey publicKey, PGPSecretKeyRingCollection secretKeys) {
+            this.publicKey = publicKey;
+            this.secretKeys = secretKeys;
+            this.privateKeys = new ConcurrentHashMap<>();
+        }
+
+    }
+
+}
@@ -61,6 +61,7 @@ public class PGPKeyMessageBusReceiver implements MessageHandler {
 
             Files.write(privateKey, privateKeyLocation);
             Files.write(publicKey, publicKeyLocation);
+            crypto.invalidateClusterKeys();
 
             LOG.info("Decrypted keys written to disk.");
 
@@ -2,6 +2,7 @@ package app.nzyme.core.database;
 
 import app.nzyme.core.bluetooth.db.BluetoothDeviceEntryMapper;
 import app.nzyme.core.bluetooth.db.BluetoothDeviceSummaryMapper;
+import app.nzyme.core.configuration.node.DatabaseConfiguration;
 import app.nzyme.core.configuration.node.NodeConfiguration;
 import app.nzyme.core.context.db.MacAddressContextEntryMapper;
 import app.nzyme.core.context.db.MacAddressTransparentContextEntryMapper;
@@ -44,12 +45,16 @@ import app.nzyme.core.uav.db.UavEntryMapper;
 import app.nzyme.core.uav.db.UavTimelineEntryMapper;
 import app.nzyme.core.uav.db.UavTypeEntryMapper;
 import app.nzyme.core.uav.db.UavVectorEntryMapper;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Database;
 import app.nzyme.core.crypto.database.PGPKeyFingerprintMapper;
 import app.nzyme.core.taps.db.*;
 import app.nzyme.core.taps.db.metrics.TapMetricsAggregationMapper;
 import app.nzyme.core.taps.db.metrics.TapMetricsGaugeMapper;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Lists;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import liquibase.*;
 import liquibase.database.DatabaseFactory;
 import liquibase.database.jvm.JdbcConnection;
@@ -68,10 +73,14 @@ import org.jdbi.v3.jodatime2.JodaTimePlugin;
 import org.jdbi.v3.postgres.PostgresPlugin;
 import org.joda.time.DateTime;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class DatabaseImpl implements Database {
 
@@ -80,14 +89,17 @@ public class DatabaseImpl implements Database {
     private final NodeConfiguration configuration;
 
     private Jdbi jdbi;
+    private HikariDataSource dataSource;
 
     public DatabaseImpl(NodeConfiguration configuration) {
         this.configuration = configuration;
     }
 
     public void initialize() throws LiquibaseException {
+        this.dataSource = buildConnectionPool();
+
         // TODO use reflection here at some point.
-        this.jdbi = Jdbi.create("jdbc:" + configuration.databasePath())
+        this.jdbi = Jdbi.create(dataSource)
                 .installPlugin(new PostgresPlugin())
                 .installPlugin(new JodaTimePlugin())
                 .registerRowMapper(new TapMapper())
@@ -124,6 +136,7 @@ public class DatabaseImpl implements Database {
                 .registerRowMapper(new SSIDDetailsMapper())
                 .registerRowMapper(new Dot11AdvertisementHistogramEntryMapper())
                 .registerRowMapper(new SignalTrackHistogramEntryMapper())
+                .registerRowMapper(new SignalTrackWaterfallEntryMapper())
                 .registerRowMapper(new ActiveChannelMapper())
                 .registerRowMapper(new ConnectedClientDetailsMapper())
                 .registerRowMapper(new DisconnectedClientDetailsMapper())
@@ -226,6 +239,57 @@ public class DatabaseImpl implements Database {
         }
     }
 
+    private HikariDataSource buildConnectionPool() {
+        DatabaseConfiguration dbConfig = configuration.database();
+
+        HikariConfig pool = new HikariConfig();
+        pool.setPoolName(MetricNames.DATABASE_POOL_NAME);
+        pool.setJdbcUrl("jdbc:" + configuration.databasePath());
+        pool.setMinimumIdle(dbConfig.poolMinIdle().orElse(2)); // Default: 2
+        pool.setMaximumPoolSize(dbConfig.poolMaxSize().orElse(25)); // Default: 25
+        pool.setConnectionTimeout(dbConfig.poolAcquireTimeoutMs().orElse(30000)); // Default: 30 seconds
+        pool.setIdleTimeout(TimeUnit.SECONDS.toMillis(dbConfig.poolIdleTimeoutSeconds().orElse(600))); // Default: 10 minutes
+        pool.setLeakDetectionThreshold(dbConfig.poolLeakDetectionThresholdMs().orElse(60000)); // Default: 60 seconds
+
+        // Do not fail on startup if PostgreSQL is not reachable yet. We retry below.
+        pool.setInitializationFailTimeout(-1);
+
+        LOG.info("Database connection pool: min idle <{}>, max size <{}>, acquire timeout <{}ms>, " +
+                        "idle timeout <{}ms>, leak detection threshold <{}ms>.",
+                pool.getMinimumIdle(), pool.getMaximumPoolSize(), pool.getConnectionTimeout(),
+                pool.getIdleTimeout(), pool.getLeakDetectionThreshold());
+
+        return new HikariDataSource(pool);
+    }
+
+    /**
+     * Registers the connection pool metrics (active, idle, waiting, acquire timing, ...) with the metrics registry.
+     * The metrics registry is not available yet when the database is initialized.
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        if (dataSource != null) {
+            dataSource.setMetricRegistry(metrics);
+        }
+    }
+
+    public HikariDataSource getConnectionPool() {
+        return dataSource;
+    }
+
+    /**
+     * Opens a connection that is not managed by the connection pool, for long-lived uses like LISTEN. The caller
+     * must close it.
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection("jdbc:" + configuration.databasePath());
+    }
+
+    public void close() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
     public void migrate() throws LiquibaseException {
         Jdbi migrationJdbi = Jdbi.create("jdbc:" + configuration.databasePath())
                 .installPlugin(new PostgresPlugin());
@@ -294,7 +358,7 @@ public class DatabaseImpl implements Database {
                 tables.add(new DataTableInformation(
                         "dot11_bssids",
                         "SELECT COUNT(*) FROM dot11_bssids WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dot11_bssids WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dot11_bssids WHERE id IN (SELECT id FROM dot11_bssids WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
@@ -349,7 +413,7 @@ public class DatabaseImpl implements Database {
                 tables.add(new DataTableInformation(
                         "dot11_disco_activity",
                         "SELECT COUNT(*) FROM dot11_disco_activity WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dot11_disco_activity WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dot11_disco_activity WHERE id IN (SELECT id FROM dot11_disco_activity WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
@@ -361,7 +425,7 @@ public class DatabaseImpl implements Database {
                 tables.add(new DataTableInformation(
                         "dot11_clients",
                         "SELECT COUNT(*) FROM dot11_clients WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dot11_clients WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dot11_clients WHERE id IN (SELECT id FROM dot11_clients WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
@@ -369,63 +433,87 @@ public class DatabaseImpl implements Database {
                         "SELECT COUNT(*) FROM dot11_client_probereq_ssids WHERE tap_uuid IN (<taps>)",
                         null
                 ));
+
+                tables.add(new DataTableInformation(
+                        "dot11_bssid_rollups_minute",
+                        "SELECT COUNT(*) FROM dot11_bssid_rollups_minute WHERE tap_uuid IN (<taps>)",
+                        "DELETE FROM dot11_bssid_rollups_minute WHERE id IN (SELECT id FROM dot11_bssid_rollups_minute WHERE bucket < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
+                ));
+
+                tables.add(new DataTableInformation(
+                        "dot11_bssid_rollups_hour",
+                        "SELECT COUNT(*) FROM dot11_bssid_rollups_hour WHERE tap_uuid IN (<taps>)",
+                        "DELETE FROM dot11_bssid_rollups_hour WHERE id IN (SELECT id FROM dot11_bssid_rollups_hour WHERE bucket < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
+                ));
+
+                tables.add(new DataTableInformation(
+                        "dot11_ssid_rollups_minute",
+                        "SELECT COUNT(*) FROM dot11_ssid_rollups_minute WHERE tap_uuid IN (<taps>)",
+                        "DELETE FROM dot11_ssid_rollups_minute WHERE id IN (SELECT id FROM dot11_ssid_rollups_minute WHERE bucket < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
+                ));
+
+                tables.add(new DataTableInformation(
+                        "dot11_ssid_rollups_hour",
+                        "SELECT COUNT(*) FROM dot11_ssid_rollups_hour WHERE tap_uuid IN (<taps>)",
+                        "DELETE FROM dot11_ssid_rollups_hour WHERE id IN (SELECT id FROM dot11_ssid_rollups_hour WHERE bucket < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
+                ));
             }
             case BLUETOOTH -> {
                 tables.add(new DataTableInformation(
                         "bluetooth_devices",
                         "SELECT COUNT(*) FROM bluetooth_devices WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM bluetooth_devices WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM bluetooth_devices WHERE id IN (SELECT id FROM bluetooth_devices WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
             }
             case ETHERNET_L4 -> {
                 tables.add(new DataTableInformation(
                         "l4_sessions",
                         "SELECT COUNT(*) FROM l4_sessions WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM l4_sessions WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM l4_sessions WHERE id IN (SELECT id FROM l4_sessions WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
                         "ssh_sessions",
                         "SELECT COUNT(*) FROM ssh_sessions LEFT JOIN l4_sessions ON l4_sessions.session_key = ssh_sessions.tcp_session_key WHERE l4_sessions.tap_uuid IN (<taps>)",
-                        "DELETE FROM ssh_sessions WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM ssh_sessions WHERE id IN (SELECT id FROM ssh_sessions WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
                         "socks_tunnels",
                         "SELECT COUNT(*) FROM socks_tunnels LEFT JOIN l4_sessions ON l4_sessions.session_key = socks_tunnels.tcp_session_key WHERE l4_sessions.tap_uuid IN (<taps>)",
-                        "DELETE FROM socks_tunnels WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM socks_tunnels WHERE id IN (SELECT id FROM socks_tunnels WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
             }
             case ETHERNET_DNS -> {
                 tables.add(new DataTableInformation(
                         "dns_log",
                         "SELECT COUNT(*) FROM dns_log WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dns_log WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dns_log WHERE id IN (SELECT id FROM dns_log WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
                         "dns_entropy_log",
                         "SELECT COUNT(*) FROM dns_entropy_log WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dns_entropy_log WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dns_entropy_log WHERE id IN (SELECT id FROM dns_entropy_log WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
                         "dns_pairs",
                         "SELECT COUNT(*) FROM dns_pairs WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dns_pairs WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dns_pairs WHERE id IN (SELECT id FROM dns_pairs WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
 
                 tables.add(new DataTableInformation(
                         "dns_statistics",
                         "SELECT COUNT(*) FROM dns_statistics WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM dns_statistics WHERE created_at < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM dns_statistics WHERE id IN (SELECT id FROM dns_statistics WHERE created_at < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
             }
             case UAV -> {
                 tables.add(new DataTableInformation(
                         "uavs",
                         "SELECT COUNT(*) FROM uavs WHERE tap_uuid IN (<taps>)",
-                        "DELETE FROM uavs WHERE last_seen < :since AND tap_uuid IN (<taps>)"
+                        "DELETE FROM uavs WHERE id IN (SELECT id FROM uavs WHERE last_seen < :since AND tap_uuid IN (<taps>) LIMIT :limit)"
                 ));
             }
         }
@@ -6,7 +6,9 @@ import app.nzyme.core.ethernet.EthernetRegistryKeys;
 import app.nzyme.core.rest.responses.bluetooth.BluetoothRegistryKeys;
 import app.nzyme.core.uav.UavRegistryKeys;
 import jakarta.validation.constraints.NotNull;
+import org.jdbi.v3.core.Handle;
 
+import java.util.List;
 import java.util.UUID;
 
 public class DatabaseTools {
@@ -45,4 +47,21 @@ public class DatabaseTools {
                 .orElse(defaultValue));
     }
 
+    /**
+     * Pre-allocates IDs from the sequence of the `id` column of a table in one query. Used to write parent and child
+     * rows in bulk without a `RETURNING id` round trip per parent row.
+     */
+    public static List<Long> allocateIds(Handle handle, String table, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+
+        return handle.createQuery("SELECT nextval(pg_get_serial_sequence(:table, 'id')) " +
+                        "FROM generate_series(1, :count)")
+                .bind("table", table)
+                .bind("count", count)
+                .mapTo(Long.class)
+                .list();
+    }
+
 }
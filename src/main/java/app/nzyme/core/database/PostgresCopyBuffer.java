@@ -0,0 +1,109 @@
+package app.nzyme.core.database;
+
+import com.google.common.base.Joiner;
+import org.jdbi.v3.core.Handle;
+import org.joda.time.DateTime;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Collects rows in PostgreSQL COPY text format and streams them into a table in a single round trip.
+ */
+public class PostgresCopyBuffer {
+
+    private final String table;
+    private final List<String> columns;
+
+    private final StringBuilder buffer;
+    private int rows;
+
+    public PostgresCopyBuffer(String table, String... columns) {
+        this.table = table;
+        this.columns = List.of(columns);
+        this.buffer = new StringBuilder();
+        this.rows = 0;
+    }
+
+    public PostgresCopyBuffer addRow(Object... values) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected <" + columns.size() + "> values for table [" + table + "] " +
+                    "but got <" + values.length + ">.");
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append('\t');
+            }
+
+            appendValue(values[i]);
+        }
+
+        buffer.append('\n');
+        rows++;
+
+        return this;
+    }
+
+    /**
+     * Streams all buffered rows into the table using the connection of the passed handle. Runs in the transaction of
+     * the handle, if one is open.
+     *
+     * @return The number of written rows.
+     */
+    public long copyIn(Handle handle) throws SQLException, IOException {
+        if (rows == 0) {
+            return 0;
+        }
+
+        CopyManager copy = handle.getConnection().unwrap(PGConnection.class).getCopyAPI();
+        return copy.copyIn(
+                "COPY " + table + "(" + Joiner.on(", ").join(columns) + ") FROM STDIN",
+                new StringReader(buffer.toString())
+        );
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public void clear() {
+        buffer.setLength(0);
+        rows = 0;
+    }
+
+    String getBuffer() {
+        return buffer.toString();
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            buffer.append("\\N");
+            return;
+        }
+
+        String s;
+        if (value instanceof DateTime) {
+            // ISO8601 including time zone offset.
+            s = value.toString();
+        } else {
+            s = String.valueOf(value);
+        }
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> buffer.append("\\\\");
+                case '\t' -> buffer.append("\\t");
+                case '\n' -> buffer.append("\\n");
+                case '\r' -> buffer.append("\\r");
+                default -> buffer.append(c);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package app.nzyme.core.database;
+
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.Handle;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Receives PostgreSQL NOTIFY messages on a dedicated connection and passes them to the handler registered for their
+ * channel. Notifications sent while the connection was down are lost, so handlers are asked to re-synchronize their
+ * state after every (re)connect.
+ */
+public class PostgresNotificationListener {
+
+    private static final Logger LOG = LogManager.getLogger(PostgresNotificationListener.class);
+
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final int RECONNECT_DELAY_MS = 5000;
+
+    public interface NotificationHandler {
+        void handle(String payload);
+        void resync();
+    }
+
+    private final DatabaseImpl database;
+    private final Map<String, NotificationHandler> handlers;
+
+    private volatile boolean running = false;
+
+    public PostgresNotificationListener(DatabaseImpl database) {
+        this.database = database;
+        this.handlers = Maps.newConcurrentMap();
+    }
+
+    /**
+     * Registers a handler for a channel. Must be called before {@link #start()}. Channel names are used as SQL
+     * identifiers and must not come from user input.
+     */
+    public void listen(String channel, NotificationHandler handler) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid notification channel name [" + channel + "].");
+        }
+
+        handlers.put(channel, handler);
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        Thread listener = new Thread(this::run, "postgres-notification-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public void shutdown() {
+        running = false;
+    }
+
+    public static void notify(Handle handle, String channel, String payload) {
+        handle.execute("SELECT pg_notify(?, ?)", channel, payload);
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = database.openDedicatedConnection()) {
+                PGConnection pg = connection.unwrap(PGConnection.class);
+
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : handlers.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+
+                LOG.debug("Listening for notifications on channels {}.", handlers.keySet());
+
+                for (NotificationHandler handler : handlers.values()) {
+                    try {
+                        handler.resync();
+                    } catch (Exception e) {
+                        LOG.error("Could not re-synchronize notification handler.", e);
+                    }
+                }
+
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+
+                    for (PGNotification notification : notifications) {
+                        NotificationHandler handler = handlers.get(notification.getName());
+                        if (handler == null) {
+                            continue;
+                        }
+
+                        try {
+                            handler.handle(notification.getParameter());
+                        } catch (Exception e) {
+                            LOG.error("Could not handle notification on channel [{}].", notification.getName(), e);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+
+                LOG.warn("Lost PostgreSQL notification connection. Reconnecting in <{}ms>.", RECONNECT_DELAY_MS, e);
+
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package app.nzyme.core.database.partitions;
+
+import app.nzyme.core.database.DataCategory;
+import jakarta.annotation.Nullable;
+
+import java.util.Optional;
+
+/**
+ * Tables partitioned by day. See the partition_high_volume_tap_tables, partition_l4_sessions and dot11_rollups
+ * migrations. dot11_bssids and dot11_clients are not partitioned because other tables reference them by foreign key.
+ */
+public enum PartitionedTable {
+
+    DNS_LOG("dns_log", "created_at", DataCategory.ETHERNET_DNS, null),
+    DNS_ENTROPY_LOG("dns_entropy_log", "created_at", DataCategory.ETHERNET_DNS, null),
+    DNS_PAIRS("dns_pairs", "created_at", DataCategory.ETHERNET_DNS, null),
+    DNS_STATISTICS("dns_statistics", "created_at", DataCategory.ETHERNET_DNS, null),
+    SSH_SESSIONS("ssh_sessions", "created_at", DataCategory.ETHERNET_L4, null),
+    SOCKS_TUNNELS("socks_tunnels", "created_at", DataCategory.ETHERNET_L4, null),
+    L4_SESSIONS("l4_sessions", "start_time", DataCategory.ETHERNET_L4, null),
+    BLUETOOTH_DEVICES("bluetooth_devices", "created_at", DataCategory.BLUETOOTH, null),
+    TAP_METRICS_GAUGES("tap_metrics_gauges", "created_at", null, 24),
+    TAP_METRICS_TIMERS("tap_metrics_timers", "created_at", null, 24),
+    NODE_METRICS_GAUGES("node_metrics_gauges", "created_at", null, 24),
+    NODE_METRICS_TIMERS("node_metrics_timers", "created_at", null, 24),
+    DOT11_BSSID_ROLLUPS_MINUTE("dot11_bssid_rollups_minute", "bucket", null, 48),
+    DOT11_BSSID_ROLLUPS_HOUR("dot11_bssid_rollups_hour", "bucket", DataCategory.DOT11, null),
+    DOT11_SSID_ROLLUPS_MINUTE("dot11_ssid_rollups_minute", "bucket", null, 48),
+    DOT11_SSID_ROLLUPS_HOUR("dot11_ssid_rollups_hour", "bucket", DataCategory.DOT11, null);
+
+    private final String tableName;
+
+    // Column the table is partitioned by.
+    private final String partitionColumn;
+
+    // Retention is either configured per tenant for the data category or fixed.
+    @Nullable
+    private final DataCategory dataCategory;
+    @Nullable
+    private final Integer fixedRetentionHours;
+
+    PartitionedTable(String tableName,
+                     String partitionColumn,
+                     @Nullable DataCategory dataCategory,
+                     @Nullable Integer fixedRetentionHours) {
+        this.tableName = tableName;
+        this.partitionColumn = partitionColumn;
+        this.dataCategory = dataCategory;
+        this.fixedRetentionHours = fixedRetentionHours;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+
+    public Optional<DataCategory> getDataCategory() {
+        return Optional.ofNullable(dataCategory);
+    }
+
+    public Optional<Integer> getFixedRetentionHours() {
+        return Optional.ofNullable(fixedRetentionHours);
+    }
+
+}
@@ -0,0 +1,220 @@
+package app.nzyme.core.database.partitions;
+
+import app.nzyme.core.NzymeNode;
+import com.google.common.collect.Lists;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Creates and drops the daily partitions of a {@link PartitionedTable}. All partition bounds are UTC days.
+ *
+ * Partitions are named by their day: dns_log_p20250131 holds all rows created on January 31st 2025. The table that
+ * existed before partitioning is the partition dns_log_legacy_20250131, holding all rows created before that day.
+ * Rows outside all partitions go into dns_log_default, which is never dropped. Its rows are moved when the partition
+ * of their day is created and deleted in chunks when they expire.
+ */
+public class TablePartitions {
+
+    private static final Logger LOG = LogManager.getLogger(TablePartitions.class);
+
+    private static final DateTimeFormatter DAY = DateTimeFormat.forPattern("yyyyMMdd").withZoneUTC();
+
+    private static final int DEFAULT_PARTITION_DELETE_BATCH_SIZE = 10000;
+
+    private final NzymeNode nzyme;
+
+    public TablePartitions(NzymeNode nzyme) {
+        this.nzyme = nzyme;
+    }
+
+    /**
+     * Creates all missing partitions from today, or the end of the legacy partition if that is later, until the
+     * given number of days ahead.
+     */
+    public void createAhead(PartitionedTable table, int days) {
+        LocalDate today = LocalDate.now(DateTimeZone.UTC);
+        List<String> existing = findPartitions(table);
+
+        LocalDate first = today;
+        for (String partition : existing) {
+            if (partition.startsWith(table.getTableName() + "_legacy_")) {
+                Optional<DateTime> upperBound = parseUpperBound(table.getTableName(), partition);
+                if (upperBound.isPresent() && upperBound.get().toLocalDate().isAfter(first)) {
+                    first = upperBound.get().toLocalDate();
+                }
+            }
+        }
+
+        for (LocalDate day = first; !day.isAfter(today.plusDays(days)); day = day.plusDays(1)) {
+            String partition = table.getTableName() + "_p" + DAY.print(day.toDateTimeAtStartOfDay(DateTimeZone.UTC));
+
+            if (existing.contains(partition)) {
+                continue;
+            }
+
+            try {
+                createPartition(table, partition, day);
+            } catch (Exception e) {
+                LOG.warn("Could not create partition [{}].", partition, e);
+            }
+        }
+    }
+
+    private void createPartition(PartitionedTable table, String partition, LocalDate day) {
+        nzyme.getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+            boolean hasDefaultRows = tx.createQuery("SELECT EXISTS(SELECT 1 FROM <default> " +
+                            "WHERE <column> >= <from> AND <column> < <to>)")
+                    .define("default", defaultPartition(table))
+                    .define("column", table.getPartitionColumn())
+                    .define("from", toBound(day))
+                    .define("to", toBound(day.plusDays(1)))
+                    .mapTo(Boolean.class)
+                    .one();
+
+            if (!hasDefaultRows) {
+                tx.createUpdate("CREATE TABLE IF NOT EXISTS <partition> PARTITION OF <table> " +
+                                "FOR VALUES FROM (<from>) TO (<to>)")
+                        .define("partition", partition)
+                        .define("table", table.getTableName())
+                        .define("from", toBound(day))
+                        .define("to", toBound(day.plusDays(1)))
+                        .execute();
+                return;
+            }
+
+            // The new partition would overlap rows in the default partition. Move them into it first.
+            LOG.info("Moving rows of partition [{}] out of the default partition of table [{}].",
+                    partition, table.getTableName());
+
+            tx.createUpdate("CREATE TABLE <partition> (LIKE <table> INCLUDING DEFAULTS)")
+                    .define("partition", partition)
+                    .define("table", table.getTableName())
+                    .execute();
+
+            tx.createUpdate("WITH moved AS (DELETE FROM <default> WHERE <column> >= <from> AND <column> < <to> " +
+                            "RETURNING *) INSERT INTO <partition> SELECT * FROM moved")
+                    .define("default", defaultPartition(table))
+                    .define("partition", partition)
+                    .define("column", table.getPartitionColumn())
+                    .define("from", toBound(day))
+                    .define("to", toBound(day.plusDays(1)))
+                    .execute();
+
+            tx.createUpdate("ALTER TABLE <table> ATTACH PARTITION <partition> FOR VALUES FROM (<from>) TO (<to>)")
+                    .define("table", table.getTableName())
+                    .define("partition", partition)
+                    .define("from", toBound(day))
+                    .define("to", toBound(day.plusDays(1)))
+                    .execute();
+        }));
+    }
+
+    /**
+     * Drops all partitions that only hold rows created before the cutoff.
+     */
+    public List<String> dropBefore(PartitionedTable table, DateTime cutoff) {
+        List<String> dropped = Lists.newArrayList();
+
+        for (String partition : findPartitions(table)) {
+            Optional<DateTime> upperBound = parseUpperBound(table.getTableName(), partition);
+
+            if (upperBound.isEmpty() || upperBound.get().isAfter(cutoff)) {
+                continue;
+            }
+
+            LOG.info("Dropping partition [{}] of table [{}]. All rows are older than [{}].",
+                    partition, table.getTableName(), cutoff);
+
+            nzyme.getDatabase().useHandle(handle ->
+                    handle.createUpdate("DROP TABLE IF EXISTS <partition>")
+                            .define("partition", partition)
+                            .execute()
+            );
+
+            dropped.add(partition);
+        }
+
+        long deleted = deleteFromDefaultBefore(table, cutoff);
+        if (deleted > 0) {
+            LOG.info("Deleted <{}> rows older than [{}] from the default partition of table [{}].",
+                    deleted, cutoff, table.getTableName());
+        }
+
+        return dropped;
+    }
+
+    /**
+     * Deletes all rows created before the cutoff from the default partition, in chunks.
+     *
+     * @return Number of deleted rows.
+     */
+    public long deleteFromDefaultBefore(PartitionedTable table, DateTime cutoff) {
+        long total = 0;
+        while (true) {
+            int deleted = nzyme.getDatabase().withHandle(handle ->
+                    handle.createUpdate("DELETE FROM <default> WHERE ctid IN (SELECT ctid FROM <default> " +
+                                    "WHERE <column> < :cutoff LIMIT :limit)")
+                            .define("default", defaultPartition(table))
+                            .define("column", table.getPartitionColumn())
+                            .bind("cutoff", cutoff)
+                            .bind("limit", DEFAULT_PARTITION_DELETE_BATCH_SIZE)
+                            .execute()
+            );
+
+            total += deleted;
+
+            if (deleted < DEFAULT_PARTITION_DELETE_BATCH_SIZE) {
+                return total;
+            }
+        }
+    }
+
+    public List<String> findPartitions(PartitionedTable table) {
+        return nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT c.relname FROM pg_inherits i " +
+                                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                                "JOIN pg_class p ON p.oid = i.inhparent " +
+                                "WHERE p.relname = :table ORDER BY c.relname")
+                        .bind("table", table.getTableName())
+                        .mapTo(String.class)
+                        .list()
+        );
+    }
+
+    /**
+     * The exclusive upper bound of a partition, derived from its name. Empty for the default partition and
+     * partitions not named by this class.
+     */
+    public static Optional<DateTime> parseUpperBound(String tableName, String partition) {
+        try {
+            if (partition.startsWith(tableName + "_legacy_")) {
+                return Optional.of(DAY.parseDateTime(partition.substring(tableName.length() + 8)));
+            }
+
+            if (partition.startsWith(tableName + "_p")) {
+                return Optional.of(DAY.parseDateTime(partition.substring(tableName.length() + 2)).plusDays(1));
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Ignoring partition [{}] with unexpected name.", partition);
+        }
+
+        return Optional.empty();
+    }
+
+    private static String defaultPartition(PartitionedTable table) {
+        return table.getTableName() + "_default";
+    }
+
+    private static String toBound(LocalDate day) {
+        return "'" + day.toString("yyyy-MM-dd") + " 00:00:00+00'";
+    }
+
+}
@@ -10,6 +10,9 @@ import java.util.UUID;
 
 public class PurgeTask {
 
+    // Rows deleted per statement. Keeps transactions and locks short on large tables.
+    private static final int PURGE_BATCH_SIZE = 10000;
+
     protected TaskProcessingResult purge(NzymeNode nzyme,
                                          List<UUID> tapUuids,
                                          List<DataTableInformation> tables,
@@ -22,20 +25,21 @@ public class PurgeTask {
             for (DataTableInformation table : tables) {
                 // Check if we have a purge query. (Some tables are purged via relation/cascade)
                 if (table.getPurgeQuery() != null) {
-                    handle.createUpdate(table.getPurgeQuery())
-                            .bindList("taps", tapUuids)
-                            .bind("since", since)
-                            .execute();
+                    int deleted;
+                    do {
+                        deleted = handle.createUpdate(table.getPurgeQuery())
+                                .bindList("taps", tapUuids)
+                                .bind("since", since)
+                                .bind("limit", PURGE_BATCH_SIZE)
+                                .execute();
+                    } while (deleted >= PURGE_BATCH_SIZE);
                 }
 
-                // Clean up all category tables, no matter if they had a purge query or not.
-                handle.createUpdate("VACUUM FULL <table_name>")
-                        .define("table_name", table.getTableName())
-                        .execute();
-                handle.createUpdate("REINDEX TABLE <table_name>")
-                        .define("table_name", table.getTableName())
-                        .execute();
-                handle.createUpdate("ANALYZE <table_name>")
+                /*
+                 * Clean up all category tables, no matter if they had a purge query or not. A plain VACUUM makes
+                 * the space reusable without the exclusive lock of VACUUM FULL that would block tap writes.
+                 */
+                handle.createUpdate("VACUUM ANALYZE <table_name>")
                         .define("table_name", table.getTableName())
                         .execute();
             }
@@ -0,0 +1,64 @@
+package app.nzyme.core.detection.alerts;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects raised alerts between two writes. Raises of an alert that is already pending are merged into it.
+ */
+public class DetectionAlertIntake {
+
+    private Map<String, PendingDetectionAlert> pending = Maps.newLinkedHashMap();
+
+    /**
+     * @return true if the alert was merged into an already pending raise of the same alert.
+     */
+    public synchronized boolean offer(PendingDetectionAlert alert) {
+        PendingDetectionAlert existing = pending.get(alert.comparisonChecksum());
+
+        if (existing == null) {
+            pending.put(alert.comparisonChecksum(), alert);
+            return false;
+        }
+
+        pending.put(alert.comparisonChecksum(), existing.coalesce(alert));
+        return true;
+    }
+
+    /**
+     * @return All pending alerts, in the order they were first raised. The intake is empty afterwards.
+     */
+    public synchronized List<PendingDetectionAlert> drain() {
+        if (pending.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        List<PendingDetectionAlert> result = ImmutableList.copyOf(pending.values());
+        pending = Maps.newLinkedHashMap();
+        return result;
+    }
+
+    /**
+     * Puts back alerts that were drained but could not be written, so the next write retries them. They are merged
+     * with newer raises of the same alert that arrived in the meantime and keep their place in front of them.
+     */
+    public synchronized void requeue(List<PendingDetectionAlert> alerts) {
+        Map<String, PendingDetectionAlert> merged = Maps.newLinkedHashMap();
+
+        for (PendingDetectionAlert alert : alerts) {
+            PendingDetectionAlert newer = pending.remove(alert.comparisonChecksum());
+            merged.put(alert.comparisonChecksum(), newer == null ? alert : alert.coalesce(newer));
+        }
+
+        merged.putAll(pending);
+        pending = merged;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+}
@@ -5,18 +5,31 @@ import app.nzyme.core.detection.alerts.db.DetectionAlertAttributeEntry;
 import app.nzyme.core.detection.alerts.db.DetectionAlertEntry;
 import app.nzyme.core.detection.alerts.db.DetectionAlertTimelineEntry;
 import app.nzyme.core.events.types.DetectionEvent;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Subsystem;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jakarta.annotation.Nullable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import org.joda.time.DateTime;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class DetectionAlertService {
@@ -27,8 +40,38 @@ public class DetectionAlertService {
 
     private final NzymeNode nzyme;
 
+    private final DetectionAlertIntake intake;
+    private final ScheduledExecutorService flusher;
+
+    // Comparison checksum to ID and UUID of alerts that exist in the database.
+    private final Cache<String, KnownAlert> knownAlerts;
+
+    private final Meter raisesMeter;
+    private final Meter coalescedRaisesMeter;
+    private final Timer flushTimer;
+
     public DetectionAlertService(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.intake = new DetectionAlertIntake();
+
+        this.knownAlerts = CacheBuilder.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+
+        this.raisesMeter = nzyme.getMetrics().meter(MetricNames.DETECTION_ALERT_RAISES);
+        this.coalescedRaisesMeter = nzyme.getMetrics().meter(MetricNames.DETECTION_ALERT_COALESCED_RAISES);
+        this.flushTimer = nzyme.getMetrics().timer(MetricNames.DETECTION_ALERT_FLUSH_TIMER);
+        nzyme.getMetrics().register(MetricNames.DETECTION_ALERT_INTAKE_SIZE, (Gauge<Integer>) intake::size);
+
+        int flushInterval = nzyme.getConfiguration().performance().detectionAlertFlushIntervalMs().orElse(1000); // Default: 1000
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("detection-alert-writer-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        this.flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
     }
 
     public int countAllDetectionTypes(@Nullable Subsystem subsystem) {
@@ -90,107 +133,264 @@ public class DetectionAlertService {
                 comparisonAttributes
         );
 
-        Optional<DetectionAlertEntry> existingAlert = findAlertWithComparisonChecksum(comparisonChecksum);
-        if (existingAlert.isPresent()) {
-            // This alert has been raised in the past.
-            LOG.debug("Alert of type [{}] with checksum [{}] is not new. Updating.",
-                    detectionType.name(), comparisonChecksum);
-
-            nzyme.getDatabase().withHandle(handle ->
-                    handle.createUpdate("UPDATE detection_alerts SET last_seen = NOW(), is_resolved = false " +
-                                    "WHERE id = :id")
-                            .bind("id", existingAlert.get().id())
-                            .execute()
-            );
+        boolean coalesced = intake.offer(PendingDetectionAlert.create(
+                comparisonChecksum,
+                organizationId,
+                tenantId,
+                dot11MonitoredNetworkId,
+                tapId,
+                detectionType,
+                subsystem,
+                details,
+                attributes,
+                DateTime.now()
+        ));
+
+        raisesMeter.mark();
+        if (coalesced) {
+            coalescedRaisesMeter.mark();
+        }
+    }
+
+    /**
+     * Writes all pending alerts in a single transaction and creates events for new and re-activated alerts.
+     */
+    public synchronized void flush() {
+        List<PendingDetectionAlert> alerts = intake.drain();
+        if (alerts.isEmpty()) {
+            return;
+        }
 
-            // Update alert attributes.
-            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
-                nzyme.getDatabase().useHandle(handle ->
-                        handle.createUpdate("UPDATE detection_alert_attributes " +
-                                        "SET attribute_value = :attribute_value " +
-                                        "WHERE detection_alert_id = :detection_alert_id " +
-                                        "AND attribute_key = :attribute_key")
-                                .bind("detection_alert_id", existingAlert.get().id())
-                                .bind("attribute_key", attribute.getKey())
-                                .bind("attribute_value", attribute.getValue())
-                                .execute()
-                );
+        Map<String, KnownAlert> known = Maps.newHashMap();
+        Set<String> activated = Sets.newHashSet();
+        Map<String, KnownAlert> created = Maps.newHashMap();
+
+        try (Timer.Context ignored = flushTimer.time()) {
+            nzyme.getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+                known.putAll(findKnownAlerts(tx, alerts));
+
+                List<PendingDetectionAlert> existing = Lists.newArrayList();
+                List<PendingDetectionAlert> fresh = Lists.newArrayList();
+                for (PendingDetectionAlert alert : alerts) {
+                    if (known.containsKey(alert.comparisonChecksum())) {
+                        existing.add(alert);
+                    } else {
+                        fresh.add(alert);
+                    }
+                }
+
+                if (!existing.isEmpty()) {
+                    activated.addAll(updateExistingAlerts(tx, existing, known, fresh));
+                }
+
+                if (!fresh.isEmpty()) {
+                    created.putAll(insertNewAlerts(tx, fresh));
+                }
+            }));
+        } catch (Exception e) {
+            // The transaction was rolled back. Keep the alerts to retry them with the next flush.
+            LOG.error("Could not write <{}> detection alerts. Retrying with next flush.", alerts.size(), e);
+            intake.requeue(alerts);
+            return;
+        }
+
+        knownAlerts.putAll(created);
+
+        // Create events for new and re-activated alerts.
+        for (PendingDetectionAlert alert : alerts) {
+            KnownAlert createdAlert = created.get(alert.comparisonChecksum());
+            if (createdAlert != null) {
+                processEvent(createdAlert.uuid(), alert);
+            } else if (activated.contains(alert.comparisonChecksum())) {
+                processEvent(known.get(alert.comparisonChecksum()).uuid(), alert);
             }
+        }
+    }
 
-            /*
-             * Write alert timeline.
-             *
-             * To show when a potentially re-activated alert was seen, we store a timeline of alerts. A new timeline
-             * entry starts when the alert is not currently active. If the alert is currently active, the current
-             * timeline entry is extended. This allows for very easy querying.
-             */
-            if (existingAlert.get().lastSeen()
-                    .isAfter(DateTime.now().minusMinutes(DetectionAlertService.ACTIVE_THRESHOLD_MINUTES))) {
-                // Active alert. Extend existing timeline entry.
-                nzyme.getDatabase().useHandle(handle ->
-                        handle.createUpdate("UPDATE detection_alert_timeline SET seen_to = NOW() " +
-                                        "WHERE id = (SELECT MAX(id) FROM detection_alert_timeline " +
-                                        "WHERE detection_alert_id = :detection_alert_id)")
-                                .bind("detection_alert_id", existingAlert.get().id())
-                                .execute()
-                );
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private Map<String, KnownAlert> findKnownAlerts(Handle handle, List<PendingDetectionAlert> alerts) {
+        Map<String, KnownAlert> result = Maps.newHashMap();
+        List<String> unknownChecksums = Lists.newArrayList();
+
+        for (PendingDetectionAlert alert : alerts) {
+            KnownAlert known = knownAlerts.getIfPresent(alert.comparisonChecksum());
+            if (known != null) {
+                result.put(alert.comparisonChecksum(), known);
             } else {
-                // Inactive alert. Create new timeline entry.
-                createAlertTimelineEntry(existingAlert.get().id());
-
-                // Create event.
-                nzyme.getEventEngine().processEvent(
-                        DetectionEvent.create(existingAlert.get().uuid(), detectionType, details, DateTime.now()),
-                        organizationId,
-                        tenantId
-                );
+                unknownChecksums.add(alert.comparisonChecksum());
             }
+        }
 
-            return;
+        // Alerts raised on other nodes or before a restart are not in the index yet.
+        if (!unknownChecksums.isEmpty()) {
+            handle.createQuery("SELECT id, uuid, comparison_checksum FROM detection_alerts " +
+                            "WHERE comparison_checksum IN (<checksums>)")
+                    .bindList("checksums", unknownChecksums)
+                    .map((rs, ctx) -> new KnownAlert(
+                            rs.getLong("id"),
+                            UUID.fromString(rs.getString("uuid")),
+                            rs.getString("comparison_checksum")
+                    ))
+                    .forEach(known -> {
+                        result.put(known.comparisonChecksum(), known);
+                        knownAlerts.put(known.comparisonChecksum(), known);
+                    });
         }
 
-        // New alert / not re-triggered.
-        UUID alertUUID = UUID.randomUUID();
-        long alertId = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("INSERT INTO detection_alerts(uuid, organization_id, tenant_id, " +
-                                "dot11_monitored_network_id, tap_id, detection_type, subsystem, comparison_checksum, " +
-                                "details, created_at, last_seen) VALUES(:uuid, :organization_id, :tenant_id, " +
-                                ":dot11_monitored_network_id, :tap_id, :detection_type, :subsystem, " +
-                                ":comparison_checksum, :details, NOW(), NOW()) RETURNING id")
-                        .bind("uuid", alertUUID)
-                        .bind("organization_id", organizationId)
-                        .bind("tenant_id", tenantId)
-                        .bind("dot11_monitored_network_id", dot11MonitoredNetworkId)
-                        .bind("tap_id", tapId)
-                        .bind("detection_type", detectionType.name())
-                        .bind("subsystem", subsystem)
-                        .bind("comparison_checksum", comparisonChecksum)
-                        .bind("details", details)
-                        .mapTo(Long.class)
-                        .one()
-        );
+        return result;
+    }
 
-        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO detection_alert_attributes(detection_alert_id, " +
-                                    "attribute_key, attribute_value) VALUES(:detection_alert_id, :attribute_key, " +
-                                    ":attribute_value)")
-                            .bind("detection_alert_id", alertId)
-                            .bind("attribute_key", attribute.getKey())
-                            .bind("attribute_value", attribute.getValue())
-                            .execute()
-            );
+    /**
+     * Alerts that no longer exist in the database are added to the passed list of alerts to create.
+     *
+     * @return The comparison checksums of alerts that were inactive before this raise and need a new event.
+     */
+    private Set<String> updateExistingAlerts(Handle handle,
+                                             List<PendingDetectionAlert> alerts,
+                                             Map<String, KnownAlert> known,
+                                             List<PendingDetectionAlert> fresh) {
+        Map<Long, PendingDetectionAlert> byId = Maps.newHashMap();
+        for (PendingDetectionAlert alert : alerts) {
+            byId.put(known.get(alert.comparisonChecksum()).id(), alert);
         }
 
-        // Write initial alert timeline entry. See comment in re-raised alert update above.
-        createAlertTimelineEntry(alertId);
+        // Returns the last_seen value from before this update to decide if the alert was active.
+        Map<Long, DateTime> previouslySeen = Maps.newHashMap();
+        handle.createQuery("UPDATE detection_alerts a SET last_seen = NOW(), is_resolved = false " +
+                        "FROM (SELECT id, last_seen FROM detection_alerts WHERE id IN (<ids>) FOR UPDATE) previous " +
+                        "WHERE a.id = previous.id RETURNING a.id, previous.last_seen")
+                .bindList("ids", Lists.newArrayList(byId.keySet()))
+                .map((rs, ctx) -> Map.entry(rs.getLong("id"), new DateTime(rs.getTimestamp("last_seen"))))
+                .forEach(e -> previouslySeen.put(e.getKey(), e.getValue()));
+
+        // Deleted in the meantime.
+        for (Map.Entry<Long, PendingDetectionAlert> alert : Lists.newArrayList(byId.entrySet())) {
+            if (!previouslySeen.containsKey(alert.getKey())) {
+                knownAlerts.invalidate(alert.getValue().comparisonChecksum());
+                known.remove(alert.getValue().comparisonChecksum());
+                fresh.add(alert.getValue());
+                byId.remove(alert.getKey());
+            }
+        }
 
-        // Create event.
-        nzyme.getEventEngine().processEvent(
-                DetectionEvent.create(alertUUID, detectionType, details, DateTime.now()),
-                organizationId,
-                tenantId
-        );
+        // Update alert attributes.
+        PreparedBatch attributes = handle.prepareBatch("UPDATE detection_alert_attributes " +
+                "SET attribute_value = :attribute_value " +
+                "WHERE detection_alert_id = :detection_alert_id AND attribute_key = :attribute_key");
+        for (Map.Entry<Long, PendingDetectionAlert> alert : byId.entrySet()) {
+            for (Map.Entry<String, String> attribute : alert.getValue().attributes().entrySet()) {
+                attributes
+                        .bind("detection_alert_id", alert.getKey())
+                        .bind("attribute_key", attribute.getKey())
+                        .bind("attribute_value", attribute.getValue())
+                        .add();
+            }
+        }
+        if (attributes.size() > 0) {
+            attributes.execute();
+        }
+
+        /*
+         * Write alert timeline.
+         *
+         * To show when a potentially re-activated alert was seen, we store a timeline of alerts. A new timeline
+         * entry starts when the alert is not currently active. If the alert is currently active, the current
+         * timeline entry is extended. This allows for very easy querying.
+         */
+        DateTime activeCutoff = DateTime.now().minusMinutes(ACTIVE_THRESHOLD_MINUTES);
+        List<Long> active = Lists.newArrayList();
+        List<Long> inactive = Lists.newArrayList();
+        Set<String> activated = Sets.newHashSet();
+        for (Map.Entry<Long, DateTime> seen : previouslySeen.entrySet()) {
+            if (seen.getValue().isAfter(activeCutoff)) {
+                active.add(seen.getKey());
+            } else {
+                inactive.add(seen.getKey());
+                activated.add(byId.get(seen.getKey()).comparisonChecksum());
+            }
+        }
+
+        if (!active.isEmpty()) {
+            // Active alerts. Extend existing timeline entries.
+            handle.createUpdate("UPDATE detection_alert_timeline SET seen_to = NOW() " +
+                            "WHERE id IN (SELECT MAX(id) FROM detection_alert_timeline " +
+                            "WHERE detection_alert_id IN (<ids>) GROUP BY detection_alert_id)")
+                    .bindList("ids", active)
+                    .execute();
+        }
+
+        // Inactive alerts. Create new timeline entries.
+        createAlertTimelineEntries(handle, inactive);
+
+        return activated;
+    }
+
+    private Map<String, KnownAlert> insertNewAlerts(Handle handle, List<PendingDetectionAlert> alerts) {
+        PreparedBatch insert = handle.prepareBatch("INSERT INTO detection_alerts(uuid, organization_id, tenant_id, " +
+                "dot11_monitored_network_id, tap_id, detection_type, subsystem, comparison_checksum, " +
+                "details, created_at, last_seen) VALUES(:uuid, :organization_id, :tenant_id, " +
+                ":dot11_monitored_network_id, :tap_id, :detection_type, :subsystem, " +
+                ":comparison_checksum, :details, NOW(), NOW())");
+
+        List<UUID> uuids = Lists.newArrayList();
+        for (PendingDetectionAlert alert : alerts) {
+            UUID alertUUID = UUID.randomUUID();
+            uuids.add(alertUUID);
+
+            insert.bind("uuid", alertUUID)
+                    .bind("organization_id", alert.organizationId())
+                    .bind("tenant_id", alert.tenantId())
+                    .bind("dot11_monitored_network_id", alert.dot11MonitoredNetworkId())
+                    .bind("tap_id", alert.tapId())
+                    .bind("detection_type", alert.detectionType().name())
+                    .bind("subsystem", alert.subsystem())
+                    .bind("comparison_checksum", alert.comparisonChecksum())
+                    .bind("details", alert.details())
+                    .add();
+        }
+
+        // Generated IDs are returned in batch order.
+        List<Long> ids = insert.executePreparedBatch("id").mapTo(Long.class).list();
+
+        Map<String, KnownAlert> result = Maps.newHashMap();
+        PreparedBatch attributes = handle.prepareBatch("INSERT INTO detection_alert_attributes(detection_alert_id, " +
+                "attribute_key, attribute_value) VALUES(:detection_alert_id, :attribute_key, :attribute_value)");
+        for (int i = 0; i < alerts.size(); i++) {
+            PendingDetectionAlert alert = alerts.get(i);
+            long alertId = ids.get(i);
+            result.put(alert.comparisonChecksum(), new KnownAlert(alertId, uuids.get(i), alert.comparisonChecksum()));
+
+            for (Map.Entry<String, String> attribute : alert.attributes().entrySet()) {
+                attributes.bind("detection_alert_id", alertId)
+                        .bind("attribute_key", attribute.getKey())
+                        .bind("attribute_value", attribute.getValue())
+                        .add();
+            }
+        }
+        if (attributes.size() > 0) {
+            attributes.execute();
+        }
+
+        // Write initial alert timeline entries. See comment in re-raised alert update above.
+        createAlertTimelineEntries(handle, ids);
+
+        return result;
+    }
+
+    private void processEvent(UUID alertUUID, PendingDetectionAlert alert) {
+        try {
+            nzyme.getEventEngine().processEvent(
+                    DetectionEvent.create(alertUUID, alert.detectionType(), alert.details(), alert.firstRaisedAt()),
+                    alert.organizationId(),
+                    alert.tenantId()
+            );
+        } catch (Exception e) {
+            LOG.error("Could not process event of detection alert [{}].", alertUUID, e);
+        }
     }
 
     private String buildSubsystemSelectorFragment(@Nullable Subsystem subsystem) {
@@ -361,6 +561,8 @@ public class DetectionAlertService {
                         .bind("uuid", uuid)
                         .execute()
         );
+
+        knownAlerts.asMap().values().removeIf(known -> known.uuid().equals(uuid));
     }
 
     public void markAlertAsResolved(UUID uuid) {
@@ -397,23 +599,17 @@ public class DetectionAlertService {
         );
     }
 
-    private Optional<DetectionAlertEntry> findAlertWithComparisonChecksum(String comparisonChecksum) {
-        return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT * FROM detection_alerts " +
-                                "WHERE comparison_checksum = :comparison_checksum")
-                        .bind("comparison_checksum", comparisonChecksum)
-                        .mapTo(DetectionAlertEntry.class)
-                        .findOne()
-        );
-    }
+    private void createAlertTimelineEntries(Handle handle, List<Long> alertIds) {
+        if (alertIds.isEmpty()) {
+            return;
+        }
 
-    private void createAlertTimelineEntry(long alertId) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO detection_alert_timeline(detection_alert_id, seen_from, " +
-                                "seen_to) VALUES(:detection_alert_id, NOW(), NOW())")
-                        .bind("detection_alert_id", alertId)
-                        .execute()
-        );
+        PreparedBatch batch = handle.prepareBatch("INSERT INTO detection_alert_timeline(detection_alert_id, " +
+                "seen_from, seen_to) VALUES(:detection_alert_id, NOW(), NOW())");
+        for (Long alertId : alertIds) {
+            batch.bind("detection_alert_id", alertId).add();
+        }
+        batch.execute();
     }
 
     private String buildChecksum(@Nullable UUID organizationId,
@@ -449,4 +645,30 @@ public class DetectionAlertService {
                 .toString();
     }
 
+    private static final class KnownAlert {
+
+        private final long id;
+        private final UUID uuid;
+        private final String comparisonChecksum;
+
+        private KnownAlert(long id, UUID uuid, String comparisonChecksum) {
+            this.id = id;
+            this.uuid = uuid;
+            this.comparisonChecksum = comparisonChecksum;
+        }
+
+        long id() {
+            return id;
+        }
+
+        UUID uuid() {
+            return uuid;
+        }
+
+        String comparisonChecksum() {
+            return comparisonChecksum;
+        }
+
+    }
+
 }
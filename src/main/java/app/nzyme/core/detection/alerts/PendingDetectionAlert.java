@@ -0,0 +1,101 @@
+package app.nzyme.core.detection.alerts;
+
+import app.nzyme.plugin.Subsystem;
+import com.google.auto.value.AutoValue;
+import org.joda.time.DateTime;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A raised detection alert that was not written to the database yet. Repeated raises with the same comparison
+ * checksum are coalesced into one pending alert.
+ */
+@AutoValue
+public abstract class PendingDetectionAlert {
+
+    public abstract String comparisonChecksum();
+    public abstract UUID organizationId();
+    public abstract UUID tenantId();
+
+    @Nullable
+    public abstract UUID dot11MonitoredNetworkId();
+
+    @Nullable
+    public abstract UUID tapId();
+
+    public abstract DetectionType detectionType();
+    public abstract Subsystem subsystem();
+    public abstract String details();
+    public abstract Map<String, String> attributes();
+    public abstract DateTime firstRaisedAt();
+    public abstract int raises();
+
+    /**
+     * @return This alert updated with the details and attributes of a newer raise of the same alert.
+     */
+    public PendingDetectionAlert coalesce(PendingDetectionAlert newer) {
+        if (!newer.comparisonChecksum().equals(comparisonChecksum())) {
+            throw new IllegalArgumentException("Cannot coalesce alerts with different comparison checksums.");
+        }
+
+        return toBuilder()
+                .details(newer.details())
+                .attributes(newer.attributes())
+                .raises(raises() + newer.raises())
+                .build();
+    }
+
+    public static PendingDetectionAlert create(String comparisonChecksum, UUID organizationId, UUID tenantId, UUID dot11MonitoredNetworkId, UUID tapId, DetectionType detectionType, Subsystem subsystem, String details, Map<String, String> attributes, DateTime firstRaisedAt) {
+        return builder()
+                .comparisonChecksum(comparisonChecksum)
+                .organizationId(organizationId)
+                .tenantId(tenantId)
+                .dot11MonitoredNetworkId(dot11MonitoredNetworkId)
+                .tapId(tapId)
+                .detectionType(detectionType)
+                .subsystem(subsystem)
+                .details(details)
+                .attributes(Collections.unmodifiableMap(new HashMap<>(attributes)))
+                .firstRaisedAt(firstRaisedAt)
+                .raises(1)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_PendingDetectionAlert.Builder();
+    }
+
+    public abstract Builder toBuilder();
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder comparisonChecksum(String comparisonChecksum);
+
+        public abstract Builder organizationId(UUID organizationId);
+
+        public abstract Builder tenantId(UUID tenantId);
+
+        public abstract Builder dot11MonitoredNetworkId(UUID dot11MonitoredNetworkId);
+
+        public abstract Builder tapId(UUID tapId);
+
+        public abstract Builder detectionType(DetectionType detectionType);
+
+        public abstract Builder subsystem(Subsystem subsystem);
+
+        public abstract Builder details(String details);
+
+        public abstract Builder attributes(Map<String, String> attributes);
+
+        public abstract Builder firstRaisedAt(DateTime firstRaisedAt);
+
+        public abstract Builder raises(int raises);
+
+        public abstract PendingDetectionAlert build();
+    }
+
+}
@@ -0,0 +1,119 @@
+package app.nzyme.core.distributed;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects one node of the cluster as leader, using a lease row in the database. The leader renews its lease
+ * periodically. If it stops doing so, for example because it crashed, any other node takes over once the lease
+ * expired. All lease times are database times, so clock drift between nodes does not matter.
+ */
+public class LeaderElection {
+
+    private static final Logger LOG = LogManager.getLogger(LeaderElection.class);
+
+    private static final String LEASE_NAME = "leader";
+
+    private static final int RENEW_INTERVAL_SECONDS = 10;
+    private static final int LEASE_DURATION_SECONDS = 30;
+
+    private final NzymeNode nzyme;
+    private final ScheduledExecutorService renewer;
+
+    private volatile boolean leader = false;
+
+    public LeaderElection(NzymeNode nzyme) {
+        this.nzyme = nzyme;
+
+        this.renewer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("leader-election-%d")
+                        .build()
+        );
+
+        nzyme.getMetrics().register(MetricNames.CLUSTER_LEADER, (Gauge<Integer>) () -> leader ? 1 : 0);
+    }
+
+    public void initialize() {
+        // Try right away, so leader-only periodicals can run on their first schedule.
+        renew();
+
+        renewer.scheduleAtFixedRate(this::renew, RENEW_INTERVAL_SECONDS, RENEW_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    private void renew() {
+        UUID localNodeId = nzyme.getNodeManager().getLocalNodeId();
+
+        boolean isLeader;
+        try {
+            // Take the lease if it is ours or expired. Returns nothing if another node holds it.
+            Optional<UUID> holder = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("INSERT INTO cluster_leases(name, node_id, expires_at) " +
+                                    "VALUES(:name, :node_id, NOW() + :duration * INTERVAL '1 second') " +
+                                    "ON CONFLICT(name) DO UPDATE SET node_id = :node_id, " +
+                                    "expires_at = NOW() + :duration * INTERVAL '1 second' " +
+                                    "WHERE cluster_leases.node_id = :node_id OR cluster_leases.expires_at < NOW() " +
+                                    "RETURNING node_id")
+                            .bind("name", LEASE_NAME)
+                            .bind("node_id", localNodeId)
+                            .bind("duration", LEASE_DURATION_SECONDS)
+                            .mapTo(UUID.class)
+                            .findOne()
+            );
+
+            isLeader = holder.isPresent();
+        } catch (Exception e) {
+            LOG.error("Could not renew leader lease. Giving up leadership.", e);
+            isLeader = false;
+        }
+
+        if (isLeader != leader) {
+            if (isLeader) {
+                LOG.info("This node [{}] is now the cluster leader.", localNodeId);
+            } else {
+                LOG.info("This node [{}] is no longer the cluster leader.", localNodeId);
+            }
+        }
+
+        this.leader = isLeader;
+    }
+
+    /**
+     * Releases the lease so another node can take over without waiting for it to expire.
+     */
+    public void shutdown() {
+        renewer.shutdownNow();
+
+        if (!leader) {
+            return;
+        }
+
+        leader = false;
+        try {
+            nzyme.getDatabase().useHandle(handle ->
+                    handle.createUpdate("DELETE FROM cluster_leases WHERE name = :name AND node_id = :node_id")
+                            .bind("name", LEASE_NAME)
+                            .bind("node_id", nzyme.getNodeManager().getLocalNodeId())
+                            .execute()
+            );
+        } catch (Exception e) {
+            LOG.warn("Could not release leader lease.", e);
+        }
+    }
+
+}
@@ -6,7 +6,10 @@ import app.nzyme.core.distributed.database.NodeEntry;
 import app.nzyme.core.distributed.database.metrics.GaugeHistogramBucket;
 import app.nzyme.core.logging.CountingAppender;
 import app.nzyme.core.monitoring.TimerEntry;
+import app.nzyme.core.monitoring.timeseries.RollingMetricsBucket;
+import app.nzyme.core.monitoring.timeseries.RollingMetricsStore;
 import app.nzyme.core.taps.db.metrics.BucketSize;
+import app.nzyme.core.taps.db.metrics.TapMetricsGauge;
 import app.nzyme.core.util.MetricNames;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
@@ -25,6 +28,7 @@ import jakarta.validation.constraints.NotNull;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
 import org.joda.time.Period;
 import org.joda.time.PeriodType;
@@ -56,9 +60,17 @@ public class NodeManager {
 
     private final LoadingCache<UUID, String> nodeNameCache;
 
+    // Gauges of the local node. Histograms of other nodes are always queried from the database.
+    private final RollingMetricsStore metricsStore;
+
     public NodeManager(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
+        this.metricsStore = new RollingMetricsStore(
+                RollingMetricsStore.DEFAULT_CAPACITY_MINUTES,
+                nzyme.getConfiguration().performance().metricsMemoryMaxSeries().orElse(2000) // Default: 2000
+        );
+
         this.tapReportSize = new AtomicLong(0);
         this.nodeNameCache = CacheBuilder.newBuilder().
                 expireAfterAccess(10, TimeUnit.SECONDS)
@@ -127,6 +139,8 @@ public class NodeManager {
         // Get current cycle.
         localCycle = getCycleOfNode(localNodeId);
 
+        loadMetricsStore();
+
         Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
                         .setNameFormat("node-metrics-updater-%d")
@@ -298,58 +312,52 @@ public class NodeManager {
             NodeInformation.Info ni = new NodeInformation().collect();
             Map<String, Long> logCounts = CountingAppender.getCounts();
 
-            writeGauge(MetricExternalName.MEMORY_BYTES_TOTAL.database_label, ni.memoryTotal());
-            writeGauge(MetricExternalName.MEMORY_BYTES_AVAILABLE.database_label, ni.memoryAvailable());
-            writeGauge(MetricExternalName.MEMORY_BYTES_USED.database_label, ni.memoryUsed());
-            writeGauge(MetricExternalName.HEAP_BYTES_TOTAL.database_label, ni.heapTotal());
-            writeGauge(MetricExternalName.HEAP_BYTES_AVAILABLE.database_label, ni.heapAvailable());
-            writeGauge(MetricExternalName.HEAP_BYTES_USED.database_label, ni.heapUsed());
-            writeGauge(MetricExternalName.CPU_SYSTEM_LOAD.database_label, ni.cpuSystemLoad());
-            writeGauge(MetricExternalName.PROCESS_VIRTUAL_SIZE.database_label, ni.processVirtualSize());
-            writeGauge(MetricExternalName.TAP_REPORT_SIZE.database_label, tapReportSize);
-            writeGauge(MetricExternalName.LOG_COUNTS_TRACE.database_label, logCounts.getOrDefault("TRACE", 0L));
-            writeGauge(MetricExternalName.LOG_COUNTS_DEBUG.database_label, logCounts.getOrDefault("DEBUG", 0L));
-            writeGauge(MetricExternalName.LOG_COUNTS_INFO.database_label, logCounts.getOrDefault("INFO", 0L));
-            writeGauge(MetricExternalName.LOG_COUNTS_WARN.database_label, logCounts.getOrDefault("WARN", 0L));
-            writeGauge(MetricExternalName.LOG_COUNTS_ERROR.database_label, logCounts.getOrDefault("ERROR", 0L));
-            writeGauge(MetricExternalName.LOG_COUNTS_FATAL.database_label, logCounts.getOrDefault("FATAL", 0L));
-            writeGauge(MetricExternalName.GEOIP_CACHE_SIZE.database_label, getLocalMetricsGaugeValue(metrics, MetricNames.GEOIP_CACHE_SIZE));
-            writeGauge(MetricExternalName.CONTEXT_MAC_CACHE_SIZE.database_label, getLocalMetricsGaugeValue(metrics, MetricNames.CONTEXT_MAC_CACHE_SIZE));
-
-            writeTimer(MetricExternalName.PGP_ENCRYPTION_TIMER.database_label,
+            PendingMetrics pending = new PendingMetrics(DateTime.now());
+
+            pending.gauge(MetricExternalName.MEMORY_BYTES_TOTAL.database_label, ni.memoryTotal());
+            pending.gauge(MetricExternalName.MEMORY_BYTES_AVAILABLE.database_label, ni.memoryAvailable());
+            pending.gauge(MetricExternalName.MEMORY_BYTES_USED.database_label, ni.memoryUsed());
+            pending.gauge(MetricExternalName.HEAP_BYTES_TOTAL.database_label, ni.heapTotal());
+            pending.gauge(MetricExternalName.HEAP_BYTES_AVAILABLE.database_label, ni.heapAvailable());
+            pending.gauge(MetricExternalName.HEAP_BYTES_USED.database_label, ni.heapUsed());
+            pending.gauge(MetricExternalName.CPU_SYSTEM_LOAD.database_label, ni.cpuSystemLoad());
+            pending.gauge(MetricExternalName.PROCESS_VIRTUAL_SIZE.database_label, ni.processVirtualSize());
+            pending.gauge(MetricExternalName.TAP_REPORT_SIZE.database_label, tapReportSize);
+            pending.gauge(MetricExternalName.LOG_COUNTS_TRACE.database_label, logCounts.getOrDefault("TRACE", 0L));
+            pending.gauge(MetricExternalName.LOG_COUNTS_DEBUG.database_label, logCounts.getOrDefault("DEBUG", 0L));
+            pending.gauge(MetricExternalName.LOG_COUNTS_INFO.database_label, logCounts.getOrDefault("INFO", 0L));
+            pending.gauge(MetricExternalName.LOG_COUNTS_WARN.database_label, logCounts.getOrDefault("WARN", 0L));
+            pending.gauge(MetricExternalName.LOG_COUNTS_ERROR.database_label, logCounts.getOrDefault("ERROR", 0L));
+            pending.gauge(MetricExternalName.LOG_COUNTS_FATAL.database_label, logCounts.getOrDefault("FATAL", 0L));
+            pending.gauge(MetricExternalName.GEOIP_CACHE_SIZE.database_label, getLocalMetricsGaugeValue(metrics, MetricNames.GEOIP_CACHE_SIZE));
+            pending.gauge(MetricExternalName.CONTEXT_MAC_CACHE_SIZE.database_label, getLocalMetricsGaugeValue(metrics, MetricNames.CONTEXT_MAC_CACHE_SIZE));
+
+            pending.timer(MetricExternalName.PGP_ENCRYPTION_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.PGP_ENCRYPTION_TIMING));
-            writeTimer(MetricExternalName.PGP_DECRYPTION_TIMER.database_label,
+            pending.timer(MetricExternalName.PGP_DECRYPTION_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.PGP_DECRYPTION_TIMING));
-            writeTimer(MetricExternalName.PASSWORD_HASHING_TIMER.database_label,
+            pending.timer(MetricExternalName.PASSWORD_HASHING_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.PASSWORD_HASHING_TIMER));
-            writeTimer(MetricExternalName.CONTEXT_MAC_LOOKUP_TIMER.database_label,
+            pending.timer(MetricExternalName.CONTEXT_MAC_LOOKUP_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.CONTEXT_MAC_LOOKUP_TIMING));
 
-            writeTimer(MetricExternalName.REPORT_PROCESSING_DOT11_TIMER.database_label,
+            pending.timer(MetricExternalName.REPORT_PROCESSING_DOT11_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.DOT11_TOTAL_REPORT_PROCESSING_TIMER));
-            writeTimer(MetricExternalName.REPORT_PROCESSING_TCP_TIMER.database_label,
+            pending.timer(MetricExternalName.REPORT_PROCESSING_TCP_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.TCP_TOTAL_REPORT_PROCESSING_TIMER));
-            writeTimer(MetricExternalName.REPORT_PROCESSING_DNS_TIMER.database_label,
+            pending.timer(MetricExternalName.REPORT_PROCESSING_DNS_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.DNS_TOTAL_REPORT_PROCESSING_TIMER));
-            writeTimer(MetricExternalName.REPORT_PROCESSING_SSH_TIMER.database_label,
+            pending.timer(MetricExternalName.REPORT_PROCESSING_SSH_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.SSH_TOTAL_REPORT_PROCESSING_TIMER));
-            writeTimer(MetricExternalName.REPORT_PROCESSING_SOCKS_TIMER.database_label,
+            pending.timer(MetricExternalName.REPORT_PROCESSING_SOCKS_TIMER.database_label,
                     metrics.getTimers().get(MetricNames.SOCKS_TOTAL_REPORT_PROCESSING_TIMER));
+
+            writeMetrics(pending);
         } catch(Exception e) {
             LOG.error("Could not write node metrics.", e);
         } finally {
             CountingAppender.resetCounts();
         }
-
-        // Retention clean old metrics.
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("DELETE FROM node_metrics_gauges WHERE created_at < :created_at")
-                        .bind("created_at", DateTime.now().minusHours(24))
-                        .execute());
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("DELETE FROM node_metrics_timers WHERE created_at < :created_at")
-                        .bind("created_at", DateTime.now().minusHours(24))
-                        .execute());
     }
 
     private double getLocalMetricsGaugeValue(MetricRegistry metrics, String metricName) {
@@ -380,56 +388,114 @@ public class NodeManager {
         }
     }
 
-    private void writeGauge(String metricName, double metricValue) {
-        nzyme.getDatabase().withHandle(handle -> handle.createUpdate("INSERT INTO node_metrics_gauges(node_id, " +
-                        "metric_name, metric_value, created_at) VALUES(:node_id, :metric_name, :metric_value, " +
-                        ":created_at)")
-                .bind("node_id", nzyme.getNodeInformation().id())
-                .bind("metric_name", metricName)
-                .bind("metric_value", metricValue)
-                .bind("created_at", DateTime.now())
-                .execute()
-        );
-    }
+    /**
+     * Writes the metrics of one run in a single transaction and records the gauges in memory. Old rows are removed
+     * by dropping the daily partitions of both tables.
+     */
+    private void writeMetrics(PendingMetrics pending) {
+        UUID nodeId = nzyme.getNodeInformation().id();
 
-    private void writeTimer(String metricName, @Nullable Timer timer) {
-        if (timer == null) {
-            return;
+        for (Map.Entry<String, Double> gauge : pending.gauges.entrySet()) {
+            metricsStore.record(nodeId, gauge.getKey(), gauge.getValue(), pending.timestamp);
         }
 
-        Snapshot s = timer.getSnapshot();
-        writeTimer(
-                metricName,
-                TimeUnit.MICROSECONDS.convert(s.getMax(), TimeUnit.NANOSECONDS),
-                TimeUnit.MICROSECONDS.convert(s.getMin(), TimeUnit.NANOSECONDS),
-                TimeUnit.MICROSECONDS.convert((long) s.getMean(), TimeUnit.NANOSECONDS),
-                TimeUnit.MICROSECONDS.convert((long) s.get99thPercentile(), TimeUnit.NANOSECONDS),
-                TimeUnit.MICROSECONDS.convert((long) s.getStdDev(), TimeUnit.NANOSECONDS),
-                timer.getCount()
-        );
+        nzyme.getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+            PreparedBatch gauges = tx.prepareBatch("INSERT INTO node_metrics_gauges(node_id, metric_name, " +
+                    "metric_value, created_at) VALUES(:node_id, :metric_name, :metric_value, :created_at)");
+            for (Map.Entry<String, Double> gauge : pending.gauges.entrySet()) {
+                gauges.bind("node_id", nodeId)
+                        .bind("metric_name", gauge.getKey())
+                        .bind("metric_value", gauge.getValue())
+                        .bind("created_at", pending.timestamp)
+                        .add();
+            }
+
+            PreparedBatch timers = tx.prepareBatch("INSERT INTO node_metrics_timers(node_id, metric_name, " +
+                    "metric_max, metric_min, metric_mean, metric_p99, metric_stddev, metric_counter, created_at) " +
+                    "VALUES(:node_id, :metric_name, :metric_max, :metric_min, :metric_mean, :metric_p99, " +
+                    ":metric_stddev, :metric_counter, :created_at)");
+            for (Map.Entry<String, Timer> timer : pending.timers.entrySet()) {
+                Snapshot s = timer.getValue().getSnapshot();
+                timers.bind("node_id", nodeId)
+                        .bind("metric_name", timer.getKey())
+                        .bind("metric_max", toMicros(s.getMax()))
+                        .bind("metric_min", toMicros(s.getMin()))
+                        .bind("metric_mean", toMicros((long) s.getMean()))
+                        .bind("metric_p99", toMicros((long) s.get99thPercentile()))
+                        .bind("metric_stddev", toMicros((long) s.getStdDev()))
+                        .bind("metric_counter", timer.getValue().getCount())
+                        .bind("created_at", pending.timestamp)
+                        .add();
+            }
+
+            if (gauges.size() > 0) {
+                gauges.execute();
+            }
+
+            if (timers.size() > 0) {
+                timers.execute();
+            }
+        }));
     }
 
-    private void writeTimer(String metricName, long max, long min, long mean, long p99, long stddev, long counter) {
-        nzyme.getDatabase().withHandle(handle -> handle.createUpdate("INSERT INTO node_metrics_timers(node_id, " +
-                        "metric_name, metric_max, metric_min, metric_mean, metric_p99, metric_stddev, metric_counter, " +
-                        "created_at) VALUES(:node_id, :metric_name, :metric_max, :metric_min, :metric_mean, " +
-                        ":metric_p99, :metric_stddev, :metric_counter, :created_at)")
-                .bind("node_id", nzyme.getNodeInformation().id())
-                .bind("metric_name", metricName)
-                .bind("metric_max", max)
-                .bind("metric_min", min)
-                .bind("metric_mean", mean)
-                .bind("metric_p99", p99)
-                .bind("metric_stddev", stddev)
-                .bind("metric_counter", counter)
-                .bind("created_at", DateTime.now())
-                .execute()
-        );
+    private static long toMicros(long nanos) {
+        return TimeUnit.MICROSECONDS.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Loads the persisted gauges of the local node into memory, so histograms can be answered from memory right
+     * after a restart.
+     */
+    private void loadMetricsStore() {
+        DateTime since = DateTime.now().minusHours(24);
+
+        try {
+            List<TapMetricsGauge> gauges = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT metric_name, metric_value, created_at FROM node_metrics_gauges " +
+                                    "WHERE node_id = :node_id AND created_at > :created_at")
+                            .bind("node_id", localNodeId)
+                            .bind("created_at", since)
+                            .mapTo(TapMetricsGauge.class)
+                            .list()
+            );
+
+            for (TapMetricsGauge gauge : gauges) {
+                metricsStore.record(localNodeId, gauge.metricName(), gauge.metricValue(), gauge.createdAt());
+            }
+
+            for (MetricExternalName metric : MetricExternalName.values()) {
+                metricsStore.markCoveredSince(localNodeId, metric.database_label, since);
+            }
+        } catch (Exception e) {
+            // Histograms are queried from the database until the store covers them.
+            LOG.error("Could not load node metrics into memory.", e);
+        }
     }
 
     public Optional<Map<DateTime, GaugeHistogramBucket>> findMetricsHistogram(UUID nodeId, String metricName, int hours, BucketSize bucketSize) {
         Map<DateTime, GaugeHistogramBucket> result = Maps.newHashMap();
 
+        // Gauges of the local node are kept in memory. Only query the database for other nodes or old windows.
+        if (nodeId.equals(localNodeId)) {
+            Optional<List<RollingMetricsBucket>> recent = metricsStore.findHistogram(
+                    nodeId, metricName, DateTime.now().minusHours(hours), bucketSize
+            );
+
+            if (recent.isPresent()) {
+                if (recent.get().isEmpty()) {
+                    return Optional.empty();
+                }
+
+                for (RollingMetricsBucket x : recent.get()) {
+                    result.put(x.bucket(), GaugeHistogramBucket.create(
+                            x.bucket(), x.sum(), x.average(), x.maximum(), x.minimum()
+                    ));
+                }
+
+                return Optional.of(result);
+            }
+        }
+
         List<GaugeHistogramBucket> agg = nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT AVG(metric_value) AS average, MAX(metric_value) AS maximum, " +
                                 "MIN(metric_value) AS minimum, SUM(metric_value) AS sum, " +
@@ -541,6 +607,28 @@ public class NodeManager {
         return BaseEncoding.base64().decode(b64);
     }
 
+    private static final class PendingMetrics {
+
+        final DateTime timestamp;
+        final Map<String, Double> gauges = Maps.newLinkedHashMap();
+        final Map<String, Timer> timers = Maps.newLinkedHashMap();
+
+        PendingMetrics(DateTime timestamp) {
+            this.timestamp = timestamp;
+        }
+
+        void gauge(String metricName, double value) {
+            gauges.put(metricName, value);
+        }
+
+        void timer(String metricName, @Nullable Timer timer) {
+            if (timer != null) {
+                timers.put(metricName, timer);
+            }
+        }
+
+    }
+
     public static final class NodeInitializationException extends Throwable {
 
         public NodeInitializationException(String msg) {
@@ -1,9 +1,12 @@
 package app.nzyme.core.distributed.messaging.postgres;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.database.PostgresNotificationListener;
 import app.nzyme.core.distributed.Node;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.distributed.messaging.*;
 import com.beust.jcommander.internal.Lists;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -13,31 +16,52 @@ import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
 
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PostgresMessageBusImpl implements MessageBus {
 
     private static final Logger LOG = LogManager.getLogger(PostgresMessageBusImpl.class);
 
+    private static final String NOTIFICATION_CHANNEL_PREFIX = "message_bus_";
+
     private final NzymeNode nzyme;
     private final ObjectMapper om;
 
     private final Map<MessageType, List<MessageHandler>> messageHandlers;
 
+    private final ScheduledExecutorService poller;
+    private final AtomicBoolean pollRequested;
+    private final Timer deliveryLatency;
+
+    private boolean notificationsRegistered;
     private boolean initialized;
 
     public PostgresMessageBusImpl(NzymeNode nzyme) {
         this.nzyme = nzyme;
         this.initialized = false;
+        this.notificationsRegistered = false;
 
         this.messageHandlers = Maps.newConcurrentMap();
 
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("psql-bus-poller-%d")
+                .build()
+        );
+        this.pollRequested = new AtomicBoolean(false);
+        this.deliveryLatency = nzyme.getMetrics().timer(MetricNames.MESSAGE_BUS_DELIVERY_LATENCY);
+
         this.om = new ObjectMapper()
                 .configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false)
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -54,11 +78,7 @@ public class PostgresMessageBusImpl implements MessageBus {
                         .execute()
         );
 
-        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
-                .setDaemon(true)
-                .setNameFormat("psql-bus-poller-%d")
-                .build()
-        ).scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
+        poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
 
         Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -72,15 +92,64 @@ public class PostgresMessageBusImpl implements MessageBus {
 
     @Override
     public void initialize() {
-        initialize(5, TimeUnit.SECONDS);
+        // With notifications, polling only picks up messages that were sent while the notification connection was down.
+        initialize(notificationsRegistered ? 30 : 5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Wakes up this node as soon as a message is sent to it. Must be called before the listener is started.
+     */
+    public void registerNotifications(PostgresNotificationListener listener) {
+        listener.listen(notificationChannel(nzyme.getNodeManager().getLocalNodeId()),
+                new PostgresNotificationListener.NotificationHandler() {
+                    @Override
+                    public void handle(String payload) {
+                        requestPoll();
+                    }
+
+                    @Override
+                    public void resync() {
+                        requestPoll();
+                    }
+                });
+
+        this.notificationsRegistered = true;
+    }
+
+    private static String notificationChannel(UUID nodeId) {
+        return NOTIFICATION_CHANNEL_PREFIX + nodeId.toString().replace("-", "");
+    }
+
+    /**
+     * Runs a poll on the poller thread. Requests that arrive while one is pending are merged into it.
+     */
+    private void requestPoll() {
+        if (pollRequested.compareAndSet(false, true)) {
+            try {
+                poller.execute(() -> {
+                    pollRequested.set(false);
+                    poll();
+                });
+            } catch (Exception e) {
+                pollRequested.set(false);
+                LOG.debug("Could not request message bus poll.", e);
+            }
+        }
     }
 
     public void poll() {
         try {
+            // Claim and acknowledge all new messages at once.
             List<PostgresMessageEntry> messages = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT * FROM message_bus_messages WHERE receiver_node_id = :local_node_id " +
-                                    "AND status = :status AND (cycle_limiter IS NULL OR cycle_limiter = :local_node_cycle) " +
-                                    "ORDER BY created_at ASC")
+                    handle.createQuery("UPDATE message_bus_messages SET status = :acked, " +
+                                    "acknowledged_at = :acknowledged_at, acknowledged_by = :node_id " +
+                                    "WHERE id IN (SELECT id FROM message_bus_messages " +
+                                    "WHERE receiver_node_id = :local_node_id AND status = :status " +
+                                    "AND (cycle_limiter IS NULL OR cycle_limiter = :local_node_cycle) " +
+                                    "FOR UPDATE SKIP LOCKED) RETURNING *")
+                            .bind("acked", MessageStatus.ACK.name())
+                            .bind("acknowledged_at", DateTime.now())
+                            .bind("node_id", nzyme.getNodeInformation().id())
                             .bind("status", MessageStatus.NEW)
                             .bind("local_node_id", nzyme.getNodeManager().getLocalNodeId())
                             .bind("local_node_cycle", nzyme.getNodeManager().getLocalCycle())
@@ -90,55 +159,34 @@ public class PostgresMessageBusImpl implements MessageBus {
 
             LOG.debug("Polled <{}> messages from message bus.", messages.size());
 
-            for (PostgresMessageEntry message : messages) {
-                LOG.debug("Polled message from bus: [{}]", message);
-
-                // Acknowledge message.
-                ackMessage(message.id());
+            if (messages.isEmpty()) {
+                return;
+            }
 
-                MessageType type;
-                try {
-                    type = MessageType.valueOf(message.type());
-                } catch(IllegalArgumentException e) {
-                    LOG.warn("Unsupported message type [{}]. Skipping.", message.type());
-                    continue;
-                }
+            // RETURNING has no order.
+            messages = Lists.newArrayList(messages);
+            messages.sort(Comparator.comparing(PostgresMessageEntry::createdAt).thenComparing(PostgresMessageEntry::id));
 
-                // Send to registered handlers.
-                if (messageHandlers.containsKey(type)) {
-                    for (MessageHandler handler : messageHandlers.get(type)) {
-                        Map<String, Object> serializedParameters = this.om.readValue(
-                                message.parameters(),
-                                new TypeReference<HashMap<String,Object>>() {}
-                        );
-
-                        Stopwatch stopwatch = Stopwatch.createStarted();
-                        MessageProcessingResult opResult = handler.handle(ReceivedMessage.create(
-                                message.receiver(),
-                                message.sender(),
-                                type,
-                                serializedParameters,
-                                message.parameters(),
-                                message.cycleLimiter() != null
+            // All messages are acknowledged already. Every one of them has to be completed, even if others fail.
+            List<ProcessedMessage> processed = Lists.newArrayList();
+            try {
+                for (PostgresMessageEntry message : messages) {
+                    Stopwatch messageStopwatch = Stopwatch.createStarted();
+                    try {
+                        processMessage(message, processed);
+                    } catch (Exception e) {
+                        LOG.error("Could not handle cluster message <#{}> of type [{}]. Marking as failure.",
+                                message.id(), message.type(), e);
+
+                        processed.add(new ProcessedMessage(
+                                message.id(),
+                                MessageStatus.PROCESSED_FAILURE,
+                                (int) Math.max(1, messageStopwatch.elapsed(TimeUnit.MILLISECONDS))
                         ));
-                        long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-                        if (tookMs == 0) {
-                            tookMs = 1;
-                        }
-
-                        if (opResult.equals(MessageProcessingResult.FAILURE)) {
-                            LOG.error("Could not handle cluster message <#{}> of type [{}]. Marking as failure.",
-                                    message.id(), message.type());
-                        }
-
-                        setMessageStatus(message.id(),
-                                opResult == MessageProcessingResult.SUCCESS
-                                        ? MessageStatus.PROCESSED_SUCCESS : MessageStatus.PROCESSED_FAILURE
-                        );
-
-                        setMessagePostProcessMetadata(message.id(), (int) tookMs);
                     }
                 }
+            } finally {
+                completeMessages(processed);
             }
         } catch(Exception e) {
             LOG.error("Could not poll message bus.", e);
@@ -162,19 +210,21 @@ public class PostgresMessageBusImpl implements MessageBus {
 
         long currentCycleOfReceiver = nzyme.getNodeManager().getCycleOfNode(message.receiver());
 
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO message_bus_messages(sender_node_id, receiver_node_id, type, " +
-                                "parameters, status, cycle_limiter, created_at) VALUES(:sender_node_id, " +
-                                ":receiver_node_id, :type, :parameters, :status, :cycle_limiter, :created_at)")
-                        .bind("sender_node_id", nzyme.getNodeInformation().id())
-                        .bind("receiver_node_id", message.receiver())
-                        .bind("type", message.type())
-                        .bind("parameters", parameters)
-                        .bind("status", MessageStatus.NEW)
-                        .bind("cycle_limiter", currentCycleOfReceiver)
-                        .bind("created_at", DateTime.now())
-                        .execute()
-        );
+        nzyme.getDatabase().useHandle(handle -> {
+            handle.createUpdate("INSERT INTO message_bus_messages(sender_node_id, receiver_node_id, type, " +
+                            "parameters, status, cycle_limiter, created_at) VALUES(:sender_node_id, " +
+                            ":receiver_node_id, :type, :parameters, :status, :cycle_limiter, :created_at)")
+                    .bind("sender_node_id", nzyme.getNodeInformation().id())
+                    .bind("receiver_node_id", message.receiver())
+                    .bind("type", message.type())
+                    .bind("parameters", parameters)
+                    .bind("status", MessageStatus.NEW)
+                    .bind("cycle_limiter", currentCycleOfReceiver)
+                    .bind("created_at", DateTime.now())
+                    .execute();
+
+            PostgresNotificationListener.notify(handle, notificationChannel(message.receiver()), "");
+        });
     }
 
     @Override
@@ -293,26 +343,89 @@ public class PostgresMessageBusImpl implements MessageBus {
         );
     }
 
-    private void ackMessage(long messageId) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE message_bus_messages SET status = :status, " +
-                                "acknowledged_at = :acknowledged_at, acknowledged_by = :node_id WHERE id = :id")
-                        .bind("status", MessageStatus.ACK.name())
-                        .bind("node_id", nzyme.getNodeInformation().id())
-                        .bind("id", messageId)
-                        .bind("acknowledged_at", DateTime.now())
-                        .execute()
+    private void processMessage(PostgresMessageEntry message, List<ProcessedMessage> processed) throws Exception {
+        LOG.debug("Polled message from bus: [{}]", message);
+
+        MessageType type;
+        try {
+            type = MessageType.valueOf(message.type());
+        } catch(IllegalArgumentException e) {
+            LOG.warn("Unsupported message type [{}]. Skipping.", message.type());
+            return;
+        }
+
+        deliveryLatency.update(
+                Math.max(0, DateTime.now().getMillis() - message.createdAt().getMillis()),
+                TimeUnit.MILLISECONDS
         );
+
+        // Send to registered handlers.
+        if (messageHandlers.containsKey(type)) {
+            Map<String, Object> serializedParameters = this.om.readValue(
+                    message.parameters(),
+                    new TypeReference<HashMap<String,Object>>() {}
+            );
+
+            for (MessageHandler handler : messageHandlers.get(type)) {
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                MessageProcessingResult opResult = handler.handle(ReceivedMessage.create(
+                        message.receiver(),
+                        message.sender(),
+                        type,
+                        serializedParameters,
+                        message.parameters(),
+                        message.cycleLimiter() != null
+                ));
+                long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                if (tookMs == 0) {
+                    tookMs = 1;
+                }
+
+                if (opResult.equals(MessageProcessingResult.FAILURE)) {
+                    LOG.error("Could not handle cluster message <#{}> of type [{}]. Marking as failure.",
+                            message.id(), message.type());
+                }
+
+                processed.add(new ProcessedMessage(
+                        message.id(),
+                        opResult == MessageProcessingResult.SUCCESS
+                                ? MessageStatus.PROCESSED_SUCCESS : MessageStatus.PROCESSED_FAILURE,
+                        (int) tookMs
+                ));
+            }
+        }
     }
 
-    private void setMessagePostProcessMetadata(long id, int tookMs) {
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("UPDATE message_bus_messages SET processing_time_ms = :took_ms " +
-                                "WHERE id = :id")
-                        .bind("took_ms", tookMs)
-                        .bind("id", id)
-                        .execute()
-        );
+    private void completeMessages(List<ProcessedMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        nzyme.getDatabase().useHandle(handle -> {
+            PreparedBatch batch = handle.prepareBatch("UPDATE message_bus_messages SET status = :status, " +
+                    "processing_time_ms = :took_ms WHERE id = :id");
+
+            for (ProcessedMessage message : messages) {
+                batch.bind("status", message.status.name())
+                        .bind("took_ms", message.tookMs)
+                        .bind("id", message.id)
+                        .add();
+            }
+
+            batch.execute();
+        });
+    }
+
+    private static final class ProcessedMessage {
+        final long id;
+        final MessageStatus status;
+        final int tookMs;
+
+        ProcessedMessage(long id, MessageStatus status, int tookMs) {
+            this.id = id;
+            this.status = status;
+            this.tookMs = tookMs;
+        }
     }
 
     private List<StoredMessage> entriesToStoredMessages(List<PostgresMessageEntry> failures) {
@@ -1,6 +1,7 @@
 package app.nzyme.core.distributed.tasksqueue.postgres;
 
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.database.PostgresNotificationListener;
 import app.nzyme.plugin.distributed.tasksqueue.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -15,21 +16,38 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joda.time.DateTime;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class PostgresTasksQueueImpl implements TasksQueue {
 
     private static final Logger LOG = LogManager.getLogger(PostgresTasksQueueImpl.class);
 
+    private static final String NOTIFICATION_CHANNEL = "tasks_queue";
+
+    // Purges run heavy deletes. Limit how many of them a node runs at the same time. Other types use all workers.
+    private static final int PURGE_CONCURRENCY = 2;
+
     public NzymeNode nzyme;
     private final ObjectMapper om;
 
     private final Map<TaskType, List<TaskHandler>> taskHandlers;
 
+    private final int batchSize;
+    private final Semaphore workerSlots;
+    private final Map<TaskType, Semaphore> typeSlots;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService poller;
+    private final AtomicBoolean pollRequested;
+
     private boolean initialized;
 
     public PostgresTasksQueueImpl(NzymeNode nzyme) {
@@ -38,6 +56,28 @@ public class PostgresTasksQueueImpl implements TasksQueue {
 
         this.taskHandlers = Maps.newConcurrentMap();
 
+        int workerCount = nzyme.getConfiguration().performance().tasksQueueWorkers().orElse(4); // Default: 4
+        this.batchSize = nzyme.getConfiguration().performance().tasksQueueBatchSize().orElse(10); // Default: 10
+
+        this.workerSlots = new Semaphore(workerCount);
+        this.typeSlots = new EnumMap<>(TaskType.class);
+        for (TaskType type : TaskType.values()) {
+            typeSlots.put(type, new Semaphore(type.name().startsWith("PURGE_")
+                    ? Math.min(PURGE_CONCURRENCY, workerCount) : workerCount));
+        }
+
+        this.workers = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("psql-tasks-worker-%d")
+                .build()
+        );
+        this.poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("psql-tasks-poller-%d")
+                .build()
+        );
+        this.pollRequested = new AtomicBoolean(false);
+
         this.om = new ObjectMapper()
                 .configure(DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES, false)
                 .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
@@ -59,11 +99,8 @@ public class PostgresTasksQueueImpl implements TasksQueue {
                         .execute()
         );
 
-        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
-                .setDaemon(true)
-                .setNameFormat("psql-tasks-poller-%d")
-                .build()
-        ).scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
+        // Polling is the fallback. New tasks and free workers trigger a poll right away.
+        poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, pollIntervalUnit);
 
         Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
                 .setDaemon(true)
@@ -75,6 +112,41 @@ public class PostgresTasksQueueImpl implements TasksQueue {
         this.initialized = true;
     }
 
+    /**
+     * Wakes up this node as soon as any node publishes a task. Without it, new tasks wait for the next poll.
+     */
+    public void registerNotifications(PostgresNotificationListener listener) {
+        listener.listen(NOTIFICATION_CHANNEL, new PostgresNotificationListener.NotificationHandler() {
+            @Override
+            public void handle(String payload) {
+                requestPoll();
+            }
+
+            @Override
+            public void resync() {
+                // Tasks published while the connection was down.
+                requestPoll();
+            }
+        });
+    }
+
+    /**
+     * Runs a poll on the poller thread. Requests that arrive while one is pending are merged into it.
+     */
+    private void requestPoll() {
+        if (pollRequested.compareAndSet(false, true)) {
+            try {
+                poller.execute(() -> {
+                    pollRequested.set(false);
+                    poll();
+                });
+            } catch (Exception e) {
+                pollRequested.set(false);
+                LOG.debug("Could not request tasks queue poll.", e);
+            }
+        }
+    }
+
     @Override
     public void publish(Task task) {
         if (!initialized) {
@@ -90,111 +162,147 @@ public class PostgresTasksQueueImpl implements TasksQueue {
             throw new RuntimeException("Could not serialize task parameters.", e);
         }
 
-        nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("INSERT INTO tasks_queue(sender_node_id, type, allow_retry, parameters, " +
-                                "created_at, status, previous_status, retries, processing_time_ms, allow_process_self) " +
-                                "VALUES(:sender_node_id, :type, :allow_retry, :parameters, :created_at, :status, " +
-                                ":previous_status, :retries, :processing_time_ms, :allow_process_self)")
-                        .bind("sender_node_id", nzyme.getNodeInformation().id())
-                        .bind("type", task.type().name())
-                        .bind("allow_retry", task.allowRetry())
-                        .bind("parameters", parameters)
-                        .bind("created_at", DateTime.now())
-                        .bind("status", TaskStatus.NEW)
-                        .bind("previous_status", TaskStatus.NEW)
-                        .bind("retries", 0)
-                        .bind("processing_time_ms", 0)
-                        .bind("allow_process_self", task.allowProcessSelf())
-                        .execute()
-        );
+        nzyme.getDatabase().useHandle(handle -> {
+            handle.createUpdate("INSERT INTO tasks_queue(sender_node_id, type, allow_retry, parameters, " +
+                            "created_at, status, previous_status, retries, processing_time_ms, allow_process_self) " +
+                            "VALUES(:sender_node_id, :type, :allow_retry, :parameters, :created_at, :status, " +
+                            ":previous_status, :retries, :processing_time_ms, :allow_process_self)")
+                    .bind("sender_node_id", nzyme.getNodeInformation().id())
+                    .bind("type", task.type().name())
+                    .bind("allow_retry", task.allowRetry())
+                    .bind("parameters", parameters)
+                    .bind("created_at", DateTime.now())
+                    .bind("status", TaskStatus.NEW)
+                    .bind("previous_status", TaskStatus.NEW)
+                    .bind("retries", 0)
+                    .bind("processing_time_ms", 0)
+                    .bind("allow_process_self", task.allowProcessSelf())
+                    .execute();
+
+            PostgresNotificationListener.notify(handle, NOTIFICATION_CHANNEL, task.type().name());
+        });
     }
 
+    /**
+     * Claims as many tasks as this node has free workers for, up to the batch size, and hands them to the workers.
+     * Tasks locked by a concurrent claim of another node are skipped instead of waited for.
+     */
     @Override
     public void poll() {
         try {
-            List<PostgresTasksQueueEntry> tasks = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("UPDATE tasks_queue SET status = 'ACK', previous_status = status, " +
-                                    "last_acked_at = :timestamp, acked_by = :own_node_id " +
-                                    "WHERE status IN ('NEW', 'NEW_RETRY') AND (allow_process_self = true " +
-                                    "OR (allow_process_self = false AND sender_node_id != :own_node_id)) RETURNING *")
-                            .bind("own_node_id", nzyme.getNodeInformation().id())
-                            .bind("timestamp", DateTime.now())
-                            .mapTo(PostgresTasksQueueEntry.class)
-                            .list()
-            );
-
-            if (tasks.isEmpty()) {
-                LOG.debug("No tasks polled.");
-                return;
-            }
-
-            for (PostgresTasksQueueEntry task : tasks) {
-                LOG.debug("Polled task from bus: [{}]", task);
+            int claimed = 0;
+            for (TaskType type : taskHandlers.keySet()) {
+                int capacity = Math.min(
+                        batchSize - claimed,
+                        Math.min(workerSlots.availablePermits(), typeSlots.get(type).availablePermits())
+                );
 
-                TaskType type;
-                try {
-                    type = TaskType.valueOf(task.type());
-                } catch (IllegalArgumentException e) {
-                    LOG.warn("Unsupported task type [{}]. Skipping.", task.type());
+                if (capacity <= 0) {
                     continue;
                 }
 
-                TaskStatus previousStatus;
-                try {
-                    previousStatus = TaskStatus.valueOf(task.previousStatus());
-                } catch (IllegalArgumentException e) {
-                    LOG.warn("Unsupported task status [{}]. Skipping.", task.previousStatus());
-                    continue;
+                List<PostgresTasksQueueEntry> tasks = claim(type, capacity);
+                for (PostgresTasksQueueEntry task : tasks) {
+                    LOG.debug("Polled task from bus: [{}]", task);
+
+                    // Only this thread acquires permits, so they are still available.
+                    workerSlots.acquireUninterruptibly();
+                    typeSlots.get(type).acquireUninterruptibly();
+
+                    workers.execute(() -> {
+                        try {
+                            process(type, task);
+                        } finally {
+                            typeSlots.get(type).release();
+                            workerSlots.release();
+                            requestPoll();
+                        }
+                    });
                 }
 
-                DateTime timestamp = DateTime.now();
+                claimed += tasks.size();
+            }
 
-                // Send to registered handlers.
-                if (taskHandlers.containsKey(type)) {
-                    for (TaskHandler handler : taskHandlers.get(type)) {
-                        if (previousStatus.equals(TaskStatus.NEW_RETRY)) {
-                            incrementRetryCount(task.id());
-                        }
+            if (claimed == 0) {
+                LOG.debug("No tasks polled.");
+            }
+        } catch(Exception e) {
+            LOG.error("Could not poll tasks queue.", e);
+        }
+    }
 
-                        Map<String, Object> serializedParameters = this.om.readValue(
-                                task.parameters(),
-                                new TypeReference<HashMap<String, Object>>() {
-                                }
-                        );
-
-                        Stopwatch stopwatch = Stopwatch.createStarted();
-                        TaskProcessingResult opResult = handler.handle(ReceivedTask.create(
-                                type,
-                                task.senderNodeId(),
-                                task.allowProcessSelf(),
-                                serializedParameters,
-                                task.parameters(),
-                                task.allowRetry()
-                        ));
-                        long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-                        if (tookMs == 0) {
-                            tookMs = 1;
-                        }
+    private List<PostgresTasksQueueEntry> claim(TaskType type, int limit) {
+        return nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("UPDATE tasks_queue SET status = 'ACK', previous_status = status, " +
+                                "last_acked_at = :timestamp, acked_by = :own_node_id " +
+                                "WHERE id IN (SELECT id FROM tasks_queue " +
+                                "WHERE status IN ('NEW', 'NEW_RETRY') AND type = :type AND (allow_process_self = true " +
+                                "OR (allow_process_self = false AND sender_node_id != :own_node_id)) " +
+                                "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING *")
+                        .bind("own_node_id", nzyme.getNodeInformation().id())
+                        .bind("timestamp", DateTime.now())
+                        .bind("type", type.name())
+                        .bind("limit", limit)
+                        .mapTo(PostgresTasksQueueEntry.class)
+                        .list()
+        );
+    }
 
-                        if (opResult.equals(TaskProcessingResult.FAILURE)) {
-                            LOG.error("Could not execute cluster task <#{}> of type [{}]. Marking as failure.",
-                                    task.id(), task.type());
-                        }
+    private void process(TaskType type, PostgresTasksQueueEntry task) {
+        try {
+            TaskStatus previousStatus;
+            try {
+                previousStatus = TaskStatus.valueOf(task.previousStatus());
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unsupported task status [{}]. Skipping.", task.previousStatus());
+                return;
+            }
 
-                        setTaskStatus(task.id(),
-                                opResult == TaskProcessingResult.SUCCESS
-                                        ? TaskStatus.PROCESSED_SUCCESS : TaskStatus.PROCESSED_FAILURE
-                        );
+            DateTime timestamp = DateTime.now();
 
-                        if (previousStatus.equals(TaskStatus.NEW)) {
-                            setTaskFirstProcessedAt(task.id(), timestamp);
+            // Send to registered handlers.
+            for (TaskHandler handler : taskHandlers.get(type)) {
+                if (previousStatus.equals(TaskStatus.NEW_RETRY)) {
+                    incrementRetryCount(task.id());
+                }
+
+                Map<String, Object> serializedParameters = this.om.readValue(
+                        task.parameters(),
+                        new TypeReference<HashMap<String, Object>>() {
                         }
-                        setTaskPostProcessMetadata(task.id(), timestamp, (int) tookMs);
-                    }
+                );
+
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                TaskProcessingResult opResult = handler.handle(ReceivedTask.create(
+                        type,
+                        task.senderNodeId(),
+                        task.allowProcessSelf(),
+                        serializedParameters,
+                        task.parameters(),
+                        task.allowRetry()
+                ));
+                long tookMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+                if (tookMs == 0) {
+                    tookMs = 1;
+                }
+
+                if (opResult.equals(TaskProcessingResult.FAILURE)) {
+                    LOG.error("Could not execute cluster task <#{}> of type [{}]. Marking as failure.",
+                            task.id(), task.type());
+                }
+
+                setTaskStatus(task.id(),
+                        opResult == TaskProcessingResult.SUCCESS
+                                ? TaskStatus.PROCESSED_SUCCESS : TaskStatus.PROCESSED_FAILURE
+                );
+
+                if (previousStatus.equals(TaskStatus.NEW)) {
+                    setTaskFirstProcessedAt(task.id(), timestamp);
                 }
+                setTaskPostProcessMetadata(task.id(), timestamp, (int) tookMs);
             }
-        } catch(Exception e) {
-            LOG.error("Could not poll tasks queue.", e);
+        } catch (Exception e) {
+            LOG.error("Could not process cluster task <#{}> of type [{}].", task.id(), task.type(), e);
         }
     }
 
@@ -299,11 +407,7 @@ public class PostgresTasksQueueImpl implements TasksQueue {
     public void onMessageReceived(TaskType type, TaskHandler taskHandler) {
         LOG.debug("Registering task queue handler [{}] for type [{}]", taskHandler.getName(), type);
 
-        if (!taskHandlers.containsKey(type)) {
-            taskHandlers.put(type, Lists.newArrayList());
-        }
-
-        taskHandlers.get(type).add(taskHandler);
+        taskHandlers.computeIfAbsent(type, t -> Lists.newCopyOnWriteArrayList()).add(taskHandler);
     }
 
     public void retentionClean(DateTime cutoff) {
@@ -5,18 +5,25 @@ import app.nzyme.core.context.db.MacAddressContextEntry;
 import app.nzyme.core.database.OrderDirection;
 import app.nzyme.core.dot11.db.*;
 import app.nzyme.core.dot11.db.filters.Dot11BSSIDFilters;
+import app.nzyme.core.dot11.db.filters.Dot11BSSIDRollupFilters;
 import app.nzyme.core.dot11.db.filters.Dot11ConnectedClientFilters;
 import app.nzyme.core.dot11.db.filters.Dot11DisconnectedClientFilters;
 import app.nzyme.core.dot11.db.monitoring.*;
 import app.nzyme.core.dot11.db.monitoring.probereq.MonitoredProbeRequestEntry;
+import app.nzyme.core.dot11.monitoring.disco.Dot11DiscoMonitor;
 import app.nzyme.core.dot11.monitoring.disco.db.Dot11DiscoMonitorMethodConfiguration;
+import app.nzyme.core.dot11.rollups.Dot11RollupResolution;
+import app.nzyme.core.dot11.tracks.SignalTrackKey;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
+import app.nzyme.core.dot11.trilateration.LocationSolver;
 import app.nzyme.core.rest.authentication.AuthenticatedUser;
 import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11SecurityInformationReport;
 import app.nzyme.core.rest.responses.dot11.Dot11MacAddressContextResponse;
 import app.nzyme.core.rest.responses.dot11.Dot11MacAddressResponse;
 import app.nzyme.core.rest.responses.dot11.clients.ConnectedBSSID;
 import app.nzyme.core.shared.db.TapBasedSignalStrengthResult;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshot;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshotCache;
 import app.nzyme.core.util.Bucketing;
 import app.nzyme.core.util.TimeRange;
 import app.nzyme.core.util.TimeRangeFactory;
@@ -24,6 +31,8 @@ import app.nzyme.core.util.Tools;
 import app.nzyme.core.util.filters.FilterSql;
 import app.nzyme.core.util.filters.FilterSqlFragment;
 import app.nzyme.core.util.filters.Filters;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -145,8 +154,45 @@ public class Dot11 {
                 }
             });
 
+    private final Dot11MonitoringSnapshotCache monitoringSnapshots;
+    private final Dot11DiscoMonitor discoMonitor;
+    private final LocationSolver locationSolver;
+
     public Dot11(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.monitoringSnapshots = new Dot11MonitoringSnapshotCache(nzyme);
+        this.discoMonitor = new Dot11DiscoMonitor(nzyme);
+        this.locationSolver = new LocationSolver(nzyme);
+    }
+
+    public Dot11DiscoMonitor getDiscoMonitor() {
+        return discoMonitor;
+    }
+
+    public LocationSolver getLocationSolver() {
+        return locationSolver;
+    }
+
+    public Dot11MonitoringSnapshot getMonitoringSnapshot(UUID organizationId, UUID tenantId) {
+        return monitoringSnapshots.get(organizationId, tenantId);
+    }
+
+    public void invalidateMonitoringSnapshots() {
+        monitoringSnapshots.invalidateAll();
+    }
+
+    /*
+     * Must be called after every change of monitored networks, custom bandits or monitored probe requests. The
+     * local snapshots are dropped right away because the message bus only delivers to this node on its next poll.
+     */
+    public void invalidateMonitoringSnapshotsClusterWide() {
+        invalidateMonitoringSnapshots();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "dot11_monitoring"),
+                false
+        ));
     }
 
     public Dot11MacAddressMetadata getMacAddressMetadata(String macAddress, List<UUID> taps) {
@@ -264,6 +310,27 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
+        Optional<Dot11RollupResolution> rollup = Dot11RollupResolution.select(timeRange, bucketing, DateTime.now());
+        if (rollup.isPresent()) {
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT SUM(r.beacon_advertisements) AS beacons, " +
+                                    "SUM(r.proberesp_advertisements) AS proberesponses, " +
+                                    "DATE_TRUNC(:date_trunc, r.bucket) AS bucket FROM <rollup_table> AS r " +
+                                    "WHERE r.bucket >= DATE_TRUNC(:resolution, :tr_from::timestamptz) " +
+                                    "AND r.bucket <= :tr_to AND r.tap_uuid IN (<taps>) AND r.bssid = :bssid " +
+                                    "GROUP BY 3 ORDER BY 3 DESC")
+                            .define("rollup_table", rollup.get().getSsidTable())
+                            .bind("resolution", rollup.get().getDateTruncName())
+                            .bind("tr_from", timeRange.from())
+                            .bind("tr_to", timeRange.to())
+                            .bind("date_trunc", bucketing.type().getDateTruncName())
+                            .bindList("taps", taps)
+                            .bind("bssid", bssid)
+                            .mapTo(Dot11AdvertisementHistogramEntry.class)
+                            .list()
+            );
+        }
+
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT SUM(beacon_advertisements) AS beacons, " +
                                 "SUM(proberesp_advertisements) AS proberesponses, " +
@@ -308,20 +375,32 @@ public class Dot11 {
             return 0;
         }
 
+        Optional<Dot11RollupResolution> rollup = Dot11RollupResolution.select(timeRange);
+        if (rollup.isPresent()) {
+            FilterSqlFragment filterFragment = FilterSql.generate(filters, new Dot11BSSIDRollupFilters());
+
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT COUNT(*) FROM (SELECT r.bssid FROM <rollup_table> AS r " +
+                                    "WHERE r.bucket >= DATE_TRUNC(:resolution, :tr_from::timestamptz) " +
+                                    "AND r.bucket <= :tr_to AND r.tap_uuid IN (<taps>)" + filterFragment.whereSql() +
+                                    "GROUP BY r.bssid HAVING 1=1 " + filterFragment.havingSql() + ") AS ignored")
+                            .define("rollup_table", rollup.get().getBssidTable())
+                            .bind("resolution", rollup.get().getDateTruncName())
+                            .bind("tr_from", timeRange.from())
+                            .bind("tr_to", timeRange.to())
+                            .bindMap(filterFragment.bindings())
+                            .bindList("taps", taps)
+                            .mapTo(Long.class)
+                            .first()
+            );
+        }
+
         FilterSqlFragment filterFragment = FilterSql.generate(filters, new Dot11BSSIDFilters());
 
-        // We need the entire query, including SELECTs here to make the HAVING filters work.
+        // The joins are required by the WHERE and HAVING filters. No other columns are needed to count.
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT COUNT(*) FROM (" +
-                                "SELECT b.bssid, AVG(b.signal_strength_average) AS signal_strength_average, " +
-                                "MIN(b.created_at) AS first_seen, MAX(b.created_at) AS last_seen, " +
-                                "SUM(b.hidden_ssid_frames) as hidden_ssid_frames, " +
-                                "ARRAY_AGG(DISTINCT(COALESCE(ssp.value, 'None'))) AS security_protocols, " +
-                                "ARRAY_AGG(DISTINCT(f.fingerprint)) AS fingerprints, " +
-                                "ARRAY_AGG(DISTINCT(s.ssid)) AS ssids, " +
-                                "ARRAY_AGG(DISTINCT(i.infrastructure_type)) AS infrastructure_types, " +
-                                "COUNT(DISTINCT(c.client_mac)) AS client_count, " +
-                                "ARRAY[]::integer[] AS frequencies " +
+                                "SELECT b.bssid " +
                                 "FROM dot11_bssids AS b " +
                                 "LEFT JOIN dot11_ssids AS s ON b.id = s.bssid_id " +
                                 "LEFT JOIN dot11_fingerprints AS f ON b.id = f.bssid_id " +
@@ -352,6 +431,45 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
+        Optional<Dot11RollupResolution> rollup = Dot11RollupResolution.select(timeRange);
+        if (rollup.isPresent()) {
+            FilterSqlFragment filterFragment = FilterSql.generate(filters, new Dot11BSSIDRollupFilters());
+
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT r.bssid, " +
+                                    "SUM(r.signal_strength_sum) / SUM(r.signal_strength_count) " +
+                                    "AS signal_strength_average, " +
+                                    "MIN(r.first_seen) AS first_seen, MAX(r.last_seen) AS last_seen, " +
+                                    "SUM(r.hidden_ssid_frames) AS hidden_ssid_frames, " +
+                                    "nzyme_array_distinct(nzyme_array_cat_agg(r.security_protocols)) " +
+                                    "AS security_protocols, " +
+                                    "nzyme_array_distinct(nzyme_array_cat_agg(r.fingerprints)) AS fingerprints, " +
+                                    "nzyme_array_distinct(nzyme_array_cat_agg(r.ssids)) AS ssids, " +
+                                    "nzyme_array_distinct(nzyme_array_cat_agg(r.infrastructure_types)) " +
+                                    "AS infrastructure_types, " +
+                                    "CARDINALITY(nzyme_array_distinct(nzyme_array_cat_agg(r.client_macs))) " +
+                                    "AS client_count, " +
+                                    "ARRAY[]::integer[] AS frequencies " + // Part of BSSIDSummary but not needed.
+                                    "FROM <rollup_table> AS r " +
+                                    "WHERE r.bucket >= DATE_TRUNC(:resolution, :tr_from::timestamptz) " +
+                                    "AND r.bucket <= :tr_to AND r.tap_uuid IN (<taps>)" + filterFragment.whereSql() +
+                                    "GROUP BY r.bssid HAVING 1=1 " + filterFragment.havingSql() +
+                                    "ORDER BY <order_column> <order_direction> LIMIT :limit OFFSET :offset")
+                            .define("rollup_table", rollup.get().getBssidTable())
+                            .bind("resolution", rollup.get().getDateTruncName())
+                            .bind("tr_from", timeRange.from())
+                            .bind("tr_to", timeRange.to())
+                            .bind("limit", limit)
+                            .bind("offset", offset)
+                            .define("order_column", orderColumn.getColumnName())
+                            .define("order_direction", orderDirection)
+                            .bindMap(filterFragment.bindings())
+                            .bindList("taps", taps)
+                            .mapTo(BSSIDSummary.class)
+                            .list()
+            );
+        }
+
         FilterSqlFragment filterFragment = FilterSql.generate(filters, new Dot11BSSIDFilters());
 
         return nzyme.getDatabase().withHandle(handle ->
@@ -518,6 +636,27 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
+        Optional<Dot11RollupResolution> rollup = Dot11RollupResolution.select(timeRange, bc, DateTime.now());
+        if (rollup.isPresent()) {
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT COUNT(DISTINCT(r.bssid)) AS bssid_count, " +
+                                    "CARDINALITY(nzyme_array_distinct(nzyme_array_cat_agg(r.ssids))) AS ssid_count, " +
+                                    "DATE_TRUNC(:date_trunc, r.bucket) AS bucket " +
+                                    "FROM <rollup_table> AS r " +
+                                    "WHERE r.bucket >= DATE_TRUNC(:resolution, :tr_from::timestamptz) " +
+                                    "AND r.bucket <= :tr_to AND r.tap_uuid IN (<taps>) " +
+                                    "GROUP BY 3 ORDER BY 3 DESC")
+                            .define("rollup_table", rollup.get().getBssidTable())
+                            .bind("resolution", rollup.get().getDateTruncName())
+                            .bind("date_trunc", bc.type().getDateTruncName())
+                            .bind("tr_from", timeRange.from())
+                            .bind("tr_to", timeRange.to())
+                            .bindList("taps", taps)
+                            .mapTo(BSSIDAndSSIDCountHistogramEntry.class)
+                            .list()
+            );
+        }
+
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT COUNT(DISTINCT(b.bssid)) as bssid_count, " +
                                 "COUNT(DISTINCT(s.ssid)) as ssid_count, DATE_TRUNC(:date_trunc, b.created_at) as bucket " +
@@ -544,6 +683,29 @@ public class Dot11 {
             return Collections.emptyList();
         }
 
+        Optional<Dot11RollupResolution> rollup = Dot11RollupResolution.select(timeRange, bc, DateTime.now());
+        if (rollup.isPresent()) {
+            return nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT SUM(r.beacon_advertisements) AS beacons, " +
+                                    "SUM(r.proberesp_advertisements) AS proberesponses, " +
+                                    "DATE_TRUNC(:date_trunc, r.bucket) AS bucket FROM <rollup_table> AS r " +
+                                    "WHERE r.bucket >= DATE_TRUNC(:resolution, :tr_from::timestamptz) " +
+                                    "AND r.bucket <= :tr_to AND r.tap_uuid IN (<taps>) " +
+                                    "AND r.bssid = :bssid AND r.ssid = :ssid " +
+                                    "GROUP BY 3 ORDER BY 3 DESC")
+                            .define("rollup_table", rollup.get().getSsidTable())
+                            .bind("resolution", rollup.get().getDateTruncName())
+                            .bind("tr_from", timeRange.from())
+                            .bind("tr_to", timeRange.to())
+                            .bind("date_trunc", bc.type().getDateTruncName())
+                            .bindList("taps", taps)
+                            .bind("bssid", bssid)
+                            .bind("ssid", ssid)
+                            .mapTo(Dot11AdvertisementHistogramEntry.class)
+                            .list()
+            );
+        }
+
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT SUM(beacon_advertisements) AS beacons, " +
                                 "SUM(proberesp_advertisements) AS proberesponses, " +
@@ -612,6 +774,37 @@ public class Dot11 {
         );
     }
 
+    /**
+     * Signal strength waterfalls of all given BSSIDs, channels and taps of a SSID in one query. Used to incrementally
+     * fetch new buckets for track detection.
+     */
+    public List<SignalTrackWaterfallEntry> getSSIDSignalStrengthWaterfalls(String ssid,
+                                                                          List<String> bssids,
+                                                                          List<Integer> frequencies,
+                                                                          List<UUID> taps,
+                                                                          DateTime from) {
+        if (bssids.isEmpty() || frequencies.isEmpty() || taps.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT s.bssid AS bssid, h.frequency AS frequency, s.tap_uuid AS tap_uuid, " +
+                                "DATE_TRUNC('minute', s.created_at) AS bucket, h.signal_strength AS signal_strength, " +
+                                "SUM(h.frame_count) AS frame_count FROM dot11_ssids AS s " +
+                                "JOIN dot11_channel_histograms h on s.id = h.ssid_id " +
+                                "WHERE s.created_at >= :from AND s.tap_uuid IN (<taps>) " +
+                                "AND s.bssid IN (<bssids>) AND s.ssid = :ssid AND h.frequency IN (<frequencies>) " +
+                                "GROUP BY s.bssid, h.frequency, s.tap_uuid, bucket, h.signal_strength")
+                        .bind("from", from)
+                        .bind("ssid", ssid)
+                        .bindList("taps", taps)
+                        .bindList("bssids", bssids)
+                        .bindList("frequencies", frequencies)
+                        .mapTo(SignalTrackWaterfallEntry.class)
+                        .list()
+        );
+    }
+
     public List<SignalTrackHistogramEntry> getBSSIDSignalStrengthWaterfall(String bssid,
                                                                            int frequency,
                                                                            TimeRange timeRange,
@@ -655,6 +848,37 @@ public class Dot11 {
         );
     }
 
+    public Map<SignalTrackKey, TrackDetectorConfig> findAllCustomTrackDetectorConfigurationsOfSSID(UUID organizationId,
+                                                                                                 String ssid) {
+        List<Map.Entry<SignalTrackKey, TrackDetectorConfig>> configs = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT tap_id, bssid, channel, frame_threshold, gap_threshold, " +
+                                "signal_centerline_jitter FROM dot11_track_detector_configuration " +
+                                "WHERE organization_id = :organization_id AND ssid = :ssid")
+                        .bind("organization_id", organizationId)
+                        .bind("ssid", ssid)
+                        .map((rs, ctx) -> Map.entry(
+                                SignalTrackKey.create(
+                                        rs.getString("bssid"),
+                                        rs.getInt("channel"),
+                                        UUID.fromString(rs.getString("tap_id"))
+                                ),
+                                TrackDetectorConfig.create(
+                                        rs.getInt("frame_threshold"),
+                                        rs.getInt("gap_threshold"),
+                                        rs.getInt("signal_centerline_jitter")
+                                )
+                        ))
+                        .list()
+        );
+
+        Map<SignalTrackKey, TrackDetectorConfig> result = Maps.newHashMap();
+        for (Map.Entry<SignalTrackKey, TrackDetectorConfig> config : configs) {
+            result.put(config.getKey(), config.getValue());
+        }
+
+        return result;
+    }
+
     public void updateCustomTrackDetectorConfiguration(UUID organizationId,
                                                        UUID tapId,
                                                        String bssid,
@@ -2555,15 +2779,6 @@ public class Dot11 {
         );
     }
 
-    public Optional<Dot11KnownClient> findKnownClient(Handle handle, String mac, long monitoredNetworkId) {
-        return handle.createQuery("SELECT * FROM dot11_known_clients " +
-                        "WHERE mac = :mac AND monitored_network_id = :monitored_network_id")
-                .bind("mac", mac)
-                .bind("monitored_network_id", monitoredNetworkId)
-                .mapTo(Dot11KnownClient.class)
-                .findOne();
-    }
-
     public Optional<Dot11KnownClient> findKnownClientByUuid(UUID uuid, long monitoredNetworkId) {
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT * FROM dot11_known_clients " +
@@ -2611,22 +2826,44 @@ public class Dot11 {
         );
     }
 
-    public void createKnownClient(Handle handle, String mac, long monitoredNetworkId) {
-        handle.createUpdate("INSERT INTO dot11_known_clients(uuid, mac, is_approved, is_ignored, " +
-                        "monitored_network_id, first_seen, last_seen) VALUES(:uuid, :mac, :is_approved, " +
-                        ":is_ignored, :monitored_network_id, NOW(), NOW())")
-                .bind("uuid", UUID.randomUUID())
-                .bind("mac", mac)
-                .bind("is_approved", false)
-                .bind("is_ignored", false)
+    /**
+     * Merges all clients recently connected to any monitored BSSID of a monitored network into its known clients.
+     * New clients are created and existing clients have their `last_seen` updated in a single statement.
+     *
+     * The result holds the number of merged clients and the MAC addresses of all merged clients that are neither
+     * approved nor ignored, including new clients.
+     */
+    public KnownClientsMergeResult mergeKnownClientsOfMonitoredNetwork(Handle handle,
+                                                                       long monitoredNetworkId,
+                                                                       int minutes,
+                                                                       List<UUID> taps) {
+        if (taps.isEmpty()) {
+            return KnownClientsMergeResult.create(0, Collections.emptyList());
+        }
+
+        return handle.createQuery("WITH current_clients AS (" +
+                        "SELECT DISTINCT c.client_mac AS mac FROM dot11_bssids AS b " +
+                        "JOIN dot11_bssid_clients AS c ON b.id = c.bssid_id " +
+                        "WHERE b.bssid IN (SELECT bssid FROM dot11_monitored_networks_bssids " +
+                        "WHERE monitored_network_id = :monitored_network_id) " +
+                        "AND b.created_at > :cutoff AND b.tap_uuid IN (<taps>)), " +
+                        "merged AS (" +
+                        "INSERT INTO dot11_known_clients(uuid, mac, is_approved, is_ignored, monitored_network_id, " +
+                        "first_seen, last_seen) SELECT gen_random_uuid(), mac, false, false, :monitored_network_id, " +
+                        "NOW(), NOW() FROM current_clients " +
+                        "ON CONFLICT (monitored_network_id, mac) DO UPDATE SET last_seen = NOW() " +
+                        "RETURNING mac, is_approved, is_ignored) " +
+                        "SELECT (SELECT COUNT(*) FROM merged) AS merged_clients, " +
+                        "ARRAY(SELECT mac FROM merged WHERE is_approved = false AND is_ignored = false " +
+                        "ORDER BY mac ASC) AS unapproved_client_macs")
                 .bind("monitored_network_id", monitoredNetworkId)
-                .execute();
-    }
-
-    public void touchKnownClient(Handle handle, long id) {
-        handle.createUpdate("UPDATE dot11_known_clients SET last_seen = NOW() WHERE id = :id")
-                .bind("id", id)
-                .execute();
+                .bind("cutoff", DateTime.now().minusMinutes(minutes))
+                .bindList("taps", taps)
+                .map((rs, ctx) -> KnownClientsMergeResult.create(
+                        rs.getLong("merged_clients"),
+                        Lists.newArrayList((String[]) rs.getArray("unapproved_client_macs").getArray())
+                ))
+                .one();
     }
 
     public void retentionCleanKnownClients(DateTime since) {
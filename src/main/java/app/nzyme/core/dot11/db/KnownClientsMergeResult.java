@@ -0,0 +1,32 @@
+package app.nzyme.core.dot11.db;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.List;
+
+@AutoValue
+public abstract class KnownClientsMergeResult {
+
+    public abstract long mergedClients();
+    public abstract List<String> unapprovedClientMacs();
+
+    public static KnownClientsMergeResult create(long mergedClients, List<String> unapprovedClientMacs) {
+        return builder()
+                .mergedClients(mergedClients)
+                .unapprovedClientMacs(unapprovedClientMacs)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_KnownClientsMergeResult.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder mergedClients(long mergedClients);
+
+        public abstract Builder unapprovedClientMacs(List<String> unapprovedClientMacs);
+
+        public abstract KnownClientsMergeResult build();
+    }
+}
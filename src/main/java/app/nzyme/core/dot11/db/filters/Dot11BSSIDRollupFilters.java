@@ -0,0 +1,36 @@
+package app.nzyme.core.dot11.db.filters;
+
+import app.nzyme.core.util.filters.FilterOperator;
+import app.nzyme.core.util.filters.GeneratedSql;
+import app.nzyme.core.util.filters.SqlFilterProvider;
+
+import static app.nzyme.core.util.filters.FilterSql.*;
+
+/**
+ * Same fields as {@link Dot11BSSIDFilters}, but for queries on the BSSID rollup tables, aliased as r.
+ */
+public class Dot11BSSIDRollupFilters implements SqlFilterProvider {
+
+    @Override
+    public GeneratedSql buildSql(String bindId, String fieldName, FilterOperator operator) {
+        switch (fieldName) {
+            case "bssid":
+                return GeneratedSql.create(stringMatch(bindId, "r.bssid", operator), "");
+            case "signal_strength":
+                return GeneratedSql.create(numericMatch(bindId,
+                        "(r.signal_strength_sum / r.signal_strength_count)", operator), "");
+            case "mode":
+                return GeneratedSql.create(arrayStringMatch(bindId, "r.infrastructure_types", operator), "");
+            case "advertised_ssid":
+                return GeneratedSql.create(arrayStringMatch(bindId, "r.ssids", operator), "");
+            case "client_count":
+                return GeneratedSql.create("", numericMatch(bindId,
+                        "CARDINALITY(nzyme_array_distinct(nzyme_array_cat_agg(r.client_macs)))", operator));
+            case "security":
+                return GeneratedSql.create(arrayStringMatch(bindId, "r.security_protocols", operator), "");
+            default:
+                throw new RuntimeException("Unknown field name [" + fieldName + "].");
+        }
+    }
+
+}
@@ -2,102 +2,267 @@ package app.nzyme.core.dot11.monitoring;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.detection.alerts.DetectionType;
-import app.nzyme.core.dot11.db.SignalTrackHistogramEntry;
+import app.nzyme.core.dot11.db.SignalTrackWaterfallEntry;
 import app.nzyme.core.dot11.db.monitoring.MonitoredBSSID;
-import app.nzyme.core.dot11.db.monitoring.MonitoredChannel;
 import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
+import app.nzyme.core.dot11.tracks.SignalHeatmap;
+import app.nzyme.core.dot11.tracks.SignalTrackKey;
+import app.nzyme.core.dot11.tracks.SignalWaterfall;
 import app.nzyme.core.dot11.tracks.Track;
 import app.nzyme.core.dot11.tracks.TrackDetector;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
 import app.nzyme.core.periodicals.Periodical;
 import app.nzyme.core.taps.Tap;
-import app.nzyme.core.util.TimeRangeFactory;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Subsystem;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Detects multiple signal tracks of monitored networks. The signal waterfalls of every monitored network are kept in
+ * memory and only the most recent buckets are fetched on each run, all BSSIDs, channels and taps of a network in one
+ * query. Track detection runs on a small, bounded pool.
+ */
 public class Dot11SignalTrackMonitor extends Periodical {
 
     private static final Logger LOG = LogManager.getLogger(Dot11SignalTrackMonitor.class);
 
+    // Tracks are detected on this many minutes of waterfall.
+    private static final int WINDOW_MINUTES = 8*60;
+
+    // The most recent buckets may not have been complete when they were last fetched.
+    private static final int REFETCH_MINUTES = 2;
+
     private final NzymeNode nzyme;
+    private final ExecutorService detectors;
+    private final Timer runTimer;
+
+    // Monitored network ID -> waterfalls. Only accessed by the periodical thread.
+    private final Map<Long, NetworkWaterfalls> waterfalls;
 
     public Dot11SignalTrackMonitor(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.waterfalls = Maps.newHashMap();
+        this.runTimer = nzyme.getMetrics().timer(MetricNames.DOT11_SIGNAL_TRACK_MONITOR_RUN_TIMER);
+
+        this.detectors = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("dot11-signal-track-detector-%d")
+                        .setDaemon(true)
+                        .build()
+        );
     }
 
     @Override
     protected void execute() {
         LOG.debug("Starting 802.11 signal track monitor run.");
 
-        for (MonitoredSSID monitoredSSID : nzyme.getDot11().findAllMonitoredSSIDs(null, null)) {
-            if (!monitoredSSID.isEnabled() || !monitoredSSID.enabledUnexpectedSignalTracks()) {
-                continue;
+        try (Timer.Context ignored = runTimer.time()) {
+            Set<Long> activeNetworks = Sets.newHashSet();
+            List<Detection> detections = Lists.newArrayList();
+
+            for (MonitoredSSID monitoredSSID : nzyme.getDot11().findAllMonitoredSSIDs(null, null)) {
+                if (!monitoredSSID.isEnabled() || !monitoredSSID.enabledUnexpectedSignalTracks()) {
+                    continue;
+                }
+
+                activeNetworks.add(monitoredSSID.id());
+
+                List<UUID> taps = nzyme.getTapManager()
+                        .allTapUUIDsAccessibleByScope(monitoredSSID.organizationId(), monitoredSSID.tenantId());
+                List<String> bssids = nzyme.getDot11().findMonitoredBSSIDsOfMonitoredNetwork(monitoredSSID.id())
+                        .stream()
+                        .map(MonitoredBSSID::bssid)
+                        .toList();
+                List<Integer> frequencies = nzyme.getDot11().findMonitoredChannelsOfMonitoredNetwork(monitoredSSID.id())
+                        .stream()
+                        .map(c -> (int) c.frequency())
+                        .toList();
+
+                // Start over if the BSSIDs, channels or taps of the network changed.
+                NetworkWaterfalls network = waterfalls.get(monitoredSSID.id());
+                if (network == null || !network.matches(bssids, frequencies, taps)) {
+                    network = new NetworkWaterfalls(bssids, frequencies, taps);
+                    waterfalls.put(monitoredSSID.id(), network);
+                }
+
+                network.update(monitoredSSID.ssid());
+
+                Map<SignalTrackKey, TrackDetectorConfig> configs = nzyme.getDot11()
+                        .findAllCustomTrackDetectorConfigurationsOfSSID(
+                                monitoredSSID.organizationId(), monitoredSSID.ssid()
+                        );
+
+                for (Map.Entry<SignalTrackKey, SignalWaterfall> waterfall : network.waterfalls.entrySet()) {
+                    if (waterfall.getValue().isEmpty()) {
+                        continue;
+                    }
+
+                    TrackDetectorConfig config = configs.getOrDefault(waterfall.getKey(), TrackDetector.DEFAULT_CONFIG);
+
+                    // The waterfall is not thread-safe. Only hand the immutable heatmap to the detection pool.
+                    SignalHeatmap heatmap = waterfall.getValue().toHeatmap();
+                    detections.add(new Detection(monitoredSSID, waterfall.getKey(), detectors.submit(() ->
+                            new TrackDetector().detect(heatmap, config)
+                    )));
+                }
             }
-            
-            List<UUID> tapUUIDs = nzyme.getTapManager()
-                    .allTapUUIDsAccessibleByScope(monitoredSSID.organizationId(), monitoredSSID.tenantId());
-
-            for (MonitoredBSSID monitoredBSSID : nzyme.getDot11().findMonitoredBSSIDsOfMonitoredNetwork(monitoredSSID.id())) {
-                for (MonitoredChannel frequency : nzyme.getDot11().findMonitoredChannelsOfMonitoredNetwork(monitoredSSID.id())) {
-                    for (UUID tapId : tapUUIDs) {
-                        Optional<Tap> tap = nzyme.getTapManager().findTap(tapId);
-
-                        List<SignalTrackHistogramEntry> signals = nzyme.getDot11().getSSIDSignalStrengthWaterfall(
-                                monitoredBSSID.bssid(), monitoredSSID.ssid(), (int) frequency.frequency(), TimeRangeFactory.eightHours(), tap.get().uuid());
-
-                        TrackDetectorConfig config = nzyme.getDot11()
-                                .findCustomTrackDetectorConfiguration(
-                                        tap.get().organizationId(),
-                                        tap.get().uuid(),
-                                        monitoredBSSID.bssid(),
-                                        monitoredSSID.ssid(),
-                                        (int)frequency.frequency()
-                                )
-                                .orElse(TrackDetector.DEFAULT_CONFIG);
-
-                        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(signals);
-                        TrackDetector td = new TrackDetector();
-                        List<Track> tracks = td.detect(heatmap.z(), heatmap.y(), config);
-
-                        if (tracks.size() > 1) {
-                            // Multiple tracks detected.
-                            Map<String, String> attributes = Maps.newHashMap();
-                            attributes.put("bssid", monitoredBSSID.bssid());
-                            attributes.put("channel", String.valueOf(frequency.frequency()));
-                            attributes.put("tap_id", tap.get().uuid().toString());
-                            attributes.put("tap_name", tap.get().name());
-
-                            nzyme.getDetectionAlertService().raiseAlert(
-                                    monitoredSSID.organizationId(),
-                                    monitoredSSID.tenantId(),
-                                    monitoredSSID.uuid(),
-                                    null,
-                                    DetectionType.DOT11_MONITOR_SIGNAL_TRACK,
-                                    Subsystem.DOT11,
-                                    "Monitored network \"" + monitoredSSID.ssid() + "\" advertised " +
-                                            "with multiple signal tracks on channel \"" + frequency.frequency() + "\". " +
-                                            "(Tap: \"" + tap.get().name() + "\")",
-                                    attributes,
-                                    new String[]{"bssid", "channel", "tap_id"},
-                                    null
-                            );
-                        }
+
+            // Forget waterfalls of networks that are no longer monitored.
+            waterfalls.keySet().retainAll(activeNetworks);
+
+            Map<UUID, Optional<Tap>> taps = Maps.newHashMap();
+            for (Detection detection : detections) {
+                List<Track> tracks;
+                try {
+                    tracks = detection.tracks.get();
+                } catch (ExecutionException e) {
+                    LOG.error("Could not detect signal tracks of [{}].", detection.key, e);
+                    continue;
+                }
+
+                if (tracks.size() > 1) {
+                    // Multiple tracks detected.
+                    Optional<Tap> tap = taps.computeIfAbsent(
+                            detection.key.tapUuid(), id -> nzyme.getTapManager().findTap(id)
+                    );
+
+                    if (tap.isPresent()) {
+                        raiseAlert(detection.monitoredSSID, detection.key, tap.get());
                     }
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    private void raiseAlert(MonitoredSSID monitoredSSID, SignalTrackKey key, Tap tap) {
+        Map<String, String> attributes = Maps.newHashMap();
+        attributes.put("bssid", key.bssid());
+        attributes.put("channel", String.valueOf(key.frequency()));
+        attributes.put("tap_id", tap.uuid().toString());
+        attributes.put("tap_name", tap.name());
+
+        nzyme.getDetectionAlertService().raiseAlert(
+                monitoredSSID.organizationId(),
+                monitoredSSID.tenantId(),
+                monitoredSSID.uuid(),
+                null,
+                DetectionType.DOT11_MONITOR_SIGNAL_TRACK,
+                Subsystem.DOT11,
+                "Monitored network \"" + monitoredSSID.ssid() + "\" advertised " +
+                        "with multiple signal tracks on channel \"" + key.frequency() + "\". " +
+                        "(Tap: \"" + tap.name() + "\")",
+                attributes,
+                new String[]{"bssid", "channel", "tap_id"},
+                null
+        );
+    }
+
     @Override
     public String getName() {
         return "802.11 Signal Track Monitor";
     }
 
+    private final class NetworkWaterfalls {
+
+        private final Set<String> bssids;
+        private final Set<Integer> frequencies;
+        private final Set<UUID> taps;
+
+        private final Map<SignalTrackKey, SignalWaterfall> waterfalls;
+
+        // Start of the most recent bucket at the time of the last fetch.
+        @Nullable
+        private DateTime lastFetchBucket = null;
+
+        private NetworkWaterfalls(List<String> bssids, List<Integer> frequencies, List<UUID> taps) {
+            this.bssids = ImmutableSet.copyOf(bssids);
+            this.frequencies = ImmutableSet.copyOf(frequencies);
+            this.taps = ImmutableSet.copyOf(taps);
+
+            this.waterfalls = Maps.newHashMap();
+            for (String bssid : bssids) {
+                for (Integer frequency : frequencies) {
+                    for (UUID tap : taps) {
+                        waterfalls.put(SignalTrackKey.create(bssid, frequency, tap), new SignalWaterfall());
+                    }
+                }
+            }
+        }
+
+        private boolean matches(List<String> bssids, List<Integer> frequencies, List<UUID> taps) {
+            return this.bssids.equals(Set.copyOf(bssids))
+                    && this.frequencies.equals(Set.copyOf(frequencies))
+                    && this.taps.equals(Set.copyOf(taps));
+        }
+
+        private void update(String ssid) {
+            DateTime now = DateTime.now();
+            DateTime windowStart = now.minusMinutes(WINDOW_MINUTES);
+            DateTime from = lastFetchBucket == null
+                    ? windowStart : lastFetchBucket.minusMinutes(REFETCH_MINUTES);
+
+            List<SignalTrackWaterfallEntry> entries = nzyme.getDot11().getSSIDSignalStrengthWaterfalls(
+                    ssid,
+                    List.copyOf(bssids),
+                    List.copyOf(frequencies),
+                    List.copyOf(taps),
+                    from
+            );
+
+            for (SignalWaterfall waterfall : waterfalls.values()) {
+                waterfall.clearFrom(from);
+                waterfall.evictBefore(windowStart);
+            }
+
+            for (SignalTrackWaterfallEntry entry : entries) {
+                SignalWaterfall waterfall = waterfalls.get(
+                        SignalTrackKey.create(entry.bssid(), entry.frequency(), entry.tapUuid())
+                );
+
+                if (waterfall != null) {
+                    waterfall.add(entry.bucket(), entry.signalStrength(), entry.frameCount());
+                }
+            }
+
+            this.lastFetchBucket = now.withSecondOfMinute(0).withMillisOfSecond(0);
+        }
+
+    }
+
+    private static final class Detection {
+
+        private final MonitoredSSID monitoredSSID;
+        private final SignalTrackKey key;
+        private final Future<List<Track>> tracks;
+
+        private Detection(MonitoredSSID monitoredSSID, SignalTrackKey key, Future<List<Track>> tracks) {
+            this.monitoredSSID = monitoredSSID;
+            this.key = key;
+            this.tracks = tracks;
+        }
+
+    }
+
 }
@@ -2,13 +2,14 @@ package app.nzyme.core.dot11.monitoring.clients;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.detection.alerts.DetectionType;
-import app.nzyme.core.dot11.db.ConnectedClientDetails;
-import app.nzyme.core.dot11.db.Dot11KnownClient;
-import app.nzyme.core.dot11.db.monitoring.MonitoredBSSID;
+import app.nzyme.core.dot11.db.KnownClientsMergeResult;
 import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
 import app.nzyme.core.periodicals.Periodical;
 import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Subsystem;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.Maps;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,72 +17,67 @@ import org.joda.time.DateTime;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Merges the clients of all monitored networks with enabled client monitoring into their known clients, using one
+ * statement per network, and raises alerts for clients that are neither approved nor ignored.
+ */
 public class KnownClientMonitor extends Periodical {
 
     private static final Logger LOG = LogManager.getLogger(KnownClientMonitor.class);
 
     private final NzymeNode nzyme;
 
+    private final Timer runTimer;
+    private final Histogram mergedClients;
+    private final Histogram unapprovedClients;
+
     public KnownClientMonitor(NzymeNode nzyme) {
         this.nzyme = nzyme;
+
+        this.runTimer = nzyme.getMetrics().timer(MetricNames.DOT11_KNOWN_CLIENT_MONITOR_RUN_TIMER);
+        this.mergedClients = nzyme.getMetrics().histogram(MetricNames.DOT11_KNOWN_CLIENT_MONITOR_MERGED_CLIENTS);
+        this.unapprovedClients = nzyme.getMetrics()
+                .histogram(MetricNames.DOT11_KNOWN_CLIENT_MONITOR_UNAPPROVED_CLIENTS);
     }
 
     @Override
     protected void execute() {
-        try {
+        try (Timer.Context ignored = runTimer.time()) {
             // Fetch all monitored networks of all tenants.
             List<MonitoredSSID> monitoredNetworks = nzyme.getDot11().findAllMonitoredSSIDs(null, null);
 
-            nzyme.getDatabase().useHandle(handle -> {
-                for (MonitoredSSID monitoredNetwork : monitoredNetworks) {
-                    if (!monitoredNetwork.enabledClientMonitoring()) {
-                        // Client monitoring is disabled for this network.
-                        continue;
-                    }
-
-                    // Build list of taps of this tenant.
-                    List<UUID> taps = nzyme.getTapManager()
-                            .findAllTapsOfTenant(monitoredNetwork.organizationId(), monitoredNetwork.tenantId())
-                            .stream()
-                            .map(Tap::uuid)
-                            .toList();
-
-                    List<MonitoredBSSID> bssids = nzyme.getDot11()
-                            .findMonitoredBSSIDsOfMonitoredNetwork(handle, monitoredNetwork.id());
-
-                    for (MonitoredBSSID bssid : bssids) {
-                        // Find all clients of BSSID.
-                        List<ConnectedClientDetails> clients = nzyme.getDot11()
-                                .findClientsOfBSSID(handle, bssid.bssid(), 1, taps);
-
-                        // Process all clients.
-                        for (ConnectedClientDetails client : clients) {
-                            // Do we already know this client?
-                            Optional<Dot11KnownClient> knownClient = nzyme.getDot11()
-                                    .findKnownClient(handle, client.clientMac(), monitoredNetwork.id());
-
-                            if (knownClient.isPresent()) {
-                                // We know this client. Only update `last_seen`.
-                                nzyme.getDot11().touchKnownClient(handle, knownClient.get().id());
-
-                                // Raise alarm for new client if not approved or ignored.
-                                if (!knownClient.get().isApproved() && !knownClient.get().isIgnored()) {
-                                    raiseAlertIfEventingEnabled(client, monitoredNetwork);
-                                }
-                            } else {
-                                // New client.
-                                nzyme.getDot11().createKnownClient(handle, client.clientMac(), monitoredNetwork.id());
-
-                                // Raise alarm for new client.
-                                raiseAlertIfEventingEnabled(client, monitoredNetwork);
-                            }
-                        }
-                    }
+            long totalMerged = 0;
+            long totalUnapproved = 0;
+            for (MonitoredSSID monitoredNetwork : monitoredNetworks) {
+                if (!monitoredNetwork.enabledClientMonitoring()) {
+                    // Client monitoring is disabled for this network.
+                    continue;
+                }
+
+                // Build list of taps of this tenant.
+                List<UUID> taps = nzyme.getTapManager()
+                        .findAllTapsOfTenant(monitoredNetwork.organizationId(), monitoredNetwork.tenantId())
+                        .stream()
+                        .map(Tap::uuid)
+                        .toList();
+
+                KnownClientsMergeResult result = nzyme.getDatabase().withHandle(handle ->
+                        nzyme.getDot11().mergeKnownClientsOfMonitoredNetwork(handle, monitoredNetwork.id(), 1, taps)
+                );
+
+                totalMerged += result.mergedClients();
+                totalUnapproved += result.unapprovedClientMacs().size();
+
+                // Raise alarm for all new clients and all clients that are not approved or ignored.
+                for (String clientMac : result.unapprovedClientMacs()) {
+                    raiseAlertIfEventingEnabled(clientMac, monitoredNetwork);
                 }
-            });
+            }
+
+            mergedClients.update(totalMerged);
+            unapprovedClients.update(totalUnapproved);
 
             // Retention clean.
             nzyme.getDot11().retentionCleanKnownClients(DateTime.now().minusDays(30));
@@ -90,16 +86,16 @@ public class KnownClientMonitor extends Periodical {
         }
     }
 
-    private void raiseAlertIfEventingEnabled(ConnectedClientDetails client, MonitoredSSID ssid) {
+    private void raiseAlertIfEventingEnabled(String clientMac, MonitoredSSID ssid) {
         if  (!ssid.enabledClientEventing()) {
             LOG.debug("Not raising alert for unapproved client [{}] because eventing is enabled for " +
-                    "monitored network [{}].", client.clientMac(), ssid.ssid());
+                    "monitored network [{}].", clientMac, ssid.ssid());
             return;
         }
 
         Map<String, String> parameters = Maps.newHashMap();
         parameters.put("monitored_network", ssid.ssid());
-        parameters.put("client_mac", client.clientMac());
+        parameters.put("client_mac", clientMac);
 
         nzyme.getDetectionAlertService().raiseAlert(
                 ssid.organizationId(),
@@ -108,7 +104,7 @@ public class KnownClientMonitor extends Periodical {
                 null,
                 DetectionType.DOT11_UNAPPROVED_CLIENT,
                 Subsystem.DOT11,
-                "Unapproved client \"" + client.clientMac() + "\" connected to monitored network \""  +ssid.ssid() + "\" detected.",
+                "Unapproved client \"" + clientMac + "\" connected to monitored network \""  +ssid.ssid() + "\" detected.",
                 parameters,
                 new String[]{"monitored_network", "client_mac"},
                 null
@@ -0,0 +1,17 @@
+package app.nzyme.core.dot11.monitoring.disco;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.UUID;
+
+@AutoValue
+public abstract class DiscoActivityCounterKey {
+
+    public abstract long monitoredNetworkId();
+    public abstract UUID tapUuid();
+
+    public static DiscoActivityCounterKey create(long monitoredNetworkId, UUID tapUuid) {
+        return new AutoValue_DiscoActivityCounterKey(monitoredNetworkId, tapUuid);
+    }
+
+}
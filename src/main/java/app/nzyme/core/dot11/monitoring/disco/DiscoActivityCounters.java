@@ -0,0 +1,97 @@
+package app.nzyme.core.dot11.monitoring.disco;
+
+import app.nzyme.core.dot11.db.DiscoHistogramEntry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Rolling per-minute counts of disconnection frames (deauthentication and disassociation) sent by the BSSIDs of a
+ * monitored network, per monitored network and tap. Updated as tap reports arrive so disconnection monitor methods
+ * can be evaluated without reading the disconnection histogram from the database.
+ *
+ * Node-local. Reports processed by other nodes are only included after the next reconciliation with the database.
+ */
+public class DiscoActivityCounters {
+
+    public static final int WINDOW_MINUTES = 24*60;
+
+    private final Map<DiscoActivityCounterKey, Counter> counters;
+
+    public DiscoActivityCounters() {
+        this.counters = Maps.newConcurrentMap();
+    }
+
+    public void record(DiscoActivityCounterKey key, DateTime timestamp, long frames) {
+        counters.computeIfAbsent(key, k -> new Counter()).add(toBucket(timestamp).getMillis(), frames);
+    }
+
+    /**
+     * Merges the histogram read from the database. Counts that are higher in memory were recorded after the
+     * histogram was read and are kept.
+     */
+    public void reconcile(DiscoActivityCounterKey key, List<DiscoHistogramEntry> histogram) {
+        counters.computeIfAbsent(key, k -> new Counter()).merge(histogram);
+    }
+
+    /**
+     * The histogram of the last 24 hours, newest bucket first, like the histogram of the database.
+     */
+    public List<DiscoHistogramEntry> histogram(DiscoActivityCounterKey key, DateTime now) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return ImmutableList.of();
+        }
+
+        return counter.histogram(toBucket(now.minusMinutes(WINDOW_MINUTES)).getMillis());
+    }
+
+    /**
+     * Drops the counters of monitored networks or taps that are no longer monitored.
+     */
+    public void retain(Set<DiscoActivityCounterKey> keys) {
+        counters.keySet().retainAll(keys);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public static DateTime toBucket(DateTime timestamp) {
+        return timestamp.withSecondOfMinute(0).withMillisOfSecond(0);
+    }
+
+    private static final class Counter {
+
+        // Bucket (epoch millis) -> Frame count
+        private final NavigableMap<Long, Long> buckets = Maps.newTreeMap();
+
+        private synchronized void add(long bucket, long frames) {
+            buckets.merge(bucket, frames, Long::sum);
+        }
+
+        private synchronized void merge(List<DiscoHistogramEntry> histogram) {
+            for (DiscoHistogramEntry entry : histogram) {
+                buckets.merge(toBucket(entry.bucket()).getMillis(), entry.frameCount(), Math::max);
+            }
+        }
+
+        private synchronized List<DiscoHistogramEntry> histogram(long from) {
+            buckets.headMap(from, false).clear();
+
+            ImmutableList.Builder<DiscoHistogramEntry> histogram = ImmutableList.builder();
+            for (Map.Entry<Long, Long> bucket : buckets.descendingMap().entrySet()) {
+                histogram.add(DiscoHistogramEntry.create(new DateTime(bucket.getKey()), bucket.getValue()));
+            }
+
+            return histogram.build();
+        }
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package app.nzyme.core.dot11.monitoring.disco;
+
+import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
+import app.nzyme.core.dot11.monitoring.disco.monitormethods.Dot11DiscoMonitorMethod;
+import com.google.auto.value.AutoValue;
+
+import java.util.Set;
+
+/**
+ * A monitored network with enabled disconnection monitor, its BSSIDs and the already configured monitor method.
+ */
+@AutoValue
+public abstract class DiscoMonitoredNetwork {
+
+    public abstract MonitoredSSID network();
+    public abstract Set<String> bssids();
+    public abstract Dot11DiscoMonitorMethod method();
+
+    public static DiscoMonitoredNetwork create(MonitoredSSID network, Set<String> bssids, Dot11DiscoMonitorMethod method) {
+        return new AutoValue_DiscoMonitoredNetwork(network, bssids, method);
+    }
+
+}
@@ -3,94 +3,190 @@ package app.nzyme.core.dot11.monitoring.disco;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.detection.alerts.DetectionType;
 import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
-import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorFactory;
-import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorMethodType;
 import app.nzyme.core.periodicals.Periodical;
+import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11DiscoReport;
+import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11DiscoTransmitterReport;
 import app.nzyme.core.security.authentication.db.OrganizationEntry;
 import app.nzyme.core.security.authentication.db.TenantEntry;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshot;
 import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Subsystem;
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-
+import java.util.Set;
+
+/**
+ * Evaluates the disconnection monitors of monitored networks. Disconnection frame counts are recorded from tap
+ * reports as they arrive and evaluated in memory right away. The periodical run re-raises all anomalies of the last
+ * 24 hours from the in-memory counts. Only every few runs, or for counters it has not seen yet, it also reconciles
+ * the in-memory counts with the database, which picks up reports processed by other nodes.
+ */
 public class Dot11DiscoMonitor extends Periodical {
 
     private static final Logger LOG = LogManager.getLogger(Dot11DiscoMonitor.class);
 
+    // Reconciliation reads the 24 hour histogram of every monitored network and tap from the database.
+    private static final int RECONCILIATION_INTERVAL_RUNS = 15;
+
+    // A longer gap between runs means that this node was not the leader and missed the reports of other nodes.
+    private static final int MAX_RUN_GAP_MINUTES = 2;
+
     private final NzymeNode nzyme;
     private final ObjectMapper om;
 
+    private final DiscoActivityCounters counters;
+
+    // Only accessed by periodical runs, which never overlap.
+    private final Set<DiscoActivityCounterKey> reconciledCounters;
+    private int runsSinceReconciliation = RECONCILIATION_INTERVAL_RUNS;
+    private DateTime lastRun = null;
+
     public Dot11DiscoMonitor(NzymeNode nzyme) {
         this.nzyme = nzyme;
         this.om = new ObjectMapper()
                 .registerModule(new JodaModule());
+        this.counters = new DiscoActivityCounters();
+        this.reconciledCounters = Sets.newHashSet();
+
+        nzyme.getMetrics().register(MetricNames.DOT11_DISCO_MONITOR_COUNTERS, (Gauge<Integer>) counters::size);
+    }
+
+    /**
+     * Records the disconnection frames of a tap report and raises an alert if the bucket of the report is
+     * anomalous for any monitored network. Called after the report was written.
+     */
+    public void recordReport(Tap tap,
+                             DateTime timestamp,
+                             Dot11DiscoReport disco,
+                             Dot11MonitoringSnapshot monitoring) {
+        if (monitoring.discoMonitoredNetworks().isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> sentFrames = Maps.newHashMap();
+        for (Dot11DiscoTransmitterReport report : disco.deauthentication().values()) {
+            sentFrames.merge(report.bssid(), report.sentFrames(), Long::sum);
+        }
+        for (Dot11DiscoTransmitterReport report : disco.disassociation().values()) {
+            sentFrames.merge(report.bssid(), report.sentFrames(), Long::sum);
+        }
+
+        if (sentFrames.isEmpty()) {
+            return;
+        }
+
+        DateTime bucket = DiscoActivityCounters.toBucket(timestamp);
+        for (DiscoMonitoredNetwork network : monitoring.discoMonitoredNetworks()) {
+            long frames = 0;
+            for (String bssid : network.bssids()) {
+                frames += sentFrames.getOrDefault(bssid, 0L);
+            }
+
+            if (frames == 0) {
+                continue;
+            }
+
+            DiscoActivityCounterKey key = DiscoActivityCounterKey.create(network.network().id(), tap.uuid());
+            counters.record(key, bucket, frames);
+
+            List<DiscoMonitorAnomaly> anomalies = network.method().evaluate(counters.histogram(key, DateTime.now()));
+
+            // Anomalies of older buckets were raised when they happened.
+            boolean currentBucketAnomalous = anomalies.stream()
+                    .anyMatch(a -> a.timestamp().getMillis() == bucket.getMillis());
+
+            if (currentBucketAnomalous) {
+                raiseAlert(network.network(), tap, anomalies);
+            }
+        }
     }
 
     @Override
     protected void execute() {
+        DateTime now = DateTime.now();
+        boolean reconcileAll = runsSinceReconciliation >= RECONCILIATION_INTERVAL_RUNS
+                || lastRun == null || lastRun.isBefore(now.minusMinutes(MAX_RUN_GAP_MINUTES));
+        lastRun = now;
+
+        if (reconcileAll) {
+            runsSinceReconciliation = 0;
+            reconciledCounters.clear();
+        }
+        runsSinceReconciliation++;
+
+        Set<DiscoActivityCounterKey> activeCounters = Sets.newHashSet();
+
         for (OrganizationEntry org : nzyme.getAuthenticationService().findAllOrganizations()) {
             for (TenantEntry tenant : nzyme.getAuthenticationService().findAllTenantsOfOrganization(org.uuid())) {
-                for (MonitoredSSID monitoredNetwork : nzyme.getDot11().findAllMonitoredSSIDs(org.uuid(), tenant.uuid())) {
-                    if (!monitoredNetwork.enabledDiscoMonitor() || monitoredNetwork.discoMonitorType() == null) {
-                        continue;
-                    }
+                Dot11MonitoringSnapshot monitoring = nzyme.getDot11().getMonitoringSnapshot(org.uuid(), tenant.uuid());
 
-                    DiscoMonitorMethodType method;
-                    try {
-                        method = DiscoMonitorMethodType.valueOf(monitoredNetwork.discoMonitorType());
-                    } catch(IllegalArgumentException e) {
-                        LOG.error("Unknown 802.11 disconnection monitor method [{}] for monitored network " +
-                                        "[{}]. Skipping.", monitoredNetwork.discoMonitorType(), monitoredNetwork.uuid());
-                        continue;
-                    }
-
-                    List<Tap> tenantTaps = nzyme.getTapManager()
-                            .findAllTapsOfTenant(monitoredNetwork.organizationId(), monitoredNetwork.tenantId());
+                if (monitoring.discoMonitoredNetworks().isEmpty()) {
+                    continue;
+                }
 
-                    Map<Tap, List<DiscoMonitorAnomaly>> anomalies = DiscoMonitorFactory
-                            .build(nzyme, method, monitoredNetwork)
-                            .execute(tenantTaps);
+                List<Tap> tenantTaps = nzyme.getTapManager().findAllTapsOfTenant(org.uuid(), tenant.uuid());
 
-                    // Trigger alerts.
-                    for (Map.Entry<Tap, List<DiscoMonitorAnomaly>> anomaly : anomalies.entrySet()) {
-                        Tap tap = anomaly.getKey();
+                for (DiscoMonitoredNetwork network : monitoring.discoMonitoredNetworks()) {
+                    for (Tap tap : tenantTaps) {
+                        DiscoActivityCounterKey key = DiscoActivityCounterKey.create(network.network().id(), tap.uuid());
+                        activeCounters.add(key);
 
-                        String anomaliesAttribute;
-                        try {
-                            anomaliesAttribute = this.om.writeValueAsString(anomaly.getValue());
-                        } catch(Exception e) {
-                            throw new RuntimeException("Could not build anomalies alert parameter.", e);
+                        if (!reconciledCounters.contains(key)) {
+                            counters.reconcile(key, network.method().fetchHistogram(tap));
+                            reconciledCounters.add(key);
                         }
 
-                        Map<String, String> attributes = Maps.newHashMap();
-                        attributes.put("anomalies", anomaliesAttribute);
-                        attributes.put("tap_id", tap.uuid().toString());
-                        attributes.put("tap_name", tap.name());
-
-                        nzyme.getDetectionAlertService().raiseAlert(
-                                org.uuid(),
-                                tenant.uuid(),
-                                monitoredNetwork.uuid(),
-                                anomaly.getKey().uuid(),
-                                DetectionType.DOT11_MONITOR_DISCO_ANOMALIES,
-                                Subsystem.DOT11,
-                                "Detected disconnection activity anomalies for monitored " +
-                                        "network \"" + monitoredNetwork.ssid() + "\" (Tap: \"" + tap.name() + "\")",
-                                attributes,
-                                new String[]{"tap_id"},
-                                null
-                        );
+                        List<DiscoMonitorAnomaly> anomalies = network.method()
+                                .evaluate(counters.histogram(key, DateTime.now()));
+
+                        if (!anomalies.isEmpty()) {
+                            raiseAlert(network.network(), tap, anomalies);
+                        }
                     }
                 }
             }
         }
+
+        counters.retain(activeCounters);
+        reconciledCounters.retainAll(activeCounters);
+    }
+
+    private void raiseAlert(MonitoredSSID monitoredNetwork, Tap tap, List<DiscoMonitorAnomaly> anomalies) {
+        String anomaliesAttribute;
+        try {
+            anomaliesAttribute = this.om.writeValueAsString(anomalies);
+        } catch(Exception e) {
+            throw new RuntimeException("Could not build anomalies alert parameter.", e);
+        }
+
+        Map<String, String> attributes = Maps.newHashMap();
+        attributes.put("anomalies", anomaliesAttribute);
+        attributes.put("tap_id", tap.uuid().toString());
+        attributes.put("tap_name", tap.name());
+
+        nzyme.getDetectionAlertService().raiseAlert(
+                monitoredNetwork.organizationId(),
+                monitoredNetwork.tenantId(),
+                monitoredNetwork.uuid(),
+                tap.uuid(),
+                DetectionType.DOT11_MONITOR_DISCO_ANOMALIES,
+                Subsystem.DOT11,
+                "Detected disconnection activity anomalies for monitored " +
+                        "network \"" + monitoredNetwork.ssid() + "\" (Tap: \"" + tap.name() + "\")",
+                attributes,
+                new String[]{"tap_id"},
+                null
+        );
     }
 
     @Override
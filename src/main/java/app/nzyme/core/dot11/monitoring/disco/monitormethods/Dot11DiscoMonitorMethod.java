@@ -47,23 +47,32 @@ public abstract class Dot11DiscoMonitorMethod {
     }
 
     public List<DiscoMonitorAnomaly> execute(Tap tap) {
+        return evaluate(fetchHistogram(tap));
+    }
+
+    /**
+     * Disconnection frames sent by the BSSIDs of the monitored network, per minute over the last 24 hours.
+     */
+    public List<DiscoHistogramEntry> fetchHistogram(Tap tap) {
         List<String> bssidList = Lists.newArrayList();
 
         for (MonitoredBSSID monitoredBSSID : nzyme.getDot11().findMonitoredBSSIDsOfMonitoredNetwork(monitoredNetwork.id())) {
             bssidList.add(monitoredBSSID.bssid());
         }
 
-        return calculate(
-                nzyme.getDot11().getDiscoHistogram(
-                        Dot11.DiscoType.DISCONNECTION,
-                        TimeRangeFactory.oneDay(),
-                        Bucketing.getConfig(TimeRangeFactory.oneDay()),
-                        tap.uuid(),
-                        bssidList
-                )
+        return nzyme.getDot11().getDiscoHistogram(
+                Dot11.DiscoType.DISCONNECTION,
+                TimeRangeFactory.oneDay(),
+                Bucketing.getConfig(TimeRangeFactory.oneDay()),
+                tap.uuid(),
+                bssidList
         );
     }
 
+    public List<DiscoMonitorAnomaly> evaluate(List<DiscoHistogramEntry> histogram) {
+        return calculate(histogram);
+    }
+
     protected abstract List<DiscoMonitorAnomaly> calculate(List<DiscoHistogramEntry> histogram);
 
 }
@@ -15,6 +15,8 @@ import java.util.Map;
 
 public class ManualThresholdDiscoMonitor extends Dot11DiscoMonitorMethod {
 
+    private static final ObjectMapper om = new ObjectMapper();
+
     private final int threshold;
 
     public ManualThresholdDiscoMonitor(NzymeNode nzyme,
@@ -26,12 +28,12 @@ public class ManualThresholdDiscoMonitor extends Dot11DiscoMonitorMethod {
         try {
             ManualThresholdConfiguration config;
             if (customConfig == null) {
-                config = new ObjectMapper().readValue(
+                config = om.readValue(
                         monitoredNetwork.discoMonitorConfiguration(),
                         ManualThresholdConfiguration.class
                 );
             } else {
-                config = new ObjectMapper().convertValue(customConfig, ManualThresholdConfiguration.class);
+                config = om.convertValue(customConfig, ManualThresholdConfiguration.class);
             }
 
             this.threshold = config.threshold();
@@ -0,0 +1,70 @@
+package app.nzyme.core.dot11.rollups;
+
+import app.nzyme.core.util.Bucketing;
+import app.nzyme.core.util.TimeRange;
+import org.joda.time.DateTime;
+
+import java.util.Optional;
+
+/**
+ * Resolutions of the BSSID and SSID rollup tables, written by the 802.11 ingest path. See the dot11_rollups migration.
+ */
+public enum Dot11RollupResolution {
+
+    MINUTE("minute", "dot11_bssid_rollups_minute", "dot11_ssid_rollups_minute"),
+    HOUR("hour", "dot11_bssid_rollups_hour", "dot11_ssid_rollups_hour");
+
+    // Per-minute rollups are dropped after this time. Older ranges fall back to raw data.
+    public static final int MINUTE_RETENTION_HOURS = 48;
+
+    private final String dateTruncName;
+    private final String bssidTable;
+    private final String ssidTable;
+
+    Dot11RollupResolution(String dateTruncName, String bssidTable, String ssidTable) {
+        this.dateTruncName = dateTruncName;
+        this.bssidTable = bssidTable;
+        this.ssidTable = ssidTable;
+    }
+
+    public String getDateTruncName() {
+        return dateTruncName;
+    }
+
+    public String getBssidTable() {
+        return bssidTable;
+    }
+
+    public String getSsidTable() {
+        return ssidTable;
+    }
+
+    /**
+     * The coarsest rollup that can answer queries of the given time range and bucketing, or empty if the raw
+     * tables must be queried. Time range boundaries are matched against buckets, so results may include up to one
+     * bucket of data before the start of the range.
+     */
+    public static Optional<Dot11RollupResolution> select(TimeRange timeRange,
+                                                         Bucketing.BucketingConfiguration bucketing,
+                                                         DateTime now) {
+        switch (bucketing.type()) {
+            case HOUR, DAY -> {
+                return Optional.of(HOUR);
+            }
+            case MINUTE -> {
+                if (timeRange.isAllTime() || timeRange.from().isBefore(now.minusHours(MINUTE_RETENTION_HOURS))) {
+                    return Optional.empty();
+                }
+
+                return Optional.of(MINUTE);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    public static Optional<Dot11RollupResolution> select(TimeRange timeRange) {
+        return select(timeRange, Bucketing.getConfig(timeRange), DateTime.now());
+    }
+
+}
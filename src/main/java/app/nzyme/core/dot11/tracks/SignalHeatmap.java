@@ -0,0 +1,107 @@
+package app.nzyme.core.dot11.tracks;
+
+import app.nzyme.core.dot11.db.SignalTrackHistogramEntry;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import org.joda.time.DateTime;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Signal strength waterfall in primitive arrays: One row of frame counts per time bucket, one column per signal
+ * strength from -100 dBm (column 0) to -1 dBm (column 99). Used by the track detector to avoid boxing every cell.
+ */
+public final class SignalHeatmap {
+
+    public static final int MIN_SIGNAL = -100;
+    public static final int COLUMNS = 100;
+
+    private final DateTime[] y;
+    private final long[][] z;
+
+    public SignalHeatmap(DateTime[] y, long[][] z) {
+        if (y.length != z.length) {
+            throw new IllegalArgumentException("Number of buckets and rows does not match.");
+        }
+
+        this.y = y;
+        this.z = z;
+    }
+
+    public static SignalHeatmap fromHistogram(List<SignalTrackHistogramEntry> signals) {
+        SortedMap<DateTime, long[]> rows = Maps.newTreeMap();
+        for (SignalTrackHistogramEntry signal : signals) {
+            long[] row = rows.computeIfAbsent(signal.bucket(), k -> new long[COLUMNS]);
+
+            int column = signal.signalStrength() - MIN_SIGNAL;
+            if (column >= 0 && column < COLUMNS) {
+                row[column] = signal.frameCount();
+            }
+        }
+
+        return fromRows(rows);
+    }
+
+    public static SignalHeatmap fromBuckets(SortedMap<DateTime, Map<Integer, Long>> buckets) {
+        SortedMap<DateTime, long[]> rows = Maps.newTreeMap();
+        for (Map.Entry<DateTime, Map<Integer, Long>> bucket : buckets.entrySet()) {
+            long[] row = new long[COLUMNS];
+            for (Map.Entry<Integer, Long> signal : bucket.getValue().entrySet()) {
+                int column = signal.getKey() - MIN_SIGNAL;
+                if (column >= 0 && column < COLUMNS) {
+                    row[column] = signal.getValue();
+                }
+            }
+
+            rows.put(bucket.getKey(), row);
+        }
+
+        return fromRows(rows);
+    }
+
+    private static SignalHeatmap fromRows(SortedMap<DateTime, long[]> rows) {
+        return new SignalHeatmap(
+                rows.keySet().toArray(new DateTime[0]),
+                rows.values().toArray(new long[0][])
+        );
+    }
+
+    public int rows() {
+        return y.length;
+    }
+
+    public DateTime bucket(int row) {
+        return y[row];
+    }
+
+    /**
+     * The frame counts of one bucket. Not copied, do not modify.
+     */
+    public long[] row(int row) {
+        return z[row];
+    }
+
+    /**
+     * Boxed Z axis for REST responses.
+     */
+    public List<List<Long>> zValues() {
+        List<List<Long>> result = Lists.newArrayListWithCapacity(z.length);
+        for (long[] row : z) {
+            result.add(Longs.asList(row));
+        }
+
+        return result;
+    }
+
+    /**
+     * Y axis for REST responses.
+     */
+    public List<DateTime> yValues() {
+        return Arrays.asList(y);
+    }
+
+}
@@ -0,0 +1,21 @@
+package app.nzyme.core.dot11.tracks;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.UUID;
+
+/**
+ * Identifies the signal waterfall of one BSSID on one channel, as recorded by one tap.
+ */
+@AutoValue
+public abstract class SignalTrackKey {
+
+    public abstract String bssid();
+    public abstract int frequency();
+    public abstract UUID tapUuid();
+
+    public static SignalTrackKey create(String bssid, int frequency, UUID tapUuid) {
+        return new AutoValue_SignalTrackKey(bssid, frequency, tapUuid);
+    }
+
+}
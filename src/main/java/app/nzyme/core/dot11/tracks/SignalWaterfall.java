@@ -0,0 +1,52 @@
+package app.nzyme.core.dot11.tracks;
+
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Rolling window of per-minute signal strength histograms of one {@link SignalTrackKey}. Buckets are added
+ * incrementally as they arrive and evicted once they leave the window, so the full window never has to be re-read.
+ *
+ * Not thread-safe.
+ */
+public class SignalWaterfall {
+
+    // Bucket -> (Signal strength -> Frame count)
+    private final NavigableMap<DateTime, Map<Integer, Long>> buckets;
+
+    public SignalWaterfall() {
+        this.buckets = Maps.newTreeMap();
+    }
+
+    /**
+     * Removes all buckets starting at the given time. Called before re-adding freshly fetched buckets that may
+     * have been incomplete when they were last read.
+     */
+    public void clearFrom(DateTime from) {
+        buckets.tailMap(from, true).clear();
+    }
+
+    public void add(DateTime bucket, int signalStrength, long frameCount) {
+        buckets.computeIfAbsent(bucket, k -> Maps.newHashMap()).merge(signalStrength, frameCount, Long::sum);
+    }
+
+    public void evictBefore(DateTime cutoff) {
+        buckets.headMap(cutoff, false).clear();
+    }
+
+    public boolean isEmpty() {
+        return buckets.isEmpty();
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public SignalHeatmap toHeatmap() {
+        return SignalHeatmap.fromBuckets(buckets);
+    }
+
+}
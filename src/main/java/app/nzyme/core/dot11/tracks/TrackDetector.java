@@ -11,12 +11,122 @@ import org.joda.time.DateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
 
 public class TrackDetector {
 
     public static final TrackDetectorConfig DEFAULT_CONFIG = TrackDetectorConfig.create(
             20, 9, 8);
 
+    /**
+     * Detects tracks on a primitive heatmap. Produces the same tracks, in the same order, as the boxed
+     * {@link #detect(List, List, TrackDetectorConfig)} but aggregates partial tracks per centerline on the fly
+     * instead of collecting them.
+     */
+    public List<Track> detect(SignalHeatmap heatmap, TrackDetectorConfig config) {
+        int frameThreshold = config.frameThreshold();
+        int gapThreshold = config.gapThreshold();
+        int jitter = config.signalCenterlineJitter();
+
+        // Centerline -> {first row, last row, minimum signal, maximum signal}
+        Map<Integer, int[]> partialTracks = Maps.newHashMap();
+        long[] timestamps = new long[heatmap.rows()];
+
+        for (int row = 0; row < heatmap.rows(); row++) {
+            long[] line = heatmap.row(row);
+            long timestamp = heatmap.bucket(row).getMillis();
+            timestamps[row] = timestamp;
+
+            int trackLength = 0;
+            int gapLength = 0;
+            int trackStart = -1;
+
+            for (int column = 0; column < line.length; column++) {
+                int x = SignalHeatmap.MIN_SIGNAL + column;
+
+                if (line[column] > frameThreshold && x != SignalHeatmap.MIN_SIGNAL) {
+                    if (trackLength == 0) {
+                        trackStart = x;
+                    }
+
+                    trackLength++;
+                } else if (trackLength > 0) {
+                    gapLength++;
+
+                    if (gapLength >= gapThreshold || x == 0) {
+                        int trackEnd = x-gapThreshold+2;
+                        int centerline = (trackStart+trackEnd)/2;
+
+                        int[] partial = partialTracks.get(centerline);
+                        if (partial == null) {
+                            partialTracks.put(centerline, new int[]{row, row, trackStart, trackEnd});
+                        } else {
+                            if (timestamp < timestamps[partial[0]]) {
+                                partial[0] = row;
+                            }
+                            if (timestamp > timestamps[partial[1]]) {
+                                partial[1] = row;
+                            }
+                            partial[2] = Math.min(partial[2], trackStart);
+                            partial[3] = Math.max(partial[3], trackEnd);
+                        }
+
+                        trackLength = 0;
+                        gapLength = 0;
+                    }
+                }
+            }
+        }
+
+        // Same centerline aggregation as the boxed implementation, including its map iteration order.
+        Map<Integer, int[]> centerlineAveragedTracks = Maps.newHashMap();
+        for (Map.Entry<Integer, int[]> partialTrack : partialTracks.entrySet()) {
+            int partialCenterline = partialTrack.getKey();
+
+            Integer matchingCenterline = null;
+            for (Integer existingCenterline : centerlineAveragedTracks.keySet()) {
+                if (partialCenterline >= existingCenterline-jitter && partialCenterline <= existingCenterline+jitter) {
+                    matchingCenterline = existingCenterline;
+                }
+            }
+
+            if (matchingCenterline != null) {
+                int[] aggregated = centerlineAveragedTracks.get(matchingCenterline);
+                int[] partial = partialTrack.getValue();
+
+                if (timestamps[partial[0]] < timestamps[aggregated[0]]) {
+                    aggregated[0] = partial[0];
+                }
+                if (timestamps[partial[1]] > timestamps[aggregated[1]]) {
+                    aggregated[1] = partial[1];
+                }
+                aggregated[2] = Math.min(aggregated[2], partial[2]);
+                aggregated[3] = Math.max(aggregated[3], partial[3]);
+            } else {
+                centerlineAveragedTracks.put(partialCenterline, partialTrack.getValue());
+            }
+        }
+
+        ImmutableList.Builder<Track> tracks = new ImmutableList.Builder<>();
+        for (Map.Entry<Integer, int[]> aggregated : centerlineAveragedTracks.entrySet()) {
+            int[] track = aggregated.getValue();
+            tracks.add(Track.create(
+                    heatmap.bucket(track[0]),
+                    heatmap.bucket(track[1]),
+                    aggregated.getKey(),
+                    track[2],
+                    track[3]
+            ));
+        }
+
+        return tracks.build();
+    }
+
+    /**
+     * Boxed implementation. Kept as the reference for tests and benchmarks of
+     * {@link #detect(SignalHeatmap, TrackDetectorConfig)}.
+     */
+    @Deprecated
     public List<Track> detect(List<List<Long>> zValues, List<DateTime> yValues, TrackDetectorConfig config) {
         /*
          * For each Y measurement (time), look at each X measurement and start a track if Y for the
@@ -138,8 +248,12 @@ public class TrackDetector {
         return tracks.build();
     }
 
+    /**
+     * Boxed heatmap of the deprecated {@link #detect(List, List, TrackDetectorConfig)}. Use {@link SignalHeatmap}.
+     */
+    @Deprecated
     public static TrackDetectorHeatmapData toChartAxisMaps(List<SignalTrackHistogramEntry> signals) {
-        Map<DateTime, Map<Integer, Long>> aggregated = Maps.newTreeMap();
+        SortedMap<DateTime, Map<Integer, Long>> aggregated = Maps.newTreeMap();
         for (SignalTrackHistogramEntry signal : signals) {
             if (!aggregated.containsKey(signal.bucket())) {
                 aggregated.put(signal.bucket(), Maps.newHashMap());
@@ -148,6 +262,11 @@ public class TrackDetector {
             aggregated.get(signal.bucket()).put(signal.signalStrength(), signal.frameCount());
         }
 
+        return toChartAxisMaps(aggregated);
+    }
+
+    @Deprecated
+    public static TrackDetectorHeatmapData toChartAxisMaps(SortedMap<DateTime, Map<Integer, Long>> aggregated) {
         List<List<Long>> z = Lists.newArrayList();
         List<DateTime> y = Lists.newArrayList();
 
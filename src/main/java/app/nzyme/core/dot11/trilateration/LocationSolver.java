@@ -4,7 +4,14 @@ import app.nzyme.core.NzymeNode;
 import app.nzyme.core.dot11.db.TapBasedSignalStrengthResultHistogramEntry;
 import app.nzyme.core.floorplans.db.TenantLocationFloorEntry;
 import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.Bucketing;
 import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Doubles;
@@ -14,23 +21,95 @@ import org.apache.commons.math3.fitting.leastsquares.LeastSquaresOptimizer;
 import org.apache.commons.math3.fitting.leastsquares.LevenbergMarquardtOptimizer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 
+import javax.annotation.Nullable;
 import java.util.*;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Trilaterates the location of a signal source per time bucket. One instance is shared by all requests:
+ *
+ * - Positions of the taps on a floor are cached per floor and version of the floor. (Placing or removing a tap
+ *   updates the floor)
+ * - Buckets are solved in contiguous chunks on a fork-join pool. Within a chunk, every solve starts at the solution
+ *   of the previous bucket instead of the center of the taps, which usually needs fewer iterations because a signal
+ *   source rarely moves far within a minute.
+ * - Solutions of buckets that can no longer change are memoized per signal source, floor version, set of taps the
+ *   caller can access and bucket, so refreshing a location page only solves the most recent buckets.
+ */
 public class LocationSolver {
 
     private static final Logger LOG = LogManager.getLogger(LocationSolver.class);
 
-    private final NzymeNode nzyme;
+    // Buckets that ended less than this ago may still receive signals and are not memoized.
+    private static final int MEMOIZATION_DELAY_MINUTES = 2;
+
+    // Buckets are not split into smaller chunks than this. Solves are too quick to be worth more tasks.
+    private static final int MIN_CHUNK_SIZE = 30;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    private final LoadingCache<FloorKey, Map<UUID, Tap>> floorTaps;
+    private final Cache<BucketKey, BucketSolution> solutions;
 
     public LocationSolver(NzymeNode nzyme) {
-        this.nzyme = nzyme;
+        this(
+                Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())),
+                floor -> nzyme.getTapManager().findAllTapsOnFloor(null, null, floor.locationId(), floor.floorId())
+        );
     }
 
-    public TrilaterationResult solve(List<TapBasedSignalStrengthResultHistogramEntry> signals,
-                                     TenantLocationFloorEntry floor)
+    LocationSolver(int parallelism, Function<FloorKey, Collection<Tap>> tapsOnFloor) {
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("trilateration-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        this.floorTaps = CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .build(new CacheLoader<>() {
+                    @NotNull
+                    @Override
+                    public Map<UUID, Tap> load(@NotNull FloorKey key) {
+                        Map<UUID, Tap> taps = Maps.newHashMap();
+                        for (Tap tap : tapsOnFloor.apply(key)) {
+                            if (tap.x() != null && tap.y() != null) {
+                                taps.put(tap.uuid(), tap);
+                            }
+                        }
+
+                        return ImmutableMap.copyOf(taps);
+                    }
+                });
+
+        this.solutions = CacheBuilder.newBuilder()
+                .maximumSize(250_000)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+    }
+
+    /**
+     * @param signalSource Identifies the signal source, like a BSSID or client MAC, for memoization of solutions.
+     * @param accessibleTaps Taps the caller can access. Signals of other taps are ignored.
+     */
+    public TrilaterationResult solve(String signalSource,
+                                     Bucketing.BucketingConfiguration bucketing,
+                                     List<TapBasedSignalStrengthResultHistogramEntry> signals,
+                                     TenantLocationFloorEntry floor,
+                                     Collection<UUID> accessibleTaps)
             throws InvalidTapsException {
 
         if (floor.planLengthPixels() == null || floor.planWidthPixels() == null
@@ -60,101 +139,80 @@ public class LocationSolver {
             }
         }
 
-        // Cache taps.
-        Map<UUID, Tap> taps = Maps.newHashMap();
-        for (Tap tap : nzyme.getTapManager().findAllTapsOfAllUsers()) {
-            taps.put(tap.uuid(), tap);
+        FloorKey floorKey = FloorKey.create(floor.uuid(), floor.locationId(), floor.updatedAt().getMillis());
+        ImmutableSet<UUID> tapKey = ImmutableSet.copyOf(accessibleTaps);
+        Map<UUID, Tap> taps;
+        try {
+            taps = ImmutableMap.copyOf(Maps.filterKeys(floorTaps.get(floorKey), tapKey::contains));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load taps of floor [" + floor.uuid() + "].", e);
         }
 
-        int totalDataPoints = 0;
-        int distancesOutsideOfBoundaries = 0;
-
+        // Collect memoized solutions and buckets that have to be solved.
+        DateTime now = DateTime.now();
+        DateTime memoizeBefore = now.minusMinutes(bucketWidthMinutes(bucketing) + MEMOIZATION_DELAY_MINUTES);
         Duration duration = new Duration(earliest, latest);
-        Map<DateTime, TrilaterationLocation> result = new TreeMap<>();
-        Map<Tap, Integer> outsideOfBoundarySignalStrengths = Maps.newHashMap();
-        Map<Tap, Integer> outsideOfBoundarySignalCounts = Maps.newHashMap();
+        Map<DateTime, BucketSolution> bucketSolutions = Maps.newTreeMap();
+        List<DateTime> unsolved = Lists.newArrayList();
         for (int x = (int) duration.getStandardMinutes(); x != 0; x--) {
-            DateTime bucket = DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
+            DateTime bucket = now.withSecondOfMinute(0).withMillisOfSecond(0).minusMinutes(x);
 
-            List<TapBasedSignalStrengthResultHistogramEntry> signal = histo.get(bucket);
-
-            if (signal != null) {
-                List<Double[]> positions = Lists.newArrayList();
-                List<Double> distances = Lists.newArrayList();
-
-                for (TapBasedSignalStrengthResultHistogramEntry s : signal) {
-                    Tap tap = taps.get(s.tapUuid());
-
-                    if (tap == null) {
-                        continue;
-                    }
-
-                    if (tap.x() == null || tap.y() == null) {
-                        continue;
-                    }
-
-                    double distance = calculateDistance(-15, s.signalStrength(), floor.pathLossExponent());
-
-                    totalDataPoints++;
-                    if(isDistanceOutsideOfBoundaries(
-                            distance,
-                            tap.x(),
-                            tap.y(),
-                            floor.planWidthMeters(),
-                            floor.planLengthMeters(),
-                            floor.planWidthPixels(),
-                            floor.planLengthPixels())) {
-                        outsideOfBoundarySignalStrengths.put(
-                                tap, Math.round(outsideOfBoundarySignalStrengths
-                                                .getOrDefault(tap, 0)+s.signalStrength()
-                                )
-                        );
-                        outsideOfBoundarySignalCounts.put(
-                                tap, outsideOfBoundarySignalCounts.getOrDefault(tap, 0)+1
-                        );
-                        distancesOutsideOfBoundaries++;
-                        continue;
-                    }
-
-                    positions.add(new Double[]{(double) tap.x(), (double) tap.y()});
-                    distances.add(distance);
-                }
-
-                if (positions.size() < 3 || positions.size() != distances.size()) {
-                    // All signals outside of floor plan boundaries.
-                    if (distancesOutsideOfBoundaries == signal.size()) {
-                        continue;
-                    }
-
-                    // The signal loop above didn't find all taps or didn't have all signals. Skip this minute.
-                    continue;
-                }
+            if (!histo.containsKey(bucket)) {
+                continue;
+            }
 
+            BucketSolution memoized = null;
+            if (bucket.isBefore(memoizeBefore)) {
+                memoized = solutions.getIfPresent(
+                        BucketKey.create(signalSource, floorKey, tapKey, bucketing.type(), bucket.getMillis())
+                );
+            }
 
-                double[][] positionsArr = new double[positions.size()][];
-                int i = 0;
-                for (Double[] value : positions) {
-                    positionsArr[i] = new double[]{value[0], value[1]};
-                    i++;
-                }
+            if (memoized != null) {
+                bucketSolutions.put(bucket, memoized);
+            } else {
+                unsolved.add(bucket);
+            }
+        }
 
-                NonLinearLeastSquaresSolver solver = new NonLinearLeastSquaresSolver(
-                        new TrilaterationFunction(positionsArr, Doubles.toArray(distances)),
-                        new LevenbergMarquardtOptimizer()
+        Map<DateTime, BucketSolution> solved = solveBuckets(unsolved, histo, taps, floor);
+        for (Map.Entry<DateTime, BucketSolution> solution : solved.entrySet()) {
+            if (solution.getKey().isBefore(memoizeBefore)) {
+                solutions.put(
+                        BucketKey.create(signalSource, floorKey, tapKey, bucketing.type(), solution.getKey().getMillis()),
+                        solution.getValue()
                 );
+            }
+        }
+        bucketSolutions.putAll(solved);
 
-                LeastSquaresOptimizer.Optimum optimum = solver.solve();
-                double[] position = optimum.getPoint().toArray();
+        // Summarize.
+        int totalDataPoints = 0;
+        int distancesOutsideOfBoundaries = 0;
+        Map<DateTime, TrilaterationLocation> result = new TreeMap<>();
+        Map<UUID, Integer> outsideOfBoundarySignalStrengths = Maps.newHashMap();
+        Map<UUID, Integer> outsideOfBoundarySignalCounts = Maps.newHashMap();
+        for (Map.Entry<DateTime, BucketSolution> solution : bucketSolutions.entrySet()) {
+            BucketSolution bucket = solution.getValue();
 
-                result.put(bucket, TrilaterationLocation.create((int) position[0], (int) position[1]));
+            if (bucket.location != null) {
+                result.put(solution.getKey(), bucket.location);
             }
+
+            totalDataPoints += bucket.dataPoints;
+            distancesOutsideOfBoundaries += bucket.distancesOutsideOfBoundaries;
+            bucket.outsideOfBoundarySignalStrengths.forEach((tap, strength) ->
+                    outsideOfBoundarySignalStrengths.merge(tap, strength, Integer::sum));
+            bucket.outsideOfBoundarySignalCounts.forEach((tap, count) ->
+                    outsideOfBoundarySignalCounts.merge(tap, count, Integer::sum));
         }
 
         Map<Integer, Map<String, Integer>> outsideOfPlanBoundariesTapStrengths = Maps.newHashMap();
-        for (Map.Entry<Tap, Integer> t :outsideOfBoundarySignalStrengths.entrySet()) {
+        for (Map.Entry<UUID, Integer> t : outsideOfBoundarySignalStrengths.entrySet()) {
+            Tap tap = taps.get(t.getKey());
             HashMap<String, Integer> location = Maps.newHashMap();
-            location.put("x", t.getKey().x());
-            location.put("y", t.getKey().y());
+            location.put("x", tap.x());
+            location.put("y", tap.y());
             outsideOfPlanBoundariesTapStrengths.put(t.getValue()/outsideOfBoundarySignalCounts.get(t.getKey()), location);
         }
 
@@ -167,6 +225,159 @@ public class LocationSolver {
         );
     }
 
+    private Map<DateTime, BucketSolution> solveBuckets(List<DateTime> buckets,
+                                                       Map<DateTime, List<TapBasedSignalStrengthResultHistogramEntry>> histo,
+                                                       Map<UUID, Tap> taps,
+                                                       TenantLocationFloorEntry floor) {
+        if (buckets.size() <= MIN_CHUNK_SIZE) {
+            return solveChunk(buckets, histo, taps, floor);
+        }
+
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (buckets.size() + parallelism - 1) / parallelism);
+        List<Callable<Map<DateTime, BucketSolution>>> chunks = Lists.newArrayList();
+        for (List<DateTime> chunk : Lists.partition(buckets, chunkSize)) {
+            chunks.add(() -> solveChunk(chunk, histo, taps, floor));
+        }
+
+        Map<DateTime, BucketSolution> result = Maps.newHashMap();
+        for (Future<Map<DateTime, BucketSolution>> chunk : pool.invokeAll(chunks)) {
+            try {
+                result.putAll(chunk.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while trilaterating.", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Could not trilaterate.", e.getCause());
+            }
+        }
+
+        return result;
+    }
+
+    private Map<DateTime, BucketSolution> solveChunk(List<DateTime> buckets,
+                                                     Map<DateTime, List<TapBasedSignalStrengthResultHistogramEntry>> histo,
+                                                     Map<UUID, Tap> taps,
+                                                     TenantLocationFloorEntry floor) {
+        Map<DateTime, BucketSolution> result = Maps.newHashMap();
+
+        double[] previousPoint = null;
+        for (DateTime bucket : buckets) {
+            BucketSolution solution = solveBucket(histo.get(bucket), taps, floor, previousPoint);
+            result.put(bucket, solution);
+
+            if (solution.point != null) {
+                previousPoint = solution.point;
+            }
+        }
+
+        return result;
+    }
+
+    BucketSolution solveBucket(List<TapBasedSignalStrengthResultHistogramEntry> signal,
+                               Map<UUID, Tap> taps,
+                               TenantLocationFloorEntry floor,
+                               @Nullable double[] initialPoint) {
+        int dataPoints = 0;
+        int distancesOutsideOfBoundaries = 0;
+        Map<UUID, Integer> outsideOfBoundarySignalStrengths = Maps.newHashMap();
+        Map<UUID, Integer> outsideOfBoundarySignalCounts = Maps.newHashMap();
+
+        List<Double[]> positions = Lists.newArrayList();
+        List<Double> distances = Lists.newArrayList();
+
+        for (TapBasedSignalStrengthResultHistogramEntry s : signal) {
+            // Only contains taps that are placed on the floor.
+            Tap tap = taps.get(s.tapUuid());
+
+            if (tap == null) {
+                continue;
+            }
+
+            double distance = calculateDistance(-15, s.signalStrength(), floor.pathLossExponent());
+
+            dataPoints++;
+            //noinspection DataFlowIssue
+            if(isDistanceOutsideOfBoundaries(
+                    distance,
+                    tap.x(),
+                    tap.y(),
+                    floor.planWidthMeters(),
+                    floor.planLengthMeters(),
+                    floor.planWidthPixels(),
+                    floor.planLengthPixels())) {
+                outsideOfBoundarySignalStrengths.merge(tap.uuid(), Math.round(s.signalStrength()), Integer::sum);
+                outsideOfBoundarySignalCounts.merge(tap.uuid(), 1, Integer::sum);
+                distancesOutsideOfBoundaries++;
+                continue;
+            }
+
+            positions.add(new Double[]{(double) tap.x(), (double) tap.y()});
+            distances.add(distance);
+        }
+
+        if (positions.size() < 3 || positions.size() != distances.size()) {
+            // Not enough taps within floor plan boundaries recorded a signal in this bucket.
+            return new BucketSolution(
+                    null,
+                    null,
+                    dataPoints,
+                    distancesOutsideOfBoundaries,
+                    outsideOfBoundarySignalStrengths,
+                    outsideOfBoundarySignalCounts
+            );
+        }
+
+        double[][] positionsArr = new double[positions.size()][];
+        int i = 0;
+        for (Double[] value : positions) {
+            positionsArr[i] = new double[]{value[0], value[1]};
+            i++;
+        }
+
+        double[] distancesArr = Doubles.toArray(distances);
+        NonLinearLeastSquaresSolver solver = new NonLinearLeastSquaresSolver(
+                new TrilaterationFunction(positionsArr, distancesArr),
+                new LevenbergMarquardtOptimizer()
+        );
+
+        LeastSquaresOptimizer.Optimum optimum;
+        if (initialPoint == null) {
+            // Starts at the center of the taps.
+            optimum = solver.solve();
+        } else {
+            // Same target and weights as the default solve, but starting at the given point.
+            double[] target = new double[distancesArr.length];
+            double[] weights = new double[distancesArr.length];
+            for (int j = 0; j < distancesArr.length; j++) {
+                weights[j] = 1 / (distancesArr[j] * distancesArr[j]);
+            }
+
+            optimum = solver.solve(target, weights, initialPoint);
+        }
+
+        double[] position = optimum.getPoint().toArray();
+
+        return new BucketSolution(
+                position,
+                TrilaterationLocation.create((int) position[0], (int) position[1]),
+                dataPoints,
+                distancesOutsideOfBoundaries,
+                outsideOfBoundarySignalStrengths,
+                outsideOfBoundarySignalCounts
+        );
+    }
+
+    private static int bucketWidthMinutes(Bucketing.BucketingConfiguration bucketing) {
+        switch (bucketing.type()) {
+            case HOUR:
+                return 60;
+            case DAY:
+                return 24*60;
+            default:
+                return 1;
+        }
+    }
+
     private boolean isDistanceOutsideOfBoundaries(double distanceMeters, int tapXPixel, int tapYPixel, int floorPlanWidthMeters, int floorPlanLengthMeters, int floorPlanWidthPixels, int floorPlanLengthPixels) {
         // Calculate scale factors.
         double scaleX = (double) floorPlanWidthMeters / floorPlanWidthPixels;
@@ -267,6 +478,74 @@ public class LocationSolver {
         }
     }
 
+    @AutoValue
+    public abstract static class FloorKey {
+
+        public abstract UUID floorId();
+        public abstract UUID locationId();
+
+        // Updated timestamp of the floor. Changes when taps are placed or removed.
+        public abstract long version();
+
+        public static FloorKey create(UUID floorId, UUID locationId, long version) {
+            return new AutoValue_LocationSolver_FloorKey(floorId, locationId, version);
+        }
+
+    }
+
+    @AutoValue
+    public abstract static class BucketKey {
+
+        public abstract String signalSource();
+        public abstract FloorKey floor();
+
+        // Taps the caller can access. Callers with access to different taps see different solutions.
+        public abstract ImmutableSet<UUID> taps();
+
+        public abstract Bucketing.Type bucketing();
+        public abstract long bucket();
+
+        public static BucketKey create(String signalSource, FloorKey floor, ImmutableSet<UUID> taps, Bucketing.Type bucketing, long bucket) {
+            return new AutoValue_LocationSolver_BucketKey(signalSource, floor, taps, bucketing, bucket);
+        }
+
+    }
+
+    static final class BucketSolution {
+
+        // Unrounded solution, used as starting point of the next bucket.
+        @Nullable
+        private final double[] point;
+
+        @Nullable
+        private final TrilaterationLocation location;
+
+        private final int dataPoints;
+        private final int distancesOutsideOfBoundaries;
+        private final Map<UUID, Integer> outsideOfBoundarySignalStrengths;
+        private final Map<UUID, Integer> outsideOfBoundarySignalCounts;
+
+        private BucketSolution(@Nullable double[] point,
+                               @Nullable TrilaterationLocation location,
+                               int dataPoints,
+                               int distancesOutsideOfBoundaries,
+                               Map<UUID, Integer> outsideOfBoundarySignalStrengths,
+                               Map<UUID, Integer> outsideOfBoundarySignalCounts) {
+            this.point = point;
+            this.location = location;
+            this.dataPoints = dataPoints;
+            this.distancesOutsideOfBoundaries = distancesOutsideOfBoundaries;
+            this.outsideOfBoundarySignalStrengths = outsideOfBoundarySignalStrengths;
+            this.outsideOfBoundarySignalCounts = outsideOfBoundarySignalCounts;
+        }
+
+        @Nullable
+        double[] point() {
+            return point;
+        }
+
+    }
+
     public static class InvalidTapsException extends Throwable {
 
         public InvalidTapsException(String msg) {
@@ -0,0 +1,236 @@
+package app.nzyme.core.events;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.events.actions.Action;
+import app.nzyme.core.events.actions.ActionExecutionResult;
+import app.nzyme.core.events.actions.EventActionFactory;
+import app.nzyme.core.events.db.EventActionEntry;
+import app.nzyme.core.events.types.DetectionEvent;
+import app.nzyme.core.events.types.SystemEvent;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Executes event actions in the background instead of on the thread that raised the event. Every action type has its
+ * own bounded queue and worker pool, so a slow action type (like emails over a slow SMTP relay) can not hold up
+ * others. Failed executions are retried with exponential backoff. Events are dropped if the queue is full.
+ */
+public class EventActionDispatcher {
+
+    private static final Logger LOG = LogManager.getLogger(EventActionDispatcher.class);
+
+    public static final int MAX_ATTEMPTS = 4;
+    public static final long RETRY_BASE_DELAY_MS = 30_000;
+
+    public interface ActionBuilder {
+        Action build(EventActionEntry action) throws Exception;
+    }
+
+    private final ActionBuilder actionBuilder;
+    private final int workers;
+    private final int capacity;
+    private final int maxAttempts;
+    private final long retryBaseDelayMs;
+    private final MetricRegistry metrics;
+
+    private final Map<String, ThreadPoolExecutor> executors;
+    private final ScheduledExecutorService retryScheduler;
+
+    public EventActionDispatcher(NzymeNode nzyme) {
+        this(
+                action -> EventActionFactory.build(nzyme, action),
+                nzyme.getConfiguration().performance().eventActionWorkers().orElse(2), // Default: 2
+                nzyme.getConfiguration().performance().eventActionQueueSize().orElse(1000), // Default: 1000
+                MAX_ATTEMPTS,
+                RETRY_BASE_DELAY_MS,
+                nzyme.getMetrics()
+        );
+    }
+
+    public EventActionDispatcher(ActionBuilder actionBuilder,
+                                 int workers,
+                                 int capacity,
+                                 int maxAttempts,
+                                 long retryBaseDelayMs,
+                                 MetricRegistry metrics) {
+        this.actionBuilder = actionBuilder;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseDelayMs = retryBaseDelayMs;
+        this.metrics = metrics;
+
+        this.executors = Maps.newConcurrentMap();
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("event-action-retries-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Queues the execution of an action for a system event.
+     *
+     * @return false if the queue of the action type is full and the execution was dropped.
+     */
+    public boolean dispatch(EventActionEntry action, SystemEvent event) {
+        return submit(new Execution(action, a -> a.execute(event), "system event [" + event.type() + "]", 1));
+    }
+
+    /**
+     * Queues the execution of an action for a detection event.
+     *
+     * @return false if the queue of the action type is full and the execution was dropped.
+     */
+    public boolean dispatch(EventActionEntry action, DetectionEvent event) {
+        return submit(new Execution(
+                action,
+                a -> a.execute(event),
+                "detection event [" + event.detectionType() + "/" + event.alertId() + "]",
+                1
+        ));
+    }
+
+    public int getDepth(String actionType) {
+        ThreadPoolExecutor executor = executors.get(actionType);
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    private boolean submit(Execution execution) {
+        String actionType = execution.action.actionType();
+
+        try {
+            executors.computeIfAbsent(actionType, this::buildExecutor).execute(() -> execute(execution));
+            return true;
+        } catch (RejectedExecutionException e) {
+            metrics.meter(name(MetricNames.EVENT_ACTIONS_DROPPED, actionType)).mark();
+            LOG.warn("Dropping execution of event action [{}/{}] for {}: Queue is full or shut down.",
+                    actionType, execution.action.uuid(), execution.description);
+            return false;
+        }
+    }
+
+    private void execute(Execution execution) {
+        String actionType = execution.action.actionType();
+
+        ActionExecutionResult result;
+        try (Timer.Context ignored = metrics.timer(name(MetricNames.EVENT_ACTIONS_EXECUTION_TIMER, actionType)).time()) {
+            result = execution.invocation.apply(actionBuilder.build(execution.action));
+        } catch (Exception e) {
+            LOG.error("Could not execute event action [{}/{}] for {}.",
+                    actionType, execution.action.uuid(), execution.description, e);
+            result = ActionExecutionResult.FAILURE;
+        }
+
+        if (result == ActionExecutionResult.SUCCESS) {
+            return;
+        }
+
+        metrics.meter(name(MetricNames.EVENT_ACTIONS_FAILURES, actionType)).mark();
+
+        if (execution.attempt >= maxAttempts) {
+            LOG.error("Event action [{}/{}] for {} failed <{}> times. Giving up.",
+                    actionType, execution.action.uuid(), execution.description, execution.attempt);
+            return;
+        }
+
+        // 30s, 60s, 120s, ... with the default base delay.
+        long delay = retryBaseDelayMs * (1L << (execution.attempt - 1));
+        LOG.info("Event action [{}/{}] for {} failed. Retrying in <{}ms>.",
+                actionType, execution.action.uuid(), execution.description, delay);
+
+        try {
+            retryScheduler.schedule(() -> {
+                metrics.meter(name(MetricNames.EVENT_ACTIONS_RETRIES, actionType)).mark();
+                submit(execution.nextAttempt());
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Not retrying event action [{}/{}] for {}: Shutting down.",
+                    actionType, execution.action.uuid(), execution.description);
+        }
+    }
+
+    private ThreadPoolExecutor buildExecutor(String actionType) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("event-actions-" + actionType.toLowerCase() + "-%d")
+                        .setDaemon(true)
+                        .build(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        metrics.register(name(MetricNames.EVENT_ACTIONS_QUEUE_DEPTH, actionType),
+                (Gauge<Integer>) () -> executor.getQueue().size());
+
+        return executor;
+    }
+
+    /**
+     * Executes already queued actions. Scheduled retries are dropped.
+     */
+    public void shutdown() {
+        int droppedRetries = retryScheduler.shutdownNow().size();
+        if (droppedRetries > 0) {
+            LOG.warn("Dropping <{}> scheduled event action retries.", droppedRetries);
+        }
+
+        for (Map.Entry<String, ThreadPoolExecutor> executor : executors.entrySet()) {
+            executor.getValue().shutdown();
+
+            try {
+                if (!executor.getValue().awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOG.warn("Event action queue of type [{}] did not drain in time. Dropping <{}> executions.",
+                            executor.getKey(), executor.getValue().getQueue().size());
+                    executor.getValue().shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.getValue().shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Execution {
+
+        private final EventActionEntry action;
+        private final Function<Action, ActionExecutionResult> invocation;
+        private final String description;
+        private final int attempt;
+
+        private Execution(EventActionEntry action,
+                          Function<Action, ActionExecutionResult> invocation,
+                          String description,
+                          int attempt) {
+            this.action = action;
+            this.invocation = invocation;
+            this.description = description;
+            this.attempt = attempt;
+        }
+
+        private Execution nextAttempt() {
+            return new Execution(action, invocation, description, attempt + 1);
+        }
+
+    }
+
+}
@@ -11,4 +11,6 @@ public interface EventEngine {
     void processEvent(SystemEvent event, @Nullable UUID organizationId, @Nullable UUID tenantId);
     void processEvent(DetectionEvent event, UUID organizationId, UUID tenantId);
 
+    void shutdown();
+
 }
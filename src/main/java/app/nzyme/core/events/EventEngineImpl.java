@@ -2,19 +2,26 @@ package app.nzyme.core.events;
 
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.detection.alerts.DetectionType;
-import app.nzyme.core.events.actions.EventActionFactory;
 import app.nzyme.core.events.db.EventActionEntry;
 import app.nzyme.core.events.db.EventEntry;
 import app.nzyme.core.events.db.SubscriptionEntry;
 import app.nzyme.core.events.types.*;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class EventEngineImpl implements EventEngine {
 
@@ -22,8 +29,40 @@ public class EventEngineImpl implements EventEngine {
 
     private final NzymeNode nzyme;
 
+    private final EventActionDispatcher dispatcher;
+
+    private final LoadingCache<EventSubscriptionKey, List<UUID>> subscriptionCache;
+    private final LoadingCache<UUID, Optional<EventActionEntry>> actionCache;
+
     public EventEngineImpl(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.dispatcher = new EventActionDispatcher(nzyme);
+
+        /*
+         * Invalidated cluster-wide when subscriptions or actions change. The expiry only guards against missed
+         * invalidations, for example when actions are deleted together with their organization.
+         */
+        this.subscriptionCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .build(new CacheLoader<>() {
+                    @NotNull
+                    @Override
+                    public List<UUID> load(@NotNull EventSubscriptionKey key) {
+                        return findSubscribedActionIdsNoCache(key);
+                    }
+                });
+
+        this.actionCache = CacheBuilder.newBuilder()
+                .maximumSize(10000)
+                .expireAfterWrite(5, TimeUnit.MINUTES)
+                .build(new CacheLoader<>() {
+                    @NotNull
+                    @Override
+                    public Optional<EventActionEntry> load(@NotNull UUID actionId) {
+                        return findEventAction(actionId);
+                    }
+                });
     }
 
     @Override
@@ -41,49 +80,21 @@ public class EventEngineImpl implements EventEngine {
                         .execute()
         );
 
-        // Find all subscribers of event.
-        List<UUID> actionIds;
-        if (organizationId == null && tenantId == null) {
-            // Superadmin System Event.
-            actionIds = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT action_id FROM event_subscriptions " +
-                                    "WHERE event_type = :event_type AND reference = :reference " +
-                                    "AND organization_id IS NULL")
-                            .bind("event_type", EventType.SYSTEM)
-                            .bind("reference", event.type())
-                            .mapTo(UUID.class)
-                            .list()
-            );
-        } else {
-            // Organization System Event.
-            actionIds = nzyme.getDatabase().withHandle(handle ->
-                    handle.createQuery("SELECT action_id FROM event_subscriptions " +
-                                    "WHERE event_type = :event_type AND reference = :reference " +
-                                    "AND organization_id = :organization_id")
-                            .bind("organization_id", organizationId)
-                            .bind("event_type", EventType.SYSTEM)
-                            .bind("reference", event.type())
-                            .mapTo(UUID.class)
-                            .list()
-            );
-        }
+        // Find all subscribers of event. Superadmin system events have no organization.
+        List<UUID> actionIds = subscriptionCache.getUnchecked(
+                EventSubscriptionKey.create(EventType.SYSTEM, event.type().name(), organizationId)
+        );
 
         // Process.
         for (UUID actionId : actionIds) {
-            Optional<EventActionEntry> ea = findEventAction(actionId);
+            Optional<EventActionEntry> ea = actionCache.getUnchecked(actionId);
 
             if (ea.isEmpty()) {
                 LOG.warn("Event action [{}] referenced by event [{}] not found.", actionId, event.type());
                 continue;
             }
 
-            try {
-                EventActionFactory.build(nzyme, ea.get())
-                        .execute(event);
-            } catch (Exception e) {
-                LOG.error("Could not execute event action [{}/{}] referenced by event [{}]",
-                        ea.get().actionType(), ea.get().uuid(), event.type(), e);
-            }
+            dispatcher.dispatch(ea.get(), event);
         }
 
     }
@@ -104,21 +115,13 @@ public class EventEngineImpl implements EventEngine {
         );
 
         // Find all subscribers of event.
-        List<UUID> actionIds = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT action_id FROM event_subscriptions " +
-                                "WHERE event_type = :event_type " +
-                                "AND (reference = :reference OR reference = '*') " +
-                                "AND organization_id = :organization_id")
-                        .bind("event_type", EventType.DETECTION)
-                        .bind("reference", event.detectionType())
-                        .bind("organization_id", organizationId)
-                        .mapTo(UUID.class)
-                        .list()
+        List<UUID> actionIds = subscriptionCache.getUnchecked(
+                EventSubscriptionKey.create(EventType.DETECTION, event.detectionType().name(), organizationId)
         );
 
         // Process.
         for (UUID actionId : actionIds) {
-            Optional<EventActionEntry> ea = findEventAction(actionId);
+            Optional<EventActionEntry> ea = actionCache.getUnchecked(actionId);
 
             if (ea.isEmpty()) {
                 LOG.warn("Event action [{}] referenced by detection event [{}/{}] not found.",
@@ -126,15 +129,74 @@ public class EventEngineImpl implements EventEngine {
                 continue;
             }
 
-            try {
-                EventActionFactory.build(nzyme, ea.get()).execute(event);
-            } catch (Exception e) {
-                LOG.error("Could not execute event action [{}/{}] referenced by detection event [{}/{}]",
-                        ea.get().actionType(), ea.get().uuid(), event.detectionType(), event.alertId(), e);
-            }
+            dispatcher.dispatch(ea.get(), event);
         }
     }
 
+    @Override
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    private List<UUID> findSubscribedActionIdsNoCache(EventSubscriptionKey key) {
+        switch (key.eventType()) {
+            case SYSTEM:
+                if (key.organizationId() == null) {
+                    // Superadmin System Event.
+                    return nzyme.getDatabase().withHandle(handle ->
+                            handle.createQuery("SELECT action_id FROM event_subscriptions " +
+                                            "WHERE event_type = :event_type AND reference = :reference " +
+                                            "AND organization_id IS NULL")
+                                    .bind("event_type", EventType.SYSTEM)
+                                    .bind("reference", key.reference())
+                                    .mapTo(UUID.class)
+                                    .list()
+                    );
+                } else {
+                    // Organization System Event.
+                    return nzyme.getDatabase().withHandle(handle ->
+                            handle.createQuery("SELECT action_id FROM event_subscriptions " +
+                                            "WHERE event_type = :event_type AND reference = :reference " +
+                                            "AND organization_id = :organization_id")
+                                    .bind("organization_id", key.organizationId())
+                                    .bind("event_type", EventType.SYSTEM)
+                                    .bind("reference", key.reference())
+                                    .mapTo(UUID.class)
+                                    .list()
+                    );
+                }
+            case DETECTION:
+                return nzyme.getDatabase().withHandle(handle ->
+                        handle.createQuery("SELECT action_id FROM event_subscriptions " +
+                                        "WHERE event_type = :event_type " +
+                                        "AND (reference = :reference OR reference = '*') " +
+                                        "AND organization_id = :organization_id")
+                                .bind("event_type", EventType.DETECTION)
+                                .bind("reference", key.reference())
+                                .bind("organization_id", key.organizationId())
+                                .mapTo(UUID.class)
+                                .list()
+                );
+            default:
+                throw new RuntimeException("Unknown event type [" + key.eventType() + "].");
+        }
+    }
+
+    public void invalidateSubscriptionCache() {
+        subscriptionCache.invalidateAll();
+        actionCache.invalidateAll();
+    }
+
+    private void invalidateSubscriptionCacheClusterWide() {
+        invalidateSubscriptionCache();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "event_subscriptions"),
+                false
+        ));
+    }
+
     public long countAllEventsOfAllOrganizations() {
         return nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT COUNT(*) FROM events")
@@ -269,6 +331,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("configuration", configuration)
                         .execute()
         );
+
+        invalidateSubscriptionCacheClusterWide();
     }
 
     public void deleteEventAction(UUID actionId) {
@@ -277,6 +341,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("action_id", actionId)
                         .execute()
         );
+
+        invalidateSubscriptionCacheClusterWide();
     }
 
     public void subscribeActionToEvent(@Nullable UUID organizationId, EventType eventType, String reference, UUID actionId) {
@@ -290,6 +356,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("action_id", actionId)
                         .execute()
         );
+
+        invalidateSubscriptionCacheClusterWide();
     }
 
     public void unsubscribeActionFromEvent(UUID subscriptionId) {
@@ -298,6 +366,8 @@ public class EventEngineImpl implements EventEngine {
                         .bind("uuid", subscriptionId)
                         .execute()
         );
+
+        invalidateSubscriptionCacheClusterWide();
     }
 
     public Optional<UUID> findActionOfSubscription(UUID subscriptionId) {
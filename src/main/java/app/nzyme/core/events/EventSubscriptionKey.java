@@ -0,0 +1,23 @@
+package app.nzyme.core.events;
+
+import app.nzyme.core.events.types.EventType;
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+@AutoValue
+public abstract class EventSubscriptionKey {
+
+    public abstract EventType eventType();
+    public abstract String reference();
+
+    // NULL for superadmin subscriptions.
+    @Nullable
+    public abstract UUID organizationId();
+
+    public static EventSubscriptionKey create(EventType eventType, String reference, @Nullable UUID organizationId) {
+        return new AutoValue_EventSubscriptionKey(eventType, reference, organizationId);
+    }
+
+}
@@ -12,6 +12,8 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.net.HttpHeaders;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.collect.Maps;
+import com.maxmind.db.CHMCache;
 import com.maxmind.db.Reader;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
@@ -21,9 +23,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -34,13 +40,25 @@ public class GeoIpService {
 
     private static final Logger LOG = LogManager.getLogger(GeoIpService.class);
 
+    private static final String MMDB_FILE_NAME = "geoip.mmdb";
+    private static final int REFRESH_INTERVAL_HOURS = 1;
+
     private final NzymeNode nzyme;
     private final Timer lookupTimerUncached;
 
     private final LoadingCache<InetAddress, Optional<GeoIpLookupResult>> cache;
 
+    // Parsed ASN information by raw ASN string. (For example `AS15169`) Shared by all addresses of an AS.
+    private final Map<String, GeoIpAsnInformation> asns;
+
+    private final Path mmdbFile;
+
+    // Only used to serialize reader replacements. The reader itself is thread-safe.
     private final ReentrantLock lock = new ReentrantLock();
-    private Reader mmdb = null;
+    private volatile Reader mmdb = null;
+
+    // Reader replaced by the last refresh. Lookups may still use it, so it is only closed by the next refresh.
+    private Reader retiredMmdb = null;
 
     private final ScheduledExecutorService refresher;
 
@@ -50,9 +68,13 @@ public class GeoIpService {
     public GeoIpService(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
-        this.cache = CacheBuilder.newBuilder() // TODO Configurable
-                .maximumSize(10000)
-                .expireAfterWrite(10, TimeUnit.MINUTES)
+        this.mmdbFile = nzyme.getDataDirectory().resolve(MMDB_FILE_NAME);
+        this.asns = Maps.newConcurrentMap();
+
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(nzyme.getConfiguration().performance().geoIpCacheSize().orElse(100000)) // Default: 100000
+                .expireAfterWrite(nzyme.getConfiguration().performance().geoIpCacheTtlMinutes().orElse(60), TimeUnit.MINUTES) // Default: 60
+                .recordStats()
                 .build(new CacheLoader<>() {
                     @Override
                     public Optional<GeoIpLookupResult> load(@NotNull InetAddress address) {
@@ -70,6 +92,9 @@ public class GeoIpService {
                 return cache.size();
             }
         });
+        nzyme.getMetrics().register(MetricNames.GEOIP_CACHE_HITS, (Gauge<Long>) () -> cache.stats().hitCount());
+        nzyme.getMetrics().register(MetricNames.GEOIP_CACHE_MISSES, (Gauge<Long>) () -> cache.stats().missCount());
+        nzyme.getMetrics().register(MetricNames.GEOIP_CACHE_HIT_RATIO, (Gauge<Double>) () -> cache.stats().hitRate());
 
         // Reload on configuration change.
         nzyme.getRegistryChangeMonitor()
@@ -88,23 +113,49 @@ public class GeoIpService {
                         .build()
         );
 
-        refresher.scheduleAtFixedRate(this::reload, 1, 1, TimeUnit.HOURS);
+        refresher.scheduleAtFixedRate(this::reload, REFRESH_INTERVAL_HOURS, REFRESH_INTERVAL_HOURS, TimeUnit.HOURS);
     }
 
     private void reload() {
-        // Reload with new registry settings.
-        initialize();
+        // Reload with new registry settings and fresh data from Connect.
+        loadFromConnect();
 
-        // Clear cache.
+        // Clear caches.
         cache.invalidateAll();
+        asns.clear();
     }
 
     public void initialize() {
+        // Start with the MMDB of the previous run if we have one. Refresh it in the background if it is outdated.
+        this.isEnabled = nzyme.getConnect().isEnabled();
+        if (this.isEnabled && Files.exists(mmdbFile)) {
+            lock.lock();
+            try {
+                openMmdb();
+                LOG.info("Using persisted GeoIP data from [{}].", mmdbFile);
+
+                long age = System.currentTimeMillis() - Files.getLastModifiedTime(mmdbFile).toMillis();
+                if (age > TimeUnit.HOURS.toMillis(REFRESH_INTERVAL_HOURS)) {
+                    refresher.execute(this::reload);
+                }
+
+                return;
+            } catch (Exception e) {
+                LOG.warn("Could not open persisted GeoIP data. Loading from Connect.", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        loadFromConnect();
+    }
+
+    private void loadFromConnect() {
         // IMPORTANT: This method will also be called on configuration changes.
 
         // Update connect status.
-        this.isEnabled = nzyme.getConnect().isEnabled();
-        if (!this.isEnabled) {
+        if (!nzyme.getConnect().isEnabled()) {
+            this.isEnabled = false;
             return;
         }
 
@@ -112,21 +163,28 @@ public class GeoIpService {
 
         try {
             // Load MMDB from connect.
-            Optional<byte[]> bytes = fetchMmdbFromConnect();
+            Optional<byte[]> bytes;
+            try {
+                bytes = fetchMmdbFromConnect();
+            } catch (Exception e) {
+                // Temporary Connect issue. Keep using the current data and try again with the next refresh.
+                LOG.error("Could not download GeoIP data from Connect. Keeping current data.", e);
+                return;
+            }
 
             // Check if GeoIP data was disabled in Connect for this cluster.
             if (bytes.isEmpty()) {
                 this.isEnabled = false;
+                Files.deleteIfExists(mmdbFile);
                 return;
             }
 
-            // We have (new) data. Close current reader in preparation for switch.
-            if (this.mmdb != null) {
-                this.mmdb.close();
-            }
+            // Persist (new) data next to the current file and switch atomically.
+            Path tmp = mmdbFile.resolveSibling(MMDB_FILE_NAME + ".tmp");
+            Files.write(tmp, bytes.get());
+            Files.move(tmp, mmdbFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 
-            // Create new reader with (new) data.
-            this.mmdb = new Reader(new ByteArrayInputStream(bytes.get()));
+            openMmdb();
             this.isEnabled = true;
         } catch (Exception e) {
             LOG.error("Could not create MMDB reader.", e);
@@ -137,6 +195,20 @@ public class GeoIpService {
         }
     }
 
+    // Must be called while holding the lock.
+    private void openMmdb() throws IOException {
+        // Memory-mapped. The data stays off-heap and is paged in by the OS.
+        Reader next = new Reader(mmdbFile.toFile(), new CHMCache());
+
+        // Replaced one refresh ago. No lookup still reads from it.
+        if (retiredMmdb != null) {
+            retiredMmdb.close();
+        }
+
+        this.retiredMmdb = this.mmdb;
+        this.mmdb = next;
+    }
+
     public Optional<GeoIpLookupResult> lookup(InetAddress address) {
         if (!isEnabled) {
             return Optional.empty();
@@ -147,101 +219,107 @@ public class GeoIpService {
 
     private Optional<GeoIpLookupResult> mmdbLookup(InetAddress address) {
         try (Timer.Context ignored = lookupTimerUncached.time()) {
-            lock.lock();
-
-            try {
-                IpInfoFreeCountryAsnLookupResult lookup = mmdb.get(address, IpInfoFreeCountryAsnLookupResult.class);
+            Reader reader = this.mmdb;
+            if (reader == null) {
+                return Optional.empty();
+            }
 
-                if (lookup == null) {
-                    return Optional.empty();
-                }
+            IpInfoFreeCountryAsnLookupResult lookup = reader.get(address, IpInfoFreeCountryAsnLookupResult.class);
 
-                GeoIpGeoInformation geo = GeoIpGeoInformation.create(
-                        null,
-                        lookup.getCountryCode(),
-                        lookup.getCountryName(),
-                        null,
-                        null
-                );
-
-                Long asNumber;
-                if (lookup.getAsNumber() != null) {
-                    String[] parts = lookup.getAsNumber().split("^AS");
-                    if (parts.length > 1) {
-                        asNumber = Long.parseLong(parts[1]);
-                    } else {
-                        asNumber = null;
-                    }
-                } else {
-                    asNumber = null;
-                }
+            if (lookup == null) {
+                return Optional.empty();
+            }
 
-                GeoIpAsnInformation asn = GeoIpAsnInformation.create(
-                        asNumber,
+            GeoIpGeoInformation geo = GeoIpGeoInformation.create(
+                    null,
+                    lookup.getCountryCode(),
+                    lookup.getCountryName(),
+                    null,
+                    null
+            );
+
+            GeoIpAsnInformation asn;
+            if (lookup.getAsNumber() != null) {
+                asn = asns.computeIfAbsent(lookup.getAsNumber(), raw -> GeoIpAsnInformation.create(
+                        parseAsNumber(raw),
                         lookup.getAsName(),
                         lookup.getAsDomain()
-                );
-
-                return Optional.of(GeoIpLookupResult.create(asn, geo));
-            } catch (Exception e) {
-                LOG.info("Could not look up IP address [{}].", address, e);
-                return Optional.empty();
-            } finally {
-                lock.unlock();
+                ));
+            } else {
+                asn = GeoIpAsnInformation.create(null, lookup.getAsName(), lookup.getAsDomain());
             }
+
+            return Optional.of(GeoIpLookupResult.create(asn, geo));
+        } catch (Exception e) {
+            LOG.info("Could not look up IP address [{}].", address, e);
+            return Optional.empty();
         }
     }
 
-    private Optional<byte[]> fetchMmdbFromConnect() {
-        LOG.debug("Loading new GeoIP data from Connect.");
+    /**
+     * @return The numeric part of an ASN string like `AS15169` or null if it is not in that format.
+     */
+    @Nullable
+    static Long parseAsNumber(String asNumber) {
+        if (asNumber == null || asNumber.length() < 3 || !asNumber.startsWith("AS")) {
+            return null;
+        }
 
         try {
-            OkHttpClient c = new OkHttpClient.Builder()
-                    .connectTimeout(60, TimeUnit.SECONDS)
-                    .writeTimeout(15, TimeUnit.SECONDS)
-                    .readTimeout(5, TimeUnit.MINUTES)
-                    .followRedirects(true)
-                    .build();
-
-            HttpUrl url = HttpUrl.get(nzyme.getConnect().getApiUri())
-                    .newBuilder()
-                    .addPathSegment("data")
-                    .addPathSegment("geoip")
-                    .addPathSegment("ip")
-                    .build();
-
-            Response response = c.newCall(new Request.Builder()
-                            .addHeader("User-Agent", "nzyme")
-                            .get()
-                            .url(url)
-                            .addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + nzyme.getConnect().getApiKey())
-                            .addHeader("Content-Type", "application/octet-stream")
-                            .addHeader(HttpHeaders.USER_AGENT, "nzyme-node")
-                            .build()
-                    ).execute();
-
-            try (response) {
-                if (!response.isSuccessful()) {
-                    if (response.code() == 403) {
-                        // GeoIP data disabled in Connect for this cluster.
-                        return Optional.empty();
-                    }
+            return Long.parseLong(asNumber, 2, asNumber.length(), 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-                    throw new RuntimeException("Expected HTTP 200 or 403 but got HTTP " + response.code());
-                }
+    /**
+     * @return The MMDB or empty if GeoIP data is disabled in Connect for this cluster.
+     * @throws IOException if the data could not be downloaded.
+     */
+    private Optional<byte[]> fetchMmdbFromConnect() throws IOException {
+        LOG.debug("Loading new GeoIP data from Connect.");
 
+        OkHttpClient c = new OkHttpClient.Builder()
+                .connectTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.MINUTES)
+                .followRedirects(true)
+                .build();
+
+        HttpUrl url = HttpUrl.get(nzyme.getConnect().getApiUri())
+                .newBuilder()
+                .addPathSegment("data")
+                .addPathSegment("geoip")
+                .addPathSegment("ip")
+                .build();
+
+        Response response = c.newCall(new Request.Builder()
+                        .addHeader("User-Agent", "nzyme")
+                        .get()
+                        .url(url)
+                        .addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + nzyme.getConnect().getApiKey())
+                        .addHeader("Content-Type", "application/octet-stream")
+                        .addHeader(HttpHeaders.USER_AGENT, "nzyme-node")
+                        .build()
+                ).execute();
 
-                if (response.body() == null) {
-                    throw new RuntimeException("Empty response.");
+        try (response) {
+            if (!response.isSuccessful()) {
+                if (response.code() == 403) {
+                    // GeoIP data disabled in Connect for this cluster.
+                    return Optional.empty();
                 }
 
-                LOG.info("GeoIP data download from Connect complete.");
+                throw new IOException("Expected HTTP 200 or 403 but got HTTP " + response.code());
+            }
 
-                return Optional.of(response.body().bytes());
+            if (response.body() == null) {
+                throw new IOException("Empty response.");
             }
-        }catch (Exception e) {
-            LOG.error("Could not download GeoIP data from Connect.", e);
-            return Optional.empty();
+
+            LOG.info("GeoIP data download from Connect complete.");
+
+            return Optional.of(response.body().bytes());
         }
     }
 
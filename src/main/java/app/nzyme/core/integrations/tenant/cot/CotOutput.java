@@ -12,13 +12,23 @@ import app.nzyme.core.taps.Tap;
 import app.nzyme.core.uav.db.UavEntry;
 import app.nzyme.core.uav.util.RemoteIdAccuracies;
 import app.nzyme.core.util.TimeRangeFactory;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Sends the positions of taps and UAVs of every tenant to its configured Cursor on Target outputs. All events of a
+ * run are written to a long-lived transport of the output as one batch.
+ */
 public class CotOutput implements ScheduledIntegration {
 
     private static final Logger LOG = LogManager.getLogger(CotOutput.class);
@@ -30,9 +40,11 @@ public class CotOutput implements ScheduledIntegration {
     );
 
     private final NzymeNode nzyme;
+    private final CotOutputSessions sessions;
 
     public CotOutput(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.sessions = new CotOutputSessions(nzyme);
     }
 
     public void initialize() {
@@ -44,6 +56,8 @@ public class CotOutput implements ScheduledIntegration {
             @Override
             public void run() {
                 try {
+                    Set<UUID> activeOutputs = Sets.newHashSet();
+
                     // Load all configured outputs.
                     for (CotOutputEntry output : nzyme.getCotService().findAllOutputsOfAllTenants()) {
                         try {
@@ -51,25 +65,10 @@ public class CotOutput implements ScheduledIntegration {
                                 continue;
                             }
 
-                            // Decrypt certificate if there is one.
-                            byte[] decryptedCertificate = null;
-                            if (output.certificate() != null) {
-                                decryptedCertificate = nzyme.getCrypto().decryptWithClusterKey(output.certificate());
-                            }
-                            String decryptedCertificatePassphrase = null;
-                            if (output.certificatePassphrase() != null) {
-                                decryptedCertificatePassphrase = new String(
-                                        nzyme.getCrypto().decryptWithClusterKey(output.certificatePassphrase())
-                                );
-                            }
+                            activeOutputs.add(output.uuid());
+                            CotOutputSessions.Session session = sessions.get(output);
 
-                            CotTransport transport = CotTransportFactory.buildTransport(
-                                    CotTransportType.valueOf(output.connectionType()),
-                                    output.address(),
-                                    output.port(),
-                                    decryptedCertificate,
-                                    decryptedCertificatePassphrase
-                            );
+                            List<CotEvent> events = Lists.newArrayList();
 
                             // Taps.
                             for (Tap tap : nzyme.getTapManager()
@@ -103,20 +102,7 @@ public class CotOutput implements ScheduledIntegration {
                                             )
                                     );
 
-                                    // Send to output.
-                                    CotProcessingResult result;
-                                    try {
-                                        result = transport.sendEvent(event);
-                                    } catch (CotTransportException e) {
-                                        LOG.error("Could not send CoT message to CoT output [{}/{}]. Skipping.",
-                                                output.uuid(), output.name(), e);
-                                        continue;
-                                    }
-
-                                    // Count up stats if success.
-                                    nzyme.getCotService().incrementOutputStats(
-                                            output.id(), result.bytesSent(), result.messagesSent()
-                                    );
+                                    events.add(event);
                                 }
                             }
 
@@ -189,20 +175,7 @@ public class CotOutput implements ScheduledIntegration {
                                         )
                                 );
 
-                                // Send to output.
-                                CotProcessingResult result;
-                                try {
-                                    result = transport.sendEvent(event);
-                                } catch (CotTransportException e) {
-                                    LOG.error("Could not send CoT message to CoT output [{}/{}]. Skipping.",
-                                            output.uuid(), output.name(), e);
-                                    continue;
-                                }
-
-                                // Count up stats if success.
-                                nzyme.getCotService().incrementOutputStats(
-                                        output.id(), result.bytesSent(), result.messagesSent()
-                                );
+                                events.add(event);
 
                                 // UAV operator.
                                 if (uav.operatorLongitude() != null && uav.operatorLatitude() != null) {
@@ -233,29 +206,35 @@ public class CotOutput implements ScheduledIntegration {
                                             )
                                     );
 
-                                    // Send to output.
-                                    CotProcessingResult operatorResult;
-                                    try {
-                                        operatorResult = transport.sendEvent(operatorEvent);
-                                    } catch (CotTransportException e) {
-                                        LOG.error("Could not send CoT message to CoT output [{}/{}]. Skipping.",
-                                                output.uuid(), output.name(), e);
-                                        continue;
-                                    }
-
-                                    // Count up stats if success.
-                                    nzyme.getCotService().incrementOutputStats(
-                                            output.id(), operatorResult.bytesSent(), operatorResult.messagesSent()
-                                    );
+                                    events.add(operatorEvent);
                                 }
                             }
 
+                            // Send all events of this run as one batch.
+                            CotProcessingResult result;
+                            try (Timer.Context ignored = session.sendTimer().time()) {
+                                result = session.transport().sendEvents(events);
+                            } catch (CotTransportException e) {
+                                session.errors().mark();
+                                LOG.error("Could not send CoT messages to CoT output [{}/{}]. Skipping.",
+                                        output.uuid(), output.name(), e);
+                                continue;
+                            }
 
+                            // Count up stats if success.
+                            if (result.messagesSent() > 0) {
+                                nzyme.getCotService().incrementOutputStats(
+                                        output.id(), result.bytesSent(), result.messagesSent()
+                                );
+                            }
                         } catch (Crypto.CryptoOperationException | Exception e) {
                             LOG.error("Could not send message to CoT output [{}/{}]. Skipping.",
                                     output.uuid(), output.name(), e);
                         }
                     }
+
+                    // Close transports of deleted and paused outputs.
+                    sessions.retain(activeOutputs);
                 } catch(Exception e) {
                     LOG.error("Error in CotOutput.", e);
                 }
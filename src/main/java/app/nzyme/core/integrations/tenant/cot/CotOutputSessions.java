@@ -0,0 +1,136 @@
+package app.nzyme.core.integrations.tenant.cot;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.crypto.Crypto;
+import app.nzyme.core.integrations.tenant.cot.db.CotOutputEntry;
+import app.nzyme.core.integrations.tenant.cot.transports.CotTransport;
+import app.nzyme.core.integrations.tenant.cot.transports.CotTransportFactory;
+import app.nzyme.core.integrations.tenant.cot.transports.CotTransportType;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Long-lived transports of all CoT outputs. The certificate of an output is decrypted and its transport built only
+ * when the output is first seen or was changed since, not on every run. Transports of outputs that were deleted or
+ * paused are closed.
+ *
+ * Only accessed by the CoT output thread.
+ */
+public class CotOutputSessions {
+
+    private static final Logger LOG = LogManager.getLogger(CotOutputSessions.class);
+
+    private final NzymeNode nzyme;
+
+    // Output UUID -> Session.
+    private final Map<UUID, Session> sessions;
+
+    public CotOutputSessions(NzymeNode nzyme) {
+        this.nzyme = nzyme;
+        this.sessions = Maps.newHashMap();
+    }
+
+    public Session get(CotOutputEntry output) throws Crypto.CryptoOperationException {
+        Session session = sessions.get(output.uuid());
+
+        if (session != null && session.updatedAt.equals(output.updatedAt())) {
+            return session;
+        }
+
+        if (session != null) {
+            LOG.info("CoT output [{}/{}] changed. Rebuilding transport.", output.uuid(), output.name());
+            session.close();
+        }
+
+        // Decrypt certificate if there is one.
+        byte[] decryptedCertificate = null;
+        if (output.certificate() != null) {
+            decryptedCertificate = nzyme.getCrypto().decryptWithClusterKey(output.certificate());
+        }
+        String decryptedCertificatePassphrase = null;
+        if (output.certificatePassphrase() != null) {
+            decryptedCertificatePassphrase = new String(
+                    nzyme.getCrypto().decryptWithClusterKey(output.certificatePassphrase())
+            );
+        }
+
+        CotTransport transport = CotTransportFactory.buildTransport(
+                CotTransportType.valueOf(output.connectionType()),
+                output.address(),
+                output.port(),
+                decryptedCertificate,
+                decryptedCertificatePassphrase
+        );
+
+        session = new Session(output.uuid(), output.updatedAt(), transport);
+        sessions.put(output.uuid(), session);
+
+        return session;
+    }
+
+    /**
+     * Closes the sessions of all outputs not in the given set.
+     */
+    public void retain(Set<UUID> activeOutputs) {
+        Iterator<Map.Entry<UUID, Session>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Session> session = it.next();
+            if (!activeOutputs.contains(session.getKey())) {
+                session.getValue().close();
+                it.remove();
+            }
+        }
+    }
+
+    public final class Session {
+
+        private final UUID outputId;
+        private final DateTime updatedAt;
+        private final CotTransport transport;
+
+        private final Timer sendTimer;
+        private final Meter errors;
+
+        private Session(UUID outputId, DateTime updatedAt, CotTransport transport) {
+            this.outputId = outputId;
+            this.updatedAt = updatedAt;
+            this.transport = transport;
+
+            this.sendTimer = nzyme.getMetrics().timer(name(MetricNames.COT_OUTPUT_SEND_TIMER, outputId.toString()));
+            this.errors = nzyme.getMetrics().meter(name(MetricNames.COT_OUTPUT_ERRORS, outputId.toString()));
+        }
+
+        public CotTransport transport() {
+            return transport;
+        }
+
+        public Timer sendTimer() {
+            return sendTimer;
+        }
+
+        public Meter errors() {
+            return errors;
+        }
+
+        private void close() {
+            transport.close();
+
+            nzyme.getMetrics().remove(name(MetricNames.COT_OUTPUT_SEND_TIMER, outputId.toString()));
+            nzyme.getMetrics().remove(name(MetricNames.COT_OUTPUT_ERRORS, outputId.toString()));
+        }
+
+    }
+
+}
@@ -3,58 +3,104 @@ package app.nzyme.core.integrations.tenant.cot.transports;
 import app.nzyme.core.integrations.tenant.cot.protocol.CotEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import jakarta.annotation.Nullable;
+import org.joda.time.DateTime;
 
 import java.io.IOException;
 import java.net.*;
+import java.util.List;
 
+/**
+ * Sends every CoT event as one datagram. The socket is reused across batches and the address is resolved again
+ * after {@link #RESOLUTION_TTL_MINUTES} or after a failed send.
+ */
 public class CotPlaintextUdpTransport implements CotTransport {
 
+    private static final int RESOLUTION_TTL_MINUTES = 5;
+
     private final String address;
     private final int port;
 
     private final XmlMapper xmlMapper = new XmlMapper();
 
+    @Nullable
+    private DatagramSocket socket;
+
+    @Nullable
+    private InetAddress serverAddress;
+    @Nullable
+    private DateTime serverAddressResolvedAt;
+
     public CotPlaintextUdpTransport(String address, int port) {
         this.address = address;
         this.port = port;
     }
 
     @Override
-    public CotProcessingResult sendEvent(CotEvent event) throws CotTransportException {
-        String payload;
-        try {
-            payload = xmlMapper.writeValueAsString(event);
-        } catch(JsonProcessingException e) {
-            throw new CotTransportException("Could not serialize CoT event.", e);
+    public CotProcessingResult sendEvents(List<CotEvent> events) throws CotTransportException {
+        if (events.isEmpty()) {
+            return CotProcessingResult.create(0, 0);
         }
 
-        InetAddress serverAddress;
-        try {
-            serverAddress = InetAddress.getByName(address);
-        } catch (UnknownHostException e) {
-            throw new CotTransportException("Could not prepare CoT socket.", e);
+        InetAddress target = resolve();
+
+        if (socket == null || socket.isClosed()) {
+            try {
+                socket = new DatagramSocket();
+            } catch (SocketException e) {
+                throw new CotTransportException("Could not create CoT socket.", e);
+            }
         }
 
-        byte[] buffer = payload.getBytes();
-        DatagramPacket packet = new DatagramPacket(buffer, buffer.length, serverAddress, port);
+        int bytesSent = 0;
+        int messagesSent = 0;
+        for (CotEvent event : events) {
+            String payload;
+            try {
+                payload = xmlMapper.writeValueAsString(event);
+            } catch(JsonProcessingException e) {
+                throw new CotTransportException("Could not serialize CoT event.", e);
+            }
 
-        DatagramSocket socket;
+            byte[] buffer = payload.getBytes();
+            try {
+                socket.send(new DatagramPacket(buffer, buffer.length, target, port));
+            } catch (IOException e) {
+                // Start over with a fresh socket and resolution on the next batch.
+                close();
+                throw new CotTransportException("Could not send CoT event.", e);
+            }
 
-        try {
-            socket = new DatagramSocket();
-        } catch (SocketException e) {
-            throw new CotTransportException("Could not create CoT socket.", e);
+            bytesSent += payload.length();
+            messagesSent++;
         }
 
-        try {
-            socket.send(packet);
-        } catch (IOException e) {
-            throw new CotTransportException("Could not send CoT event.", e);
-        } finally {
+        return CotProcessingResult.create(bytesSent, messagesSent);
+    }
+
+    private InetAddress resolve() throws CotTransportException {
+        if (serverAddress == null || serverAddressResolvedAt == null
+                || serverAddressResolvedAt.isBefore(DateTime.now().minusMinutes(RESOLUTION_TTL_MINUTES))) {
+            try {
+                serverAddress = InetAddress.getByName(address);
+                serverAddressResolvedAt = DateTime.now();
+            } catch (UnknownHostException e) {
+                throw new CotTransportException("Could not prepare CoT socket.", e);
+            }
+        }
+
+        return serverAddress;
+    }
+
+    @Override
+    public void close() {
+        if (socket != null) {
             socket.close();
+            socket = null;
         }
 
-        return CotProcessingResult.create(payload.length(), 1);
+        serverAddress = null;
+        serverAddressResolvedAt = null;
     }
 
 }
@@ -4,17 +4,27 @@ import app.nzyme.core.integrations.tenant.cot.protocol.CotEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import jakarta.annotation.Nullable;
+import org.joda.time.DateTime;
 
 import javax.net.ssl.*;
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.security.KeyStore;
 import java.security.SecureRandom;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.Enumeration;
+import java.util.List;
 
+/**
+ * Writes CoT events to a kept-alive TLS connection. The connection is opened on first use and re-established,
+ * with exponential backoff, if it breaks.
+ */
 public class CotTlsTcpTransport implements CotTransport {
 
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
     private final String address;
     private final int port;
     private final byte[] certificate;
@@ -23,6 +33,19 @@ public class CotTlsTcpTransport implements CotTransport {
 
     private final XmlMapper xmlMapper = new XmlMapper();
 
+    // Built once from the certificate. Every connection after that skips loading the key store.
+    @Nullable
+    private SSLSocketFactory socketFactory;
+
+    @Nullable
+    private SSLSocket socket;
+    @Nullable
+    private OutputStream out;
+
+    private int connectFailures = 0;
+    @Nullable
+    private DateTime nextConnectAttempt;
+
     public CotTlsTcpTransport(String address, int port, byte[] certificate, @Nullable String certificatePassphrase) {
         if (certificate == null || certificate.length == 0) {
             throw new IllegalArgumentException("Certificate cannot be null or empty");
@@ -40,20 +63,97 @@ public class CotTlsTcpTransport implements CotTransport {
     }
 
     @Override
-    public CotProcessingResult sendEvent(CotEvent event) throws CotTransportException {
+    public CotProcessingResult sendEvents(List<CotEvent> events) throws CotTransportException {
         if (certificate == null) {
             throw new CotTransportException("CoT transport requires certificate to be uploaded.");
         }
 
-        String payload;
+        if (events.isEmpty()) {
+            return CotProcessingResult.create(0, 0);
+        }
+
+        // Serialize the whole batch before touching the connection.
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        int bytesSent = 0;
+        for (CotEvent event : events) {
+            String payload;
+            try {
+                payload = xmlMapper.writeValueAsString(event);
+            } catch(JsonProcessingException e) {
+                throw new CotTransportException("Could not serialize CoT event.", e);
+            }
+
+            batch.writeBytes(payload.getBytes());
+            bytesSent += payload.length();
+        }
+
+        boolean reusedConnection = socket != null;
+        try {
+            write(batch);
+        } catch (CotTransportException e) {
+            if (!reusedConnection) {
+                throw e;
+            }
+
+            // The kept-alive connection may have been closed by the server in the meantime. Retry once.
+            write(batch);
+        }
+
+        return CotProcessingResult.create(bytesSent, events.size());
+    }
+
+    private void write(ByteArrayOutputStream batch) throws CotTransportException {
+        connect();
+
+        try {
+            batch.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw new CotTransportException("Could not send CoT events.", e);
+        }
+    }
+
+    private void connect() throws CotTransportException {
+        if (socket != null) {
+            return;
+        }
+
+        if (nextConnectAttempt != null && nextConnectAttempt.isAfterNow()) {
+            throw new CotTransportException("Not reconnecting to CoT output before backoff ends at ["
+                    + nextConnectAttempt + "].");
+        }
+
         try {
-            payload = xmlMapper.writeValueAsString(event);
-        } catch(JsonProcessingException e) {
-            throw new CotTransportException("Could not serialize CoT event.", e);
+            if (socketFactory == null) {
+                socketFactory = buildSocketFactory();
+            }
+
+            SSLSocket newSocket = (SSLSocket) socketFactory.createSocket();
+            try {
+                newSocket.setKeepAlive(true);
+                newSocket.setTcpNoDelay(true);
+                newSocket.connect(new InetSocketAddress(address, port), CONNECT_TIMEOUT_MS);
+                newSocket.startHandshake();
+            } catch (IOException e) {
+                newSocket.close();
+                throw e;
+            }
+
+            this.socket = newSocket;
+            this.out = new BufferedOutputStream(newSocket.getOutputStream());
+            this.connectFailures = 0;
+            this.nextConnectAttempt = null;
+        } catch (Exception | CotTransportException e) {
+            connectFailures++;
+            long backoff = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(connectFailures, 16));
+            nextConnectAttempt = DateTime.now().plusSeconds((int) backoff);
+
+            throw new CotTransportException("Could not connect to CoT output.", e);
         }
+    }
 
-        // Prepare TLS.
-        SSLContext sslContext;
+    private SSLSocketFactory buildSocketFactory() throws CotTransportException {
         try {
             // Load PKCS#12 file (contains cert, key, CA chain)
             KeyStore keyStore = KeyStore.getInstance("PKCS12");
@@ -92,25 +192,27 @@ public class CotTlsTcpTransport implements CotTransport {
             tmf.init(trustStore);
 
             // Build SSLContext.
-            sslContext = SSLContext.getInstance("TLS");
+            SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), new SecureRandom());
+
+            return sslContext.getSocketFactory();
         } catch (Exception e) {
             throw new CotTransportException("Could not prepare TLS for CoT event.", e);
         }
+    }
 
-        // Create secure socket
-        SSLSocketFactory factory = sslContext.getSocketFactory();
-        try (SSLSocket socket = (SSLSocket) factory.createSocket(address, port)) {
-            socket.startHandshake();
-
-            OutputStream out = socket.getOutputStream();
-            out.write(payload.getBytes());
-            out.flush();
-        } catch (Exception e) {
-            throw new CotTransportException("Could not send CoT event.", e);
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing left to do.
+            }
         }
 
-        return CotProcessingResult.create(payload.length(), 1);
+        socket = null;
+        out = null;
     }
 
 }
@@ -2,8 +2,20 @@ package app.nzyme.core.integrations.tenant.cot.transports;
 
 import app.nzyme.core.integrations.tenant.cot.protocol.CotEvent;
 
+import java.util.List;
+
+/**
+ * Long-lived session to a CoT output. Implementations keep their connection or socket open between calls and
+ * re-establish it if it breaks. Not thread-safe.
+ */
 public interface CotTransport {
 
-    CotProcessingResult sendEvent(CotEvent event) throws CotTransportException;
+    CotProcessingResult sendEvents(List<CotEvent> events) throws CotTransportException;
+
+    default CotProcessingResult sendEvent(CotEvent event) throws CotTransportException {
+        return sendEvents(List.of(event));
+    }
+
+    void close();
 
 }
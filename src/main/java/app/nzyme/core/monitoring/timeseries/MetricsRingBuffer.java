@@ -0,0 +1,137 @@
+package app.nzyme.core.monitoring.timeseries;
+
+import app.nzyme.core.taps.db.metrics.BucketSize;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-size ring of per-minute slots for a single metric series. Values are downsampled on write: Every slot only
+ * keeps the minimum, maximum, sum and count of all values recorded in its minute. Values older than the ring
+ * are dropped.
+ */
+public class MetricsRingBuffer {
+
+    private static final long MINUTE_MS = 60_000;
+
+    private final int capacity;
+
+    // Epoch minute of each slot, -1 if unused.
+    private final long[] minutes;
+    private final double[] minimums;
+    private final double[] maximums;
+    private final double[] sums;
+    private final int[] counts;
+
+    private long latestMinute = -1;
+
+    public MetricsRingBuffer(int capacityMinutes) {
+        this.capacity = capacityMinutes;
+        this.minutes = new long[capacityMinutes];
+        this.minimums = new double[capacityMinutes];
+        this.maximums = new double[capacityMinutes];
+        this.sums = new double[capacityMinutes];
+        this.counts = new int[capacityMinutes];
+
+        Arrays.fill(minutes, -1);
+    }
+
+    public synchronized void record(DateTime timestamp, double value) {
+        long minute = timestamp.getMillis() / MINUTE_MS;
+
+        if (latestMinute >= 0 && minute <= latestMinute - capacity) {
+            // Already rotated out.
+            return;
+        }
+
+        latestMinute = Math.max(latestMinute, minute);
+
+        int idx = (int) (minute % capacity);
+        if (minutes[idx] != minute) {
+            minutes[idx] = minute;
+            minimums[idx] = value;
+            maximums[idx] = value;
+            sums[idx] = value;
+            counts[idx] = 1;
+            return;
+        }
+
+        minimums[idx] = Math.min(minimums[idx], value);
+        maximums[idx] = Math.max(maximums[idx], value);
+        sums[idx] += value;
+        counts[idx]++;
+    }
+
+    /**
+     * Aggregates all slots from the minute of the given timestamp on into buckets of the given size. Same
+     * semantics as grouping the raw values by date_trunc(bucketSize, created_at), but at minute resolution.
+     *
+     * @return Buckets, newest first. Empty if there are no values in the window.
+     */
+    public synchronized List<RollingMetricsBucket> aggregate(DateTime from, BucketSize bucketSize) {
+        List<RollingMetricsBucket> result = Lists.newArrayList();
+
+        if (latestMinute < 0) {
+            return result;
+        }
+
+        long fromMinute = Math.max(from.getMillis() / MINUTE_MS, latestMinute - capacity + 1);
+
+        DateTime currentBucket = null;
+        double min = 0, max = 0, sum = 0;
+        long count = 0;
+        for (long minute = latestMinute; minute >= fromMinute; minute--) {
+            int idx = (int) (minute % capacity);
+            if (minutes[idx] != minute) {
+                continue;
+            }
+
+            DateTime bucket = truncate(new DateTime(minute * MINUTE_MS), bucketSize);
+            if (currentBucket != null && !currentBucket.equals(bucket)) {
+                result.add(RollingMetricsBucket.create(currentBucket, sum, sum / count, max, min));
+                count = 0;
+            }
+
+            if (count == 0) {
+                currentBucket = bucket;
+                min = minimums[idx];
+                max = maximums[idx];
+                sum = sums[idx];
+            } else {
+                min = Math.min(min, minimums[idx]);
+                max = Math.max(max, maximums[idx]);
+                sum += sums[idx];
+            }
+            count += counts[idx];
+        }
+
+        if (count > 0) {
+            result.add(RollingMetricsBucket.create(currentBucket, sum, sum / count, max, min));
+        }
+
+        return result;
+    }
+
+    public synchronized long getLatestMinute() {
+        return latestMinute;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private static DateTime truncate(DateTime timestamp, BucketSize bucketSize) {
+        switch (bucketSize) {
+            case DAY:
+                return timestamp.withTimeAtStartOfDay();
+            case HOUR:
+                return timestamp.hourOfDay().roundFloorCopy();
+            case MINUTE:
+            default:
+                return timestamp;
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package app.nzyme.core.monitoring.timeseries;
+
+import com.google.auto.value.AutoValue;
+import org.joda.time.DateTime;
+
+@AutoValue
+public abstract class RollingMetricsBucket {
+
+    public abstract DateTime bucket();
+    public abstract double sum();
+    public abstract double average();
+    public abstract double maximum();
+    public abstract double minimum();
+
+    public static RollingMetricsBucket create(DateTime bucket, double sum, double average, double maximum, double minimum) {
+        return new AutoValue_RollingMetricsBucket(bucket, sum, average, maximum, minimum);
+    }
+
+}
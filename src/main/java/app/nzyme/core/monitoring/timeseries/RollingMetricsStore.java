@@ -0,0 +1,139 @@
+package app.nzyme.core.monitoring.timeseries;
+
+import app.nzyme.core.taps.db.metrics.BucketSize;
+import com.google.auto.value.AutoValue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node-local store of recent metric values, keyed by entity (node or tap) and metric name. Every series is a
+ * {@link MetricsRingBuffer} of per-minute slots, so histograms of recent windows can be answered without touching
+ * the database.
+ *
+ * A series only answers queries for windows it fully covers: It must have been recording (or been warmed up from
+ * the database) since the start of the window. Callers fall back to the database if the store returns nothing.
+ */
+public class RollingMetricsStore {
+
+    private static final Logger LOG = LogManager.getLogger(RollingMetricsStore.class);
+
+    // Node and tap metrics are retained for 24 hours. One more hour so that a 24 hour window is always covered.
+    public static final int DEFAULT_CAPACITY_MINUTES = 25 * 60;
+
+    private final int capacityMinutes;
+    private final int maxSeries;
+
+    private final Map<SeriesKey, Series> series;
+
+    public RollingMetricsStore(int capacityMinutes, int maxSeries) {
+        this.capacityMinutes = capacityMinutes;
+        this.maxSeries = maxSeries;
+        this.series = new ConcurrentHashMap<>();
+    }
+
+    public void record(UUID entity, String metricName, double value, DateTime timestamp) {
+        Series s = getOrCreate(entity, metricName, timestamp);
+        if (s != null) {
+            s.ring.record(timestamp, value);
+        }
+    }
+
+    /**
+     * Marks a series as complete since the given time, for example after loading its values from the database.
+     */
+    public void markCoveredSince(UUID entity, String metricName, DateTime since) {
+        Series s = getOrCreate(entity, metricName, since);
+        if (s != null) {
+            s.coverFrom(since.getMillis());
+        }
+    }
+
+    /**
+     * @return Buckets of the series since the given time, newest first. Empty if the store does not cover the
+     *         whole window and the database has to be queried instead.
+     */
+    public Optional<List<RollingMetricsBucket>> findHistogram(UUID entity,
+                                                             String metricName,
+                                                             DateTime from,
+                                                             BucketSize bucketSize) {
+        Series s = series.get(SeriesKey.create(entity, metricName));
+
+        if (s == null || !covers(s, from)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(s.ring.aggregate(from, bucketSize));
+    }
+
+    /**
+     * Removes all series that have not recorded anything for longer than the ring covers, like those of deleted taps.
+     */
+    public void evictStale(DateTime now) {
+        long oldestMinute = now.minusMinutes(capacityMinutes).getMillis() / 60_000;
+        series.values().removeIf(s -> s.ring.getLatestMinute() < oldestMinute);
+    }
+
+    public int size() {
+        return series.size();
+    }
+
+    private boolean covers(Series s, DateTime from) {
+        return from.getMillis() >= s.coveredSince
+                && from.isAfter(DateTime.now().minusMinutes(capacityMinutes - 1));
+    }
+
+    private Series getOrCreate(UUID entity, String metricName, DateTime firstValue) {
+        SeriesKey key = SeriesKey.create(entity, metricName);
+        Series s = series.get(key);
+
+        if (s != null) {
+            return s;
+        }
+
+        if (series.size() >= maxSeries) {
+            LOG.debug("Not keeping metric [{}] of [{}] in memory: Reached maximum of <{}> series.",
+                    metricName, entity, maxSeries);
+            return null;
+        }
+
+        return series.computeIfAbsent(key, k -> new Series(new MetricsRingBuffer(capacityMinutes), firstValue.getMillis()));
+    }
+
+    private static final class Series {
+
+        final MetricsRingBuffer ring;
+
+        // Values before this are not complete in the ring.
+        volatile long coveredSince;
+
+        Series(MetricsRingBuffer ring, long coveredSince) {
+            this.ring = ring;
+            this.coveredSince = coveredSince;
+        }
+
+        synchronized void coverFrom(long since) {
+            coveredSince = Math.min(coveredSince, since);
+        }
+
+    }
+
+    @AutoValue
+    abstract static class SeriesKey {
+
+        abstract UUID entity();
+        abstract String metricName();
+
+        static SeriesKey create(UUID entity, String metricName) {
+            return new AutoValue_RollingMetricsStore_SeriesKey(entity, metricName);
+        }
+
+    }
+
+}
@@ -17,23 +17,53 @@
 
 package app.nzyme.core.periodicals;
 
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs periodicals on a pool of workers. A single scheduler thread only triggers runs, so a long-running periodical
+ * never delays the schedule of others. A periodical never runs concurrently with itself: If it is still running when
+ * its next run is due, that run is skipped instead of queued up.
+ *
+ * Periodicals that work on the data of all tenants can be scheduled to run on the cluster leader only.
+ */
 public class PeriodicalManager {
 
     private static final Logger LOG = LogManager.getLogger(PeriodicalManager.class);
 
-    private final ScheduledExecutorService executor;
+    private final MetricRegistry metrics;
+    private final BooleanSupplier isLeader;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+
+    public PeriodicalManager(MetricRegistry metrics, int workers, BooleanSupplier isLeader) {
+        this.metrics = metrics;
+        this.isLeader = isLeader;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("periodicals-scheduler-%d")
+                        .build()
+        );
 
-    public PeriodicalManager() {
-        // TODO make core pool size configurable
-        this.executor = Executors.newScheduledThreadPool(5,
+        this.workers = Executors.newFixedThreadPool(workers,
                 new ThreadFactoryBuilder()
                         .setDaemon(true)
                         .setNameFormat("periodicals-%d")
@@ -46,7 +76,88 @@ public class PeriodicalManager {
         LOG.info("Scheduling [{}] for every <{} {}> with <{} {}> initial delay.",
                 periodical.getName(), period, timeUnit, initialDelay, timeUnit);
 
-        executor.scheduleAtFixedRate(periodical, initialDelay, period, timeUnit);
+        schedule(new ScheduledPeriodical(periodical, timeUnit.toMillis(period), false), initialDelay, period, timeUnit);
+    }
+
+    /**
+     * Like {@link #scheduleAtFixedRate(Periodical, long, long, TimeUnit)}, but runs are skipped while this node is
+     * not the cluster leader.
+     */
+    public void scheduleAtFixedRateOnLeader(Periodical periodical, long initialDelay, long period, TimeUnit timeUnit) {
+        LOG.info("Scheduling [{}] for every <{} {}> with <{} {}> initial delay on cluster leader.",
+                periodical.getName(), period, timeUnit, initialDelay, timeUnit);
+
+        schedule(new ScheduledPeriodical(periodical, timeUnit.toMillis(period), true), initialDelay, period, timeUnit);
+    }
+
+    private void schedule(ScheduledPeriodical scheduled, long initialDelay, long period, TimeUnit timeUnit) {
+        scheduler.scheduleAtFixedRate(scheduled::trigger, initialDelay, period, timeUnit);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private final class ScheduledPeriodical {
+
+        private final Periodical periodical;
+        private final long periodMs;
+        private final boolean leaderOnly;
+
+        private final AtomicBoolean running = new AtomicBoolean(false);
+
+        private final Timer runTimer;
+        private final Meter overruns;
+        private final Meter skips;
+
+        private ScheduledPeriodical(Periodical periodical, long periodMs, boolean leaderOnly) {
+            this.periodical = periodical;
+            this.periodMs = periodMs;
+            this.leaderOnly = leaderOnly;
+
+            String metricName = periodical.getClass().getSimpleName();
+            this.runTimer = metrics.timer(name(MetricNames.PERIODICALS_RUN_TIMER, metricName));
+            this.overruns = metrics.meter(name(MetricNames.PERIODICALS_OVERRUNS, metricName));
+            this.skips = metrics.meter(name(MetricNames.PERIODICALS_SKIPS, metricName));
+        }
+
+        private void trigger() {
+            if (leaderOnly && !isLeader.getAsBoolean()) {
+                LOG.debug("Not running periodical [{}]. This node is not the cluster leader.", periodical.getName());
+                return;
+            }
+
+            if (!running.compareAndSet(false, true)) {
+                LOG.warn("Skipping run of periodical [{}]. Previous run has not finished yet.", periodical.getName());
+                skips.mark();
+                return;
+            }
+
+            try {
+                workers.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                // Shutting down.
+                running.set(false);
+            }
+        }
+
+        private void run() {
+            long start = System.nanoTime();
+            try {
+                periodical.run();
+            } finally {
+                long durationNs = System.nanoTime() - start;
+                runTimer.update(durationNs, TimeUnit.NANOSECONDS);
+
+                if (TimeUnit.NANOSECONDS.toMillis(durationNs) > periodMs) {
+                    overruns.mark();
+                }
+
+                running.set(false);
+            }
+        }
+
     }
 
 }
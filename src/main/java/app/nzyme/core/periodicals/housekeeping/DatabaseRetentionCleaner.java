@@ -3,34 +3,50 @@ package app.nzyme.core.periodicals.housekeeping;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.database.DataCategory;
 import app.nzyme.core.database.DatabaseTools;
+import app.nzyme.core.database.partitions.PartitionedTable;
+import app.nzyme.core.database.partitions.TablePartitions;
 import app.nzyme.core.database.tasks.TenantPurgeCategoryTask;
 import app.nzyme.core.periodicals.Periodical;
 import app.nzyme.core.security.authentication.db.OrganizationEntry;
 import app.nzyme.core.security.authentication.db.TenantEntry;
+import com.google.common.collect.Maps;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.joda.time.DateTime;
 
+import java.util.Map;
+
 public class DatabaseRetentionCleaner extends Periodical {
 
     private static final Logger LOG = LogManager.getLogger(DatabaseRetentionCleaner.class);
 
+    // Daily partitions are created this many days ahead.
+    private static final int PARTITIONS_AHEAD_DAYS = 7;
+
     private final NzymeNode nzyme;
+    private final TablePartitions partitions;
 
     public DatabaseRetentionCleaner(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.partitions = new TablePartitions(nzyme);
     }
 
     @Override
     protected void execute() {
         LOG.debug("Starting database retention cleaning.");
 
+        // Longest retention time of any tenant, per data category.
+        Map<DataCategory, Integer> maxRetentionDays = Maps.newHashMap();
+
         for (OrganizationEntry org : nzyme.getAuthenticationService().findAllOrganizations()) {
             for (TenantEntry tenant : nzyme.getAuthenticationService().findAllTenantsOfOrganization(org.uuid())) {
                 for (DataCategory category : DataCategory.values()) {
-                    DateTime since = DateTime.now().minusDays(
-                            DatabaseTools.getDataCategoryRetentionTimeDays(nzyme, category, org.uuid(), tenant.uuid())
+                    int retentionDays = DatabaseTools.getDataCategoryRetentionTimeDays(
+                            nzyme, category, org.uuid(), tenant.uuid()
                     );
+                    maxRetentionDays.merge(category, retentionDays, Math::max);
+
+                    DateTime since = DateTime.now().minusDays(retentionDays);
 
                     LOG.debug("Retention cleaning category [{}] of tenant [{}/{}]. Deleting all data older " +
                             "than [{}].", category, tenant.name(), tenant.uuid(), since);
@@ -44,6 +60,36 @@ public class DatabaseRetentionCleaner extends Periodical {
 
         }
 
+        maintainPartitions(maxRetentionDays);
+    }
+
+    /*
+     * Creates partitions ahead of time and drops whole partitions that are older than the retention time of every
+     * tenant. The purge tasks published above only have to delete rows of tenants with shorter retention times.
+     */
+    private void maintainPartitions(Map<DataCategory, Integer> maxRetentionDays) {
+        for (PartitionedTable table : PartitionedTable.values()) {
+            try {
+                partitions.createAhead(table, PARTITIONS_AHEAD_DAYS);
+
+                DateTime cutoff;
+                if (table.getFixedRetentionHours().isPresent()) {
+                    cutoff = DateTime.now().minusHours(table.getFixedRetentionHours().get());
+                } else {
+                    Integer retentionDays = maxRetentionDays.get(table.getDataCategory().orElseThrow());
+                    if (retentionDays == null) {
+                        // No tenants.
+                        continue;
+                    }
+
+                    cutoff = DateTime.now().minusDays(retentionDays);
+                }
+
+                partitions.dropBefore(table, cutoff);
+            } catch (Exception e) {
+                LOG.error("Could not maintain partitions of table [{}].", table.getTableName(), e);
+            }
+        }
     }
 
     @Override
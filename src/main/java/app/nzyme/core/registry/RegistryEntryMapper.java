@@ -5,14 +5,20 @@ import org.jdbi.v3.core.statement.StatementContext;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.UUID;
 
 public class RegistryEntryMapper implements RowMapper<RegistryEntry> {
 
     @Override
     public RegistryEntry map(ResultSet rs, StatementContext ctx) throws SQLException {
+        String organizationId = rs.getString("organization_id");
+        String tenantId = rs.getString("tenant_id");
+
         return RegistryEntry.create(
                 rs.getString("key"),
-                rs.getString("value")
+                rs.getString("value"),
+                organizationId == null ? null : UUID.fromString(organizationId),
+                tenantId == null ? null : UUID.fromString(tenantId)
         );
     }
 
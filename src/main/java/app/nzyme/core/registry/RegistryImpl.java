@@ -28,91 +28,35 @@ public class RegistryImpl implements Registry {
 
     @Override
     public Optional<String> getValue(String key) {
-        LOG.debug("Getting value for [{}] from registry.", buildNamespacedKey(namespace, key));
-        return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT value FROM registry WHERE key = :key " +
-                                "AND organization_id IS NULL AND tenant_id IS NULL")
-                        .bind("key", buildNamespacedKey(namespace, key))
-                        .mapTo(String.class)
-                        .findOne()
-        );
+        return nzyme.getRegistryStore().get(buildNamespacedKey(namespace, key), null, null);
     }
 
     @Override
     public Optional<String> getValue(String key, UUID organizationId) {
-        LOG.debug("Getting value for [{}] (Org <{}>) from registry.",
-                buildNamespacedKey(namespace, key), organizationId);
-        return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT value FROM registry WHERE key = :key " +
-                                "AND organization_id = :organization_id AND tenant_id IS NULL")
-                        .bind("key", buildNamespacedKey(namespace, key))
-                        .bind("organization_id", organizationId)
-                        .mapTo(String.class)
-                        .findOne()
-        );
+        return nzyme.getRegistryStore().get(buildNamespacedKey(namespace, key), organizationId, null);
     }
 
     @Override
     public Optional<String> getValue(String key, UUID organizationId, UUID tenantId) {
-        LOG.debug("Getting value for [{}] (Org <{}>, Tenant <{}>) from registry.",
-                buildNamespacedKey(namespace, key), organizationId, tenantId);
-        return nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT value FROM registry WHERE key = :key " +
-                                "AND organization_id = :organization_id AND tenant_id = :tenant_id")
-                        .bind("key", buildNamespacedKey(namespace, key))
-                        .bind("organization_id", organizationId)
-                        .bind("tenant_id", tenantId)
-                        .mapTo(String.class)
-                        .findOne()
-        );
+        return nzyme.getRegistryStore().get(buildNamespacedKey(namespace, key), organizationId, tenantId);
     }
 
     @Override
     public Optional<String> getEncryptedValue(String key) throws RegistryCryptoException {
-        LOG.debug("Getting encrypted value for [{}] from registry.", buildNamespacedKey(namespace, key));
-        Optional<String> encrypted = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT value FROM registry_encrypted WHERE key = :key")
-                        .bind("key", buildNamespacedKey(namespace, key))
-                        .mapTo(String.class)
-                        .findOne()
-        );
-
-        return dbResultToResult(key, encrypted);
+        return dbResultToResult(key,
+                nzyme.getRegistryStore().getEncrypted(buildNamespacedKey(namespace, key), null, null));
     }
 
     @Override
     public Optional<String> getEncryptedValue(String key, UUID organizationId) throws RegistryCryptoException {
-        LOG.debug("Getting encrypted value for [{}] (Org <{}>) from registry.",
-                buildNamespacedKey(namespace, key), organizationId);
-
-        Optional<String> encrypted = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT value FROM registry_encrypted WHERE key = :key " +
-                                "AND organization_id = :organization_id AND tenant_id IS NULL")
-                        .bind("key", buildNamespacedKey(namespace, key))
-                        .bind("organization_id", organizationId)
-                        .mapTo(String.class)
-                        .findOne()
-        );
-
-        return dbResultToResult(key, encrypted);
+        return dbResultToResult(key,
+                nzyme.getRegistryStore().getEncrypted(buildNamespacedKey(namespace, key), organizationId, null));
     }
 
     @Override
     public Optional<String> getEncryptedValue(String key, UUID organizationId, UUID tenantId) throws RegistryCryptoException {
-        LOG.debug("Getting encrypted value for [{}] (Org <{}>, Tenant <{}>) from registry.",
-                buildNamespacedKey(namespace, key), organizationId, tenantId);
-
-        Optional<String> encrypted = nzyme.getDatabase().withHandle(handle ->
-                handle.createQuery("SELECT value FROM registry_encrypted WHERE key = :key " +
-                                "AND organization_id = :organization_id AND tenant_id = :tenant_id")
-                        .bind("key", buildNamespacedKey(namespace, key))
-                        .bind("organization_id", organizationId)
-                        .bind("tenant_id", tenantId)
-                        .mapTo(String.class)
-                        .findOne()
-        );
-
-        return dbResultToResult(key, encrypted);
+        return dbResultToResult(key,
+                nzyme.getRegistryStore().getEncrypted(buildNamespacedKey(namespace, key), organizationId, tenantId));
     }
 
     private Optional<String> dbResultToResult(String key, Optional<String> encrypted) throws RegistryCryptoException {
@@ -171,95 +115,82 @@ public class RegistryImpl implements Registry {
     public void setValue(String key, String value) {
         setValuePreflightChecks(key, value);
 
-        if (getValue(key).isPresent()) {
-            // Update existing entry.
-            LOG.debug("Updating existing value for key [{}] in registry.", buildNamespacedKey(namespace, key));
+        LOG.debug("Writing value for key [{}] to registry.", buildNamespacedKey(namespace, key));
 
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("UPDATE registry SET value = :value WHERE key = :key")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", value)
-                            .execute()
-            );
-        } else {
-            // Insert new entry.
-            LOG.debug("Inserting new entry for key [{}] in registry.", buildNamespacedKey(namespace, key));
-
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO registry(key, value) VALUES(:key, :value)")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", value)
-                            .execute()
-            );
-        }
+        nzyme.getDatabase().useHandle(handle -> {
+            int updated = handle.createUpdate("UPDATE registry SET value = :value WHERE key = :key " +
+                            "AND organization_id IS NULL AND tenant_id IS NULL")
+                    .bind("key", buildNamespacedKey(namespace, key))
+                    .bind("value", value)
+                    .execute();
+
+            if (updated == 0) {
+                handle.createUpdate("INSERT INTO registry(key, value) VALUES(:key, :value)")
+                        .bind("key", buildNamespacedKey(namespace, key))
+                        .bind("value", value)
+                        .execute();
+            }
+        });
+
+        nzyme.getRegistryStore().put(buildNamespacedKey(namespace, key), null, null, value);
     }
 
     @Override
     public void setValue(String key, String value, UUID organizationId) {
         setValuePreflightChecks(key, value);
 
-        if (getValue(key, organizationId).isPresent()) {
-            // Update existing entry.
-            LOG.debug("Updating existing value for key [{}] (Org <{}>) in registry.",
-                    buildNamespacedKey(namespace, key), organizationId);
-
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("UPDATE registry SET value = :value WHERE key = :key " +
-                                    "AND organization_id = :organization_id AND tenant_id IS NULL")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", value)
-                            .bind("organization_id", organizationId)
-                            .execute()
-            );
-        } else {
-            // Insert new entry.
-            LOG.debug("Inserting new entry for key [{}] (Org <{}>) in registry.",
-                    buildNamespacedKey(namespace, key), organizationId);
-
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO registry(key, value, organization_id, tenant_id) " +
-                                    "VALUES(:key, :value, :organization_id, NULL)")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", value)
-                            .bind("organization_id", organizationId)
-                            .execute()
-            );
-        }
+        LOG.debug("Writing value for key [{}] (Org <{}>) to registry.",
+                buildNamespacedKey(namespace, key), organizationId);
+
+        nzyme.getDatabase().useHandle(handle -> {
+            int updated = handle.createUpdate("UPDATE registry SET value = :value WHERE key = :key " +
+                            "AND organization_id = :organization_id AND tenant_id IS NULL")
+                    .bind("key", buildNamespacedKey(namespace, key))
+                    .bind("value", value)
+                    .bind("organization_id", organizationId)
+                    .execute();
+
+            if (updated == 0) {
+                handle.createUpdate("INSERT INTO registry(key, value, organization_id, tenant_id) " +
+                                "VALUES(:key, :value, :organization_id, NULL)")
+                        .bind("key", buildNamespacedKey(namespace, key))
+                        .bind("value", value)
+                        .bind("organization_id", organizationId)
+                        .execute();
+            }
+        });
+
+        nzyme.getRegistryStore().put(buildNamespacedKey(namespace, key), organizationId, null, value);
     }
 
     @Override
     public void setValue(String key, String value, UUID organizationId, UUID tenantId) {
         setValuePreflightChecks(key, value);
 
-        if (getValue(key, organizationId, tenantId).isPresent()) {
-            // Update existing entry.
-            LOG.debug("Updating existing value for key [{}] (Org <{}>, Tenant <{}>) in registry.",
-                    buildNamespacedKey(namespace, key), organizationId, tenantId);
-
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("UPDATE registry SET value = :value WHERE key = :key " +
-                                    "AND organization_id = :organization_id AND tenant_id = :tenant_id")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", value)
-                            .bind("organization_id", organizationId)
-                            .bind("tenant_id", tenantId)
-                            .execute()
-            );
-        } else {
-            // Insert new entry.
-            LOG.debug("Inserting new entry for key [{}] (Org <{}>, Tenant <{}>) in registry.",
-                    buildNamespacedKey(namespace, key), organizationId, tenantId);
-
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO registry(key, value, organization_id, tenant_id) " +
-                                    "VALUES(:key, :value, :organization_id, :tenant_id)")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", value)
-                            .bind("organization_id", organizationId)
-                            .bind("tenant_id", tenantId)
-                            .execute()
-            );
-        }
+        LOG.debug("Writing value for key [{}] (Org <{}>, Tenant <{}>) to registry.",
+                buildNamespacedKey(namespace, key), organizationId, tenantId);
+
+        nzyme.getDatabase().useHandle(handle -> {
+            int updated = handle.createUpdate("UPDATE registry SET value = :value WHERE key = :key " +
+                            "AND organization_id = :organization_id AND tenant_id = :tenant_id")
+                    .bind("key", buildNamespacedKey(namespace, key))
+                    .bind("value", value)
+                    .bind("organization_id", organizationId)
+                    .bind("tenant_id", tenantId)
+                    .execute();
+
+            if (updated == 0) {
+                handle.createUpdate("INSERT INTO registry(key, value, organization_id, tenant_id) " +
+                                "VALUES(:key, :value, :organization_id, :tenant_id)")
+                        .bind("key", buildNamespacedKey(namespace, key))
+                        .bind("value", value)
+                        .bind("organization_id", organizationId)
+                        .bind("tenant_id", tenantId)
+                        .execute();
+            }
+        });
+
+        nzyme.getRegistryStore().put(buildNamespacedKey(namespace, key), organizationId, tenantId, value);
     }
 
     @Override
@@ -278,30 +209,27 @@ public class RegistryImpl implements Registry {
             throw new RegistryCryptoException("Could not encrypt registry value for key [" + key + "]", e);
         }
 
-        if (getEncryptedValue(key).isPresent()) {
-            // Update existing entry.
-            LOG.debug("Updating existing encrypted value for key [{}] in registry.", buildNamespacedKey(namespace, key));
-
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("UPDATE registry_encrypted SET value = :value, key_signature = :key_signature " +
-                                    "WHERE key = :key")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", encrypted)
-                            .bind("key_signature", keyFingerprint)
-                            .execute()
-            );
-        } else {
-            // Insert new entry.
-            LOG.debug("Inserting new encrypted entry for key [{}] in registry.", buildNamespacedKey(namespace, key));
-            nzyme.getDatabase().useHandle(handle ->
-                    handle.createUpdate("INSERT INTO registry_encrypted(key, value, key_signature) " +
-                                    "VALUES(:key, :value, :key_signature)")
-                            .bind("key", buildNamespacedKey(namespace, key))
-                            .bind("value", encrypted)
-                            .bind("key_signature", keyFingerprint)
-                            .execute()
-            );
-        }
+        LOG.debug("Writing encrypted value for key [{}] to registry.", buildNamespacedKey(namespace, key));
+
+        nzyme.getDatabase().useHandle(handle -> {
+            int updated = handle.createUpdate("UPDATE registry_encrypted SET value = :value, " +
+                            "key_signature = :key_signature WHERE key = :key")
+                    .bind("key", buildNamespacedKey(namespace, key))
+                    .bind("value", encrypted)
+                    .bind("key_signature", keyFingerprint)
+                    .execute();
+
+            if (updated == 0) {
+                handle.createUpdate("INSERT INTO registry_encrypted(key, value, key_signature) " +
+                                "VALUES(:key, :value, :key_signature)")
+                        .bind("key", buildNamespacedKey(namespace, key))
+                        .bind("value", encrypted)
+                        .bind("key_signature", keyFingerprint)
+                        .execute();
+            }
+        });
+
+        nzyme.getRegistryStore().putEncrypted(buildNamespacedKey(namespace, key), encrypted);
     }
 
     @Override
@@ -318,10 +246,13 @@ public class RegistryImpl implements Registry {
     public void deleteValue(String key) {
         LOG.debug("Deleting registry value for key [{}]", key);
         nzyme.getDatabase().useHandle(handle ->
-                handle.createUpdate("DELETE FROM registry WHERE key = :key")
+                handle.createUpdate("DELETE FROM registry WHERE key = :key " +
+                                "AND organization_id IS NULL AND tenant_id IS NULL")
                         .bind("key", buildNamespacedKey(namespace, key))
                         .execute()
         );
+
+        nzyme.getRegistryStore().remove(buildNamespacedKey(namespace, key), null, null);
     }
 
     @Override
@@ -335,6 +266,8 @@ public class RegistryImpl implements Registry {
                         .bind("organization_id", organizationId)
                         .execute()
         );
+
+        nzyme.getRegistryStore().remove(buildNamespacedKey(namespace, key), organizationId, null);
     }
 
     @Override
@@ -349,6 +282,8 @@ public class RegistryImpl implements Registry {
                         .bind("tenant_id", tenantId)
                         .execute()
         );
+
+        nzyme.getRegistryStore().remove(buildNamespacedKey(namespace, key), organizationId, tenantId);
     }
 
     private void setValuePreflightChecks(String key, String value) {
@@ -0,0 +1,290 @@
+package app.nzyme.core.registry;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.database.PostgresNotificationListener;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-memory copy of the registry tables. Reads are served from memory. Writes go to the database first and are then
+ * applied locally and announced to all other nodes with a PostgreSQL NOTIFY on {@link #NOTIFICATION_CHANNEL}, carrying
+ * the changed key. Receiving nodes reload only that key. Encrypted values are held as ciphertext and decrypted by the
+ * caller on read.
+ */
+public class RegistryStore implements PostgresNotificationListener.NotificationHandler {
+
+    private static final Logger LOG = LogManager.getLogger(RegistryStore.class);
+
+    public static final String NOTIFICATION_CHANNEL = "registry_changes";
+
+    private static final Set<String> IGNORED_KEYS = ImmutableSet.of("core.connect_last_successful_report");
+
+    private final NzymeNode nzyme;
+
+    private final Map<String, List<Runnable>> subscribers;
+    private final ExecutorService reactionExecutor;
+
+    @Nullable
+    private volatile Map<RegistryStoreKey, String> values = null;
+    @Nullable
+    private volatile Map<RegistryStoreKey, String> encryptedValues = null;
+
+    public RegistryStore(NzymeNode nzyme) {
+        this.nzyme = nzyme;
+        this.subscribers = Maps.newConcurrentMap();
+
+        this.reactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("registry-change-processor-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    public void registerNotifications(PostgresNotificationListener listener) {
+        listener.listen(NOTIFICATION_CHANNEL, this);
+    }
+
+    public Optional<String> get(String namespacedKey, @Nullable UUID organizationId, @Nullable UUID tenantId) {
+        ensureLoaded();
+        return Optional.ofNullable(values.get(RegistryStoreKey.create(namespacedKey, organizationId, tenantId)));
+    }
+
+    public Optional<String> getEncrypted(String namespacedKey,
+                                         @Nullable UUID organizationId,
+                                         @Nullable UUID tenantId) {
+        ensureLoaded();
+        return Optional.ofNullable(
+                encryptedValues.get(RegistryStoreKey.create(namespacedKey, organizationId, tenantId))
+        );
+    }
+
+    /**
+     * Applies a value that was just written to the database and announces the change to the cluster.
+     */
+    public void put(String namespacedKey, @Nullable UUID organizationId, @Nullable UUID tenantId, String value) {
+        applyLocalChange(namespacedKey, false, organizationId, tenantId, value);
+    }
+
+    public void putEncrypted(String namespacedKey, String encryptedValue) {
+        applyLocalChange(namespacedKey, true, null, null, encryptedValue);
+    }
+
+    public void remove(String namespacedKey, @Nullable UUID organizationId, @Nullable UUID tenantId) {
+        applyLocalChange(namespacedKey, false, organizationId, tenantId, null);
+    }
+
+    public void onChange(String namespacedKey, Runnable runnable) {
+        subscribers.computeIfAbsent(namespacedKey, k -> new CopyOnWriteArrayList<>()).add(runnable);
+    }
+
+    /**
+     * Called with the key of a registry entry that was changed by any node.
+     */
+    @Override
+    public void handle(String namespacedKey) {
+        synchronized (this) {
+            if (values == null) {
+                // Not loaded yet. The initial load will include the change.
+                return;
+            }
+
+            List<RegistryEntry> plain = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT key, value, organization_id, tenant_id FROM registry " +
+                                    "WHERE key = :key")
+                            .bind("key", namespacedKey)
+                            .mapTo(RegistryEntry.class)
+                            .list()
+            );
+
+            List<RegistryEntry> encrypted = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT key, value, NULL AS organization_id, NULL AS tenant_id " +
+                                    "FROM registry_encrypted WHERE key = :key")
+                            .bind("key", namespacedKey)
+                            .mapTo(RegistryEntry.class)
+                            .list()
+            );
+
+            Map<RegistryStoreKey, String> newValues = Maps.newHashMap(values);
+            newValues.keySet().removeIf(k -> k.key().equals(namespacedKey));
+            addAll(newValues, plain);
+
+            Map<RegistryStoreKey, String> newEncryptedValues = Maps.newHashMap(encryptedValues);
+            newEncryptedValues.keySet().removeIf(k -> k.key().equals(namespacedKey));
+            addAll(newEncryptedValues, encrypted);
+
+            swap(ImmutableMap.copyOf(newValues), ImmutableMap.copyOf(newEncryptedValues));
+        }
+    }
+
+    /**
+     * Notifications may have been missed while the listener connection was down. Reload everything.
+     */
+    @Override
+    public void resync() {
+        synchronized (this) {
+            if (values == null) {
+                return;
+            }
+
+            swapWithFullLoad();
+        }
+    }
+
+    private void applyLocalChange(String namespacedKey,
+                                  boolean encrypted,
+                                  @Nullable UUID organizationId,
+                                  @Nullable UUID tenantId,
+                                  @Nullable String value) {
+        synchronized (this) {
+            if (values != null) {
+                RegistryStoreKey key = RegistryStoreKey.create(namespacedKey, organizationId, tenantId);
+
+                Map<RegistryStoreKey, String> newValues = Maps.newHashMap(encrypted ? encryptedValues : values);
+                if (value == null) {
+                    newValues.remove(key);
+                } else {
+                    newValues.put(key, value);
+                }
+
+                if (encrypted) {
+                    swap(values, ImmutableMap.copyOf(newValues));
+                } else {
+                    swap(ImmutableMap.copyOf(newValues), encryptedValues);
+                }
+            }
+        }
+
+        try {
+            nzyme.getDatabase().useHandle(handle ->
+                    PostgresNotificationListener.notify(handle, NOTIFICATION_CHANNEL, namespacedKey)
+            );
+        } catch (Exception e) {
+            LOG.error("Could not announce change of registry key [{}] to cluster.", namespacedKey, e);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (values != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (values == null) {
+                Map<RegistryStoreKey, String> newValues = Maps.newHashMap();
+                Map<RegistryStoreKey, String> newEncryptedValues = Maps.newHashMap();
+                fullLoad(newValues, newEncryptedValues);
+
+                // Assign encrypted values first. Readers only check the plain values map.
+                this.encryptedValues = ImmutableMap.copyOf(newEncryptedValues);
+                this.values = ImmutableMap.copyOf(newValues);
+            }
+        }
+    }
+
+    private void swapWithFullLoad() {
+        Map<RegistryStoreKey, String> newValues = Maps.newHashMap();
+        Map<RegistryStoreKey, String> newEncryptedValues = Maps.newHashMap();
+        fullLoad(newValues, newEncryptedValues);
+
+        swap(ImmutableMap.copyOf(newValues), ImmutableMap.copyOf(newEncryptedValues));
+    }
+
+    private void fullLoad(Map<RegistryStoreKey, String> values, Map<RegistryStoreKey, String> encryptedValues) {
+        addAll(values, nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT key, value, organization_id, tenant_id FROM registry")
+                        .mapTo(RegistryEntry.class)
+                        .list()
+        ));
+
+        addAll(encryptedValues, nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT key, value, NULL AS organization_id, NULL AS tenant_id " +
+                                "FROM registry_encrypted")
+                        .mapTo(RegistryEntry.class)
+                        .list()
+        ));
+    }
+
+    private static void addAll(Map<RegistryStoreKey, String> target, List<RegistryEntry> entries) {
+        for (RegistryEntry entry : entries) {
+            target.put(
+                    RegistryStoreKey.create(entry.key(), entry.organizationId(), entry.tenantId()),
+                    entry.value()
+            );
+        }
+    }
+
+    // Must be called while holding the lock.
+    private void swap(Map<RegistryStoreKey, String> newValues, Map<RegistryStoreKey, String> newEncryptedValues) {
+        Set<String> changedKeys = Sets.newHashSet();
+        collectChangedKeys(values, newValues, changedKeys);
+        collectChangedKeys(encryptedValues, newEncryptedValues, changedKeys);
+
+        this.encryptedValues = newEncryptedValues;
+        this.values = newValues;
+
+        for (String changedKey : changedKeys) {
+            if (IGNORED_KEYS.contains(changedKey)) {
+                continue;
+            }
+
+            LOG.info("Registry key [{}] changed. Notifying subscribers.", changedKey);
+            notifySubscribers(changedKey);
+        }
+    }
+
+    private static void collectChangedKeys(Map<RegistryStoreKey, String> previous,
+                                           Map<RegistryStoreKey, String> current,
+                                           Set<String> changedKeys) {
+        for (Map.Entry<RegistryStoreKey, String> entry : current.entrySet()) {
+            if (!Objects.equals(previous.get(entry.getKey()), entry.getValue())) {
+                changedKeys.add(entry.getKey().key());
+            }
+        }
+
+        for (RegistryStoreKey key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                changedKeys.add(key.key());
+            }
+        }
+    }
+
+    private void notifySubscribers(String namespacedKey) {
+        /*
+         * WARNING:
+         *
+         * Never return values here to avoid leaking of out-of-namespace keys.
+         * Everything can subscribe to all changes by design, including plugins.
+         */
+
+        List<Runnable> reactions = subscribers.get(namespacedKey);
+        if (reactions == null) {
+            return;
+        }
+
+        for (Runnable reaction : reactions) {
+            reactionExecutor.execute(() -> {
+                try {
+                    reaction.run();
+                } catch (Exception e) {
+                    LOG.error("Could not execute registry change reaction.", e);
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package app.nzyme.core.registry;
+
+import com.google.auto.value.AutoValue;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+@AutoValue
+public abstract class RegistryStoreKey {
+
+    public abstract String key();
+
+    @Nullable
+    public abstract UUID organizationId();
+
+    @Nullable
+    public abstract UUID tenantId();
+
+    public static RegistryStoreKey create(String key, UUID organizationId, UUID tenantId) {
+        return builder()
+                .key(key)
+                .organizationId(organizationId)
+                .tenantId(tenantId)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_RegistryStoreKey.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder key(String key);
+
+        public abstract Builder organizationId(UUID organizationId);
+
+        public abstract Builder tenantId(UUID tenantId);
+
+        public abstract RegistryStoreKey build();
+    }
+
+}
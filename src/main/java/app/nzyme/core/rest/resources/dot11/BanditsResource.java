@@ -160,6 +160,8 @@ public class BanditsResource extends UserAuthenticatedResource {
 
         nzyme.getDot11().createCustomBandit(req.organizationId(), req.tenantId(), req.name(), req.description());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -181,6 +183,8 @@ public class BanditsResource extends UserAuthenticatedResource {
         nzyme.getDot11().editCustomBandit(bandit.get().id(), req.name(), req.description());
         nzyme.getDot11().bumpCustomBanditUpdatedAt(bandit.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -199,6 +203,8 @@ public class BanditsResource extends UserAuthenticatedResource {
 
         nzyme.getDot11().deleteCustomBandit(bandit.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -231,6 +237,8 @@ public class BanditsResource extends UserAuthenticatedResource {
         nzyme.getDot11().addFingerprintOfCustomBandit(bandit.get().id(), req.fingerprint());
         nzyme.getDot11().bumpCustomBanditUpdatedAt(bandit.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -252,6 +260,8 @@ public class BanditsResource extends UserAuthenticatedResource {
         nzyme.getDot11().removeFingerprintOfCustomBandit(bandit.get().id(), fingerprint);
         nzyme.getDot11().bumpCustomBanditUpdatedAt(bandit.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
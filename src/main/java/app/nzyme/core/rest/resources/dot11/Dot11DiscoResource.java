@@ -370,6 +370,8 @@ public class Dot11DiscoResource extends TapDataHandlingResource {
                 req.methodType(), configurationJson, monitoredNetwork.get().id()
         );
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -141,10 +141,10 @@ public class Dot11LocationsResource extends TapDataHandlingResource {
         }
 
         // Calculate location.
-        LocationSolver solver = new LocationSolver(nzyme);
         LocationSolver.TrilaterationResult bssidLocation;
         try {
-            bssidLocation = solver.solve(signals, fsr.floor());
+            bssidLocation = nzyme.getDot11().getLocationSolver()
+                    .solve("bssid-" + bssidParam, bucketing, signals, fsr.floor(), tapUuids);
         } catch (LocationSolver.InvalidTapsException e) {
             LOG.error("Could not calculate BSSID location.", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -265,10 +265,10 @@ public class Dot11LocationsResource extends TapDataHandlingResource {
         }
 
         // Calculate location.
-        LocationSolver solver = new LocationSolver(nzyme);
         LocationSolver.TrilaterationResult clientLocation;
         try {
-            clientLocation = solver.solve(signals, fsr.floor());
+            clientLocation = nzyme.getDot11().getLocationSolver()
+                    .solve("client-" + macParam, bucketing, signals, fsr.floor(), tapUuids);
         } catch (LocationSolver.InvalidTapsException e) {
             LOG.error("Could not calculate client location.", e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -369,6 +369,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
                 req.tenantId()
         );
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -392,6 +394,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().deleteMonitoredSSID(ssid.id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -430,6 +434,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -461,6 +467,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -506,6 +514,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -538,6 +548,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -575,6 +587,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -600,6 +614,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -638,6 +654,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -663,6 +681,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -686,6 +706,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -709,6 +731,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -742,6 +766,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -917,6 +943,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
             }
         }
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok(Response.Status.CREATED).build();
     }
 
@@ -977,6 +1005,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().setSimilarSSIDMonitorConfiguration(ssid.get().id(), (int) req.threshold());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -1000,6 +1030,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().createRestrictedSSIDSubstring(ssid.get().id(), req.substring());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -1023,6 +1055,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().deleteRestrictedSSIDSubstring(ssid.get().id(), substringUuid);
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -1117,6 +1151,8 @@ public class Dot11MonitoredNetworksResource extends TapDataHandlingResource {
 
         nzyme.getDot11().bumpMonitoredSSIDUpdatedAt(ssid.get().id());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
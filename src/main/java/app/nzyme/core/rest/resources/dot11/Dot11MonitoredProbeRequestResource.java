@@ -110,6 +110,8 @@ public class Dot11MonitoredProbeRequestResource extends UserAuthenticatedResourc
 
         nzyme.getDot11().createMonitoredProbeRequest(req.organizationId(), req.tenantId(), req.ssid(), req.notes());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.status(Response.Status.CREATED).build();
     }
 
@@ -132,6 +134,8 @@ public class Dot11MonitoredProbeRequestResource extends UserAuthenticatedResourc
 
         nzyme.getDot11().updateMonitoredProbeRequest(uuid, req.organizationId(), req.tenantId(), req.ssid(), req.notes());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
@@ -148,6 +152,8 @@ public class Dot11MonitoredProbeRequestResource extends UserAuthenticatedResourc
 
         nzyme.getDot11().deleteMonitoredProbeRequest(uuid, ssid.get().organizationId(), ssid.get().tenantId());
 
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
         return Response.ok().build();
     }
 
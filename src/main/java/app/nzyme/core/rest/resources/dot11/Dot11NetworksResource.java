@@ -6,6 +6,7 @@ import app.nzyme.core.database.OrderDirection;
 import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.dot11.Dot11RegistryKeys;
 import app.nzyme.core.dot11.db.*;
+import app.nzyme.core.dot11.tracks.SignalHeatmap;
 import app.nzyme.core.dot11.tracks.Track;
 import app.nzyme.core.dot11.tracks.TrackDetector;
 import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
@@ -231,13 +232,13 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
                 bssid, frequency, timeRange, tap.uuid()
         );
 
-        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(signals);
+        SignalHeatmap heatmap = SignalHeatmap.fromHistogram(signals);
 
         return Response.ok(
                 SignalWaterfallResponse.create(
-                        heatmap.z(),
+                        heatmap.zValues(),
                         DEFAULT_X_VALUES,
-                        heatmap.y(),
+                        heatmap.yValues(),
                         null,
                         null
                 )
@@ -569,11 +570,11 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
         List<SignalTrackHistogramEntry> signals = nzyme.getDot11().getSSIDSignalStrengthWaterfall(
                 bssid, ssid, frequency, timeRange, tap.uuid());
 
-        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(signals);
+        SignalHeatmap heatmap = SignalHeatmap.fromHistogram(signals);
 
         TrackDetector td = new TrackDetector();
         List<SignalWaterfallTrackResponse> tracks = Lists.newArrayList();
-        for (Track track : td.detect(heatmap.z(), heatmap.y(), config)) {
+        for (Track track : td.detect(heatmap, config)) {
             tracks.add(SignalWaterfallTrackResponse.create(
                     track.start(),
                     track.end(),
@@ -585,9 +586,9 @@ public class Dot11NetworksResource extends TapDataHandlingResource {
 
         return Response.ok(
                 SignalWaterfallResponse.create(
-                        heatmap.z(),
+                        heatmap.zValues(),
                         DEFAULT_X_VALUES,
-                        heatmap.y(),
+                        heatmap.yValues(),
                         tracks,
                         SignalWaterfallConfigurationResponse.create(
                                 config.frameThreshold(),
@@ -14,16 +14,22 @@ import app.nzyme.core.rest.UserAuthenticatedResource;
 import app.nzyme.core.rest.authentication.AuthenticatedUser;
 import app.nzyme.core.rest.requests.SetDatabaseCategoryRetentionTimeRequest;
 import app.nzyme.core.rest.responses.bluetooth.BluetoothRegistryKeys;
+import app.nzyme.core.rest.responses.metrics.TimerResponse;
 import app.nzyme.core.rest.responses.system.database.*;
 import app.nzyme.core.security.authentication.db.OrganizationEntry;
 import app.nzyme.core.security.authentication.db.TenantEntry;
 import app.nzyme.core.uav.UavRegistryKeys;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.core.util.Tools;
 import app.nzyme.plugin.rest.security.PermissionLevel;
 import app.nzyme.plugin.rest.security.RESTSecured;
 
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
@@ -41,6 +47,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Path("/api/system/database")
 @Produces(MediaType.APPLICATION_JSON)
@@ -190,6 +197,34 @@ public class DatabaseResource extends UserAuthenticatedResource {
         )).build();
     }
 
+    @GET
+    @RESTSecured(PermissionLevel.SUPERADMINISTRATOR)
+    @Path("/pool")
+    public Response connectionPool() {
+        HikariDataSource pool = ((DatabaseImpl) nzyme.getDatabase()).getConnectionPool();
+        HikariPoolMXBean stats = pool.getHikariPoolMXBean();
+
+        // Acquire timing is recorded in nanoseconds. Reported in microseconds like all other timers.
+        Timer acquireTimer = nzyme.getMetrics().timer(MetricNames.DATABASE_POOL_ACQUIRE_TIMING);
+        Snapshot s = acquireTimer.getSnapshot();
+
+        return Response.ok(DatabaseConnectionPoolResponse.create(
+                stats.getActiveConnections(),
+                stats.getIdleConnections(),
+                stats.getThreadsAwaitingConnection(),
+                stats.getTotalConnections(),
+                pool.getMaximumPoolSize(),
+                TimerResponse.create(
+                        TimeUnit.NANOSECONDS.toMicros((long) s.getMean()),
+                        TimeUnit.NANOSECONDS.toMicros(s.getMax()),
+                        TimeUnit.NANOSECONDS.toMicros(s.getMin()),
+                        TimeUnit.NANOSECONDS.toMicros((long) s.getStdDev()),
+                        TimeUnit.NANOSECONDS.toMicros((long) s.get99thPercentile()),
+                        acquireTimer.getCount()
+                )
+        )).build();
+    }
+
     @POST
     @RESTSecured(PermissionLevel.SUPERADMINISTRATOR)
     @Path("/purge/category/{category}")
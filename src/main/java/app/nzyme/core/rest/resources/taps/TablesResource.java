@@ -34,6 +34,7 @@ import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
@@ -48,6 +49,8 @@ public class TablesResource {
 
     private static final Logger LOG = LogManager.getLogger(StatusResource.class);
 
+    private static final int RETRY_AFTER_SECONDS = 5;
+
     @Inject
     private NzymeNode nzyme;
 
@@ -67,9 +70,8 @@ public class TablesResource {
         }
 
         LOG.debug("Received 802.11 summary report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().dot11().handleReport(tap.getUuid(), DateTime.now(), report);
-
-        return Response.status(Response.Status.CREATED).build();
+        DateTime timestamp = DateTime.now();
+        return accept("dot11", tap, () -> nzyme.getTablesService().dot11().handleReport(tap.getUuid(), timestamp, report));
     }
 
     @POST
@@ -83,9 +85,8 @@ public class TablesResource {
         }
 
         LOG.debug("Received Bluetooth devices report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().bluetooth().handleReport(tap.getUuid(), DateTime.now(), report);
-
-        return Response.status(Response.Status.CREATED).build();
+        DateTime timestamp = DateTime.now();
+        return accept("bluetooth", tap, () -> nzyme.getTablesService().bluetooth().handleReport(tap.getUuid(), timestamp, report));
     }
 
     @POST
@@ -99,9 +100,8 @@ public class TablesResource {
         }
 
         LOG.debug("Received TCP session table report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().tcp().handleReport(tap.getUuid(), DateTime.now(), report);
-
-        return Response.status(Response.Status.CREATED).build();
+        DateTime timestamp = DateTime.now();
+        return accept("tcp", tap, () -> nzyme.getTablesService().tcp().handleReport(tap.getUuid(), timestamp, report));
     }
 
     @POST
@@ -132,9 +132,8 @@ public class TablesResource {
         }
 
         LOG.debug("Received DNS summary report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().dns().handleReport(tap.getUuid(), DateTime.now(), report);
-
-        return Response.status(Response.Status.CREATED).build();
+        DateTime timestamp = DateTime.now();
+        return accept("dns", tap, () -> nzyme.getTablesService().dns().handleReport(tap.getUuid(), timestamp, report));
     }
 
     @POST
@@ -148,9 +147,8 @@ public class TablesResource {
         }
 
         LOG.debug("Received SSH sessions report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().ssh().handleReport(tap.getUuid(), DateTime.now(), report);
-
-        return Response.status(Response.Status.CREATED).build();
+        DateTime timestamp = DateTime.now();
+        return accept("ssh", tap, () -> nzyme.getTablesService().ssh().handleReport(tap.getUuid(), timestamp, report));
     }
 
     @POST
@@ -164,9 +162,8 @@ public class TablesResource {
         }
 
         LOG.debug("Received SOCKS tunnels report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().socks().handleReport(tap.getUuid(), DateTime.now(), report);
-
-        return Response.status(Response.Status.CREATED).build();
+        DateTime timestamp = DateTime.now();
+        return accept("socks", tap, () -> nzyme.getTablesService().socks().handleReport(tap.getUuid(), timestamp, report));
     }
 
     @POST
@@ -180,9 +177,21 @@ public class TablesResource {
         }
 
         LOG.debug("Received UAVs report from tap [{}]: {}", tap.getUuid(), report);
-        nzyme.getTablesService().uav().handleReport(tap.getUuid(), DateTime.now(), report);
+        DateTime timestamp = DateTime.now();
+        return accept("uav", tap, () -> nzyme.getTablesService().uav().handleReport(tap.getUuid(), timestamp, report));
+    }
 
-        return Response.status(Response.Status.CREATED).build();
+    private Response accept(String tableName, AuthenticatedTap tap, Runnable processor) {
+        if (!nzyme.getTablesService().submitReport(tableName, tap.getUuid(), processor)) {
+            LOG.warn("Ingest queue of data table [{}] is full. Asking tap [{}] to retry in <{}> seconds.",
+                    tableName, tap.getUuid(), RETRY_AFTER_SECONDS);
+
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+
+        return Response.status(Response.Status.ACCEPTED).build();
     }
 
 }
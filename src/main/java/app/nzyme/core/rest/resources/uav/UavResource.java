@@ -69,9 +69,8 @@ public class UavResource extends TapDataHandlingResource {
         long total = nzyme.getUav().countAllUavs(timeRange, taps);
         List<UavSummaryResponse> uavs = Lists.newArrayList();
 
-        List<UavTypeEntry> customTypes = nzyme.getUav().findAllCustomTypes(organizationId, tenantId);
         for (UavEntry uav : nzyme.getUav().findAllUavsOfTenant(timeRange, limit, offset, organizationId, tenantId, taps)) {
-            uavs.add(uavEntryToSummaryResponse(uav, nzyme.getUav().matchUavType(customTypes, uav.idSerial())));
+            uavs.add(uavEntryToSummaryResponse(uav, nzyme.getUav().matchUavType(uav.idSerial(), tenantId, organizationId)));
         }
 
         return Response.ok(UavListResponse.create(total, uavs)).build();
@@ -0,0 +1,59 @@
+package app.nzyme.core.rest.responses.system.database;
+
+import app.nzyme.core.rest.responses.metrics.TimerResponse;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+@AutoValue
+public abstract class DatabaseConnectionPoolResponse {
+
+    @JsonProperty("active")
+    public abstract int active();
+
+    @JsonProperty("idle")
+    public abstract int idle();
+
+    @JsonProperty("waiting")
+    public abstract int waiting();
+
+    @JsonProperty("total")
+    public abstract int total();
+
+    @JsonProperty("max_size")
+    public abstract int maxSize();
+
+    @JsonProperty("acquire_timing")
+    public abstract TimerResponse acquireTiming();
+
+    public static DatabaseConnectionPoolResponse create(int active, int idle, int waiting, int total, int maxSize, TimerResponse acquireTiming) {
+        return builder()
+                .active(active)
+                .idle(idle)
+                .waiting(waiting)
+                .total(total)
+                .maxSize(maxSize)
+                .acquireTiming(acquireTiming)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_DatabaseConnectionPoolResponse.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder active(int active);
+
+        public abstract Builder idle(int idle);
+
+        public abstract Builder waiting(int waiting);
+
+        public abstract Builder total(int total);
+
+        public abstract Builder maxSize(int maxSize);
+
+        public abstract Builder acquireTiming(TimerResponse acquireTiming);
+
+        public abstract DatabaseConnectionPoolResponse build();
+    }
+}
@@ -11,10 +11,13 @@ import app.nzyme.core.security.authentication.db.TenantEntry;
 import app.nzyme.core.security.authentication.db.UserEntry;
 import app.nzyme.core.security.sessions.db.SessionEntry;
 import app.nzyme.core.security.sessions.db.SessionEntryWithUserDetails;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.BaseEncoding;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -36,8 +39,11 @@ public class AuthenticationService {
 
     public final NzymeNode nzyme;
 
+    private final TapSecretIndex tapSecretIndex;
+
     public AuthenticationService(NzymeNode nzyme) {
         this.nzyme = nzyme;
+        this.tapSecretIndex = new TapSecretIndex(this::findAllTapsBySecret, nzyme.getMetrics());
     }
 
     public void initialize() {
@@ -882,7 +888,7 @@ public class AuthenticationService {
             throw new RuntimeException("Could not encrypt tap secret.", e);
         }
 
-        return nzyme.getDatabase().withHandle(handle ->
+        TapPermissionEntry tap = nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("INSERT INTO taps(uuid, organization_id, tenant_id, secret, name, " +
                                 "description, latitude, longitude, deleted, created_at, updated_at) " +
                                 "VALUES(:uuid, :organization_id, :tenant_id, :secret, :name, :description, " +
@@ -900,6 +906,10 @@ public class AuthenticationService {
                         .mapTo(TapPermissionEntry.class)
                         .one()
         );
+
+        invalidateTapSecretIndexClusterWide();
+
+        return tap;
     }
 
     public List<TapPermissionEntry> findAllTapsOfTenant(UUID organizationId, UUID tenantId) {
@@ -936,9 +946,17 @@ public class AuthenticationService {
     }
 
     public Optional<TapPermissionEntry> findTapBySecret(String secret) {
+        return tapSecretIndex.find(secret);
+    }
+
+    public void invalidateTapSecretIndex() {
+        tapSecretIndex.invalidate();
+    }
+
+    private Map<String, TapPermissionEntry> findAllTapsBySecret() {
         /*
-         * We have to pull all taps here and then loop over them because the secret is encrypted, and we can't use
-         * a SELECT WHERE with a non-deterministic encryption like PGP.
+         * We have to pull all taps here and decrypt their secrets because the secret is encrypted, and we can't use
+         * a SELECT WHERE with a non-deterministic encryption like PGP. This only runs to rebuild the tap secret index.
          */
 
         List<TapPermissionEntry> taps = nzyme.getDatabase().withHandle(handle ->
@@ -947,6 +965,7 @@ public class AuthenticationService {
                         .list()
         );
 
+        Map<String, TapPermissionEntry> result = Maps.newHashMap();
         for (TapPermissionEntry tap : taps) {
             try {
                 String decryptedSecret = new String(
@@ -955,15 +974,24 @@ public class AuthenticationService {
                         )
                 );
 
-                if (secret.equals(decryptedSecret)) {
-                    return Optional.of(tap);
-                }
-            } catch (Crypto.CryptoOperationException e) {
-                throw new RuntimeException("Could not decrypt tap key.", e);
+                result.put(decryptedSecret, tap);
+            } catch (Crypto.CryptoOperationException | RuntimeException e) {
+                // Don't lock out all other taps because of one broken secret.
+                LOG.error("Could not decrypt secret of tap [{}]. Skipping tap.", tap.uuid(), e);
             }
         }
 
-        return Optional.empty();
+        return result;
+    }
+
+    private void invalidateTapSecretIndexClusterWide() {
+        invalidateTapSecretIndex();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "tap_secrets"),
+                false
+        ));
     }
 
     public void deleteTap(UUID organizationId, UUID tenantId, UUID tapId) {
@@ -981,6 +1009,8 @@ public class AuthenticationService {
                         .bind("uuid", tapId)
                         .execute()
         );
+
+        invalidateTapSecretIndexClusterWide();
     }
 
     public void editTap(UUID organizationId,
@@ -1003,6 +1033,8 @@ public class AuthenticationService {
                         .bind("uuid", tapId)
                         .execute()
         );
+
+        invalidateTapSecretIndexClusterWide();
     }
 
     public void cycleTapSecret(UUID organizationId, UUID tenantId, UUID tapId, String newSecret) {
@@ -1022,6 +1054,8 @@ public class AuthenticationService {
                         .bind("uuid", tapId)
                         .execute()
         );
+
+        invalidateTapSecretIndexClusterWide();
     }
 
     public List<TenantLocationEntry> findAllTenantLocations(UUID organizationId, UUID tenantId, int limit, int offset) {
@@ -0,0 +1,111 @@
+package app.nzyme.core.security.authentication;
+
+import app.nzyme.core.security.authentication.db.TapPermissionEntry;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory index of all active taps, keyed by an HMAC of their secret. Tap secrets are stored with non-deterministic
+ * PGP encryption, so without this index every tap authentication would have to decrypt the secrets of all taps.
+ *
+ * The HMAC key is random and never leaves this node. The index is rebuilt lazily after every invalidation.
+ */
+public class TapSecretIndex {
+
+    private static final Logger LOG = LogManager.getLogger(TapSecretIndex.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Supplier<Map<String, TapPermissionEntry>> loader;
+    private final SecretKeySpec key;
+    private final Timer authenticationTimer;
+
+    private final AtomicLong generation = new AtomicLong(0);
+
+    @Nullable
+    private volatile Map<String, TapPermissionEntry> index = null;
+
+    /**
+     * @param loader Supplies all active taps, keyed by their plaintext secret.
+     */
+    public TapSecretIndex(Supplier<Map<String, TapPermissionEntry>> loader, MetricRegistry metrics) {
+        this.loader = loader;
+        this.authenticationTimer = metrics.timer(MetricNames.TAP_AUTHENTICATION_TIMER);
+
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    public Optional<TapPermissionEntry> find(String secret) {
+        try (Timer.Context ignored = authenticationTimer.time()) {
+            return Optional.ofNullable(getIndex().get(hash(secret)));
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        index = null;
+    }
+
+    private Map<String, TapPermissionEntry> getIndex() {
+        Map<String, TapPermissionEntry> current = index;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = index;
+            if (current != null) {
+                return current;
+            }
+
+            long loadedGeneration = generation.get();
+
+            ImmutableMap.Builder<String, TapPermissionEntry> rebuilt = ImmutableMap.builder();
+            for (Map.Entry<String, TapPermissionEntry> tap : loader.get().entrySet()) {
+                try {
+                    rebuilt.put(hash(tap.getKey()), tap.getValue());
+                } catch (RuntimeException e) {
+                    LOG.error("Could not index secret of tap [{}]. Skipping tap.", tap.getValue().uuid(), e);
+                }
+            }
+            current = rebuilt.buildKeepingLast();
+
+            // Don't publish the index if it was invalidated while we were loading it.
+            if (generation.get() == loadedGeneration) {
+                index = current;
+            }
+
+            LOG.debug("Rebuilt tap secret index with <{}> taps.", current.size());
+            return current;
+        }
+    }
+
+    private String hash(String secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return BaseEncoding.base16().encode(mac.doFinal(secret.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Could not hash tap secret.", e);
+        }
+    }
+
+}
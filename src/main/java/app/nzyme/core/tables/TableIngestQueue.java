@@ -0,0 +1,120 @@
+/*
+ * This file is part of nzyme.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+
+package app.nzyme.core.tables;
+
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Bounded queue and worker pool that decouples the acceptance of a tap table report from its persistence. A report
+ * is rejected instead of queued if the queue is full, so the tap can back off and retry later.
+ */
+public class TableIngestQueue {
+
+    private static final Logger LOG = LogManager.getLogger(TableIngestQueue.class);
+
+    private final String tableName;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer queueLatencyTimer;
+    private final Timer processingTimer;
+    private final Meter rejectedMeter;
+
+    public TableIngestQueue(String tableName, int workers, int capacity, MetricRegistry metrics) {
+        this.tableName = tableName;
+
+        this.executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("tables-ingest-" + tableName + "-%d")
+                        .setDaemon(true)
+                        .build(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        metrics.register(name(MetricNames.TABLES_INGEST_QUEUE_DEPTH, tableName),
+                (Gauge<Integer>) () -> executor.getQueue().size());
+        this.queueLatencyTimer = metrics.timer(name(MetricNames.TABLES_INGEST_QUEUE_LATENCY, tableName));
+        this.processingTimer = metrics.timer(name(MetricNames.TABLES_INGEST_PROCESSING_TIMER, tableName));
+        this.rejectedMeter = metrics.meter(name(MetricNames.TABLES_INGEST_REJECTED, tableName));
+    }
+
+    /**
+     * Queues a report for asynchronous processing.
+     *
+     * @return false if the queue is full or shut down and the report was not accepted.
+     */
+    public boolean submit(UUID tapUuid, Runnable processor) {
+        long enqueuedAt = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                queueLatencyTimer.update(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+
+                try (Timer.Context ignored = processingTimer.time()) {
+                    processor.run();
+                } catch (Exception e) {
+                    LOG.error("Could not process [{}] table report of tap [{}].", tableName, tapUuid, e);
+                }
+            });
+
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedMeter.mark();
+            LOG.debug("Rejecting [{}] table report of tap [{}]: Ingest queue is full.", tableName, tapUuid);
+            return false;
+        }
+    }
+
+    public int getDepth() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                LOG.warn("Ingest queue of table [{}] did not drain in time. Dropping <{}> queued reports.",
+                        tableName, executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
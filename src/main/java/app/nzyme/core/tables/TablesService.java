@@ -31,6 +31,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +43,7 @@ public class TablesService {
     private final NzymeNode nzyme;
 
     private final Map<String, DataTable> tables;
+    private final Map<String, TableIngestQueue> ingestQueues;
 
     private final ExecutorService processorPool;
 
@@ -58,6 +60,14 @@ public class TablesService {
                 .put("uav", new UAVTable(this))
                 .build();
 
+        int ingestWorkers = nzyme.getConfiguration().performance().reportIngestWorkers().orElse(2); // Default: 2
+        int ingestQueueSize = nzyme.getConfiguration().performance().reportIngestQueueSize().orElse(250); // Default: 250
+        ImmutableMap.Builder<String, TableIngestQueue> queues = new ImmutableMap.Builder<>();
+        for (String tableName : tables.keySet()) {
+            queues.put(tableName, new TableIngestQueue(tableName, ingestWorkers, ingestQueueSize, nzyme.getMetrics()));
+        }
+        this.ingestQueues = queues.build();
+
         this.processorPool = Executors.newFixedThreadPool(
                 nzyme.getConfiguration().performance().reportProcessorPoolSize(),
                 new ThreadFactoryBuilder()
@@ -82,6 +92,28 @@ public class TablesService {
 
     }
 
+    /**
+     * Accepts a tap report for asynchronous processing in the ingest queue of the given table.
+     *
+     * @return false if the ingest queue of the table is full and the tap should retry later.
+     */
+    public boolean submitReport(String tableName, UUID tapUuid, Runnable processor) {
+        TableIngestQueue queue = ingestQueues.get(tableName);
+
+        if (queue == null) {
+            throw new IllegalArgumentException("Unknown data table [" + tableName + "].");
+        }
+
+        return queue.submit(tapUuid, processor);
+    }
+
+    public void shutdown() {
+        for (Map.Entry<String, TableIngestQueue> queue : ingestQueues.entrySet()) {
+            LOG.info("Draining ingest queue of data table [{}].", queue.getKey());
+            queue.getValue().shutdown(10, TimeUnit.SECONDS);
+        }
+    }
+
     public Dot11Table dot11() {
         return (Dot11Table) tables.get("dot11");
     }
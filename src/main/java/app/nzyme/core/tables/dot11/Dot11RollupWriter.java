@@ -0,0 +1,188 @@
+package app.nzyme.core.tables.dot11;
+
+import app.nzyme.core.dot11.rollups.Dot11RollupResolution;
+import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11AdvertisedNetworkReport;
+import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11BSSIDReport;
+import app.nzyme.core.rest.resources.taps.reports.tables.dot11.Dot11SecurityInformationReport;
+import app.nzyme.core.util.Tools;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.joda.time.DateTime;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Adds a tap report to the per-minute and per-hour BSSID and SSID rollups. Rows of the same bucket are merged:
+ * Counters are summed and sets (SSIDs, fingerprints, clients, ...) are unioned.
+ */
+public class Dot11RollupWriter {
+
+    public void write(Handle handle, UUID tapUuid, DateTime timestamp, Map<String, Dot11BSSIDReport> bssids) {
+        if (bssids.isEmpty()) {
+            return;
+        }
+
+        // Sorted, so concurrent writers always lock rollup rows in the same order.
+        Map<String, Dot11BSSIDReport> sorted = new TreeMap<>(bssids);
+
+        for (Dot11RollupResolution resolution : Dot11RollupResolution.values()) {
+            writeBSSIDs(handle, resolution, tapUuid, timestamp, sorted);
+            writeSSIDs(handle, resolution, tapUuid, timestamp, sorted);
+        }
+    }
+
+    private void writeBSSIDs(Handle handle,
+                             Dot11RollupResolution resolution,
+                             UUID tapUuid,
+                             DateTime timestamp,
+                             Map<String, Dot11BSSIDReport> bssids) {
+        PreparedBatch batch = handle.prepareBatch("INSERT INTO <table> AS r (tap_uuid, bssid, bucket, " +
+                "signal_strength_sum, signal_strength_count, hidden_ssid_frames, first_seen, last_seen, ssids, " +
+                "fingerprints, security_protocols, infrastructure_types, client_macs) " +
+                "VALUES(:tap_uuid, :bssid, DATE_TRUNC(:resolution, :timestamp::timestamptz), :signal_strength, 1, " +
+                ":hidden_ssid_frames, :timestamp, :timestamp, :ssids::text[], :fingerprints::text[], " +
+                ":security_protocols::text[], :infrastructure_types::text[], :client_macs::text[]) " +
+                "ON CONFLICT (tap_uuid, bssid, bucket) DO UPDATE SET " +
+                "signal_strength_sum = r.signal_strength_sum + EXCLUDED.signal_strength_sum, " +
+                "signal_strength_count = r.signal_strength_count + EXCLUDED.signal_strength_count, " +
+                "hidden_ssid_frames = r.hidden_ssid_frames + EXCLUDED.hidden_ssid_frames, " +
+                "first_seen = LEAST(r.first_seen, EXCLUDED.first_seen), " +
+                "last_seen = GREATEST(r.last_seen, EXCLUDED.last_seen), " +
+                "ssids = nzyme_array_distinct(r.ssids || EXCLUDED.ssids), " +
+                "fingerprints = nzyme_array_distinct(r.fingerprints || EXCLUDED.fingerprints), " +
+                "security_protocols = nzyme_array_distinct(r.security_protocols || EXCLUDED.security_protocols), " +
+                "infrastructure_types = nzyme_array_distinct(r.infrastructure_types || " +
+                "EXCLUDED.infrastructure_types), " +
+                "client_macs = nzyme_array_distinct(r.client_macs || EXCLUDED.client_macs)")
+                .define("table", resolution.getBssidTable());
+
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
+            String bssid = entry.getKey();
+            Dot11BSSIDReport report = entry.getValue();
+
+            Set<String> ssids = new TreeSet<>();
+            Set<String> securityProtocols = new TreeSet<>();
+            Set<String> infrastructureTypes = new TreeSet<>();
+            for (Map.Entry<String, Dot11AdvertisedNetworkReport> network : report.advertisedNetworks().entrySet()) {
+                String ssid = Tools.sanitizeSSID(network.getKey());
+                if (ssid.isEmpty()) {
+                    // Hidden SSID. Not written to dot11_ssids either.
+                    continue;
+                }
+
+                ssids.add(ssid);
+
+                for (Dot11SecurityInformationReport sec : network.getValue().security()) {
+                    if (sec.protocols().isEmpty()) {
+                        securityProtocols.add("None");
+                    } else {
+                        securityProtocols.addAll(sec.protocols());
+                    }
+                }
+
+                for (String infrastructureType : network.getValue().infrastructureTypes()) {
+                    infrastructureTypes.add(infrastructureType.toLowerCase());
+                }
+            }
+
+            if (securityProtocols.isEmpty()) {
+                securityProtocols.add("None");
+            }
+
+            Set<String> clientMacs = new TreeSet<>(report.clients().keySet());
+            clientMacs.remove(bssid); // Don't record BSSID itself.
+
+            batch.bind("tap_uuid", tapUuid)
+                    .bind("bssid", bssid)
+                    .bind("resolution", resolution.getDateTruncName())
+                    .bind("timestamp", timestamp)
+                    .bind("signal_strength", report.signalStrength().average())
+                    .bind("hidden_ssid_frames", report.hiddenSSIDFrames())
+                    .bindArray("ssids", String.class, ssids)
+                    .bindArray("fingerprints", String.class, Sets.newTreeSet(report.fingerprints()))
+                    .bindArray("security_protocols", String.class, securityProtocols)
+                    .bindArray("infrastructure_types", String.class, infrastructureTypes)
+                    .bindArray("client_macs", String.class, clientMacs)
+                    .add();
+        }
+
+        batch.execute();
+    }
+
+    private void writeSSIDs(Handle handle,
+                            Dot11RollupResolution resolution,
+                            UUID tapUuid,
+                            DateTime timestamp,
+                            Map<String, Dot11BSSIDReport> bssids) {
+        PreparedBatch batch = handle.prepareBatch("INSERT INTO <table> AS r (tap_uuid, bssid, ssid, bucket, " +
+                "signal_strength_sum, signal_strength_count, beacon_advertisements, proberesp_advertisements, " +
+                "first_seen, last_seen) VALUES(:tap_uuid, :bssid, :ssid, " +
+                "DATE_TRUNC(:resolution, :timestamp::timestamptz), :signal_strength_sum, :signal_strength_count, " +
+                ":beacon_advertisements, :proberesp_advertisements, :timestamp, :timestamp) " +
+                "ON CONFLICT (tap_uuid, bssid, ssid, bucket) DO UPDATE SET " +
+                "signal_strength_sum = r.signal_strength_sum + EXCLUDED.signal_strength_sum, " +
+                "signal_strength_count = r.signal_strength_count + EXCLUDED.signal_strength_count, " +
+                "beacon_advertisements = r.beacon_advertisements + EXCLUDED.beacon_advertisements, " +
+                "proberesp_advertisements = r.proberesp_advertisements + EXCLUDED.proberesp_advertisements, " +
+                "first_seen = LEAST(r.first_seen, EXCLUDED.first_seen), " +
+                "last_seen = GREATEST(r.last_seen, EXCLUDED.last_seen)")
+                .define("table", resolution.getSsidTable());
+
+        int rows = 0;
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
+            String bssid = entry.getKey();
+
+            // Different raw SSIDs can sanitize to the same SSID. Merge them into one row.
+            Map<String, SSIDTotals> totals = Maps.newTreeMap();
+            for (Map.Entry<String, Dot11AdvertisedNetworkReport> network
+                    : entry.getValue().advertisedNetworks().entrySet()) {
+                String ssid = Tools.sanitizeSSID(network.getKey());
+                if (ssid.isEmpty()) {
+                    continue;
+                }
+
+                totals.computeIfAbsent(ssid, s -> new SSIDTotals()).add(network.getValue());
+            }
+
+            for (Map.Entry<String, SSIDTotals> ssid : totals.entrySet()) {
+                SSIDTotals t = ssid.getValue();
+                batch.bind("tap_uuid", tapUuid)
+                        .bind("bssid", bssid)
+                        .bind("ssid", ssid.getKey())
+                        .bind("resolution", resolution.getDateTruncName())
+                        .bind("timestamp", timestamp)
+                        .bind("signal_strength_sum", t.signalStrengthSum)
+                        .bind("signal_strength_count", t.signalStrengthCount)
+                        .bind("beacon_advertisements", t.beaconAdvertisements)
+                        .bind("proberesp_advertisements", t.probeResponseAdvertisements)
+                        .add();
+                rows++;
+            }
+        }
+
+        if (rows > 0) {
+            batch.execute();
+        }
+    }
+
+    private static final class SSIDTotals {
+        double signalStrengthSum;
+        long signalStrengthCount;
+        long beaconAdvertisements;
+        long probeResponseAdvertisements;
+
+        void add(Dot11AdvertisedNetworkReport report) {
+            signalStrengthSum += report.signalStrength().average();
+            signalStrengthCount++;
+            beaconAdvertisements += report.beaconAdvertisements();
+            probeResponseAdvertisements += report.probeResponseAdvertisements();
+        }
+    }
+
+}
@@ -3,16 +3,18 @@ package app.nzyme.core.tables.dot11;
 import app.nzyme.core.NzymeNode;
 import app.nzyme.core.database.DataCategory;
 import app.nzyme.core.database.DatabaseImpl;
+import app.nzyme.core.database.DatabaseTools;
+import app.nzyme.core.database.PostgresCopyBuffer;
 import app.nzyme.core.detection.alerts.DetectionType;
 import app.nzyme.core.dot11.Dot11;
 import app.nzyme.core.dot11.Dot11RegistryKeys;
-import app.nzyme.core.dot11.db.monitoring.*;
 import app.nzyme.core.dot11.bandits.Dot11BanditDescription;
 import app.nzyme.core.dot11.bandits.Dot11Bandits;
 import app.nzyme.core.dot11.db.monitoring.probereq.MonitoredProbeRequestEntry;
 import app.nzyme.core.rest.resources.taps.reports.tables.dot11.*;
 import app.nzyme.core.tables.DataTable;
 import app.nzyme.core.tables.TablesService;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshot;
 import app.nzyme.core.tables.dot11.monitoring.PreLoadedMonitoredBSSID;
 import app.nzyme.core.tables.dot11.monitoring.PreLoadedMonitoredSSID;
 import app.nzyme.core.taps.Tap;
@@ -28,16 +30,15 @@ import info.debatty.java.stringsimilarity.JaroWinkler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jdbi.v3.core.Handle;
-import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
 import com.codahale.metrics.Timer;
 
+import java.io.IOException;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
-import java.util.stream.Collectors;
 
 public class Dot11Table implements DataTable {
 
@@ -45,6 +46,7 @@ public class Dot11Table implements DataTable {
 
     private final TablesService tablesService;
     private final ObjectMapper om;
+    private final Dot11RollupWriter rollupWriter;
 
     private final Timer totalReportTimer;
     private final Timer bssidReportTimer;
@@ -55,6 +57,7 @@ public class Dot11Table implements DataTable {
     public Dot11Table(TablesService tablesService) {
         this.tablesService = tablesService;
         this.om = new ObjectMapper();
+        this.rollupWriter = new Dot11RollupWriter();
 
         this.totalReportTimer = tablesService.getNzyme().getMetrics()
                 .timer(MetricNames.DOT11_TOTAL_REPORT_PROCESSING_TIMER);
@@ -77,16 +80,29 @@ public class Dot11Table implements DataTable {
                 return;
             }
 
-            try (Timer.Context ignored2 = bssidReportTimer.time()) {
-                writeBSSIDs(tap.get(), timestamp, report.bssids(), tap.get().organizationId(), tap.get().tenantId());
-            }
+            // All rows of a report are written in a single transaction.
+            try {
+                Dot11MonitoringSnapshot monitoring = tablesService.getNzyme().getDot11()
+                        .getMonitoringSnapshot(tap.get().organizationId(), tap.get().tenantId());
 
-            try (Timer.Context ignored2 = clientsReportTimer.time()) {
-                writeClients(tap.get(), timestamp, report.clients());
-            }
+                tablesService.getNzyme().getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+                    try (Timer.Context ignored2 = bssidReportTimer.time()) {
+                        writeBSSIDs(tx, tap.get(), timestamp, report.bssids(), monitoring);
+                    }
+
+                    try (Timer.Context ignored2 = clientsReportTimer.time()) {
+                        writeClients(tx, tap.get(), timestamp, report.clients(), monitoring);
+                    }
 
-            try (Timer.Context ignored2 = discoReportTimer.time()) {
-                writeDisco(tap.get(), timestamp, report.disco());
+                    try (Timer.Context ignored2 = discoReportTimer.time()) {
+                        writeDisco(tx, tap.get(), timestamp, report.disco());
+                    }
+                }));
+
+                tablesService.getNzyme().getDot11().getDiscoMonitor()
+                        .recordReport(tap.get(), timestamp, report.disco(), monitoring);
+            } catch (Exception e) {
+                LOG.error("Could not write 802.11 report of tap [{}].", tapUuid, e);
             }
 
             try (Timer.Context ignored2 = alertTimer.time()) {
@@ -95,633 +111,508 @@ public class Dot11Table implements DataTable {
         }
     }
 
-    private void writeClients(Tap tap, DateTime timestamp, Map<String, Dot11ClientReport> clients) {
-        Map<String, MonitoredProbeRequestEntry> monitoredProbeRequests = tablesService.getNzyme().getDot11()
-                .findAllMonitoredProbeRequests(tap.organizationId(), tap.tenantId(), Integer.MAX_VALUE, 0)
-                .stream()
-                .collect(Collectors.toMap(MonitoredProbeRequestEntry::ssid, entry -> entry));
+    private void writeClients(Handle handle,
+                              Tap tap,
+                              DateTime timestamp,
+                              Map<String, Dot11ClientReport> clients,
+                              Dot11MonitoringSnapshot monitoring) throws SQLException, IOException {
+        Map<String, MonitoredProbeRequestEntry> monitoredProbeRequests = monitoring.monitoredProbeRequests();
+
+        PostgresCopyBuffer clientRows = new PostgresCopyBuffer("dot11_clients",
+                "id", "tap_uuid", "client_mac", "client_mac_is_randomized", "wildcard_probe_requests",
+                "signal_strength_average", "signal_strength_max", "signal_strength_min", "created_at");
+        PostgresCopyBuffer probeRequestRows = new PostgresCopyBuffer("dot11_client_probereq_ssids",
+                "client_id", "ssid", "frame_count", "tap_uuid");
 
+        List<Long> clientIds = DatabaseTools.allocateIds(handle, "dot11_clients", clients.size());
+
+        int i = 0;
         for (Map.Entry<String, Dot11ClientReport> entry : clients.entrySet()) {
             String clientMac = entry.getKey();
             Dot11ClientReport report = entry.getValue();
-
-            long clientDatabaseId = tablesService.getNzyme().getDatabase().withHandle(handle ->
-                    handle.createQuery("INSERT INTO dot11_clients(tap_uuid, client_mac, client_mac_is_randomized, " +
-                                    "wildcard_probe_requests, signal_strength_average, signal_strength_max, " +
-                                    "signal_strength_min, created_at) VALUES(:tap_uuid, :client_mac, " +
-                                    ":client_mac_is_randomized, :wildcard_probe_requests, :signal_strength_average, " +
-                                    ":signal_strength_max, :signal_strength_min, :created_at) RETURNING id")
-                            .bind("tap_uuid", tap.uuid())
-                            .bind("client_mac", clientMac)
-                            .bind("client_mac_is_randomized", Tools.macAddressIsRandomized(clientMac))
-                            .bind("wildcard_probe_requests", report.wildcardProbeRequests())
-                            .bind("signal_strength_average", report.signalStrength().average())
-                            .bind("signal_strength_min", report.signalStrength().min())
-                            .bind("signal_strength_max", report.signalStrength().max())
-                            .bind("created_at", timestamp)
-                            .mapTo(Long.class)
-                            .one()
+            long clientDatabaseId = clientIds.get(i++);
+
+            clientRows.addRow(
+                    clientDatabaseId,
+                    tap.uuid(),
+                    clientMac,
+                    Tools.macAddressIsRandomized(clientMac),
+                    report.wildcardProbeRequests(),
+                    report.signalStrength().average(),
+                    report.signalStrength().max(),
+                    report.signalStrength().min(),
+                    timestamp
             );
 
-            tablesService.getNzyme().getDatabase().useHandle(handle -> {
-                PreparedBatch batch = handle.prepareBatch(
-                        "INSERT INTO dot11_client_probereq_ssids(client_id, ssid, frame_count, tap_uuid) " +
-                                "VALUES(:client_id, :ssid, :frame_count, :tap_uuid)"
-                );
+            for (Map.Entry<String, Long> pr : report.probeRequestSSIDs().entrySet()) {
+                String ssid = Tools.sanitizeSSID(pr.getKey());
 
-                for (Map.Entry<String, Long> pr : report.probeRequestSSIDs().entrySet()) {
-                    String ssid = Tools.sanitizeSSID(pr.getKey());
+                // Check if we are monitoring for this probe request SSID and raise alert if so.
+                if (monitoredProbeRequests.containsKey(ssid)) {
+                    // Raise alert.
+                    Map<String, String> attributes = Maps.newHashMap();
+                    attributes.put("ssid", ssid);
+                    attributes.put("client_mac", clientMac);
+
+                    tablesService.getNzyme().getDetectionAlertService().raiseAlert(
+                            tap.organizationId(),
+                            tap.tenantId(),
+                            null,
+                            tap.uuid(),
+                            DetectionType.DOT11_PROBEREQ,
+                            Subsystem.DOT11,
+                            "Monitored probe request for SSID \"" + ssid + "\" detected in range.",
+                            attributes,
+                            new String[]{"ssid"},
+                            report.signalStrength().average()
+                    );
+                }
 
-                    // Check if we are monitoring for this probe request SSID and raise alert if so.
-                    if (monitoredProbeRequests.containsKey(ssid)) {
-                        // Raise alert.
+                probeRequestRows.addRow(clientDatabaseId, ssid, pr.getValue(), tap.uuid());
+            }
+        }
+
+        clientRows.copyIn(handle);
+        probeRequestRows.copyIn(handle);
+    }
+
+    public void writeBSSIDs(Handle handle,
+                            Tap tap,
+                            DateTime timestamp,
+                            Map<String, Dot11BSSIDReport> bssids,
+                            Dot11MonitoringSnapshot monitoring) throws SQLException, IOException {
+        NzymeNode nzyme = tablesService.getNzyme();
+
+        PostgresCopyBuffer bssidRows = new PostgresCopyBuffer("dot11_bssids",
+                "id", "tap_uuid", "bssid", "oui", "signal_strength_average", "signal_strength_max",
+                "signal_strength_min", "hidden_ssid_frames", "created_at");
+        PostgresCopyBuffer bssidFingerprintRows = new PostgresCopyBuffer("dot11_fingerprints",
+                "fingerprint", "bssid_id");
+        PostgresCopyBuffer bssidClientRows = new PostgresCopyBuffer("dot11_bssid_clients",
+                "bssid_id", "client_mac", "tx_frames", "tx_bytes", "rx_frames", "rx_bytes",
+                "signal_strength_average", "signal_strength_min", "signal_strength_max");
+
+        List<Long> bssidIds = DatabaseTools.allocateIds(handle, "dot11_bssids", bssids.size());
+        List<SSIDProcessingTask> ssidProcessingTasks = Lists.newArrayList();
+
+        int i = 0;
+        for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
+            String bssid = entry.getKey();
+            Dot11BSSIDReport report = entry.getValue();
+            long bssidDatabaseId = bssidIds.get(i++);
+
+            bssidRows.addRow(
+                    bssidDatabaseId,
+                    tap.uuid(),
+                    bssid,
+                    null,
+                    report.signalStrength().average(),
+                    report.signalStrength().max(),
+                    report.signalStrength().min(),
+                    report.hiddenSSIDFrames(),
+                    timestamp
+            );
+
+            // BSSID Fingerprints.
+            for (String fingerprint : report.fingerprints()) {
+                bssidFingerprintRows.addRow(fingerprint, bssidDatabaseId);
+
+                // Is this a known bandit fingerprint?
+                for (Dot11BanditDescription bandit : monitoring.bandits()) {
+                    if (bandit.fingerprints() != null && bandit.fingerprints().contains(fingerprint)) {
                         Map<String, String> attributes = Maps.newHashMap();
-                        attributes.put("ssid", ssid);
-                        attributes.put("client_mac", clientMac);
+                        attributes.put("fingerprint", fingerprint);
+                        attributes.put("bssid", bssid);
+                        attributes.put("tap_uuid", tap.uuid().toString());
+                        attributes.put("bandit_name", bandit.name());
+                        attributes.put("bandit_description", bandit.description());
+                        attributes.put("bandit_is_custom", String.valueOf(bandit.isCustom()));
 
                         tablesService.getNzyme().getDetectionAlertService().raiseAlert(
                                 tap.organizationId(),
                                 tap.tenantId(),
                                 null,
                                 tap.uuid(),
-                                DetectionType.DOT11_PROBEREQ,
+                                DetectionType.DOT11_BANDIT_CONTACT,
                                 Subsystem.DOT11,
-                                "Monitored probe request for SSID \"" + ssid + "\" detected in range.",
+                                "Bandit \"" + bandit.name() + "\" advertising BSSID \"" + bssid + "\" " +
+                                        "detected in range.",
                                 attributes,
-                                new String[]{"ssid"},
+                                new String[]{"bssid", "fingerprint", "bandit_is_custom"},
                                 report.signalStrength().average()
                         );
                     }
+                }
+            }
 
-                    batch.bind("client_id", clientDatabaseId)
-                            .bind("ssid", ssid)
-                            .bind("frame_count", pr.getValue())
-                            .bind("tap_uuid", tap.uuid())
-                            .add();
+            // BSSID Clients.
+            for (Map.Entry<String, Dot11ClientStatisticsReport> client : report.clients().entrySet()) {
+                String mac = client.getKey();
+                Dot11ClientStatisticsReport stats = client.getValue();
+
+                if (!bssid.equals(mac)) { // Don't record BSSID itself.
+                    bssidClientRows.addRow(
+                            bssidDatabaseId,
+                            mac,
+                            stats.txFrames(),
+                            stats.txBytes(),
+                            stats.rxFrames(),
+                            stats.rxBytes(),
+                            stats.signalStrength().average(),
+                            stats.signalStrength().average(),
+                            stats.signalStrength().average()
+                    );
                 }
+            }
 
-                batch.execute();
-            });
+            // Pre-process all SSIDs.
+            for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssidEntry : report.advertisedNetworks().entrySet()) {
+                ssidProcessingTasks.add(SSIDProcessingTask.create(
+                        bssid, ssidEntry.getKey(), ssidEntry.getValue(), bssidDatabaseId, tap, timestamp
+                ));
+            }
         }
-    }
 
-    public void writeBSSIDs(Tap tap, DateTime timestamp,
-                            Map<String, Dot11BSSIDReport> bssids,
-                            UUID organizationId,
-                            UUID tenantId) {
-        // Collect all monitored SSIDs and their attributes.
-        Map<String, PreLoadedMonitoredSSID> monitoredSSIDs = Maps.newHashMap();
-        List<String> monitoredSSIDNames = Lists.newArrayList();
-        NzymeNode nzyme = tablesService.getNzyme();
+        bssidRows.copyIn(handle);
+        bssidFingerprintRows.copyIn(handle);
+        bssidClientRows.copyIn(handle);
 
-        nzyme.getDatabase().useHandle(handle -> {
-            for (MonitoredSSID s : nzyme.getDot11().findAllMonitoredSSIDs(tap.organizationId(), tap.tenantId())) {
-                if (!s.isEnabled()) {
-                    continue;
-                }
+        writeSSIDs(nzyme, handle, monitoring, ssidProcessingTasks);
 
-                monitoredSSIDNames.add(s.ssid());
+        rollupWriter.write(handle, tap.uuid(), timestamp, bssids);
+    }
 
-                Map<String, PreLoadedMonitoredBSSID> preLoadedBSSIDs = Maps.newHashMap();
-                for (MonitoredBSSID b : nzyme.getDot11().findMonitoredBSSIDsOfMonitoredNetwork(s.id())) {
-                    List<String> fingerprints = Lists.newArrayList();
-                    for (MonitoredFingerprint f : nzyme.getDot11().findMonitoredFingerprintsOfMonitoredBSSID(b.id())) {
-                        fingerprints.add(f.fingerprint());
-                    }
+    private void writeSSIDs(NzymeNode nzyme,
+                            Handle handle,
+                            Dot11MonitoringSnapshot monitoring,
+                            List<SSIDProcessingTask> tasks) throws SQLException, IOException {
+        /*
+         * Replace all non-printable characters. If all characters were sanitized away, this is a hidden SSID.
+         * (some access points build hidden SSIDs this way)
+         */
+        List<SSIDProcessingTask> visibleTasks = Lists.newArrayList();
+        List<String> sanitizedSSIDs = Lists.newArrayList();
+        for (SSIDProcessingTask task : tasks) {
+            String ssid = Tools.sanitizeSSID(task.ssid());
+            if (!ssid.isEmpty()) {
+                visibleTasks.add(task);
+                sanitizedSSIDs.add(ssid);
+            }
+        }
 
-                    preLoadedBSSIDs.put(b.bssid(), PreLoadedMonitoredBSSID.create(b.bssid(), fingerprints));
-                }
+        SSIDRows rows = new SSIDRows();
+        List<Long> ssidIds = DatabaseTools.allocateIds(handle, "dot11_ssids", visibleTasks.size());
 
-                List<Integer> preLoadedChannels = Lists.newArrayList();
-                for (MonitoredChannel c : nzyme.getDot11().findMonitoredChannelsOfMonitoredNetwork(s.id())) {
-                    preLoadedChannels.add((int) c.frequency());
-                }
+        for (int i = 0; i < visibleTasks.size(); i++) {
+            SSIDProcessingTask task = visibleTasks.get(i);
+            String ssid = sanitizedSSIDs.get(i);
 
-                List<String> preLoadedSecuritySuites = Lists.newArrayList();
-                for (MonitoredSecuritySuite ss : nzyme.getDot11().findMonitoredSecuritySuitesOfMonitoredNetwork(s.id())) {
-                    preLoadedSecuritySuites.add(ss.securitySuite());
-                }
+            addSSIDRows(rows, ssidIds.get(i), ssid, task);
 
-                monitoredSSIDs.put(s.ssid(), PreLoadedMonitoredSSID.create(
-                        s.id(),
-                        s.uuid(),
-                        s.ssid(),
-                        preLoadedBSSIDs,
-                        preLoadedChannels,
-                        preLoadedSecuritySuites,
-                        s.enabledUnexpectedBSSID(),
-                        s.enabledUnexpectedChannel(),
-                        s.enabledUnexpectedSecuritySuites(),
-                        s.enabledUnexpectedFingerprint(),
-                        s.enabledUnexpectedSignalTracks(),
-                        s.enabledSimilarLookingSSID(),
-                        s.enabledSSIDSubstring(),
-                        s.detectionConfigSimilarLookingSSIDThreshold()
-                ));
+            try {
+                monitorSSID(nzyme, monitoring, ssid, task);
+            } catch (Exception e) {
+                LOG.error("Could not run monitoring checks of SSID.", e);
             }
+        }
 
+        rows.copyIn(handle);
+    }
 
-            // Load all bandits.
-            List<Dot11BanditDescription> bandits = Lists.newArrayList(Dot11Bandits.BUILT_IN);
-            for (CustomBanditDescription bandit : nzyme.getDot11()
-                    .findAllCustomBandits(organizationId, tenantId, Integer.MAX_VALUE, 0)) {
-                List<String> fingerprints = nzyme.getDot11().findFingerprintsOfCustomBandit(bandit.id());
-
-                bandits.add(Dot11BanditDescription.create(
-                        bandit.uuid().toString(),
-                        true,
-                        bandit.name(),
-                        bandit.description(),
-                        fingerprints
-                ));
-            }
+    private void addSSIDRows(SSIDRows rows, long ssidDatabaseId, String ssid, SSIDProcessingTask task) {
+        rows.ssids.addRow(
+                ssidDatabaseId,
+                task.bssidDatabaseId(),
+                task.tap().uuid(),
+                ssid,
+                task.bssid(),
+                task.ssidReport().signalStrength().average(),
+                task.ssidReport().signalStrength().max(),
+                task.ssidReport().signalStrength().min(),
+                task.ssidReport().beaconAdvertisements(),
+                task.ssidReport().probeResponseAdvertisements(),
+                task.timestamp()
+        );
 
-            List<SSIDProcessingTask> ssidProcessingTasks = Lists.newArrayList();
-
-            for (Map.Entry<String, Dot11BSSIDReport> entry : bssids.entrySet()) {
-                String bssid = entry.getKey();
-                Dot11BSSIDReport report = entry.getValue();
-
-                long bssidDatabaseId = handle.createQuery(
-                        "INSERT INTO dot11_bssids(tap_uuid, bssid, oui, " +
-                                "signal_strength_average, signal_strength_max, signal_strength_min, " +
-                                "hidden_ssid_frames, created_at) VALUES(:tap_uuid, :bssid, NULL, " +
-                                ":signal_strength_average, :signal_strength_max, :signal_strength_min, " +
-                                ":hidden_ssid_frames, :created_at) RETURNING id")
-                        .bind("tap_uuid", tap.uuid())
-                        .bind("bssid", bssid)
-                        .bind("signal_strength_average", report.signalStrength().average())
-                        .bind("signal_strength_max", report.signalStrength().max())
-                        .bind("signal_strength_min", report.signalStrength().min())
-                        .bind("hidden_ssid_frames", report.hiddenSSIDFrames())
-                        .bind("created_at", timestamp)
-                        .mapTo(Long.class)
-                        .one();
-
-                // BSSID Fingerprints.
-                PreparedBatch fingerprintBatch = handle.prepareBatch(
-                        "INSERT INTO dot11_fingerprints(fingerprint, bssid_id) " +
-                                "VALUES(:fingerprint, :bssid_id)");
-                for (String fingerprint : report.fingerprints()) {
-                    fingerprintBatch
-                            .bind("fingerprint", fingerprint)
-                            .bind("bssid_id", bssidDatabaseId)
-                            .add();
-
-                    // Is this a known bandit fingerprint?
-                    for (Dot11BanditDescription bandit : bandits) {
-                        if (bandit.fingerprints() != null && bandit.fingerprints().contains(fingerprint)) {
-                            Map<String, String> attributes = Maps.newHashMap();
-                            attributes.put("fingerprint", fingerprint);
-                            attributes.put("bssid", bssid);
-                            attributes.put("tap_uuid", tap.uuid().toString());
-                            attributes.put("bandit_name", bandit.name());
-                            attributes.put("bandit_description", bandit.description());
-                            attributes.put("bandit_is_custom", String.valueOf(bandit.isCustom()));
-
-                            tablesService.getNzyme().getDetectionAlertService().raiseAlert(
-                                    tap.organizationId(),
-                                    tap.tenantId(),
-                                    null,
-                                    tap.uuid(),
-                                    DetectionType.DOT11_BANDIT_CONTACT,
-                                    Subsystem.DOT11,
-                                    "Bandit \"" + bandit.name() + "\" advertising BSSID \"" + bssid + "\" " +
-                                            "detected in range.",
-                                    attributes,
-                                    new String[]{"bssid", "fingerprint", "bandit_is_custom"},
-                                    report.signalStrength().average()
-                            );
-                        }
-                    }
-                }
-                fingerprintBatch.execute();
-
-                // BSSID Clients.
-                PreparedBatch bssidClientsBatch = handle.prepareBatch(
-                        "INSERT INTO dot11_bssid_clients(bssid_id, client_mac, tx_frames, " +
-                                "tx_bytes, rx_frames, rx_bytes, signal_strength_average, " +
-                                "signal_strength_min, signal_strength_max) VALUES(:bssid_id, :client_mac, " +
-                                ":tx_frames, :tx_bytes, :rx_frames, :rx_bytes, :signal_strength_average, " +
-                                ":signal_strength_min, :signal_strength_max)");
-
-                for (Map.Entry<String, Dot11ClientStatisticsReport> client : report.clients().entrySet()) {
-                    String mac = client.getKey();
-                    Dot11ClientStatisticsReport stats = client.getValue();
-
-                    if (!bssid.equals(mac)) { // Don't record BSSID itself.
-                        bssidClientsBatch
-                                .bind("bssid_id", bssidDatabaseId)
-                                .bind("client_mac", mac)
-                                .bind("tx_frames", stats.txFrames())
-                                .bind("tx_bytes", stats.txBytes())
-                                .bind("rx_frames", stats.rxFrames())
-                                .bind("rx_bytes", stats.rxBytes())
-                                .bind("signal_strength_average", stats.signalStrength().average())
-                                .bind("signal_strength_min", stats.signalStrength().average())
-                                .bind("signal_strength_max", stats.signalStrength().average())
-                                .add();
-                    }
-                }
-                bssidClientsBatch.execute();
+        // WPS settings.
+        for (boolean hasWps : task.ssidReport().wps()) {
+            rows.settings.addRow(ssidDatabaseId, "has_wps", String.valueOf(hasWps));
+        }
 
-                // Pre-process all SSIDs.
-                for (Map.Entry<String, Dot11AdvertisedNetworkReport> ssidEntry : report.advertisedNetworks().entrySet()) {
-                    ssidProcessingTasks.add(SSIDProcessingTask.create(
-                            bssid, ssidEntry.getKey(), ssidEntry.getValue(), bssidDatabaseId, tap, timestamp
-                    ));
+        // Security protocols and suites.
+        for (Dot11SecurityInformationReport sec : task.ssidReport().security()) {
+            if (sec.protocols().isEmpty()) {
+                rows.settings.addRow(ssidDatabaseId, "security_protocol", null); // We insert NULL to signal "NONE".
+            } else {
+                for (String protocol : sec.protocols()) {
+                    rows.settings.addRow(ssidDatabaseId, "security_protocol", protocol);
                 }
             }
 
-            // Write all SSIDs.
-            CountDownLatch latch = new CountDownLatch(ssidProcessingTasks.size());
-            for (SSIDProcessingTask ssidProcessingTask : ssidProcessingTasks) {
-                tablesService.getProcessorPool().submit(() -> {
-                    writeSSID(nzyme, handle, monitoredSSIDNames, monitoredSSIDs, ssidProcessingTask);
-
-                    latch.countDown();
-                });
-            }
+            Map<String, String> suiteMap = Maps.newHashMap();
+            suiteMap.put("group_cipher", sec.suites().groupCipher());
+            suiteMap.put("pairwise_ciphers",
+                    Joiner.on(",").join(sec.suites().pairwiseCiphers()));
+            suiteMap.put("key_management_modes",
+                    Joiner.on(",").join(sec.suites().keyManagementModes()));
+            suiteMap.put("pmf_mode", sec.pmf());
 
-            // Wait for SSID processing to finish.
             try {
-                latch.await();
-            } catch (InterruptedException e) {
-                LOG.error("SSID writer process interrupted.", e);
+                rows.settings.addRow(ssidDatabaseId, "security_suite", this.om.writeValueAsString(suiteMap));
+            } catch(JsonProcessingException e) {
+                LOG.error("Could not serialize SSID <{}> security suites.", task.bssidDatabaseId(), e);
             }
-        });
-    }
+        }
 
-    private void writeSSID(NzymeNode nzyme,
-                           Handle handle,
-                           List<String> monitoredSSIDNames,
-                           Map<String, PreLoadedMonitoredSSID> monitoredSSIDs,
-                           SSIDProcessingTask task) {
-        try {
-            // Replace all non-printable characters.
-            final String ssid = Tools.sanitizeSSID(task.ssid());
-
-            /*
-             * If all characters were sanitized away, this is a hidden SSID.
-             * (some access points build hidden SSIDs this way)
-             */
-            if (ssid.isEmpty()) {
-                return;
-            }
+        // SSID Fingerprints.
+        for (String fingerprint : task.ssidReport().fingerprints()) {
+            rows.fingerprints.addRow(fingerprint, ssidDatabaseId);
+        }
 
-            Long ssidDatabaseId = handle.createQuery(
-                    "INSERT INTO dot11_ssids(bssid_id, tap_uuid, ssid, bssid, " +
-                            "signal_strength_average, signal_strength_max, signal_strength_min, " +
-                            "beacon_advertisements, proberesp_advertisements, created_at) " +
-                            "VALUES(:bssid_id, :tap_uuid, :ssid, :bssid, :signal_strength_average, " +
-                            ":signal_strength_max, :signal_strength_min, :beacon_advertisements, " +
-                            ":proberesp_advertisements, :created_at) RETURNING *")
-                    .bind("bssid_id", task.bssidDatabaseId())
-                    .bind("tap_uuid", task.tap().uuid())
-                    .bind("ssid", ssid)
-                    .bind("bssid", task.bssid())
-                    .bind("signal_strength_average", task.ssidReport().signalStrength().average())
-                    .bind("signal_strength_max", task.ssidReport().signalStrength().max())
-                    .bind("signal_strength_min", task.ssidReport().signalStrength().min())
-                    .bind("beacon_advertisements", task.ssidReport().beaconAdvertisements())
-                    .bind("proberesp_advertisements", task.ssidReport().probeResponseAdvertisements())
-                    .bind("created_at", task.timestamp())
-                    .mapTo(Long.class)
-                    .one();
-
-            // WPS settings.
-            PreparedBatch wpsBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_ssid_settings(ssid_id, attribute, value) " +
-                            "VALUES(:ssid_id, 'has_wps', :value)");
-            for (boolean hasWps : task.ssidReport().wps()) {
-                wpsBatch.bind("ssid_id", ssidDatabaseId).bind("value", String.valueOf(hasWps)).add();
-            }
-            wpsBatch.execute();
-
-            // Security protocols and suites.
-            PreparedBatch noneSettingsBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_ssid_settings(ssid_id, attribute, value) " +
-                            "VALUES(:ssid_id, 'security_protocol', NULL"); // We insert NULL to signal "NONE".
-            PreparedBatch someSettingsBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_ssid_settings(ssid_id, attribute, value) " +
-                            "VALUES(:ssid_id, 'security_protocol', :value)");
-            PreparedBatch suitesBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_ssid_settings(ssid_id, attribute, value) " +
-                            "VALUES(:ssid_id, 'security_suite', :value)");
-            for (Dot11SecurityInformationReport sec : task.ssidReport().security()) {
-                if (sec.protocols().isEmpty()) {
-                    noneSettingsBatch.bind("ssid_id", ssidDatabaseId).add();
-                } else {
-                    for (String protocol : sec.protocols()) {
-                        someSettingsBatch
-                                .bind("ssid_id", ssidDatabaseId)
-                                .bind("value", protocol)
-                                .add();
-                    }
-                }
+        // SSID Rates.
+        for (Float rate : task.ssidReport().rates()) {
+            rows.rates.addRow(rate, ssidDatabaseId);
+        }
 
-                Map<String, String> suiteMap = Maps.newHashMap();
-                suiteMap.put("group_cipher", sec.suites().groupCipher());
-                suiteMap.put("pairwise_ciphers",
-                        Joiner.on(",").join(sec.suites().pairwiseCiphers()));
-                suiteMap.put("key_management_modes",
-                        Joiner.on(",").join(sec.suites().keyManagementModes()));
-                suiteMap.put("pmf_mode", sec.pmf());
-
-                try {
-                    suitesBatch
-                            .bind("ssid_id", ssidDatabaseId)
-                            .bind("value", this.om.writeValueAsString(suiteMap))
-                            .add();
-                } catch(JsonProcessingException e) {
-                    LOG.error("Could not serialize SSID <{}> security suites.", task.bssidDatabaseId(), e);
-                }
-            }
+        // Channel Statistics.
+        for (Map.Entry<Long, Map<String, Dot11ChannelStatisticsReport>> cs : task.ssidReport().channelStatistics().entrySet()) {
+            long frequency = cs.getKey();
+            for (Map.Entry<String, Dot11ChannelStatisticsReport> ft : cs.getValue().entrySet()) {
+                String frameType = ft.getKey();
+                Dot11ChannelStatisticsReport stats = ft.getValue();
 
-            noneSettingsBatch.execute();
-            someSettingsBatch.execute();
-            suitesBatch.execute();
-
-            // SSID Fingerprints.
-            PreparedBatch fingerprintsBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_fingerprints(fingerprint, ssid_id) " +
-                            "VALUES(:fingerprint, :ssid_id)");
-            for (String fingerprint : task.ssidReport().fingerprints()) {
-                    fingerprintsBatch.bind("fingerprint", fingerprint)
-                            .bind("ssid_id", ssidDatabaseId)
-                            .add();
+                rows.channels.addRow(ssidDatabaseId, frequency, frameType.toLowerCase(), stats.bytes(), stats.frames());
             }
-            fingerprintsBatch.execute();
-
-            // SSID Rates.
-            PreparedBatch ratesBatch = handle.prepareBatch("INSERT INTO dot11_rates(rate, ssid_id) " +
-                    "VALUES(:rate, :ssid_id)");
-            for (Float rate : task.ssidReport().rates()) {
-                ratesBatch.bind("rate", rate).bind("ssid_id", ssidDatabaseId).add();
-            }
-            ratesBatch.execute();
-
-            // Channel Statistics.
-            PreparedBatch statsBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_channels(ssid_id, frequency, " +
-                            "frame_type, stats_bytes, stats_frames) VALUES(:ssid_id, " +
-                            ":frequency, :frame_type, :stats_bytes, :stats_frames)");
-            for (Map.Entry<Long, Map<String, Dot11ChannelStatisticsReport>> cs : task.ssidReport().channelStatistics().entrySet()) {
-                long frequency = cs.getKey();
-                for (Map.Entry<String, Dot11ChannelStatisticsReport> ft : cs.getValue().entrySet()) {
-                    String frameType = ft.getKey();
-                    Dot11ChannelStatisticsReport stats = ft.getValue();
-
-                    statsBatch
-                            .bind("ssid_id", ssidDatabaseId)
-                            .bind("frequency", frequency)
-                            .bind("frame_type", frameType.toLowerCase())
-                            .bind("stats_bytes", stats.bytes())
-                            .bind("stats_frames", stats.frames())
-                            .add();
-                }
-            }
-            statsBatch.execute();
-
-            // Write channel signal histogram.
-            PreparedBatch histoBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_channel_histograms(ssid_id, frequency, " +
-                            "signal_strength, frame_count) VALUES(:ssid_id, :frequency, " +
-                            ":signal_strength, :frame_count)");
-            for (Map.Entry<Long, Map<Long, Long>> channel : task.ssidReport().signalHistogram().entrySet()) {
-                long frequency = channel.getKey();
-                for (Map.Entry<Long, Long> histo : channel.getValue().entrySet()) {
-                    histoBatch
-                            .bind("ssid_id", ssidDatabaseId)
-                            .bind("frequency", frequency)
-                            .bind("signal_strength", histo.getKey())
-                            .bind("frame_count", histo.getValue())
-                            .add();
-                }
-            }
-            histoBatch.execute();
-
-            // Infrastructure Types.
-            PreparedBatch infraBatch = handle.prepareBatch(
-                    "INSERT INTO dot11_infrastructure_types(infrastructure_type, " +
-                            "ssid_id) VALUES(:infrastructure_type, :ssid_id)");
-            for (String infrastructureType : task.ssidReport().infrastructureTypes()) {
-                infraBatch
-                        .bind("infrastructure_type", infrastructureType.toLowerCase())
-                        .bind("ssid_id", ssidDatabaseId)
-                        .add();
-            }
-            infraBatch.execute();
-
-            /*
-             * Check if this SSID is similar to any monitored SSIDs or includes a monitored substring. Skip
-             * other monitored SSIDs because they are considered trusted.
-             */
-            JaroWinkler jaroWinkler = new JaroWinkler();
-            for (PreLoadedMonitoredSSID monitoredSSID : monitoredSSIDs.values()) {
-                if (!monitoredSSIDNames.contains(ssid)) {
-                    // Similar looking SSIDs.
-                    if (monitoredSSID.enabledSimilarLookingSSID()) {
-                        double similarity = jaroWinkler
-                                .similarity(monitoredSSID.ssid().toLowerCase(), ssid.toLowerCase()) * 100.0;
-
-                        if (similarity > monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()) {
-                            Map<String, String> attributes = Maps.newHashMap();
-                            attributes.put("similar_ssid", ssid);
-                            attributes.put("similarity", String.valueOf(similarity));
-                            attributes.put("similarity_threshold",
-                                    String.valueOf(monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()));
-
-                            nzyme.getDetectionAlertService().raiseAlert(
-                                    task.tap().organizationId(),
-                                    task.tap().tenantId(),
-                                    monitoredSSID.uuid(),
-                                    task.tap().uuid(),
-                                    DetectionType.DOT11_MONITOR_SIMILAR_LOOKING_SSID,
-                                    Subsystem.DOT11,
-                                    "SSID \"" + ssid + "\" looking similar to monitored network SSID " +
-                                            "\"" + monitoredSSID.ssid() + "\"",
-                                    attributes,
-                                    new String[]{"similar_ssid"},
-                                    task.ssidReport().signalStrength().average()
-                            );
-                        }
-                    }
+        }
 
-                    // Restricted substrings.
-                    if (monitoredSSID.enabledSSIDSubstring()) {
-                        // Pull all restricted substrings.
-                        for (RestrictedSSIDSubstring rss :
-                                nzyme.getDot11().findAllRestrictedSSIDSubstrings(monitoredSSID.id())) {
-                            if (ssid.toLowerCase().contains(rss.substring().toLowerCase())) {
-                                Map<String, String> attributes = Maps.newHashMap();
-                                attributes.put("ssid", ssid);
-                                attributes.put("restricted_substring", rss.substring());
-
-                                nzyme.getDetectionAlertService().raiseAlert(
-                                        task.tap().organizationId(),
-                                        task.tap().tenantId(),
-                                        monitoredSSID.uuid(),
-                                        task.tap().uuid(),
-                                        DetectionType.DOT11_MONITOR_SSID_SUBSTRING,
-                                        Subsystem.DOT11,
-                                        "SSID \"" + ssid + "\" contains restricted " +
-                                                "substring \"" + rss.substring() + "\"",
-                                        attributes,
-                                        new String[]{"ssid", "restricted_substring"},
-                                        task.ssidReport().signalStrength().average()
-                                );
-                            }
-                        }
-                    }
-                }
+        // Write channel signal histogram.
+        for (Map.Entry<Long, Map<Long, Long>> channel : task.ssidReport().signalHistogram().entrySet()) {
+            long frequency = channel.getKey();
+            for (Map.Entry<Long, Long> histo : channel.getValue().entrySet()) {
+                rows.histograms.addRow(ssidDatabaseId, frequency, histo.getKey(), histo.getValue());
             }
+        }
 
-            // Network Monitoring / Alerting.
-            PreLoadedMonitoredSSID monitoredSSID = monitoredSSIDs.get(ssid);
-            if (monitoredSSID != null) {
-                // This is a monitored SSID.
+        // Infrastructure Types.
+        for (String infrastructureType : task.ssidReport().infrastructureTypes()) {
+            rows.infrastructureTypes.addRow(infrastructureType.toLowerCase(), ssidDatabaseId);
+        }
+    }
 
-                PreLoadedMonitoredBSSID monitoredBSSID = monitoredSSID.bssids().get(task.bssid());
-                if (monitoredBSSID == null) {
-                    if (monitoredSSID.enabledUnexpectedBSSID()) {
-                        // Unexpected BSSID.
+    private void monitorSSID(NzymeNode nzyme,
+                             Dot11MonitoringSnapshot monitoring,
+                             String ssid,
+                             SSIDProcessingTask task) {
+        /*
+         * Check if this SSID is similar to any monitored SSIDs or includes a monitored substring. Skip
+         * other monitored SSIDs because they are considered trusted.
+         */
+        JaroWinkler jaroWinkler = new JaroWinkler();
+        for (PreLoadedMonitoredSSID monitoredSSID : monitoring.monitoredSSIDs().values()) {
+            if (!monitoring.monitoredSSIDNames().contains(ssid)) {
+                // Similar looking SSIDs.
+                if (monitoredSSID.enabledSimilarLookingSSID()) {
+                    double similarity = jaroWinkler
+                            .similarity(monitoredSSID.ssid().toLowerCase(), ssid.toLowerCase()) * 100.0;
+
+                    if (similarity > monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()) {
                         Map<String, String> attributes = Maps.newHashMap();
-                        attributes.put("bssid", task.bssid());
+                        attributes.put("similar_ssid", ssid);
+                        attributes.put("similarity", String.valueOf(similarity));
+                        attributes.put("similarity_threshold",
+                                String.valueOf(monitoredSSID.detectionConfigSimilarLookingSSIDThreshold()));
 
                         nzyme.getDetectionAlertService().raiseAlert(
                                 task.tap().organizationId(),
                                 task.tap().tenantId(),
                                 monitoredSSID.uuid(),
                                 task.tap().uuid(),
-                                DetectionType.DOT11_MONITOR_BSSID,
+                                DetectionType.DOT11_MONITOR_SIMILAR_LOOKING_SSID,
                                 Subsystem.DOT11,
-                                "Monitored network \"" + monitoredSSID.ssid() + "\" advertised with " +
-                                        "unexpected BSSID \"" + task.bssid() + "\"",
+                                "SSID \"" + ssid + "\" looking similar to monitored network SSID " +
+                                        "\"" + monitoredSSID.ssid() + "\"",
                                 attributes,
-                                new String[]{"bssid"},
+                                new String[]{"similar_ssid"},
                                 task.ssidReport().signalStrength().average()
                         );
                     }
-                } else {
-                    // Expected BSSID. Compare fingerprints.
-                    if (monitoredSSID.enabledUnexpectedFingerprint()) {
-                        for (String observedFingerprint : task.ssidReport().fingerprints()) {
-                            if (!monitoredBSSID.fingerprints().contains(observedFingerprint)) {
-                                // Unexpected fingerprint.
-                                Map<String, String> attributes = Maps.newHashMap();
-                                attributes.put("bssid", task.bssid());
-                                attributes.put("fingerprint", observedFingerprint);
-
-                                nzyme.getDetectionAlertService().raiseAlert(
-                                        task.tap().organizationId(),
-                                        task.tap().tenantId(),
-                                        monitoredSSID.uuid(),
-                                        task.tap().uuid(),
-                                        DetectionType.DOT11_MONITOR_FINGERPRINT,
-                                        Subsystem.DOT11,
-                                        "Monitored network \"" + monitoredSSID.ssid() + "\" advertised " +
-                                                "with unexpected fingerprint \"" + observedFingerprint + "\".",
-                                        attributes,
-                                        new String[]{"bssid", "fingerprint"},
-                                        task.ssidReport().signalStrength().average()
-                                );
-                            }
-                        }
-                    }
                 }
 
-                if (monitoredSSID.enabledUnexpectedChannel()) {
-                    for (Long frequency : task.ssidReport().channelStatistics().keySet()) {
-                        if (!monitoredSSID.channels().contains(frequency.intValue())) {
-                            // Unexpected channel.
+                // Restricted substrings.
+                if (monitoredSSID.enabledSSIDSubstring()) {
+                    for (String substring : monitoredSSID.restrictedSubstrings()) {
+                        if (ssid.toLowerCase().contains(substring.toLowerCase())) {
                             Map<String, String> attributes = Maps.newHashMap();
-                            attributes.put("frequency", String.valueOf(frequency));
+                            attributes.put("ssid", ssid);
+                            attributes.put("restricted_substring", substring);
 
                             nzyme.getDetectionAlertService().raiseAlert(
                                     task.tap().organizationId(),
                                     task.tap().tenantId(),
                                     monitoredSSID.uuid(),
                                     task.tap().uuid(),
-                                    DetectionType.DOT11_MONITOR_CHANNEL,
+                                    DetectionType.DOT11_MONITOR_SSID_SUBSTRING,
                                     Subsystem.DOT11,
-                                    "Monitored network \"" + monitoredSSID.ssid() + "\" advertised on " +
-                                            "unexpected frequency " + frequency + "MHz",
+                                    "SSID \"" + ssid + "\" contains restricted " +
+                                            "substring \"" + substring + "\"",
                                     attributes,
-                                    new String[]{"frequency"},
+                                    new String[]{"ssid", "restricted_substring"},
                                     task.ssidReport().signalStrength().average()
                             );
                         }
                     }
                 }
+            }
+        }
 
-                if (monitoredSSID.enabledUnexpectedSecuritySuites()) {
-                    for (Dot11SecurityInformationReport security : task.ssidReport().security()) {
-                        String suite = Dot11.securitySuitesToIdentifier(security);
-                        if (!monitoredSSID.securitySuites().contains(suite)) {
+        // Network Monitoring / Alerting.
+        PreLoadedMonitoredSSID monitoredSSID = monitoring.monitoredSSIDs().get(ssid);
+        if (monitoredSSID != null) {
+            // This is a monitored SSID.
+
+            PreLoadedMonitoredBSSID monitoredBSSID = monitoredSSID.bssids().get(task.bssid());
+            if (monitoredBSSID == null) {
+                if (monitoredSSID.enabledUnexpectedBSSID()) {
+                    // Unexpected BSSID.
+                    Map<String, String> attributes = Maps.newHashMap();
+                    attributes.put("bssid", task.bssid());
+
+                    nzyme.getDetectionAlertService().raiseAlert(
+                            task.tap().organizationId(),
+                            task.tap().tenantId(),
+                            monitoredSSID.uuid(),
+                            task.tap().uuid(),
+                            DetectionType.DOT11_MONITOR_BSSID,
+                            Subsystem.DOT11,
+                            "Monitored network \"" + monitoredSSID.ssid() + "\" advertised with " +
+                                    "unexpected BSSID \"" + task.bssid() + "\"",
+                            attributes,
+                            new String[]{"bssid"},
+                            task.ssidReport().signalStrength().average()
+                    );
+                }
+            } else {
+                // Expected BSSID. Compare fingerprints.
+                if (monitoredSSID.enabledUnexpectedFingerprint()) {
+                    for (String observedFingerprint : task.ssidReport().fingerprints()) {
+                        if (!monitoredBSSID.fingerprints().contains(observedFingerprint)) {
+                            // Unexpected fingerprint.
                             Map<String, String> attributes = Maps.newHashMap();
-                            attributes.put("suite", suite);
+                            attributes.put("bssid", task.bssid());
+                            attributes.put("fingerprint", observedFingerprint);
 
                             nzyme.getDetectionAlertService().raiseAlert(
                                     task.tap().organizationId(),
                                     task.tap().tenantId(),
                                     monitoredSSID.uuid(),
                                     task.tap().uuid(),
-                                    DetectionType.DOT11_MONITOR_SECURITY_SUITE,
+                                    DetectionType.DOT11_MONITOR_FINGERPRINT,
                                     Subsystem.DOT11,
-                                    "Monitored network \"" + monitoredSSID.ssid() + "\" advertised with " +
-                                            "unexpected security suites \"" + suite + "\"",
+                                    "Monitored network \"" + monitoredSSID.ssid() + "\" advertised " +
+                                            "with unexpected fingerprint \"" + observedFingerprint + "\".",
                                     attributes,
-                                    new String[]{"suite"},
+                                    new String[]{"bssid", "fingerprint"},
                                     task.ssidReport().signalStrength().average()
                             );
                         }
                     }
                 }
             }
-        } catch(Exception e) {
-            LOG.error("Could not write SSID.", e);
-        }
-    }
 
-    private void writeDisco(Tap tap, DateTime timestamp, Dot11DiscoReport disco) {
-        tablesService.getNzyme().getDatabase().useHandle(handle -> {
-            for (Dot11DiscoTransmitterReport report : disco.deauthentication().values()) {
-                writeDiscoReport(handle, tap, timestamp, Dot11.DiscoType.DEAUTHENTICATION, report);
+            if (monitoredSSID.enabledUnexpectedChannel()) {
+                for (Long frequency : task.ssidReport().channelStatistics().keySet()) {
+                    if (!monitoredSSID.channels().contains(frequency.intValue())) {
+                        // Unexpected channel.
+                        Map<String, String> attributes = Maps.newHashMap();
+                        attributes.put("frequency", String.valueOf(frequency));
+
+                        nzyme.getDetectionAlertService().raiseAlert(
+                                task.tap().organizationId(),
+                                task.tap().tenantId(),
+                                monitoredSSID.uuid(),
+                                task.tap().uuid(),
+                                DetectionType.DOT11_MONITOR_CHANNEL,
+                                Subsystem.DOT11,
+                                "Monitored network \"" + monitoredSSID.ssid() + "\" advertised on " +
+                                        "unexpected frequency " + frequency + "MHz",
+                                attributes,
+                                new String[]{"frequency"},
+                                task.ssidReport().signalStrength().average()
+                        );
+                    }
+                }
             }
 
-            for (Dot11DiscoTransmitterReport report : disco.disassociation().values()) {
-                writeDiscoReport(handle, tap, timestamp, Dot11.DiscoType.DISASSOCIATION, report);
+            if (monitoredSSID.enabledUnexpectedSecuritySuites()) {
+                for (Dot11SecurityInformationReport security : task.ssidReport().security()) {
+                    String suite = Dot11.securitySuitesToIdentifier(security);
+                    if (!monitoredSSID.securitySuites().contains(suite)) {
+                        Map<String, String> attributes = Maps.newHashMap();
+                        attributes.put("suite", suite);
+
+                        nzyme.getDetectionAlertService().raiseAlert(
+                                task.tap().organizationId(),
+                                task.tap().tenantId(),
+                                monitoredSSID.uuid(),
+                                task.tap().uuid(),
+                                DetectionType.DOT11_MONITOR_SECURITY_SUITE,
+                                Subsystem.DOT11,
+                                "Monitored network \"" + monitoredSSID.ssid() + "\" advertised with " +
+                                        "unexpected security suites \"" + suite + "\"",
+                                attributes,
+                                new String[]{"suite"},
+                                task.ssidReport().signalStrength().average()
+                        );
+                    }
+                }
             }
-        });
+        }
+    }
+
+    private void writeDisco(Handle handle, Tap tap, DateTime timestamp, Dot11DiscoReport disco)
+            throws SQLException, IOException {
+        PostgresCopyBuffer activityRows = new PostgresCopyBuffer("dot11_disco_activity",
+                "id", "tap_uuid", "disco_type", "bssid", "sent_frames", "created_at");
+        PostgresCopyBuffer receiverRows = new PostgresCopyBuffer("dot11_disco_activity_receivers",
+                "disco_activity_id", "bssid", "received_frames");
+
+        List<Long> activityIds = DatabaseTools.allocateIds(handle, "dot11_disco_activity",
+                disco.deauthentication().size() + disco.disassociation().size());
+
+        int i = 0;
+        for (Dot11DiscoTransmitterReport report : disco.deauthentication().values()) {
+            addDiscoRows(activityRows, receiverRows, activityIds.get(i++),
+                    tap, timestamp, Dot11.DiscoType.DEAUTHENTICATION, report);
+        }
+
+        for (Dot11DiscoTransmitterReport report : disco.disassociation().values()) {
+            addDiscoRows(activityRows, receiverRows, activityIds.get(i++),
+                    tap, timestamp, Dot11.DiscoType.DISASSOCIATION, report);
+        }
+
+        activityRows.copyIn(handle);
+        receiverRows.copyIn(handle);
     }
 
-    private void writeDiscoReport(Handle handle, Tap tap, DateTime timestamp, Dot11.DiscoType discoType, Dot11DiscoTransmitterReport report) {
-        long activityId = handle.createQuery(
-                "INSERT INTO dot11_disco_activity(tap_uuid, disco_type, bssid, sent_frames, " +
-                        "created_at) VALUES(:tap_uuid, :disco_type, :bssid, :sent_frames, :created_at) " +
-                        "RETURNING id")
-                .bind("tap_uuid", tap.uuid())
-                .bind("disco_type", discoType.getNumber())
-                .bind("bssid", report.bssid())
-                .bind("sent_frames", report.sentFrames())
-                .bind("created_at", timestamp)
-                .mapTo(Long.class)
-                .one();
-
-        PreparedBatch batch = handle.prepareBatch(
-                "INSERT INTO dot11_disco_activity_receivers(disco_activity_id, bssid, received_frames)" +
-                        " VALUES(:disco_activity_id, :bssid, :received_frames)"
+    private void addDiscoRows(PostgresCopyBuffer activityRows,
+                              PostgresCopyBuffer receiverRows,
+                              long activityId,
+                              Tap tap,
+                              DateTime timestamp,
+                              Dot11.DiscoType discoType,
+                              Dot11DiscoTransmitterReport report) {
+        activityRows.addRow(
+                activityId,
+                tap.uuid(),
+                discoType.getNumber(),
+                report.bssid(),
+                report.sentFrames(),
+                timestamp
         );
 
         for (Map.Entry<String, Long> receiver : report.receivers().entrySet()) {
-                batch.bind("disco_activity_id", activityId)
-                        .bind("bssid", receiver.getKey())
-                        .bind("received_frames", receiver.getValue())
-                        .add();
+            receiverRows.addRow(activityId, receiver.getKey(), receiver.getValue());
         }
-
-        batch.execute();
     }
 
     private void handleAlerts(Tap tap, List<Dot11AlertReport> alerts) {
@@ -779,6 +670,39 @@ public class Dot11Table implements DataTable {
         return alertAttributes;
     }
 
+    /*
+     * All child rows of the SSIDs in a report. Written in foreign key order after the SSIDs themselves.
+     */
+    private static final class SSIDRows {
+
+        final PostgresCopyBuffer ssids = new PostgresCopyBuffer("dot11_ssids",
+                "id", "bssid_id", "tap_uuid", "ssid", "bssid", "signal_strength_average", "signal_strength_max",
+                "signal_strength_min", "beacon_advertisements", "proberesp_advertisements", "created_at");
+        final PostgresCopyBuffer settings = new PostgresCopyBuffer("dot11_ssid_settings",
+                "ssid_id", "attribute", "value");
+        final PostgresCopyBuffer fingerprints = new PostgresCopyBuffer("dot11_fingerprints",
+                "fingerprint", "ssid_id");
+        final PostgresCopyBuffer rates = new PostgresCopyBuffer("dot11_rates",
+                "rate", "ssid_id");
+        final PostgresCopyBuffer channels = new PostgresCopyBuffer("dot11_channels",
+                "ssid_id", "frequency", "frame_type", "stats_bytes", "stats_frames");
+        final PostgresCopyBuffer histograms = new PostgresCopyBuffer("dot11_channel_histograms",
+                "ssid_id", "frequency", "signal_strength", "frame_count");
+        final PostgresCopyBuffer infrastructureTypes = new PostgresCopyBuffer("dot11_infrastructure_types",
+                "infrastructure_type", "ssid_id");
+
+        void copyIn(Handle handle) throws SQLException, IOException {
+            ssids.copyIn(handle);
+            settings.copyIn(handle);
+            fingerprints.copyIn(handle);
+            rates.copyIn(handle);
+            channels.copyIn(handle);
+            histograms.copyIn(handle);
+            infrastructureTypes.copyIn(handle);
+        }
+
+    }
+
     @Override
     public void retentionClean() {
         // NOOP. Remove from plugin APIs if there remains no use. Database cleaned by category/tenant independently.
@@ -0,0 +1,57 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import app.nzyme.core.dot11.bandits.Dot11BanditDescription;
+import app.nzyme.core.dot11.db.monitoring.probereq.MonitoredProbeRequestEntry;
+import app.nzyme.core.dot11.monitoring.disco.DiscoMonitoredNetwork;
+import com.google.auto.value.AutoValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the 802.11 monitoring configuration of a tenant, used by report processing to avoid loading
+ * the configuration from the database for every tap report.
+ */
+@AutoValue
+public abstract class Dot11MonitoringSnapshot {
+
+    // Enabled monitored networks only, keyed by SSID.
+    public abstract Map<String, PreLoadedMonitoredSSID> monitoredSSIDs();
+    public abstract Set<String> monitoredSSIDNames();
+    public abstract List<Dot11BanditDescription> bandits();
+    public abstract Map<String, MonitoredProbeRequestEntry> monitoredProbeRequests();
+
+    // Monitored networks with enabled disconnection monitor.
+    public abstract List<DiscoMonitoredNetwork> discoMonitoredNetworks();
+
+    public static Dot11MonitoringSnapshot create(Map<String, PreLoadedMonitoredSSID> monitoredSSIDs, Set<String> monitoredSSIDNames, List<Dot11BanditDescription> bandits, Map<String, MonitoredProbeRequestEntry> monitoredProbeRequests, List<DiscoMonitoredNetwork> discoMonitoredNetworks) {
+        return builder()
+                .monitoredSSIDs(monitoredSSIDs)
+                .monitoredSSIDNames(monitoredSSIDNames)
+                .bandits(bandits)
+                .monitoredProbeRequests(monitoredProbeRequests)
+                .discoMonitoredNetworks(discoMonitoredNetworks)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_Dot11MonitoringSnapshot.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder monitoredSSIDs(Map<String, PreLoadedMonitoredSSID> monitoredSSIDs);
+
+        public abstract Builder monitoredSSIDNames(Set<String> monitoredSSIDNames);
+
+        public abstract Builder bandits(List<Dot11BanditDescription> bandits);
+
+        public abstract Builder monitoredProbeRequests(Map<String, MonitoredProbeRequestEntry> monitoredProbeRequests);
+
+        public abstract Builder discoMonitoredNetworks(List<DiscoMonitoredNetwork> discoMonitoredNetworks);
+
+        public abstract Dot11MonitoringSnapshot build();
+    }
+
+}
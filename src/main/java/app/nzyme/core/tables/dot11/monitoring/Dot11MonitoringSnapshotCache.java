@@ -0,0 +1,194 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.dot11.Dot11;
+import app.nzyme.core.dot11.bandits.Dot11BanditDescription;
+import app.nzyme.core.dot11.bandits.Dot11Bandits;
+import app.nzyme.core.dot11.db.monitoring.*;
+import app.nzyme.core.dot11.db.monitoring.probereq.MonitoredProbeRequestEntry;
+import app.nzyme.core.dot11.monitoring.disco.DiscoMonitoredNetwork;
+import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorFactory;
+import app.nzyme.core.dot11.monitoring.disco.monitormethods.DiscoMonitorMethodType;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Per-tenant monitoring snapshots. Snapshots are loaded on first use and only rebuilt after an invalidation, which
+ * is triggered cluster-wide whenever the monitoring configuration is changed.
+ */
+public class Dot11MonitoringSnapshotCache {
+
+    private static final Logger LOG = LogManager.getLogger(Dot11MonitoringSnapshotCache.class);
+
+    private final NzymeNode nzyme;
+
+    private final LoadingCache<Dot11MonitoringSnapshotCacheKey, Dot11MonitoringSnapshot> snapshots;
+
+    public Dot11MonitoringSnapshotCache(NzymeNode nzyme) {
+        this.nzyme = nzyme;
+
+        this.snapshots = CacheBuilder.newBuilder()
+                .build(new CacheLoader<>() {
+                    @NotNull
+                    @Override
+                    public Dot11MonitoringSnapshot load(@NotNull Dot11MonitoringSnapshotCacheKey key) {
+                        return buildSnapshot(key.organizationId(), key.tenantId());
+                    }
+                });
+
+        nzyme.getMetrics().register(MetricNames.DOT11_MONITORING_SNAPSHOT_CACHE_SIZE, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return snapshots.size();
+            }
+        });
+    }
+
+    public Dot11MonitoringSnapshot get(UUID organizationId, UUID tenantId) {
+        try {
+            return snapshots.get(Dot11MonitoringSnapshotCacheKey.create(organizationId, tenantId));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load 802.11 monitoring snapshot.", e);
+        }
+    }
+
+    public void invalidateAll() {
+        snapshots.invalidateAll();
+    }
+
+    private Dot11MonitoringSnapshot buildSnapshot(UUID organizationId, UUID tenantId) {
+        LOG.debug("Building 802.11 monitoring snapshot of tenant [{}/{}].", organizationId, tenantId);
+
+        Dot11 dot11 = nzyme.getDot11();
+
+        List<MonitoredSSID> allMonitoredSSIDs = dot11.findAllMonitoredSSIDs(organizationId, tenantId);
+
+        // Collect all monitored SSIDs and their attributes.
+        Map<String, PreLoadedMonitoredSSID> monitoredSSIDs = Maps.newHashMap();
+        for (MonitoredSSID s : allMonitoredSSIDs) {
+            if (!s.isEnabled()) {
+                continue;
+            }
+
+            Map<String, PreLoadedMonitoredBSSID> preLoadedBSSIDs = Maps.newHashMap();
+            for (MonitoredBSSID b : dot11.findMonitoredBSSIDsOfMonitoredNetwork(s.id())) {
+                List<String> fingerprints = dot11.findMonitoredFingerprintsOfMonitoredBSSID(b.id())
+                        .stream()
+                        .map(MonitoredFingerprint::fingerprint)
+                        .collect(ImmutableList.toImmutableList());
+
+                preLoadedBSSIDs.put(b.bssid(), PreLoadedMonitoredBSSID.create(b.bssid(), fingerprints));
+            }
+
+            List<Integer> preLoadedChannels = dot11.findMonitoredChannelsOfMonitoredNetwork(s.id())
+                    .stream()
+                    .map(c -> (int) c.frequency())
+                    .collect(ImmutableList.toImmutableList());
+
+            List<String> preLoadedSecuritySuites = dot11.findMonitoredSecuritySuitesOfMonitoredNetwork(s.id())
+                    .stream()
+                    .map(MonitoredSecuritySuite::securitySuite)
+                    .collect(ImmutableList.toImmutableList());
+
+            List<String> preLoadedRestrictedSubstrings = dot11.findAllRestrictedSSIDSubstrings(s.id())
+                    .stream()
+                    .map(RestrictedSSIDSubstring::substring)
+                    .collect(ImmutableList.toImmutableList());
+
+            monitoredSSIDs.put(s.ssid(), PreLoadedMonitoredSSID.create(
+                    s.id(),
+                    s.uuid(),
+                    s.ssid(),
+                    ImmutableMap.copyOf(preLoadedBSSIDs),
+                    preLoadedChannels,
+                    preLoadedSecuritySuites,
+                    preLoadedRestrictedSubstrings,
+                    s.enabledUnexpectedBSSID(),
+                    s.enabledUnexpectedChannel(),
+                    s.enabledUnexpectedSecuritySuites(),
+                    s.enabledUnexpectedFingerprint(),
+                    s.enabledUnexpectedSignalTracks(),
+                    s.enabledSimilarLookingSSID(),
+                    s.enabledSSIDSubstring(),
+                    s.detectionConfigSimilarLookingSSIDThreshold()
+            ));
+        }
+
+        // Disconnection monitors. Method configuration is parsed once here instead of on every evaluation.
+        ImmutableList.Builder<DiscoMonitoredNetwork> discoMonitoredNetworks = ImmutableList.builder();
+        for (MonitoredSSID s : allMonitoredSSIDs) {
+            if (!s.enabledDiscoMonitor() || s.discoMonitorType() == null) {
+                continue;
+            }
+
+            DiscoMonitorMethodType method;
+            try {
+                method = DiscoMonitorMethodType.valueOf(s.discoMonitorType());
+            } catch(IllegalArgumentException e) {
+                LOG.error("Unknown 802.11 disconnection monitor method [{}] for monitored network " +
+                        "[{}]. Skipping.", s.discoMonitorType(), s.uuid());
+                continue;
+            }
+
+            Set<String> bssids = dot11.findMonitoredBSSIDsOfMonitoredNetwork(s.id())
+                    .stream()
+                    .map(MonitoredBSSID::bssid)
+                    .collect(ImmutableSet.toImmutableSet());
+
+            try {
+                discoMonitoredNetworks.add(DiscoMonitoredNetwork.create(
+                        s, bssids, DiscoMonitorFactory.build(nzyme, method, s)
+                ));
+            } catch (RuntimeException e) {
+                LOG.error("Could not build 802.11 disconnection monitor of monitored network [{}]. Skipping.",
+                        s.uuid(), e);
+            }
+        }
+
+        // Built-in and custom bandits.
+        ImmutableList.Builder<Dot11BanditDescription> bandits = ImmutableList.builder();
+        bandits.addAll(Dot11Bandits.BUILT_IN);
+        for (CustomBanditDescription bandit : dot11
+                .findAllCustomBandits(organizationId, tenantId, Integer.MAX_VALUE, 0)) {
+            bandits.add(Dot11BanditDescription.create(
+                    bandit.uuid().toString(),
+                    true,
+                    bandit.name(),
+                    bandit.description(),
+                    ImmutableList.copyOf(dot11.findFingerprintsOfCustomBandit(bandit.id()))
+            ));
+        }
+
+        // Monitored probe requests.
+        Map<String, MonitoredProbeRequestEntry> monitoredProbeRequests = Maps.newHashMap();
+        for (MonitoredProbeRequestEntry pr : dot11
+                .findAllMonitoredProbeRequests(organizationId, tenantId, Integer.MAX_VALUE, 0)) {
+            monitoredProbeRequests.put(pr.ssid(), pr);
+        }
+
+        return Dot11MonitoringSnapshot.create(
+                ImmutableMap.copyOf(monitoredSSIDs),
+                ImmutableSet.copyOf(monitoredSSIDs.keySet()),
+                bandits.build(),
+                ImmutableMap.copyOf(monitoredProbeRequests),
+                discoMonitoredNetworks.build()
+        );
+    }
+
+}
@@ -0,0 +1,33 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import com.google.auto.value.AutoValue;
+
+import java.util.UUID;
+
+@AutoValue
+public abstract class Dot11MonitoringSnapshotCacheKey {
+
+    public abstract UUID organizationId();
+    public abstract UUID tenantId();
+
+    public static Dot11MonitoringSnapshotCacheKey create(UUID organizationId, UUID tenantId) {
+        return builder()
+                .organizationId(organizationId)
+                .tenantId(tenantId)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_Dot11MonitoringSnapshotCacheKey.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        public abstract Builder organizationId(UUID organizationId);
+
+        public abstract Builder tenantId(UUID tenantId);
+
+        public abstract Dot11MonitoringSnapshotCacheKey build();
+    }
+
+}
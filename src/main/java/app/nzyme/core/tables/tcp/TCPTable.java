@@ -1,7 +1,6 @@
 package app.nzyme.core.tables.tcp;
 
 import app.nzyme.core.ethernet.tcp.TcpSessionState;
-import app.nzyme.core.ethernet.tcp.db.TcpSessionEntry;
 import app.nzyme.core.integrations.geoip.GeoIpLookupResult;
 import app.nzyme.core.integrations.geoip.GeoIpService;
 import app.nzyme.core.rest.resources.taps.reports.tables.tcp.TcpSessionReport;
@@ -10,15 +9,27 @@ import app.nzyme.core.tables.DataTable;
 import app.nzyme.core.tables.TablesService;
 import app.nzyme.core.util.MetricNames;
 import app.nzyme.core.util.Tools;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.RatioGauge;
 import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.joda.time.DateTime;
 
 import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static app.nzyme.core.util.Tools.stringtoInetAddress;
 
@@ -31,9 +42,14 @@ public class TCPTable implements DataTable {
     private final Timer totalReportTimer;
     private final Timer sessionsReportTimer;
     private final Timer sessionDiscoveryTimer;
+    private final Meter openSessionIndexHits;
+    private final Meter openSessionIndexMisses;
 
     private final GeoIpService geoIp;
 
+    // Tap UUID and session key to the ID of the open l4_sessions row. Entries are removed when a session ends.
+    private final Cache<String, Long> openSessions;
+
     public TCPTable(TablesService tablesService) {
         this.tablesService = tablesService;
 
@@ -47,144 +63,290 @@ public class TCPTable implements DataTable {
 
         this.sessionDiscoveryTimer = tablesService.getNzyme().getMetrics()
                 .timer(MetricNames.TCP_SESSION_DISCOVERY_QUERY_TIMER);
+
+        this.openSessions = CacheBuilder.newBuilder()
+                .maximumSize(250_000)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .build();
+
+        this.openSessionIndexHits = tablesService.getNzyme().getMetrics()
+                .meter(MetricNames.TCP_OPEN_SESSION_INDEX_HITS);
+        this.openSessionIndexMisses = tablesService.getNzyme().getMetrics()
+                .meter(MetricNames.TCP_OPEN_SESSION_INDEX_MISSES);
+
+        tablesService.getNzyme().getMetrics().register(MetricNames.TCP_OPEN_SESSION_INDEX_HIT_RATIO, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(
+                        openSessionIndexHits.getFiveMinuteRate(),
+                        openSessionIndexHits.getFiveMinuteRate() + openSessionIndexMisses.getFiveMinuteRate()
+                );
+            }
+        });
+        tablesService.getNzyme().getMetrics().register(MetricNames.TCP_OPEN_SESSION_INDEX_SIZE,
+                (Gauge<Long>) openSessions::size);
     }
 
     public void handleReport(UUID tapUuid, DateTime timestamp, TcpSessionsReport report) {
         try (Timer.Context ignored = totalReportTimer.time()) {
             try (Timer.Context ignored2 = sessionsReportTimer.time()) {
-                CountDownLatch latch = new CountDownLatch(report.sessions().size());
-                for (TcpSessionReport session : report.sessions()) {
-                    tablesService.getProcessorPool().submit(() -> {
-                        writeSession(tapUuid, timestamp, session);
+                writeSessions(tapUuid, timestamp, report.sessions());
+            } catch (Exception e) {
+                LOG.error("Could not write TCP sessions of tap [{}].", tapUuid, e);
+            }
+        }
+    }
 
-                        latch.countDown();
-                    });
-                }
+    private void writeSessions(UUID tapUuid, DateTime timestamp, List<TcpSessionReport> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        // Sessions with a known open row are updated by ID. All others go through the upsert.
+        Map<String, Long> knownIds = Maps.newHashMap();
+        Map<String, TcpSessionReport> bySessionKey = Maps.newLinkedHashMap();
+        try (Timer.Context ignored = sessionDiscoveryTimer.time()) {
+            for (TcpSessionReport session : sessions) {
+                String sessionKey = Tools.buildTcpSessionKey(
+                        session.startTime(),
+                        session.sourceAddress(),
+                        session.destinationAddress(),
+                        session.sourcePort(),
+                        session.destinationPort()
+                );
+                bySessionKey.put(sessionKey, session);
 
-                try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    LOG.error("TCP sessions writer process interrupted.", e);
+                Long id = openSessions.getIfPresent(openSessionIndexKey(tapUuid, sessionKey));
+                if (id != null) {
+                    openSessionIndexHits.mark();
+                    knownIds.put(sessionKey, id);
+                } else {
+                    openSessionIndexMisses.mark();
                 }
             }
         }
-    }
 
-    private void writeSession(UUID tapUuid, DateTime timestamp, TcpSessionReport session) {
-        try {
-            String sessionKey = Tools.buildTcpSessionKey(
-                    session.startTime(),
-                    session.sourceAddress(),
-                    session.destinationAddress(),
-                    session.sourcePort(),
-                    session.destinationPort()
-            );
-
-            InetAddress sourceAddress = stringtoInetAddress(session.sourceAddress());
-            InetAddress destinationAddress = stringtoInetAddress(session.destinationAddress());
-            Optional<GeoIpLookupResult> sourceGeo = geoIp.lookup(sourceAddress);
-            Optional<GeoIpLookupResult> destinationGeo = geoIp.lookup(destinationAddress);
-
-            tablesService.getNzyme().getDatabase().useHandle(handle -> {
-                Optional<TcpSessionEntry> existingSession;
-                try (Timer.Context ignored = sessionDiscoveryTimer.time()) {
-                    existingSession = handle.createQuery("SELECT * FROM l4_sessions " +
-                                    "WHERE session_key = :session_key AND end_time IS NULL AND tap_uuid = :tap_uuid")
-                            .bind("session_key", sessionKey)
-                            .bind("tap_uuid", tapUuid)
-                            .mapTo(TcpSessionEntry.class)
-                            .findOne();
+        tablesService.getNzyme().getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+            List<String> unknown = Lists.newArrayList();
+            for (String sessionKey : bySessionKey.keySet()) {
+                if (!knownIds.containsKey(sessionKey)) {
+                    unknown.add(sessionKey);
                 }
+            }
 
-                if (existingSession.isPresent()) {
-                    // Existing session. Update.
-                    handle.createUpdate("UPDATE l4_sessions SET state = :state, " +
-                                    "bytes_count = :bytes_count, segments_count = :segments_count, " +
-                                    "end_time = :end_time, most_recent_segment_time = :most_recent_segment_time " +
-                                    "WHERE id = :id")
-                            .bind("state", TcpSessionState.valueOf(session.state().toUpperCase()))
-                            .bind("bytes_count", session.bytesCount())
-                            .bind("segments_count", session.segmentsCount())
-                            .bind("end_time", session.endTime())
-                            .bind("most_recent_segment_time", session.mostRecentSegmentTime())
-                            .bind("id", existingSession.get().id())
-                            .execute();
-                } else {
-                    // This is a new session.
-                    handle.createUpdate("INSERT INTO l4_sessions(tap_uuid, l4_type, session_key, " +
-                                    "source_mac, source_address, source_address_is_site_local, " +
-                                    "source_address_is_loopback, source_address_is_multicast, source_port, " +
-                                    "destination_mac, destination_address, destination_address_is_site_local, " +
-                                    "destination_address_is_loopback, destination_address_is_multicast," +
-                                    " destination_port, bytes_count, segments_count, " +
-                                    "start_time, end_time, most_recent_segment_time, state, " +
-                                    "source_address_geo_asn_number, source_address_geo_asn_name, " +
-                                    "source_address_geo_asn_domain, source_address_geo_city, " +
-                                    "source_address_geo_country_code, " +
-                                    "source_address_geo_latitude, source_address_geo_longitude, " +
-                                    "destination_address_geo_asn_number, destination_address_geo_asn_name, " +
-                                    "destination_address_geo_asn_domain, destination_address_geo_city, " +
-                                    "destination_address_geo_country_code, " +
-                                    "destination_address_geo_latitude, destination_address_geo_longitude, " +
-                                    "created_at) VALUES(:tap_uuid, :l4_type, :session_key, :source_mac, " +
-                                    ":source_address::inet, " +
-                                    ":source_address_is_site_local, :source_address_is_loopback, " +
-                                    ":source_address_is_multicast, :source_port, :destination_mac, " +
-                                    ":destination_address::inet, :destination_address_is_site_local, " +
-                                    ":destination_address_is_loopback, :destination_address_is_multicast, " +
-                                    ":destination_port, :bytes_count, :segments_count, :start_time, " +
-                                    ":end_time, :most_recent_segment_time, :state, " +
-                                    ":source_address_geo_asn_number, :source_address_geo_asn_name, " +
-                                    ":source_address_geo_asn_domain, :source_address_geo_city, " +
-                                    ":source_address_geo_country_code, " +
-                                    ":source_address_geo_latitude, :source_address_geo_longitude, " +
-                                    ":destination_address_geo_asn_number, :destination_address_geo_asn_name, " +
-                                    ":destination_address_geo_asn_domain, :destination_address_geo_city, " +
-                                    ":destination_address_geo_country_code, " +
-                                    ":destination_address_geo_latitude, :destination_address_geo_longitude, " +
-                                    ":created_at)")
+            // Update sessions with known open rows.
+            if (!knownIds.isEmpty()) {
+                List<String> keys = Lists.newArrayList(knownIds.keySet());
+                PreparedBatch update = tx.prepareBatch("UPDATE l4_sessions SET state = :state, " +
+                        "bytes_count = :bytes_count, segments_count = :segments_count, " +
+                        "end_time = :end_time, most_recent_segment_time = :most_recent_segment_time " +
+                        "WHERE id = :id AND start_time = :start_time AND end_time IS NULL");
+                for (String sessionKey : keys) {
+                    bindSessionUpdate(update, bySessionKey.get(sessionKey)).bind("id", knownIds.get(sessionKey)).add();
+                }
+
+                int[] updated = update.execute();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        // Row was closed or removed elsewhere. Go through the upsert instead.
+                        openSessions.invalidate(openSessionIndexKey(tapUuid, keys.get(i)));
+                        unknown.add(keys.get(i));
+                    }
+                }
+            }
+
+            /*
+             * An ended session does not match the open session index and would be inserted as a second row. Close
+             * existing open rows of ended sessions first and only insert the ones that had none.
+             */
+            List<String> endedUnknown = Lists.newArrayList();
+            for (String sessionKey : unknown) {
+                if (bySessionKey.get(sessionKey).endTime() != null) {
+                    endedUnknown.add(sessionKey);
+                }
+            }
+
+            Set<String> closed = Sets.newHashSet();
+            if (!endedUnknown.isEmpty()) {
+                PreparedBatch close = tx.prepareBatch("UPDATE l4_sessions SET state = :state, " +
+                        "bytes_count = :bytes_count, segments_count = :segments_count, " +
+                        "end_time = :end_time, most_recent_segment_time = :most_recent_segment_time " +
+                        "WHERE tap_uuid = :tap_uuid AND session_key = :session_key AND start_time = :start_time " +
+                        "AND end_time IS NULL");
+                for (String sessionKey : endedUnknown) {
+                    bindSessionUpdate(close, bySessionKey.get(sessionKey))
                             .bind("tap_uuid", tapUuid)
-                            .bind("l4_type", "TCP")
                             .bind("session_key", sessionKey)
-                            .bind("source_mac", session.sourceMac())
-                            .bind("source_address", session.sourceAddress())
-                            .bind("source_address_is_site_local", sourceAddress.isSiteLocalAddress())
-                            .bind("source_address_is_loopback", sourceAddress.isLoopbackAddress())
-                            .bind("source_address_is_multicast", sourceAddress.isMulticastAddress())
-                            .bind("source_port", session.sourcePort())
-                            .bind("destination_mac", session.destinationMac())
-                            .bind("destination_address", session.destinationAddress())
-                            .bind("destination_address_is_site_local", destinationAddress.isSiteLocalAddress())
-                            .bind("destination_address_is_loopback", destinationAddress.isLoopbackAddress())
-                            .bind("destination_address_is_multicast", destinationAddress.isMulticastAddress())
-                            .bind("destination_port", session.destinationPort())
-                            .bind("bytes_count", session.bytesCount())
-                            .bind("segments_count", session.segmentsCount())
-                            .bind("start_time", session.startTime())
-                            .bind("end_time", session.endTime())
-                            .bind("most_recent_segment_time", session.mostRecentSegmentTime())
-                            .bind("state", TcpSessionState.valueOf(session.state().toUpperCase()))
-                            .bind("source_address_geo_asn_number", sourceGeo.map(g -> g.asn().number()).orElse(null))
-                            .bind("source_address_geo_asn_name", sourceGeo.map(g -> g.asn().name()).orElse(null))
-                            .bind("source_address_geo_asn_domain", sourceGeo.map(g -> g.asn().domain()).orElse(null))
-                            .bind("source_address_geo_city", sourceGeo.map(g -> g.geo().city()).orElse(null))
-                            .bind("source_address_geo_country_code", sourceGeo.map(g -> g.geo().countryCode()).orElse(null))
-                            .bind("source_address_geo_latitude", sourceGeo.map(g -> g.geo().latitude()).orElse(null))
-                            .bind("source_address_geo_longitude", sourceGeo.map(g -> g.geo().longitude()).orElse(null))
-                            .bind("destination_address_geo_asn_number", destinationGeo.map(g -> g.asn().number()).orElse(null))
-                            .bind("destination_address_geo_asn_name", destinationGeo.map(g -> g.asn().name()).orElse(null))
-                            .bind("destination_address_geo_asn_domain", destinationGeo.map(g -> g.asn().domain()).orElse(null))
-                            .bind("destination_address_geo_city", destinationGeo.map(g -> g.geo().city()).orElse(null))
-                            .bind("destination_address_geo_country_code", destinationGeo.map(g -> g.geo().countryCode()).orElse(null))
-                            .bind("destination_address_geo_latitude", destinationGeo.map(g -> g.geo().latitude()).orElse(null))
-                            .bind("destination_address_geo_longitude", destinationGeo.map(g -> g.geo().longitude()).orElse(null))
-                            .bind("created_at", timestamp)
-                            .execute();
+                            .add();
                 }
-            });
-        } catch(Exception e) {
-            LOG.error("Could not write TCP session.", e);
-        }
+
+                int[] updated = close.execute();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] > 0) {
+                        closed.add(endedUnknown.get(i));
+                    }
+                }
+            }
+
+            // Insert new sessions or update open sessions that are not in the local index.
+            List<String> upserts = Lists.newArrayList();
+            for (String sessionKey : unknown) {
+                if (!closed.contains(sessionKey)) {
+                    upserts.add(sessionKey);
+                }
+            }
+
+            if (!upserts.isEmpty()) {
+                PreparedBatch upsert = tx.prepareBatch("INSERT INTO l4_sessions(tap_uuid, l4_type, session_key, " +
+                            "source_mac, source_address, source_address_is_site_local, " +
+                            "source_address_is_loopback, source_address_is_multicast, source_port, " +
+                            "destination_mac, destination_address, destination_address_is_site_local, " +
+                            "destination_address_is_loopback, destination_address_is_multicast," +
+                            " destination_port, bytes_count, segments_count, " +
+                            "start_time, end_time, most_recent_segment_time, state, " +
+                            "source_address_geo_asn_number, source_address_geo_asn_name, " +
+                            "source_address_geo_asn_domain, source_address_geo_city, " +
+                            "source_address_geo_country_code, " +
+                            "source_address_geo_latitude, source_address_geo_longitude, " +
+                            "destination_address_geo_asn_number, destination_address_geo_asn_name, " +
+                            "destination_address_geo_asn_domain, destination_address_geo_city, " +
+                            "destination_address_geo_country_code, " +
+                            "destination_address_geo_latitude, destination_address_geo_longitude, " +
+                            "created_at) VALUES(:tap_uuid, :l4_type, :session_key, :source_mac, " +
+                            ":source_address::inet, " +
+                            ":source_address_is_site_local, :source_address_is_loopback, " +
+                            ":source_address_is_multicast, :source_port, :destination_mac, " +
+                            ":destination_address::inet, :destination_address_is_site_local, " +
+                            ":destination_address_is_loopback, :destination_address_is_multicast, " +
+                            ":destination_port, :bytes_count, :segments_count, :start_time, " +
+                            ":end_time, :most_recent_segment_time, :state, " +
+                            ":source_address_geo_asn_number, :source_address_geo_asn_name, " +
+                            ":source_address_geo_asn_domain, :source_address_geo_city, " +
+                            ":source_address_geo_country_code, " +
+                            ":source_address_geo_latitude, :source_address_geo_longitude, " +
+                            ":destination_address_geo_asn_number, :destination_address_geo_asn_name, " +
+                            ":destination_address_geo_asn_domain, :destination_address_geo_city, " +
+                            ":destination_address_geo_country_code, " +
+                            ":destination_address_geo_latitude, :destination_address_geo_longitude, " +
+                            ":created_at) " +
+                            "ON CONFLICT (tap_uuid, session_key, start_time) WHERE end_time IS NULL DO UPDATE SET " +
+                            "state = EXCLUDED.state, bytes_count = EXCLUDED.bytes_count, " +
+                            "segments_count = EXCLUDED.segments_count, end_time = EXCLUDED.end_time, " +
+                            "most_recent_segment_time = EXCLUDED.most_recent_segment_time");
+
+                for (String sessionKey : upserts) {
+                    addSessionUpsert(upsert, tapUuid, timestamp, sessionKey, bySessionKey.get(sessionKey));
+                }
+
+                upsert.execute();
+            }
+
+            // Remember IDs of open sessions and forget ended ones.
+            List<String> openUpserts = Lists.newArrayList();
+            for (String sessionKey : upserts) {
+                if (bySessionKey.get(sessionKey).endTime() == null) {
+                    openUpserts.add(sessionKey);
+                }
+            }
+
+            Map<String, Long> newIds = Maps.newHashMap();
+            if (!openUpserts.isEmpty()) {
+                // Start time range only limits the partitions that are searched.
+                DateTime firstStart = null;
+                DateTime lastStart = null;
+                for (String sessionKey : openUpserts) {
+                    DateTime startTime = bySessionKey.get(sessionKey).startTime();
+                    if (firstStart == null || startTime.isBefore(firstStart)) {
+                        firstStart = startTime;
+                    }
+                    if (lastStart == null || startTime.isAfter(lastStart)) {
+                        lastStart = startTime;
+                    }
+                }
+
+                tx.createQuery("SELECT id, session_key FROM l4_sessions " +
+                                "WHERE tap_uuid = :tap_uuid AND end_time IS NULL AND session_key IN (<session_keys>) " +
+                                "AND start_time >= :first_start AND start_time <= :last_start")
+                        .bind("tap_uuid", tapUuid)
+                        .bindList("session_keys", openUpserts)
+                        .bind("first_start", firstStart)
+                        .bind("last_start", lastStart)
+                        .map((rs, ctx) -> Map.entry(rs.getString("session_key"), rs.getLong("id")))
+                        .forEach(e -> newIds.put(e.getKey(), e.getValue()));
+            }
+
+            for (Map.Entry<String, TcpSessionReport> session : bySessionKey.entrySet()) {
+                String indexKey = openSessionIndexKey(tapUuid, session.getKey());
+                if (session.getValue().endTime() != null) {
+                    openSessions.invalidate(indexKey);
+                } else if (newIds.containsKey(session.getKey())) {
+                    openSessions.put(indexKey, newIds.get(session.getKey()));
+                }
+            }
+        }));
+    }
+
+    private static PreparedBatch bindSessionUpdate(PreparedBatch batch, TcpSessionReport session) {
+        return batch
+                .bind("state", TcpSessionState.valueOf(session.state().toUpperCase()))
+                .bind("bytes_count", session.bytesCount())
+                .bind("segments_count", session.segmentsCount())
+                .bind("end_time", session.endTime())
+                .bind("most_recent_segment_time", session.mostRecentSegmentTime())
+                .bind("start_time", session.startTime());
+    }
+
+    private void addSessionUpsert(PreparedBatch batch,
+                                  UUID tapUuid,
+                                  DateTime timestamp,
+                                  String sessionKey,
+                                  TcpSessionReport session) {
+        InetAddress sourceAddress = stringtoInetAddress(session.sourceAddress());
+        InetAddress destinationAddress = stringtoInetAddress(session.destinationAddress());
+        Optional<GeoIpLookupResult> sourceGeo = geoIp.lookup(sourceAddress);
+        Optional<GeoIpLookupResult> destinationGeo = geoIp.lookup(destinationAddress);
+
+        batch.bind("tap_uuid", tapUuid)
+                .bind("l4_type", "TCP")
+                .bind("session_key", sessionKey)
+                .bind("source_mac", session.sourceMac())
+                .bind("source_address", session.sourceAddress())
+                .bind("source_address_is_site_local", sourceAddress.isSiteLocalAddress())
+                .bind("source_address_is_loopback", sourceAddress.isLoopbackAddress())
+                .bind("source_address_is_multicast", sourceAddress.isMulticastAddress())
+                .bind("source_port", session.sourcePort())
+                .bind("destination_mac", session.destinationMac())
+                .bind("destination_address", session.destinationAddress())
+                .bind("destination_address_is_site_local", destinationAddress.isSiteLocalAddress())
+                .bind("destination_address_is_loopback", destinationAddress.isLoopbackAddress())
+                .bind("destination_address_is_multicast", destinationAddress.isMulticastAddress())
+                .bind("destination_port", session.destinationPort())
+                .bind("bytes_count", session.bytesCount())
+                .bind("segments_count", session.segmentsCount())
+                .bind("start_time", session.startTime())
+                .bind("end_time", session.endTime())
+                .bind("most_recent_segment_time", session.mostRecentSegmentTime())
+                .bind("state", TcpSessionState.valueOf(session.state().toUpperCase()))
+                .bind("source_address_geo_asn_number", sourceGeo.map(g -> g.asn().number()).orElse(null))
+                .bind("source_address_geo_asn_name", sourceGeo.map(g -> g.asn().name()).orElse(null))
+                .bind("source_address_geo_asn_domain", sourceGeo.map(g -> g.asn().domain()).orElse(null))
+                .bind("source_address_geo_city", sourceGeo.map(g -> g.geo().city()).orElse(null))
+                .bind("source_address_geo_country_code", sourceGeo.map(g -> g.geo().countryCode()).orElse(null))
+                .bind("source_address_geo_latitude", sourceGeo.map(g -> g.geo().latitude()).orElse(null))
+                .bind("source_address_geo_longitude", sourceGeo.map(g -> g.geo().longitude()).orElse(null))
+                .bind("destination_address_geo_asn_number", destinationGeo.map(g -> g.asn().number()).orElse(null))
+                .bind("destination_address_geo_asn_name", destinationGeo.map(g -> g.asn().name()).orElse(null))
+                .bind("destination_address_geo_asn_domain", destinationGeo.map(g -> g.asn().domain()).orElse(null))
+                .bind("destination_address_geo_city", destinationGeo.map(g -> g.geo().city()).orElse(null))
+                .bind("destination_address_geo_country_code", destinationGeo.map(g -> g.geo().countryCode()).orElse(null))
+                .bind("destination_address_geo_latitude", destinationGeo.map(g -> g.geo().latitude()).orElse(null))
+                .bind("destination_address_geo_longitude", destinationGeo.map(g -> g.geo().longitude()).orElse(null))
+                .bind("created_at", timestamp)
+                .add();
+    }
+
+    private static String openSessionIndexKey(UUID tapUuid, String sessionKey) {
+        return tapUuid + "/" + sessionKey;
     }
 
     @Override
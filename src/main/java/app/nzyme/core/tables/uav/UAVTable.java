@@ -9,7 +9,6 @@ import app.nzyme.core.tables.TablesService;
 import app.nzyme.core.taps.Tap;
 import app.nzyme.core.uav.UavRegistryKeys;
 import app.nzyme.core.uav.db.UavEntry;
-import app.nzyme.core.uav.db.UavTypeEntry;
 import app.nzyme.core.uav.types.UavTypeMatch;
 import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Subsystem;
@@ -404,9 +403,6 @@ public class UAVTable implements DataTable {
                 .getValue(UavRegistryKeys.MONITORING_ALERT_ON_HOSTILE.key(), tap.organizationId(), tap.tenantId())
                 .map(Boolean::parseBoolean).orElse(false);
 
-        List<UavTypeEntry> customTypes = tablesService.getNzyme().getUav()
-                .findAllCustomTypes(tap.organizationId(), tap.tenantId());
-
         for (UavReport uav : uavs) {
             String serial = null;
             for (UavIdReport id : uav.uavIds()) {
@@ -417,7 +413,8 @@ public class UAVTable implements DataTable {
 
             Classification classification = null;
             if (serial != null) {
-                Optional<UavTypeMatch> typeMatch = tablesService.getNzyme().getUav().matchUavType(customTypes, serial);
+                Optional<UavTypeMatch> typeMatch = tablesService.getNzyme().getUav()
+                        .matchUavType(serial, tap.tenantId(), tap.organizationId());
 
                 if (typeMatch.isPresent() && typeMatch.get().defaultClassification() != null) {
                     classification = Classification.valueOf(typeMatch.get().defaultClassification());
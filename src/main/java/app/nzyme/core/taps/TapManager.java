@@ -4,6 +4,8 @@ import app.nzyme.core.NzymeNode;
 import app.nzyme.core.context.ContextService;
 import app.nzyme.core.context.db.MacAddressContextEntry;
 import app.nzyme.core.context.db.MacAddressTransparentContextEntry;
+import app.nzyme.core.monitoring.timeseries.RollingMetricsBucket;
+import app.nzyme.core.monitoring.timeseries.RollingMetricsStore;
 import app.nzyme.core.rest.resources.taps.reports.context.TapContextDataReport;
 import app.nzyme.core.rest.resources.taps.reports.context.TapContextReport;
 import app.nzyme.core.rest.resources.taps.reports.context.TapMacContextReport;
@@ -37,15 +39,32 @@ public class TapManager {
 
     private final NzymeNode nzyme;
 
+    private final TapMetricsWriteBuffer metricsWriteBuffer;
+
+    // Recent tap metrics received by this node, downsampled to one slot per minute.
+    private final RollingMetricsStore gaugesStore;
+    private final RollingMetricsStore timersStore;
+
     public TapManager(NzymeNode nzyme) {
         this.nzyme = nzyme;
 
+        int maxSeries = nzyme.getConfiguration().performance().metricsMemoryMaxSeries().orElse(2000); // Default: 2000
+        this.gaugesStore = new RollingMetricsStore(RollingMetricsStore.DEFAULT_CAPACITY_MINUTES, maxSeries);
+        this.timersStore = new RollingMetricsStore(RollingMetricsStore.DEFAULT_CAPACITY_MINUTES, maxSeries);
+
+        this.metricsWriteBuffer = new TapMetricsWriteBuffer(
+                nzyme,
+                nzyme.getConfiguration().performance().tapMetricsFlushIntervalMs().orElse(1000), // Default: 1000
+                nzyme.getConfiguration().performance().tapMetricsFlushBatchSize().orElse(5000), // Default: 5000
+                nzyme.getConfiguration().performance().tapMetricsBufferCapacity().orElse(50000) // Default: 50000
+        );
+
         Executors.newSingleThreadScheduledExecutor(
                 new ThreadFactoryBuilder()
                         .setNameFormat("taps-cleaner-%d")
                         .setDaemon(true)
                         .build()
-        ).scheduleAtFixedRate(this::retentionCleanMetrics, 0, 5, TimeUnit.MINUTES);
+        ).scheduleAtFixedRate(this::evictStaleMetrics, 5, 5, TimeUnit.MINUTES);
     }
 
     public void registerTapHello(HelloReport report, UUID tapUUID) {
@@ -354,7 +373,7 @@ public class TapManager {
 
         // Timers.
         for (Map.Entry<String, TimersReport> timer : report.timers().entrySet()) {
-            writeTimer(tapUUID, timer.getKey(), timer.getValue().mean(), timer.getValue().p99(), report.timestamp());
+            writeTimer(tapUUID, timer.getKey(), timer.getValue().mean(), timer.getValue().p99());
         }
 
 
@@ -510,42 +529,31 @@ public class TapManager {
     }
 
     private void writeGauge(UUID tapUUID, String metricName, Double metricValue, DateTime timestamp) {
-        nzyme.getDatabase().withHandle(handle ->
-                handle.createUpdate("INSERT INTO tap_metrics_gauges(tap_uuid, metric_name, metric_value, created_at) " +
-                                "VALUES(:tap_uuid, :metric_name, :metric_value, :timestamp)")
-                        .bind("tap_uuid", tapUUID)
-                        .bind("metric_name", metricName)
-                        .bind("metric_value", metricValue)
-                        .bind("timestamp", timestamp)
-                        .execute()
-        );
+        gaugesStore.record(tapUUID, metricName, metricValue, timestamp);
+        metricsWriteBuffer.writeGauge(tapUUID, metricName, metricValue, timestamp);
     }
 
-    private void writeTimer(UUID tapUUID, String metricName, double mean, double p99, DateTime timestamp) {
-        nzyme.getDatabase().withHandle(handle ->
-                handle.createUpdate("INSERT INTO tap_metrics_timers(tap_uuid, metric_name, mean, p99, created_at) " +
-                                "VALUES(:tap_uuid, :metric_name, :mean, :p99, NOW())")
-                        .bind("tap_uuid", tapUUID)
-                        .bind("metric_name", metricName)
-                        .bind("mean", mean)
-                        .bind("p99", p99)
-                        .bind("timestamp", timestamp)
-                        .execute()
-        );
+    private void writeTimer(UUID tapUUID, String metricName, double mean, double p99) {
+        DateTime now = DateTime.now();
+        timersStore.record(tapUUID, metricName, mean, now);
+        metricsWriteBuffer.writeTimer(tapUUID, metricName, mean, p99, now);
     }
 
-    private void retentionCleanMetrics() {
-        nzyme.getDatabase().useHandle(handle -> {
-            handle.createUpdate("DELETE FROM tap_metrics_gauges WHERE created_at < :created_at")
-                    .bind("created_at", DateTime.now().minusHours(24))
-                    .execute();
-        });
+    /**
+     * Writes all buffered tap metrics. Call before closing the database.
+     */
+    public void shutdown() {
+        metricsWriteBuffer.shutdown();
+    }
 
-        nzyme.getDatabase().useHandle(handle -> {
-            handle.createUpdate("DELETE FROM tap_metrics_timers WHERE created_at < :created_at")
-                    .bind("created_at", DateTime.now().minusHours(24))
-                    .execute();
-        });
+    /*
+     * The metrics tables are partitioned by day and old partitions are dropped by the database retention cleaner.
+     * Only the in-memory series of taps that stopped reporting have to be removed here.
+     */
+    private void evictStaleMetrics() {
+        DateTime now = DateTime.now();
+        gaugesStore.evictStale(now);
+        timersStore.evictStale(now);
     }
 
 
@@ -755,6 +763,16 @@ public class TapManager {
                                                                                     String metricName,
                                                                                     int hours,
                                                                                     BucketSize bucketSize) {
+        if (tapUUID != null) {
+            Optional<Map<DateTime, TapMetricsAggregation>> recent = findRecentMetricsHistogram(
+                    gaugesStore, tapUUID, metricName, hours, bucketSize
+            );
+
+            if (recent.isPresent()) {
+                return recent.get().isEmpty() ? Optional.empty() : recent;
+            }
+        }
+
         Map<DateTime, TapMetricsAggregation> result = Maps.newHashMap();
 
         List<TapMetricsAggregation> agg = nzyme.getDatabase().withHandle(handle -> {
@@ -807,6 +825,14 @@ public class TapManager {
                                                                                     String metricName,
                                                                                     int hours,
                                                                                     BucketSize bucketSize) {
+        Optional<Map<DateTime, TapMetricsAggregation>> recent = findRecentMetricsHistogram(
+                timersStore, tapUUID, metricName, hours, bucketSize
+        );
+
+        if (recent.isPresent()) {
+            return recent.get().isEmpty() ? Optional.empty() : recent;
+        }
+
         Map<DateTime, TapMetricsAggregation> result = Maps.newHashMap();
 
         List<TapMetricsAggregation> agg = nzyme.getDatabase().withHandle(handle ->
@@ -833,6 +859,44 @@ public class TapManager {
         return Optional.of(result);
     }
 
+    /**
+     * Answers a histogram from the in-memory store if it covers the whole window. Only a node that is alone in the
+     * cluster is guaranteed to have received all reports of a tap, so every other node queries the database.
+     *
+     * @return Empty if the database has to be queried.
+     */
+    private Optional<Map<DateTime, TapMetricsAggregation>> findRecentMetricsHistogram(RollingMetricsStore store,
+                                                                                      UUID tapUUID,
+                                                                                      String metricName,
+                                                                                      int hours,
+                                                                                      BucketSize bucketSize) {
+        Optional<List<RollingMetricsBucket>> buckets = store.findHistogram(
+                tapUUID, metricName, DateTime.now().minusHours(hours), bucketSize
+        );
+
+        if (buckets.isEmpty() || !isOnlyActiveNode()) {
+            return Optional.empty();
+        }
+
+        Map<DateTime, TapMetricsAggregation> result = Maps.newHashMap();
+        for (RollingMetricsBucket x : buckets.get()) {
+            result.put(x.bucket(), TapMetricsAggregation.create(x.bucket(), x.average(), x.maximum(), x.minimum()));
+        }
+
+        return Optional.of(result);
+    }
+
+    private boolean isOnlyActiveNode() {
+        long activeNodes = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM nodes WHERE deleted = false AND last_seen > :last_seen")
+                        .bind("last_seen", DateTime.now().minusMinutes(2))
+                        .mapTo(Long.class)
+                        .one()
+        );
+
+        return activeNodes <= 1;
+    }
+
     public Optional<List<Bus>> findBusesOfTap(UUID tapUUID) {
         List<Bus> buses = nzyme.getDatabase().withHandle(handle ->
                 handle.createQuery("SELECT * FROM tap_buses WHERE tap_uuid = :tap_uuid AND updated_at > :last_seen")
@@ -887,8 +951,19 @@ public class TapManager {
         Map<TapPositionKey, Integer> floorSummaries = Maps.newHashMap();
         Map<TapPositionKey, Integer> floorTapCounts = Maps.newHashMap();
 
+        // Load all taps in one query instead of one per signal.
+        List<UUID> tapUuids = signalStrengths.stream()
+                .map(TapBasedSignalStrengthResult::tapUuid)
+                .distinct()
+                .toList();
+
+        Map<UUID, Tap> taps = Maps.newHashMap();
+        for (Tap tap : findAllTapsByUUIDs(tapUuids)) {
+            taps.put(tap.uuid(), tap);
+        }
+
         for (TapBasedSignalStrengthResult ss : signalStrengths) {
-            Tap tap = findTap(ss.tapUuid()).orElseThrow();
+            Tap tap = Optional.ofNullable(taps.get(ss.tapUuid())).orElseThrow();
 
             if (tap.locationId() == null || tap.floorId() == null) {
                 continue;
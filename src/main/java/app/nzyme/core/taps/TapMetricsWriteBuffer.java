@@ -0,0 +1,187 @@
+package app.nzyme.core.taps;
+
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.database.PostgresCopyBuffer;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.Nullable;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects tap metric gauges and timers of all taps in a bounded buffer and writes them in batches, using COPY in a
+ * single transaction per flush. A flush happens periodically or as soon as a full batch is waiting. If the buffer is
+ * full, new points are dropped.
+ */
+public class TapMetricsWriteBuffer {
+
+    private static final Logger LOG = LogManager.getLogger(TapMetricsWriteBuffer.class);
+
+    public interface Writer {
+        void write(List<Point> points) throws Exception;
+    }
+
+    private final Writer writer;
+    private final int flushBatchSize;
+
+    private final BlockingQueue<Point> buffer;
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested;
+
+    private final Timer flushTimer;
+    private final Meter droppedMeter;
+
+    public TapMetricsWriteBuffer(NzymeNode nzyme, int flushIntervalMs, int flushBatchSize, int capacity) {
+        this(points -> writePoints(nzyme, points), flushIntervalMs, flushBatchSize, capacity, nzyme.getMetrics());
+    }
+
+    public TapMetricsWriteBuffer(Writer writer,
+                                 int flushIntervalMs,
+                                 int flushBatchSize,
+                                 int capacity,
+                                 MetricRegistry metrics) {
+        this.writer = writer;
+        this.flushBatchSize = flushBatchSize;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.flushRequested = new AtomicBoolean(false);
+
+        metrics.register(MetricNames.TAP_METRICS_BUFFER_SIZE, (Gauge<Integer>) buffer::size);
+        this.flushTimer = metrics.timer(MetricNames.TAP_METRICS_FLUSH_TIMER);
+        this.droppedMeter = metrics.meter(MetricNames.TAP_METRICS_DROPPED);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setNameFormat("tap-metrics-writer-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void writeGauge(UUID tapUuid, String metricName, double value, DateTime timestamp) {
+        add(Point.create(tapUuid, metricName, value, null, timestamp));
+    }
+
+    public void writeTimer(UUID tapUuid, String metricName, double mean, double p99, DateTime timestamp) {
+        add(Point.create(tapUuid, metricName, mean, p99, timestamp));
+    }
+
+    private void add(Point point) {
+        if (!buffer.offer(point)) {
+            droppedMeter.mark();
+            LOG.debug("Dropping tap metric [{}] of tap [{}]: Write buffer is full.", point.metricName(), point.tapUuid());
+            return;
+        }
+
+        // Don't wait for the next scheduled flush if a full batch is already waiting.
+        if (buffer.size() >= flushBatchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (Exception e) {
+                // Shutting down. The final flush will pick up the points.
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered points, in batches of at most the configured batch size.
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+
+        while (!buffer.isEmpty()) {
+            List<Point> batch = Lists.newArrayListWithCapacity(Math.min(buffer.size(), flushBatchSize));
+            buffer.drainTo(batch, flushBatchSize);
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try (Timer.Context ignored = flushTimer.time()) {
+                writer.write(batch);
+            } catch (Exception e) {
+                LOG.error("Could not write <{}> tap metric points. Dropping.", batch.size(), e);
+                droppedMeter.mark(batch.size());
+            }
+        }
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public void shutdown() {
+        flusher.shutdown();
+
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            flusher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        LOG.info("Writing <{}> remaining tap metric points.", buffer.size());
+        flush();
+    }
+
+    private static void writePoints(NzymeNode nzyme, List<Point> points) throws Exception {
+        PostgresCopyBuffer gauges = new PostgresCopyBuffer("tap_metrics_gauges",
+                "tap_uuid", "metric_name", "metric_value", "created_at");
+        PostgresCopyBuffer timers = new PostgresCopyBuffer("tap_metrics_timers",
+                "tap_uuid", "metric_name", "mean", "p99", "created_at");
+
+        for (Point point : points) {
+            if (point.p99() == null) {
+                gauges.addRow(point.tapUuid(), point.metricName(), point.value(), point.timestamp());
+            } else {
+                timers.addRow(point.tapUuid(), point.metricName(), point.value(), point.p99(), point.timestamp());
+            }
+        }
+
+        nzyme.getDatabase().useHandle(handle -> handle.useTransaction(tx -> {
+            gauges.copyIn(tx);
+            timers.copyIn(tx);
+        }));
+    }
+
+    @AutoValue
+    public abstract static class Point {
+
+        public abstract UUID tapUuid();
+        public abstract String metricName();
+
+        // Gauge value or timer mean.
+        public abstract double value();
+
+        // Only set for timers.
+        @Nullable
+        public abstract Double p99();
+
+        public abstract DateTime timestamp();
+
+        public static Point create(UUID tapUuid, String metricName, double value, Double p99, DateTime timestamp) {
+            return new AutoValue_TapMetricsWriteBuffer_Point(tapUuid, metricName, value, p99, timestamp);
+        }
+
+    }
+
+}
@@ -10,10 +10,15 @@ import app.nzyme.core.uav.db.UavVectorEntry;
 import app.nzyme.core.uav.types.*;
 import app.nzyme.core.util.MetricNames;
 import app.nzyme.core.util.TimeRange;
+import app.nzyme.plugin.distributed.messaging.ClusterMessage;
+import app.nzyme.plugin.distributed.messaging.MessageType;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.google.common.net.HttpHeaders;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -27,6 +32,7 @@ import org.apache.logging.log4j.Logger;
 import org.joda.time.DateTime;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -46,6 +52,11 @@ public class Uav {
     private final ReentrantLock connectModelsLock = new ReentrantLock();
     private List<ConnectUavModel> connectModels;
 
+    // Compiled from connectModels. Replaced on every reload.
+    private volatile ConnectUavModelIndex connectModelIndex;
+
+    private final LoadingCache<CustomUavTypeIndexKey, CustomUavTypeIndex> customTypeIndexes;
+
     // Can be disabled if Connect is not set up or UAV models data source is not enabled in Connect.
     private boolean connectModelsIsEnabled = false;
 
@@ -54,6 +65,14 @@ public class Uav {
 
         this.connectModelLookupTimer = nzyme.getMetrics().timer(MetricRegistry.name(MetricNames.UAV_CONNECT_TYPE_LOOKUP_TIMING));
 
+        this.customTypeIndexes = CacheBuilder.newBuilder()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public CustomUavTypeIndex load(@NotNull CustomUavTypeIndexKey key) {
+                        return new CustomUavTypeIndex(findAllCustomTypes(key.organizationId(), key.tenantId()));
+                    }
+                });
+
         // Reload connect models on configuration change.
         nzyme.getRegistryChangeMonitor()
                 .onChange("core", ConnectRegistryKeys.CONNECT_API_KEY.key(), this::reloadConnectModels);
@@ -112,6 +131,7 @@ public class Uav {
             }
 
             this.connectModels = models;
+            this.connectModelIndex = new ConnectUavModelIndex(models);
             this.connectModelsIsEnabled = true;
         } catch (Exception e) {
             LOG.error("Could not download UAV model data from Connect.", e);
@@ -438,6 +458,8 @@ public class Uav {
                         .bind("model", model)
                         .execute()
         );
+
+        invalidateCustomTypeIndexesClusterWide();
     }
 
     public void updateCustomType(long id,
@@ -461,6 +483,8 @@ public class Uav {
                         .bind("model", model)
                         .execute()
         );
+
+        invalidateCustomTypeIndexesClusterWide();
     }
 
     public void deleteCustomType(long id) {
@@ -469,82 +493,56 @@ public class Uav {
                         .bind("id", id)
                         .execute()
         );
+
+        invalidateCustomTypeIndexesClusterWide();
     }
-    
-    public Optional<UavTypeMatch> matchUavType(String serial, UUID tenantId, UUID organizationId) {
-        return matchUavType(findAllCustomTypes(organizationId, tenantId), serial);
+
+    public void invalidateCustomTypeIndexes() {
+        customTypeIndexes.invalidateAll();
     }
 
-    public Optional<UavTypeMatch> matchUavType(List<UavTypeEntry> types, String serial) {
+    /*
+     * Must be called after every change of custom types. The local indexes are dropped right away because the
+     * message bus only delivers to this node on its next poll.
+     */
+    public void invalidateCustomTypeIndexesClusterWide() {
+        invalidateCustomTypeIndexes();
+
+        nzyme.getMessageBus().sendToAllOnlineNodes(ClusterMessage.create(
+                MessageType.INVALIDATE_CACHE,
+                Map.of("cache_type", "uav_types"),
+                false
+        ));
+    }
+    
+    /**
+     * Matches a serial against the custom types of the tenant first and the Connect UAV models second. Both are
+     * compiled into indexes that are rebuilt when custom types or Connect models change.
+     */
+    public Optional<UavTypeMatch> matchUavType(String serial, UUID tenantId, UUID organizationId) {
         if (serial  == null) {
             return Optional.empty();
         }
 
-        for (UavTypeEntry type : types) {
-            UavTypeMatchType matchType = UavTypeMatchType.valueOf(type.matchType());
+        try(Timer.Context ignored = connectModelLookupTimer.time()) {
+            Optional<UavTypeMatch> customMatch = customTypeIndexes
+                    .get(CustomUavTypeIndexKey.create(organizationId, tenantId))
+                    .match(serial);
 
-            switch (matchType) {
-                case EXACT -> {
-                    if (serial.equals(type.matchValue())) {
-                        return Optional.of(UavTypeMatch.create(
-                                type.type(), type.name(), type.model(), type.defaultClassification())
-                        );
-                    }
-                }
-                case PREFIX -> {
-                    if (serial.startsWith(type.matchValue())) {
-                        return Optional.of(UavTypeMatch.create(
-                                type.type(), type.name(), type.model(), type.defaultClassification())
-                        );
-                    }
-                }
+            if (customMatch.isPresent()) {
+                return customMatch;
             }
-        }
 
-        // Check Connect models.
-        try(Timer.Context ignored = connectModelLookupTimer.time()) {
-            Optional<List<ConnectUavModel>> models = findAllConnectUavModels();
-
-            if (models.isPresent()) {
-                for (ConnectUavModel connectModel : models.get()) {
-                    switch (connectModel.serialType()) {
-                        case RANGE -> {
-                            String[] serialParts = connectModel.serial().split("-");
-
-                            if (serialParts.length != 2) {
-                                LOG.error("Unexpected RANGE type Connect serial: {}", connectModel.serial());
-                                continue;
-                            }
-
-                            String lowerBound = serialParts[0];
-                            String upperBound = serialParts[1];
-
-                            if (serial.compareTo(lowerBound) >= 0 &&
-                                    serial.compareTo(upperBound) <= 0) {
-                                return Optional.of(UavTypeMatch.create(
-                                        connectModel.classification() == null ? "Unknown" : connectModel.classification(),
-                                        null,
-                                        connectModel.make() + " " + connectModel.model(),
-                                        null
-                                ));
-                            }
-                        }
-                        case ANSICTA2063A -> {
-                            if (serial.equals(connectModel.serial())) {
-                                return Optional.of(UavTypeMatch.create(
-                                        connectModel.classification() == null ? "Unknown" : connectModel.classification(),
-                                        null,
-                                        connectModel.make() + " " + connectModel.model(),
-                                        null
-                                ));
-                            }
-                        }
-                    }
-                }
+            // Check Connect models.
+            ConnectUavModelIndex connectIndex = this.connectModelIndex;
+            if (!connectModelsIsEnabled || connectIndex == null) {
+                return Optional.empty();
             }
-        }
 
-        return Optional.empty();
+            return connectIndex.match(serial);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load custom UAV types.", e);
+        }
     }
 
     public Optional<Integer> countAllConnectUavModels() {
@@ -0,0 +1,125 @@
+package app.nzyme.core.uav.types;
+
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiled UAV models from Connect. ANSI/CTA-2063-A serials are held in a hash map and RANGE serials in an array of
+ * intervals sorted by lower bound, which is binary searched. If multiple models match, the one that comes first in
+ * the list the index was built from wins, like with a linear scan.
+ *
+ * Immutable after construction.
+ */
+public class ConnectUavModelIndex {
+
+    private static final Logger LOG = LogManager.getLogger(ConnectUavModelIndex.class);
+
+    private final List<ConnectUavModel> models;
+
+    // Serial -> Index of first matching model.
+    private final Map<String, Integer> exact;
+
+    // Sorted by lower bound.
+    private final Range[] ranges;
+
+    // Highest upper bound of all ranges up to and including the range at the same position.
+    private final String[] maxUpperBounds;
+
+    public ConnectUavModelIndex(List<ConnectUavModel> models) {
+        this.models = List.copyOf(models);
+        this.exact = Maps.newHashMap();
+
+        Range[] ranges = new Range[models.size()];
+        int rangeCount = 0;
+        for (int i = 0; i < models.size(); i++) {
+            ConnectUavModel model = models.get(i);
+
+            switch (model.serialType()) {
+                case RANGE -> {
+                    String[] serialParts = model.serial().split("-");
+
+                    if (serialParts.length != 2) {
+                        LOG.error("Unexpected RANGE type Connect serial: {}", model.serial());
+                        continue;
+                    }
+
+                    ranges[rangeCount++] = new Range(serialParts[0], serialParts[1], i);
+                }
+                case ANSICTA2063A -> exact.putIfAbsent(model.serial(), i);
+            }
+        }
+
+        this.ranges = Arrays.copyOf(ranges, rangeCount);
+        Arrays.sort(this.ranges, Comparator.comparing(r -> r.lowerBound));
+
+        this.maxUpperBounds = new String[rangeCount];
+        for (int i = 0; i < rangeCount; i++) {
+            String upperBound = this.ranges[i].upperBound;
+            maxUpperBounds[i] = i == 0 || upperBound.compareTo(maxUpperBounds[i-1]) > 0
+                    ? upperBound : maxUpperBounds[i-1];
+        }
+    }
+
+    public Optional<UavTypeMatch> match(String serial) {
+        int best = exact.getOrDefault(serial, Integer.MAX_VALUE);
+
+        // Last range with a lower bound <= serial.
+        int low = 0;
+        int high = ranges.length - 1;
+        int last = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranges[mid].lowerBound.compareTo(serial) <= 0) {
+                last = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        // Walk back while any earlier range can still reach the serial.
+        for (int i = last; i >= 0 && maxUpperBounds[i].compareTo(serial) >= 0; i--) {
+            if (ranges[i].upperBound.compareTo(serial) >= 0 && ranges[i].model < best) {
+                best = ranges[i].model;
+            }
+        }
+
+        if (best == Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+
+        ConnectUavModel model = models.get(best);
+        return Optional.of(UavTypeMatch.create(
+                model.classification() == null ? "Unknown" : model.classification(),
+                null,
+                model.make() + " " + model.model(),
+                null
+        ));
+    }
+
+    public int size() {
+        return models.size();
+    }
+
+    private static final class Range {
+
+        private final String lowerBound;
+        private final String upperBound;
+        private final int model;
+
+        private Range(String lowerBound, String upperBound, int model) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.model = model;
+        }
+
+    }
+
+}
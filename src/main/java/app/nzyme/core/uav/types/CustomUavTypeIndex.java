@@ -0,0 +1,99 @@
+package app.nzyme.core.uav.types;
+
+import app.nzyme.core.uav.db.UavTypeEntry;
+import com.google.common.collect.Maps;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiled custom UAV types of a tenant. EXACT types are held in a hash map and PREFIX types in a trie, so a
+ * lookup only walks the characters of the serial. If multiple types match, the one that comes first in the list
+ * the index was built from wins, like with a linear scan.
+ *
+ * Immutable after construction.
+ */
+public class CustomUavTypeIndex {
+
+    private static final Logger LOG = LogManager.getLogger(CustomUavTypeIndex.class);
+
+    private final List<UavTypeEntry> types;
+
+    // Serial -> Index of first matching type.
+    private final Map<String, Integer> exact;
+    private final TrieNode prefixes;
+
+    public CustomUavTypeIndex(List<UavTypeEntry> types) {
+        this.types = List.copyOf(types);
+        this.exact = Maps.newHashMap();
+        this.prefixes = new TrieNode();
+
+        for (int i = 0; i < types.size(); i++) {
+            UavTypeEntry type = types.get(i);
+
+            UavTypeMatchType matchType;
+            try {
+                matchType = UavTypeMatchType.valueOf(type.matchType());
+            } catch (IllegalArgumentException e) {
+                LOG.error("Skipping custom UAV type [{}] with unknown match type [{}].",
+                        type.uuid(), type.matchType());
+                continue;
+            }
+
+            switch (matchType) {
+                case EXACT -> exact.putIfAbsent(type.matchValue(), i);
+                case PREFIX -> {
+                    TrieNode node = prefixes;
+                    for (int c = 0; c < type.matchValue().length(); c++) {
+                        node = node.children.computeIfAbsent(type.matchValue().charAt(c), k -> new TrieNode());
+                    }
+
+                    if (node.type == null) {
+                        node.type = i;
+                    }
+                }
+            }
+        }
+    }
+
+    public Optional<UavTypeMatch> match(String serial) {
+        int best = exact.getOrDefault(serial, Integer.MAX_VALUE);
+
+        TrieNode node = prefixes;
+        for (int c = 0; node != null; c++) {
+            if (node.type != null && node.type < best) {
+                best = node.type;
+            }
+
+            if (c == serial.length()) {
+                break;
+            }
+
+            node = node.children.get(serial.charAt(c));
+        }
+
+        if (best == Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+
+        UavTypeEntry type = types.get(best);
+        return Optional.of(UavTypeMatch.create(
+                type.type(), type.name(), type.model(), type.defaultClassification()
+        ));
+    }
+
+    private static final class TrieNode {
+
+        private final Map<Character, TrieNode> children = Maps.newHashMap();
+
+        // Index of the first PREFIX type ending at this node.
+        @Nullable
+        private Integer type = null;
+
+    }
+
+}
@@ -21,17 +21,30 @@ import app.nzyme.core.bluetooth.sig.BluetoothSigService;
 import app.nzyme.core.context.ContextService;
 import app.nzyme.core.crypto.Crypto;
 import app.nzyme.core.database.DatabaseImpl;
+import app.nzyme.core.detection.alerts.DetectionAlertService;
+import app.nzyme.core.distributed.LeaderElection;
+import app.nzyme.core.distributed.messaging.postgres.PostgresMessageBusImpl;
+import app.nzyme.core.dot11.monitoring.Dot11SignalTrackMonitor;
+import app.nzyme.core.dot11.monitoring.clients.KnownClientMonitor;
+import app.nzyme.core.dot11.monitoring.disco.Dot11DiscoMonitor;
+import app.nzyme.core.events.EventActionDispatcher;
 import app.nzyme.core.integrations.geoip.GeoIpService;
+import app.nzyme.core.integrations.tenant.cot.CotOutput;
 import app.nzyme.core.ouis.OuiService;
+import app.nzyme.core.periodicals.PeriodicalManager;
 import app.nzyme.core.rest.interceptors.TapTableSizeInterceptor;
 import app.nzyme.core.security.authentication.PasswordHasher;
+import app.nzyme.core.security.authentication.TapSecretIndex;
+import app.nzyme.core.tables.TableIngestQueue;
 import app.nzyme.core.tables.bluetooth.BluetoothTable;
 import app.nzyme.core.tables.dns.DNSTable;
 import app.nzyme.core.tables.dot11.Dot11Table;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshotCache;
 import app.nzyme.core.tables.socks.SOCKSTable;
 import app.nzyme.core.tables.ssh.SSHTable;
 import app.nzyme.core.tables.tcp.TCPTable;
 import app.nzyme.core.tables.uav.UAVTable;
+import app.nzyme.core.taps.TapMetricsWriteBuffer;
 import app.nzyme.core.uav.Uav;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -42,20 +55,65 @@ public class MetricNames {
     public static final String BTSIG_CID_LOOKUP_TIMING = name(BluetoothSigService.class, "company-id-lookup-timing");
     public static final String BTSIG_SUUID_LOOKUP_TIMING = name(BluetoothSigService.class, "service-uuid-lookup-timing");
     public static final String DATABASE_SIZE = name(DatabaseImpl.class, "size");
+    public static final String DATABASE_POOL_NAME = name(DatabaseImpl.class, "connection-pool");
+    public static final String DATABASE_POOL_ACQUIRE_TIMING = name(DATABASE_POOL_NAME, "pool", "Wait");
+    public static final String DETECTION_ALERT_RAISES = name(DetectionAlertService.class, "raises");
+    public static final String DETECTION_ALERT_COALESCED_RAISES = name(DetectionAlertService.class, "coalesced-raises");
+    public static final String DETECTION_ALERT_FLUSH_TIMER = name(DetectionAlertService.class, "flush-timing");
+    public static final String DETECTION_ALERT_INTAKE_SIZE = name(DetectionAlertService.class, "intake-size");
+
+    // Suffixed with the event action type. (For example `EMAIL`)
+    public static final String EVENT_ACTIONS_QUEUE_DEPTH = name(EventActionDispatcher.class, "queue-depth");
+    public static final String EVENT_ACTIONS_EXECUTION_TIMER = name(EventActionDispatcher.class, "execution-timing");
+    public static final String EVENT_ACTIONS_FAILURES = name(EventActionDispatcher.class, "failures");
+    public static final String EVENT_ACTIONS_RETRIES = name(EventActionDispatcher.class, "retries");
+    public static final String EVENT_ACTIONS_DROPPED = name(EventActionDispatcher.class, "dropped");
+
+    // Suffixed with the UUID of the CoT output.
+    public static final String COT_OUTPUT_SEND_TIMER = name(CotOutput.class, "send-timing");
+    public static final String COT_OUTPUT_ERRORS = name(CotOutput.class, "errors");
+
+    // Suffixed with the class name of the periodical. (For example `KnownClientMonitor`)
+    public static final String PERIODICALS_RUN_TIMER = name(PeriodicalManager.class, "run-timing");
+    public static final String PERIODICALS_OVERRUNS = name(PeriodicalManager.class, "overruns");
+    public static final String PERIODICALS_SKIPS = name(PeriodicalManager.class, "skips");
+
+    public static final String CLUSTER_LEADER = name(LeaderElection.class, "is-leader");
+    public static final String MESSAGE_BUS_DELIVERY_LATENCY = name(PostgresMessageBusImpl.class, "delivery-latency");
+
     public static final String GEOIP_CACHE_SIZE = name(GeoIpService.class, "cache-size");
+    public static final String GEOIP_CACHE_HITS = name(GeoIpService.class, "cache-hits");
+    public static final String GEOIP_CACHE_MISSES = name(GeoIpService.class, "cache-misses");
+    public static final String GEOIP_CACHE_HIT_RATIO = name(GeoIpService.class, "cache-hit-ratio");
     public static final String GEOIP_LOOKUP_TIMING_UNCACHED = name(GeoIpService.class, "lookup-timing-uncached");
     public static final String PGP_ENCRYPTION_TIMING = name(Crypto.class, "encryption-timing");
     public static final String PGP_DECRYPTION_TIMING = name(Crypto.class, "decryption-timing");
     public static final String PASSWORD_HASHING_TIMER = name(PasswordHasher.class, "hashing-timer");
+    public static final String TAP_AUTHENTICATION_TIMER = name(TapSecretIndex.class, "authentication-timer");
+    public static final String TAP_METRICS_BUFFER_SIZE = name(TapMetricsWriteBuffer.class, "buffer-size");
+    public static final String TAP_METRICS_FLUSH_TIMER = name(TapMetricsWriteBuffer.class, "flush-timing");
+    public static final String TAP_METRICS_DROPPED = name(TapMetricsWriteBuffer.class, "dropped");
     public static final String TAP_TABLE_REQUEST_SIZES = name(TapTableSizeInterceptor.class, "request_size");
     public static final String CONTEXT_MAC_CACHE_SIZE = name(ContextService.class, "mac-cache-size");
     public static final String CONTEXT_MAC_LOOKUP_TIMING = name(ContextService.class, "mac-lookup-timing");
 
+    // Suffixed with the name of the data table. (For example `dot11`)
+    public static final String TABLES_INGEST_QUEUE_DEPTH = name(TableIngestQueue.class, "queue-depth");
+    public static final String TABLES_INGEST_QUEUE_LATENCY = name(TableIngestQueue.class, "queue-latency");
+    public static final String TABLES_INGEST_PROCESSING_TIMER = name(TableIngestQueue.class, "processing-timing");
+    public static final String TABLES_INGEST_REJECTED = name(TableIngestQueue.class, "rejected");
+
     public static final String DOT11_TOTAL_REPORT_PROCESSING_TIMER = name(Dot11Table.class, "total-report-processing-timing");
     public static final String DOT11_BSSID_REPORT_PROCESSING_TIMER = name(Dot11Table.class, "bssid-report-processing-timing");
     public static final String DOT11_CLIENTS_REPORT_PROCESSING_TIMER = name(Dot11Table.class, "clients-report-processing-timing");
     public static final String DOT11_DISCO_REPORT_PROCESSING_TIMER = name(Dot11Table.class, "disco-report-processing-timing");
     public static final String DOT11_ALERT_PROCESSING_TIMER = name(Dot11Table.class, "alert-processing-timing");
+    public static final String DOT11_KNOWN_CLIENT_MONITOR_RUN_TIMER = name(KnownClientMonitor.class, "run-timing");
+    public static final String DOT11_KNOWN_CLIENT_MONITOR_MERGED_CLIENTS = name(KnownClientMonitor.class, "merged-clients");
+    public static final String DOT11_KNOWN_CLIENT_MONITOR_UNAPPROVED_CLIENTS = name(KnownClientMonitor.class, "unapproved-clients");
+    public static final String DOT11_SIGNAL_TRACK_MONITOR_RUN_TIMER = name(Dot11SignalTrackMonitor.class, "run-timing");
+    public static final String DOT11_DISCO_MONITOR_COUNTERS = name(Dot11DiscoMonitor.class, "counters");
+    public static final String DOT11_MONITORING_SNAPSHOT_CACHE_SIZE = name(Dot11MonitoringSnapshotCache.class, "cache-size");
 
     public static final String BLUETOOTH_TOTAL_REPORT_PROCESSING_TIMER = name(BluetoothTable.class, "total-report-processing-timing");
 
@@ -68,6 +126,10 @@ public class MetricNames {
     public static final String TCP_TOTAL_REPORT_PROCESSING_TIMER = name(TCPTable.class, "total-report-processing-timing");
     public static final String TCP_SESSIONS_REPORT_PROCESSING_TIMER = name(TCPTable.class, "sessions-report-processing-timing");
     public static final String TCP_SESSION_DISCOVERY_QUERY_TIMER = name(TCPTable.class, "session-discovery-query-timing");
+    public static final String TCP_OPEN_SESSION_INDEX_HITS = name(TCPTable.class, "open-session-index-hits");
+    public static final String TCP_OPEN_SESSION_INDEX_MISSES = name(TCPTable.class, "open-session-index-misses");
+    public static final String TCP_OPEN_SESSION_INDEX_HIT_RATIO = name(TCPTable.class, "open-session-index-hit-ratio");
+    public static final String TCP_OPEN_SESSION_INDEX_SIZE = name(TCPTable.class, "open-session-index-size");
 
     public static final String SOCKS_TOTAL_REPORT_PROCESSING_TIMER = name(SOCKSTable.class, "total-report-processing-timing");
 
@@ -137,6 +137,24 @@ public class FilterSql {
         }
     }
 
+    /**
+     * Matches if any element of an array column matches. Negated operators match if no element matches.
+     */
+    public static String arrayStringMatch(String bindId, String fieldName, FilterOperator operator) {
+        switch (operator) {
+            case EQUALS:
+                return ":" + bindId + " = ANY(" + fieldName + ")";
+            case NOT_EQUALS:
+                return "NOT (:" + bindId + " = ANY(" + fieldName + "))";
+            case REGEX_MATCH:
+                return "EXISTS (SELECT 1 FROM UNNEST(" + fieldName + ") AS v WHERE v ~ :" + bindId + ")";
+            case NOT_REGEX_MATCH:
+                return "NOT EXISTS (SELECT 1 FROM UNNEST(" + fieldName + ") AS v WHERE v ~ :" + bindId + ")";
+            default:
+                throw new RuntimeException("Invalid operator [" + operator + "] for string array field [" + fieldName + "].");
+        }
+    }
+
     public static String numericMatch(String bindId, String fieldName, FilterOperator operator) {
         switch (operator) {
             case EQUALS_NUMERIC:
@@ -0,0 +1,89 @@
+package app.nzyme.core.crypto;
+
+import app.nzyme.core.MockNzyme;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decryption of cluster-encrypted values with the private key parsed from disk for every call against the
+ * cached cluster keys. Requires the same database as the other crypto tests. Run with the main method from the test
+ * classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CryptoPGPDecryptionBenchmark {
+
+    @Param({"1", "25"})
+    public int values;
+
+    private Crypto crypto;
+    private File privateKeyFile;
+    private List<byte[]> encrypted;
+
+    @Setup
+    public void setup() throws IOException, Crypto.CryptoInitializationException, Crypto.CryptoOperationException {
+        CryptoTestUtils.cleanFiles(CryptoTestUtils.CRYPTO_TEST_FOLDER);
+        CryptoTestUtils.cleanDB();
+
+        crypto = new Crypto(new MockNzyme());
+        crypto.initialize(false);
+
+        privateKeyFile = Paths.get(
+                CryptoTestUtils.CRYPTO_TEST_FOLDER.toString(), Crypto.PGP_PRIVATE_KEY_FILE_NAME
+        ).toFile();
+
+        encrypted = Lists.newArrayList();
+        for (int i = 0; i < values; i++) {
+            encrypted.add(crypto.encryptWithClusterKey(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Benchmark
+    public void perCallKeyParsing(Blackhole bh) throws Crypto.CryptoOperationException, IOException {
+        for (byte[] value : encrypted) {
+            try (InputStream keyIn = new FileInputStream(privateKeyFile)) {
+                bh.consume(crypto.decrypt(value, keyIn));
+            }
+        }
+    }
+
+    @Benchmark
+    public void cachedClusterKeys(Blackhole bh) throws Crypto.CryptoOperationException {
+        for (byte[] value : encrypted) {
+            bh.consume(crypto.decryptWithClusterKey(value));
+        }
+    }
+
+    @Benchmark
+    public void cachedClusterKeysBulk(Blackhole bh) throws Crypto.CryptoOperationException {
+        bh.consume(crypto.decryptAll(encrypted));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CryptoPGPDecryptionBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import static org.testng.Assert.*;
 
@@ -171,6 +172,25 @@ public class CryptoPGPTest {
         assertEquals(decrypted, value);
     }
 
+    @Test
+    public void testBulkDecryption() throws Crypto.CryptoInitializationException, Crypto.CryptoOperationException {
+        NzymeNode mockNzyme = new MockNzyme();
+        Crypto crypto = new Crypto(mockNzyme);
+        crypto.initialize();
+
+        byte[] value1 = "IT IS A SECRET.".getBytes();
+        byte[] value2 = "IT IS ANOTHER SECRET.".getBytes();
+
+        List<byte[]> decrypted = crypto.decryptAll(List.of(
+                crypto.encryptWithClusterKey(value1),
+                crypto.encryptWithClusterKey(value2)
+        ));
+
+        assertEquals(decrypted.size(), 2);
+        assertEquals(decrypted.get(0), value1);
+        assertEquals(decrypted.get(1), value2);
+    }
+
     @Test(expectedExceptions = { Crypto.CryptoOperationException.class }, expectedExceptionsMessageRegExp = "Cannot decrypt value.")
     public void testEncryptionDecryptionFailsWithWrongKey() throws Crypto.CryptoInitializationException, Crypto.CryptoOperationException {
         Path privatePath = Paths.get(CryptoTestUtils.CRYPTO_TEST_FOLDER.toString(), Crypto.PGP_PRIVATE_KEY_FILE_NAME);
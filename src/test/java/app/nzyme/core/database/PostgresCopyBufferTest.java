@@ -0,0 +1,51 @@
+package app.nzyme.core.database;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class PostgresCopyBufferTest {
+
+    @Test
+    public void testAddRow() {
+        UUID uuid = UUID.fromString("6e2a6e2c-fa3f-4e84-9d61-40ea7c4a6c4a");
+        DateTime timestamp = new DateTime(2024, 3, 1, 12, 30, 0, DateTimeZone.UTC);
+
+        PostgresCopyBuffer buffer = new PostgresCopyBuffer("dot11_bssids", "id", "tap_uuid", "bssid", "oui", "created_at");
+        buffer.addRow(1L, uuid, "00:C0:CA:95:68:3B", null, timestamp);
+        buffer.addRow(2L, uuid, "00:C0:CA:95:68:3C", "Alfa", timestamp);
+
+        assertEquals(buffer.size(), 2);
+        assertEquals(buffer.getBuffer(),
+                "1\t6e2a6e2c-fa3f-4e84-9d61-40ea7c4a6c4a\t00:C0:CA:95:68:3B\t\\N\t2024-03-01T12:30:00.000Z\n" +
+                "2\t6e2a6e2c-fa3f-4e84-9d61-40ea7c4a6c4a\t00:C0:CA:95:68:3C\tAlfa\t2024-03-01T12:30:00.000Z\n");
+    }
+
+    @Test
+    public void testEscaping() {
+        PostgresCopyBuffer buffer = new PostgresCopyBuffer("dot11_ssids", "ssid");
+        buffer.addRow("a\tb\nc\rd\\e");
+
+        assertEquals(buffer.getBuffer(), "a\\tb\\nc\\rd\\\\e\n");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddRowWithWrongNumberOfValues() {
+        new PostgresCopyBuffer("dot11_rates", "rate", "ssid_id").addRow(1.0F);
+    }
+
+    @Test
+    public void testClear() {
+        PostgresCopyBuffer buffer = new PostgresCopyBuffer("dot11_rates", "rate", "ssid_id");
+        buffer.addRow(1.0F, 1L);
+        buffer.clear();
+
+        assertEquals(buffer.size(), 0);
+        assertEquals(buffer.getBuffer(), "");
+    }
+
+}
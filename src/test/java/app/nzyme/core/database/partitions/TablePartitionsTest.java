@@ -0,0 +1,132 @@
+package app.nzyme.core.database.partitions;
+
+import app.nzyme.core.MockNzyme;
+import app.nzyme.core.NzymeNode;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class TablePartitionsTest {
+
+    private static final PartitionedTable TABLE = PartitionedTable.NODE_METRICS_GAUGES;
+
+    @BeforeMethod
+    public void clean() {
+        NzymeNode nzyme = new MockNzyme();
+
+        nzyme.getDatabase().useHandle(handle -> {
+            handle.createUpdate("DROP TABLE IF EXISTS " + partitionName(today().plusDays(20))).execute();
+            handle.createUpdate("DELETE FROM node_metrics_gauges_default").execute();
+        });
+    }
+
+    @Test
+    public void testCreateAheadStartsAfterLegacyPartition() {
+        NzymeNode nzyme = new MockNzyme();
+        TablePartitions partitions = new TablePartitions(nzyme);
+
+        partitions.createAhead(TABLE, 3);
+
+        List<String> existing = partitions.findPartitions(TABLE);
+        LocalDate legacyUpperBound = existing.stream()
+                .filter(p -> p.startsWith(TABLE.getTableName() + "_legacy_"))
+                .map(p -> TablePartitions.parseUpperBound(TABLE.getTableName(), p).orElseThrow().toLocalDate())
+                .findFirst()
+                .orElseThrow();
+
+        for (int i = 0; i <= 3; i++) {
+            LocalDate day = today().plusDays(i);
+
+            // Days before the end of the legacy partition are covered by it.
+            assertEquals(existing.contains(partitionName(day)), !day.isBefore(legacyUpperBound), day.toString());
+        }
+    }
+
+    @Test
+    public void testCreateAheadMovesRowsOutOfDefaultPartition() {
+        NzymeNode nzyme = new MockNzyme();
+        TablePartitions partitions = new TablePartitions(nzyme);
+
+        LocalDate day = today().plusDays(20);
+        insertGauge(nzyme, day.toDateTimeAtStartOfDay(DateTimeZone.UTC).plusHours(12));
+        assertEquals(count(nzyme, "node_metrics_gauges_default"), 1);
+
+        partitions.createAhead(TABLE, 20);
+
+        assertTrue(partitions.findPartitions(TABLE).contains(partitionName(day)));
+        assertEquals(count(nzyme, partitionName(day)), 1);
+        assertEquals(count(nzyme, "node_metrics_gauges_default"), 0);
+    }
+
+    @Test
+    public void testDeleteFromDefaultBefore() {
+        NzymeNode nzyme = new MockNzyme();
+        TablePartitions partitions = new TablePartitions(nzyme);
+
+        DateTime cutoff = today().plusDays(31).toDateTimeAtStartOfDay(DateTimeZone.UTC);
+        insertGauge(nzyme, cutoff.minusHours(12));
+        insertGauge(nzyme, cutoff.plusHours(12));
+        assertEquals(count(nzyme, "node_metrics_gauges_default"), 2);
+
+        assertEquals(partitions.deleteFromDefaultBefore(TABLE, cutoff), 1);
+        assertEquals(count(nzyme, "node_metrics_gauges_default"), 1);
+    }
+
+    @Test
+    public void testParseUpperBoundOfDailyPartition() {
+        Optional<DateTime> bound = TablePartitions.parseUpperBound("dns_log", "dns_log_p20250131");
+
+        assertTrue(bound.isPresent());
+        assertEquals(bound.get(), new DateTime(2025, 2, 1, 0, 0, DateTimeZone.UTC));
+    }
+
+    @Test
+    public void testParseUpperBoundOfLegacyPartition() {
+        Optional<DateTime> bound = TablePartitions.parseUpperBound("dns_log", "dns_log_legacy_20250131");
+
+        assertTrue(bound.isPresent());
+        assertEquals(bound.get(), new DateTime(2025, 1, 31, 0, 0, DateTimeZone.UTC));
+    }
+
+    @Test
+    public void testParseUpperBoundIgnoresOtherPartitions() {
+        assertTrue(TablePartitions.parseUpperBound("dns_log", "dns_log_default").isEmpty());
+        assertTrue(TablePartitions.parseUpperBound("dns_log", "dns_log_pfoo").isEmpty());
+        assertTrue(TablePartitions.parseUpperBound("dns_log", "dns_pairs_p20250131").isEmpty());
+    }
+
+    private static void insertGauge(NzymeNode nzyme, DateTime createdAt) {
+        nzyme.getDatabase().useHandle(handle ->
+                handle.createUpdate("INSERT INTO node_metrics_gauges(node_id, metric_name, metric_value, " +
+                                "created_at) VALUES(:node_id, 'test', 1.0, :created_at)")
+                        .bind("node_id", UUID.randomUUID())
+                        .bind("created_at", createdAt)
+                        .execute()
+        );
+    }
+
+    private static long count(NzymeNode nzyme, String table) {
+        return nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM " + table)
+                        .mapTo(Long.class)
+                        .one()
+        );
+    }
+
+    private static String partitionName(LocalDate day) {
+        return TABLE.getTableName() + "_p" + day.toString("yyyyMMdd");
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(DateTimeZone.UTC);
+    }
+
+}
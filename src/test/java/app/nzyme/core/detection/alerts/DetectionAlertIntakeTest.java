@@ -0,0 +1,103 @@
+package app.nzyme.core.detection.alerts;
+
+import app.nzyme.plugin.Subsystem;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class DetectionAlertIntakeTest {
+
+    private static final UUID ORGANIZATION = UUID.randomUUID();
+    private static final UUID TENANT = UUID.randomUUID();
+
+    private static PendingDetectionAlert alert(String checksum, String details, Map<String, String> attributes) {
+        return PendingDetectionAlert.create(
+                checksum,
+                ORGANIZATION,
+                TENANT,
+                null,
+                null,
+                DetectionType.DOT11_BANDIT_CONTACT,
+                Subsystem.DOT11,
+                details,
+                attributes,
+                DateTime.now()
+        );
+    }
+
+    @Test
+    public void testCoalescesRaisesOfSameAlert() {
+        DetectionAlertIntake intake = new DetectionAlertIntake();
+
+        assertFalse(intake.offer(alert("a", "first", Map.of("bssid", "00:C0:CA:95:68:3B"))));
+        assertTrue(intake.offer(alert("a", "second", Map.of("bssid", "00:C0:CA:95:68:3C"))));
+        assertTrue(intake.offer(alert("a", "third", Map.of("bssid", "00:C0:CA:95:68:3D"))));
+        assertFalse(intake.offer(alert("b", "other", Map.of())));
+
+        assertEquals(intake.size(), 2);
+
+        List<PendingDetectionAlert> drained = intake.drain();
+        assertEquals(drained.size(), 2);
+
+        PendingDetectionAlert a = drained.get(0);
+        assertEquals(a.comparisonChecksum(), "a");
+        assertEquals(a.raises(), 3);
+        assertEquals(a.details(), "third");
+        assertEquals(a.attributes().get("bssid"), "00:C0:CA:95:68:3D");
+
+        assertEquals(drained.get(1).comparisonChecksum(), "b");
+        assertEquals(drained.get(1).raises(), 1);
+    }
+
+    @Test
+    public void testDrainEmptiesIntake() {
+        DetectionAlertIntake intake = new DetectionAlertIntake();
+        intake.offer(alert("a", "first", Map.of()));
+
+        assertEquals(intake.drain().size(), 1);
+        assertEquals(intake.size(), 0);
+        assertTrue(intake.drain().isEmpty());
+
+        // A new raise after a drain is pending again and not merged into the written one.
+        assertFalse(intake.offer(alert("a", "second", Map.of())));
+    }
+
+    @Test
+    public void testRequeuedAlertsAreMergedWithNewerRaises() {
+        DetectionAlertIntake intake = new DetectionAlertIntake();
+        intake.offer(alert("a", "first", Map.of()));
+        intake.offer(alert("b", "first", Map.of()));
+
+        List<PendingDetectionAlert> failed = intake.drain();
+
+        // Raised while the failed write was running.
+        intake.offer(alert("c", "new", Map.of()));
+        intake.offer(alert("b", "second", Map.of()));
+
+        intake.requeue(failed);
+        assertEquals(intake.size(), 3);
+
+        List<PendingDetectionAlert> retried = intake.drain();
+        assertEquals(retried.get(0).comparisonChecksum(), "a");
+        assertEquals(retried.get(0).raises(), 1);
+
+        PendingDetectionAlert b = retried.get(1);
+        assertEquals(b.comparisonChecksum(), "b");
+        assertEquals(b.raises(), 2);
+        assertEquals(b.details(), "second");
+        assertEquals(b.firstRaisedAt(), failed.get(1).firstRaisedAt());
+
+        assertEquals(retried.get(2).comparisonChecksum(), "c");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCoalesceRejectsDifferentChecksums() {
+        alert("a", "first", Map.of()).coalesce(alert("b", "second", Map.of()));
+    }
+
+}
@@ -2,13 +2,17 @@ package app.nzyme.core.distributed.messaging.postgres;
 
 import app.nzyme.core.MockNzyme;
 import app.nzyme.core.NzymeNode;
+import app.nzyme.core.util.MetricNames;
 import app.nzyme.plugin.Database;
 import app.nzyme.plugin.distributed.messaging.*;
+import com.google.common.collect.Lists;
 import org.joda.time.DateTime;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -86,6 +90,91 @@ public class PostgresMessageBusImplTest {
         assertEquals(failureCount, 0);
     }
 
+    @Test
+    public void testPollProcessesAllMessagesInOrderAndRecordsLatency() {
+        NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+
+        List<Object> received = Lists.newArrayList();
+        nzyme.getMessageBus().onMessageReceived(MessageType.CHECK_RESTART_HTTP_SERVER, new MessageHandler() {
+            @Override
+            public MessageProcessingResult handle(ReceivedMessage message) {
+                received.add(message.parameters().get("n"));
+                return MessageProcessingResult.SUCCESS;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+        });
+
+        for (int i = 0; i < 5; i++) {
+            nzyme.getMessageBus().send(Message.create(
+                    nzyme.getNodeManager().getLocalNodeId(),
+                    MessageType.CHECK_RESTART_HTTP_SERVER,
+                    Map.of("n", i),
+                    false)
+            );
+        }
+
+        ((PostgresMessageBusImpl) nzyme.getMessageBus()).poll();
+
+        assertEquals(received, List.of(0, 1, 2, 3, 4));
+
+        long notSuccessCount = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM message_bus_messages WHERE status != 'PROCESSED_SUCCESS' " +
+                                "OR processing_time_ms IS NULL")
+                        .mapTo(Long.class)
+                        .one()
+        );
+        assertEquals(notSuccessCount, 0);
+
+        assertEquals(nzyme.getMetrics().timer(MetricNames.MESSAGE_BUS_DELIVERY_LATENCY).getCount(), 5);
+    }
+
+    @Test
+    public void testPollCompletesAllMessagesWhenHandlerThrows() {
+        NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+
+        List<Object> received = Lists.newArrayList();
+        nzyme.getMessageBus().onMessageReceived(MessageType.CHECK_RESTART_HTTP_SERVER, new MessageHandler() {
+            @Override
+            public MessageProcessingResult handle(ReceivedMessage message) {
+                if (message.parameters().get("n").equals(1)) {
+                    throw new RuntimeException("test");
+                }
+
+                received.add(message.parameters().get("n"));
+                return MessageProcessingResult.SUCCESS;
+            }
+
+            @Override
+            public String getName() {
+                return "test";
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            nzyme.getMessageBus().send(Message.create(
+                    nzyme.getNodeManager().getLocalNodeId(),
+                    MessageType.CHECK_RESTART_HTTP_SERVER,
+                    Map.of("n", i),
+                    false)
+            );
+        }
+
+        ((PostgresMessageBusImpl) nzyme.getMessageBus()).poll();
+
+        assertEquals(received, List.of(0, 2));
+
+        List<String> statuses = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT status FROM message_bus_messages ORDER BY id")
+                        .mapTo(String.class)
+                        .list()
+        );
+        assertEquals(statuses, List.of("PROCESSED_SUCCESS", "PROCESSED_FAILURE", "PROCESSED_SUCCESS"));
+    }
+
     @Test
     public void testSendAndPollWithFailureResult() throws InterruptedException {
         NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
@@ -282,6 +282,59 @@ public class PostgresTasksQueueImplTest {
         assertEquals(calls2.get(), 1);
     }
 
+    @Test
+    public void testMultipleConsumersProcessEachTaskOnce() throws IOException, InterruptedException {
+        MockNzyme nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+        PostgresTasksQueueImpl tq = (PostgresTasksQueueImpl) nzyme.getTasksQueue();
+        assertEquals(countTotalTasks(nzyme), 0);
+
+        cleanDataFolder(); // This makes nzyme generate new node UUID.
+
+        MockNzyme nzyme2 = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+        PostgresTasksQueueImpl tq2 = (PostgresTasksQueueImpl) nzyme2.getTasksQueue();
+
+        AtomicInteger calls = new AtomicInteger(0);
+        TaskHandler th = new TaskHandler() {
+            @Override
+            public TaskProcessingResult handle(ReceivedTask task) {
+                calls.incrementAndGet();
+                return TaskProcessingResult.SUCCESS;
+            }
+
+            @Override
+            public String getName() {
+                return null;
+            }
+        };
+
+        tq.onMessageReceived(TaskType.TEST, th);
+        tq2.onMessageReceived(TaskType.TEST, th);
+
+        for (int i = 0; i < 25; i++) {
+            tq.publish(Task.create(
+                    TaskType.TEST,
+                    true,
+                    Collections.emptyMap(),
+                    true
+            ));
+        }
+
+        assertEquals(countTotalTasks(nzyme), 25);
+
+        // Each poll claims at most one batch. Finished tasks trigger further polls until the queue is drained.
+        tq.poll();
+        tq2.poll();
+        Thread.sleep(1000);
+        assertEquals(calls.get(), 25);
+
+        long notSuccess = nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT COUNT(*) FROM tasks_queue WHERE status != 'PROCESSED_SUCCESS'")
+                        .mapTo(Long.class)
+                        .one()
+        );
+        assertEquals(notSuccess, 0);
+    }
+
     @Test
     public void testRetentionCleaning() {
         MockNzyme nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
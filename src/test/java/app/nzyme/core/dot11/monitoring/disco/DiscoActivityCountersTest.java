@@ -0,0 +1,76 @@
+package app.nzyme.core.dot11.monitoring.disco;
+
+import app.nzyme.core.dot11.db.DiscoHistogramEntry;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class DiscoActivityCountersTest {
+
+    private static final DateTime NOW = new DateTime(2024, 1, 2, 12, 30, 15);
+    private static final DiscoActivityCounterKey KEY = DiscoActivityCounterKey.create(1, UUID.randomUUID());
+
+    @Test
+    public void testRecordsPerMinuteNewestFirst() {
+        DiscoActivityCounters counters = new DiscoActivityCounters();
+        counters.record(KEY, NOW.minusMinutes(1), 5);
+        counters.record(KEY, NOW, 10);
+        counters.record(KEY, NOW.withSecondOfMinute(50), 3);
+
+        List<DiscoHistogramEntry> histogram = counters.histogram(KEY, NOW);
+
+        assertEquals(histogram.size(), 2);
+        assertEquals(histogram.get(0).bucket().getMillis(), DiscoActivityCounters.toBucket(NOW).getMillis());
+        assertEquals(histogram.get(0).frameCount(), 13);
+        assertEquals(histogram.get(1).frameCount(), 5);
+    }
+
+    @Test
+    public void testEvictsBucketsOutsideOfWindow() {
+        DiscoActivityCounters counters = new DiscoActivityCounters();
+        counters.record(KEY, NOW.minusMinutes(DiscoActivityCounters.WINDOW_MINUTES + 1), 5);
+        counters.record(KEY, NOW, 10);
+
+        List<DiscoHistogramEntry> histogram = counters.histogram(KEY, NOW);
+        assertEquals(histogram.size(), 1);
+        assertEquals(histogram.get(0).frameCount(), 10);
+    }
+
+    @Test
+    public void testReconcileKeepsHigherCounts() {
+        DiscoActivityCounters counters = new DiscoActivityCounters();
+        DateTime bucket = DiscoActivityCounters.toBucket(NOW);
+
+        // Recorded after the database histogram was read.
+        counters.record(KEY, NOW, 20);
+
+        counters.reconcile(KEY, List.of(
+                DiscoHistogramEntry.create(bucket, 15),
+                DiscoHistogramEntry.create(bucket.minusMinutes(1), 7)
+        ));
+
+        List<DiscoHistogramEntry> histogram = counters.histogram(KEY, NOW);
+        assertEquals(histogram.size(), 2);
+        assertEquals(histogram.get(0).frameCount(), 20);
+        assertEquals(histogram.get(1).frameCount(), 7);
+    }
+
+    @Test
+    public void testRetain() {
+        DiscoActivityCounters counters = new DiscoActivityCounters();
+        DiscoActivityCounterKey other = DiscoActivityCounterKey.create(2, UUID.randomUUID());
+        counters.record(KEY, NOW, 1);
+        counters.record(other, NOW, 1);
+
+        counters.retain(Set.of(other));
+
+        assertEquals(counters.size(), 1);
+        assertTrue(counters.histogram(KEY, NOW).isEmpty());
+    }
+
+}
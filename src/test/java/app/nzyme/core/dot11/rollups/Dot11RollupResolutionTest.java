@@ -0,0 +1,50 @@
+package app.nzyme.core.dot11.rollups;
+
+import app.nzyme.core.util.Bucketing;
+import app.nzyme.core.util.TimeRange;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+
+public class Dot11RollupResolutionTest {
+
+    private static final DateTime NOW = new DateTime(2025, 1, 31, 12, 0);
+
+    @Test
+    public void testShortRecentRangeUsesMinuteRollups() {
+        TimeRange range = TimeRange.create(NOW.minusHours(24), NOW, false);
+
+        assertEquals(select(range), Optional.of(Dot11RollupResolution.MINUTE));
+    }
+
+    @Test
+    public void testShortOldRangeUsesRawTables() {
+        TimeRange range = TimeRange.create(NOW.minusDays(7), NOW.minusDays(7).plusHours(1), false);
+
+        assertEquals(select(range), Optional.empty());
+    }
+
+    @Test
+    public void testLongRangesUseHourRollups() {
+        assertEquals(
+                select(TimeRange.create(NOW.minusDays(7), NOW, false)),
+                Optional.of(Dot11RollupResolution.HOUR)
+        );
+        assertEquals(
+                select(TimeRange.create(NOW.minusDays(365), NOW, false)),
+                Optional.of(Dot11RollupResolution.HOUR)
+        );
+        assertEquals(
+                select(TimeRange.create(new DateTime(0), NOW, true)),
+                Optional.of(Dot11RollupResolution.HOUR)
+        );
+    }
+
+    private static Optional<Dot11RollupResolution> select(TimeRange range) {
+        return Dot11RollupResolution.select(range, Bucketing.getConfig(range), NOW);
+    }
+
+}
@@ -0,0 +1,58 @@
+package app.nzyme.core.dot11.tracks;
+
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+
+public class GeneratedWaterfalls {
+
+    private static final DateTime START = new DateTime(2024, 1, 1, 0, 0);
+
+    /**
+     * Per-minute waterfall with the given number of signal tracks that slowly drift and sometimes disappear for a
+     * few minutes, on top of random noise.
+     */
+    public static SortedMap<DateTime, Map<Integer, Long>> generate(long seed, int minutes, int trackCount) {
+        Random random = new Random(seed);
+
+        int[] centerlines = new int[trackCount];
+        for (int i = 0; i < trackCount; i++) {
+            centerlines[i] = -90 + random.nextInt(70);
+        }
+
+        SortedMap<DateTime, Map<Integer, Long>> buckets = Maps.newTreeMap();
+        for (int minute = 0; minute < minutes; minute++) {
+            Map<Integer, Long> bucket = Maps.newHashMap();
+
+            // Noise.
+            for (int i = 0; i < 10; i++) {
+                bucket.put(-100 + random.nextInt(100), (long) random.nextInt(30));
+            }
+
+            for (int i = 0; i < trackCount; i++) {
+                if (random.nextInt(10) == 0) {
+                    centerlines[i] = Math.max(-95, Math.min(-5, centerlines[i] + random.nextInt(5) - 2));
+                }
+
+                if (random.nextInt(20) == 0) {
+                    continue;
+                }
+
+                int width = 2 + random.nextInt(8);
+                for (int signal = centerlines[i] - width; signal <= centerlines[i] + width; signal++) {
+                    if (signal >= -100 && signal < 0) {
+                        bucket.merge(signal, 20L + random.nextInt(200), Long::sum);
+                    }
+                }
+            }
+
+            buckets.put(START.plusMinutes(minute), bucket);
+        }
+
+        return buckets;
+    }
+
+}
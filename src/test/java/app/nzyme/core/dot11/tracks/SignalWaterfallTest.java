@@ -0,0 +1,65 @@
+package app.nzyme.core.dot11.tracks;
+
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SignalWaterfallTest {
+
+    private static final DateTime T0 = new DateTime(2024, 1, 1, 12, 0);
+
+    @Test
+    public void testHeatmapCoversAllSignalStrengthsInBucketOrder() {
+        SignalWaterfall waterfall = new SignalWaterfall();
+        waterfall.add(T0.plusMinutes(1), -50, 10);
+        waterfall.add(T0, -60, 5);
+        waterfall.add(T0, -60, 2);
+
+        SignalHeatmap heatmap = waterfall.toHeatmap();
+
+        assertEquals(heatmap.rows(), 2);
+        assertEquals(heatmap.bucket(0), T0);
+        assertEquals(heatmap.bucket(1), T0.plusMinutes(1));
+
+        // Index 0 is -100 dBm.
+        assertEquals(heatmap.row(0).length, 100);
+        assertEquals(heatmap.row(0)[40], 7L);
+        assertEquals(heatmap.row(1)[50], 10L);
+        assertEquals(heatmap.row(1)[40], 0L);
+    }
+
+    @Test
+    public void testClearFromReplacesIncompleteBuckets() {
+        SignalWaterfall waterfall = new SignalWaterfall();
+        waterfall.add(T0, -60, 5);
+        waterfall.add(T0.plusMinutes(1), -60, 1);
+
+        // The last bucket is fetched again, now complete.
+        waterfall.clearFrom(T0.plusMinutes(1));
+        waterfall.add(T0.plusMinutes(1), -60, 4);
+        waterfall.add(T0.plusMinutes(2), -60, 3);
+
+        SignalHeatmap heatmap = waterfall.toHeatmap();
+        assertEquals(waterfall.size(), 3);
+        assertEquals(heatmap.row(0)[40], 5L);
+        assertEquals(heatmap.row(1)[40], 4L);
+        assertEquals(heatmap.row(2)[40], 3L);
+    }
+
+    @Test
+    public void testEvictBefore() {
+        SignalWaterfall waterfall = new SignalWaterfall();
+        waterfall.add(T0, -60, 5);
+        waterfall.add(T0.plusMinutes(1), -60, 5);
+        waterfall.add(T0.plusMinutes(2), -60, 5);
+
+        waterfall.evictBefore(T0.plusMinutes(1));
+        assertEquals(waterfall.size(), 2);
+        assertEquals(waterfall.toHeatmap().bucket(0), T0.plusMinutes(1));
+
+        waterfall.evictBefore(T0.plusMinutes(10));
+        assertTrue(waterfall.isEmpty());
+    }
+
+}
@@ -0,0 +1,64 @@
+package app.nzyme.core.dot11.tracks;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the heatmap and detecting tracks with boxed lists against primitive arrays, on generated
+ * waterfalls of the size the signal track monitor works with. Run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class TrackDetectorBenchmark {
+
+    // Eight hours of per-minute buckets.
+    @Param({"60", "480"})
+    public int minutes;
+
+    @Param({"1", "3"})
+    public int tracks;
+
+    private SortedMap<DateTime, Map<Integer, Long>> buckets;
+    private TrackDetector detector;
+
+    @Setup
+    public void setup() {
+        buckets = GeneratedWaterfalls.generate(42, minutes, tracks);
+        detector = new TrackDetector();
+    }
+
+    @Benchmark
+    public void boxed(Blackhole blackhole) {
+        TrackDetector.TrackDetectorHeatmapData heatmap = TrackDetector.toChartAxisMaps(buckets);
+        blackhole.consume(detector.detect(heatmap.z(), heatmap.y(), TrackDetector.DEFAULT_CONFIG));
+    }
+
+    @Benchmark
+    public void primitive(Blackhole blackhole) {
+        SignalHeatmap heatmap = SignalHeatmap.fromBuckets(buckets);
+        blackhole.consume(detector.detect(heatmap, TrackDetector.DEFAULT_CONFIG));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TrackDetectorBenchmark.class.getSimpleName())
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,72 @@
+package app.nzyme.core.dot11.tracks;
+
+import app.nzyme.core.dot11.tracks.db.TrackDetectorConfig;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.testng.Assert.*;
+
+@SuppressWarnings("deprecation")
+public class TrackDetectorTest {
+
+    private static final DateTime T0 = new DateTime(2024, 1, 1, 12, 0);
+
+    @Test
+    public void testDetectsSeparateTracks() {
+        SignalWaterfall waterfall = new SignalWaterfall();
+        for (int minute = 0; minute < 10; minute++) {
+            for (int signal = -80; signal <= -70; signal++) {
+                waterfall.add(T0.plusMinutes(minute), signal, 100);
+            }
+            for (int signal = -40; signal <= -30; signal++) {
+                waterfall.add(T0.plusMinutes(minute), signal, 100);
+            }
+        }
+
+        List<Track> tracks = new TrackDetector().detect(waterfall.toHeatmap(), TrackDetector.DEFAULT_CONFIG);
+
+        assertEquals(tracks.size(), 2);
+        for (Track track : tracks) {
+            assertEquals(track.start(), T0);
+            assertEquals(track.end(), T0.plusMinutes(9));
+        }
+    }
+
+    @Test
+    public void testEmptyHeatmapHasNoTracks() {
+        assertTrue(new TrackDetector().detect(new SignalWaterfall().toHeatmap(), TrackDetector.DEFAULT_CONFIG).isEmpty());
+    }
+
+    @Test
+    public void testPrimitiveDetectionMatchesBoxedDetection() {
+        TrackDetectorConfig[] configs = new TrackDetectorConfig[]{
+                TrackDetector.DEFAULT_CONFIG,
+                TrackDetectorConfig.create(5, 3, 2),
+                TrackDetectorConfig.create(50, 1, 15)
+        };
+
+        TrackDetector detector = new TrackDetector();
+        for (long seed = 0; seed < 50; seed++) {
+            SortedMap<DateTime, Map<Integer, Long>> buckets = GeneratedWaterfalls.generate(seed, 120, 1 + (int) (seed % 4));
+
+            TrackDetector.TrackDetectorHeatmapData boxed = TrackDetector.toChartAxisMaps(buckets);
+            SignalHeatmap heatmap = SignalHeatmap.fromBuckets(buckets);
+
+            assertEquals(heatmap.zValues(), boxed.z());
+            assertEquals(heatmap.yValues(), boxed.y());
+
+            for (TrackDetectorConfig config : configs) {
+                assertEquals(
+                        detector.detect(heatmap, config),
+                        detector.detect(boxed.z(), boxed.y(), config),
+                        "Seed " + seed + ", " + config
+                );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package app.nzyme.core.dot11.trilateration;
+
+import app.nzyme.core.dot11.db.TapBasedSignalStrengthResultHistogramEntry;
+import app.nzyme.core.floorplans.db.TenantLocationFloorEntry;
+import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.Bucketing;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+public class LocationSolverTest {
+
+    private static final float PATH_LOSS_EXPONENT = 3.0F;
+
+    private static final Bucketing.BucketingConfiguration MINUTES
+            = Bucketing.BucketingConfiguration.create(Bucketing.Type.MINUTE);
+
+    private final UUID locationId = UUID.randomUUID();
+    private final UUID floorId = UUID.randomUUID();
+
+    private final List<Tap> taps = ImmutableList.of(
+            buildTap(10, 10),
+            buildTap(90, 10),
+            buildTap(10, 90),
+            buildTap(90, 90)
+    );
+
+    @Test
+    public void testChunkedAndWarmStartedSolutionsMatchColdSequentialSolve() throws LocationSolver.InvalidTapsException {
+        TenantLocationFloorEntry floor = buildFloor(DateTime.now().minusDays(1));
+
+        // A slowly moving signal source. Enough buckets to be split into several chunks.
+        List<TapBasedSignalStrengthResultHistogramEntry> signals = Lists.newArrayList();
+        Map<DateTime, List<TapBasedSignalStrengthResultHistogramEntry>> histo = Maps.newHashMap();
+        for (int minute = 5; minute < 205; minute++) {
+            DateTime bucket = currentMinute().minusMinutes(minute);
+            List<TapBasedSignalStrengthResultHistogramEntry> bucketSignals
+                    = buildSignals(bucket, taps, 20 + minute * 0.3, 30 + minute * 0.2);
+
+            signals.addAll(bucketSignals);
+            histo.put(bucket, bucketSignals);
+        }
+
+        LocationSolver cold = new LocationSolver(1, key -> taps);
+        Map<UUID, Tap> tapMap = Maps.uniqueIndex(taps, Tap::uuid);
+
+        LocationSolver.TrilaterationResult chunked = new LocationSolver(4, key -> taps)
+                .solve("chunked", MINUTES, signals, floor, tapUuids(taps));
+        LocationSolver.TrilaterationResult sequential = new LocationSolver(1, key -> taps)
+                .solve("sequential", MINUTES, signals, floor, tapUuids(taps));
+
+        assertEquals(chunked.locations().size(), 200);
+        assertEquals(sequential.locations().size(), 200);
+
+        for (Map.Entry<DateTime, List<TapBasedSignalStrengthResultHistogramEntry>> bucket : histo.entrySet()) {
+            double[] expected = cold.solveBucket(bucket.getValue(), tapMap, floor, null).point();
+            assertNotNull(expected);
+
+            for (LocationSolver.TrilaterationResult result : List.of(chunked, sequential)) {
+                LocationSolver.TrilaterationLocation location = result.locations().get(bucket.getKey());
+                assertNotNull(location);
+                assertEquals(location.x(), expected[0], 1.0);
+                assertEquals(location.y(), expected[1], 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void testSolutionsAreReusedPerBucketKey() throws LocationSolver.InvalidTapsException {
+        TenantLocationFloorEntry floor = buildFloor(DateTime.now().minusDays(1));
+        LocationSolver solver = new LocationSolver(1, key -> taps);
+
+        List<TapBasedSignalStrengthResultHistogramEntry> first = buildTrack(taps, 25, 25);
+        List<TapBasedSignalStrengthResultHistogramEntry> second = buildTrack(taps, 75, 75);
+
+        assertAllLocationsNear(solver.solve("source", MINUTES, first, floor, tapUuids(taps)), 25, 25);
+
+        // Same key. Memoized solutions are returned even though the signals changed.
+        assertAllLocationsNear(solver.solve("source", MINUTES, second, floor, tapUuids(taps)), 25, 25);
+
+        // Other signal source.
+        assertAllLocationsNear(solver.solve("other-source", MINUTES, second, floor, tapUuids(taps)), 75, 75);
+
+        // Caller can access other taps.
+        List<Tap> accessible = taps.subList(0, 3);
+        assertAllLocationsNear(solver.solve("source", MINUTES, second, floor, tapUuids(accessible)), 75, 75);
+    }
+
+    @Test
+    public void testNewFloorVersionInvalidatesSolutions() throws LocationSolver.InvalidTapsException {
+        AtomicInteger loads = new AtomicInteger(0);
+        LocationSolver solver = new LocationSolver(1, key -> {
+            loads.incrementAndGet();
+            return taps;
+        });
+
+        DateTime updatedAt = DateTime.now().minusDays(1);
+        List<TapBasedSignalStrengthResultHistogramEntry> first = buildTrack(taps, 25, 25);
+        List<TapBasedSignalStrengthResultHistogramEntry> second = buildTrack(taps, 75, 75);
+
+        assertAllLocationsNear(solver.solve("source", MINUTES, first, buildFloor(updatedAt), tapUuids(taps)), 25, 25);
+        assertAllLocationsNear(solver.solve("source", MINUTES, second, buildFloor(updatedAt), tapUuids(taps)), 25, 25);
+        assertEquals(loads.get(), 1);
+
+        // Taps were placed or removed.
+        TenantLocationFloorEntry updated = buildFloor(updatedAt.plusMinutes(1));
+        assertAllLocationsNear(solver.solve("source", MINUTES, second, updated, tapUuids(taps)), 75, 75);
+        assertEquals(loads.get(), 2);
+    }
+
+    private void assertAllLocationsNear(LocationSolver.TrilaterationResult result, int x, int y) {
+        assertEquals(result.locations().size(), 50);
+
+        for (LocationSolver.TrilaterationLocation location : result.locations().values()) {
+            assertEquals(location.x(), x, 1);
+            assertEquals(location.y(), y, 1);
+        }
+    }
+
+    // Stationary signal source in buckets old enough to be memoized.
+    private List<TapBasedSignalStrengthResultHistogramEntry> buildTrack(Collection<Tap> taps, double x, double y) {
+        List<TapBasedSignalStrengthResultHistogramEntry> signals = Lists.newArrayList();
+        for (int minute = 10; minute < 60; minute++) {
+            signals.addAll(buildSignals(currentMinute().minusMinutes(minute), taps, x, y));
+        }
+
+        return signals;
+    }
+
+    private List<TapBasedSignalStrengthResultHistogramEntry> buildSignals(DateTime bucket,
+                                                                          Collection<Tap> taps,
+                                                                          double x,
+                                                                          double y) {
+        List<TapBasedSignalStrengthResultHistogramEntry> signals = Lists.newArrayList();
+        for (Tap tap : taps) {
+            //noinspection DataFlowIssue
+            double distance = Math.sqrt(Math.pow(tap.x() - x, 2) + Math.pow(tap.y() - y, 2));
+
+            // Inverse of the log-distance path loss model used by the solver.
+            float signalStrength = (float) (-15 - 10 * PATH_LOSS_EXPONENT * Math.log10(distance));
+
+            signals.add(TapBasedSignalStrengthResultHistogramEntry.create(bucket, tap.uuid(), tap.name(), signalStrength));
+        }
+
+        return signals;
+    }
+
+    private static DateTime currentMinute() {
+        return DateTime.now().withSecondOfMinute(0).withMillisOfSecond(0);
+    }
+
+    private static List<UUID> tapUuids(Collection<Tap> taps) {
+        return taps.stream().map(Tap::uuid).collect(Collectors.toList());
+    }
+
+    private TenantLocationFloorEntry buildFloor(DateTime updatedAt) {
+        return TenantLocationFloorEntry.create(
+                1, floorId, locationId, 1, "Test Floor", new byte[0],
+                100, 100, 100, 100, PATH_LOSS_EXPONENT, updatedAt.minusDays(1), updatedAt
+        );
+    }
+
+    private Tap buildTap(int x, int y) {
+        UUID uuid = UUID.randomUUID();
+        return Tap.create(
+                0, uuid, "tap-" + x + "-" + y, "Test tap", "0.0.0", null, null, null, null, null, null, null,
+                DateTime.now(), DateTime.now(), DateTime.now(), null, null, locationId, floorId, x, y, "127.0.0.1",
+                null, null
+        );
+    }
+
+}
@@ -0,0 +1,128 @@
+package app.nzyme.core.events;
+
+import app.nzyme.core.events.actions.Action;
+import app.nzyme.core.events.actions.ActionExecutionResult;
+import app.nzyme.core.events.db.EventActionEntry;
+import app.nzyme.core.events.types.DetectionEvent;
+import app.nzyme.core.events.types.SystemEvent;
+import app.nzyme.core.events.types.SystemEventType;
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.testng.Assert.*;
+
+public class EventActionDispatcherTest {
+
+    private static final SystemEvent EVENT = SystemEvent.create(
+            SystemEventType.AUTHENTICATION_PASSWORD_CHANGED, DateTime.now(), "test"
+    );
+
+    @Test
+    public void testDispatchExecutesAction() throws InterruptedException {
+        CountDownLatch executed = new CountDownLatch(1);
+        EventActionDispatcher dispatcher = new EventActionDispatcher(
+                action -> new TestAction(() -> {
+                    executed.countDown();
+                    return ActionExecutionResult.SUCCESS;
+                }), 1, 10, 3, 1, new MetricRegistry()
+        );
+
+        assertTrue(dispatcher.dispatch(buildAction("EMAIL"), EVENT));
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testFailedExecutionsAreRetriedUntilMaxAttempts() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        AtomicInteger attempts = new AtomicInteger(0);
+        CountDownLatch exhausted = new CountDownLatch(3);
+        EventActionDispatcher dispatcher = new EventActionDispatcher(
+                action -> new TestAction(() -> {
+                    attempts.incrementAndGet();
+                    exhausted.countDown();
+                    throw new RuntimeException("SMTP relay unavailable.");
+                }), 1, 10, 3, 1, metrics
+        );
+
+        dispatcher.dispatch(buildAction("EMAIL"), EVENT);
+        assertTrue(exhausted.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+
+        assertEquals(attempts.get(), 3);
+        assertEquals(metrics.meter(name(MetricNames.EVENT_ACTIONS_FAILURES, "EMAIL")).getCount(), 3);
+        assertEquals(metrics.meter(name(MetricNames.EVENT_ACTIONS_RETRIES, "EMAIL")).getCount(), 2);
+    }
+
+    @Test
+    public void testFullQueueDropsOnlyItsOwnActionType() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherTypeExecuted = new CountDownLatch(1);
+
+        EventActionDispatcher dispatcher = new EventActionDispatcher(
+                action -> new TestAction(() -> {
+                    if (action.actionType().equals("SLOW")) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    } else {
+                        otherTypeExecuted.countDown();
+                    }
+                    return ActionExecutionResult.SUCCESS;
+                }), 1, 1, 1, 1, metrics
+        );
+
+        // One executing, one queued, then full.
+        assertTrue(dispatcher.dispatch(buildAction("SLOW"), EVENT));
+        assertTrue(dispatcher.dispatch(buildAction("SLOW"), EVENT));
+        assertFalse(dispatcher.dispatch(buildAction("SLOW"), EVENT));
+        assertEquals(metrics.meter(name(MetricNames.EVENT_ACTIONS_DROPPED, "SLOW")).getCount(), 1);
+
+        // Other action types are not held up.
+        assertTrue(dispatcher.dispatch(buildAction("EMAIL"), EVENT));
+        assertTrue(otherTypeExecuted.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        dispatcher.shutdown();
+    }
+
+    private static EventActionEntry buildAction(String actionType) {
+        return EventActionEntry.create(
+                UUID.randomUUID(), actionType, null, "test", "test", "{}", DateTime.now(), DateTime.now()
+        );
+    }
+
+    private static final class TestAction implements Action {
+
+        private final Supplier<ActionExecutionResult> execution;
+
+        private TestAction(Supplier<ActionExecutionResult> execution) {
+            this.execution = execution;
+        }
+
+        @Override
+        public ActionExecutionResult execute(SystemEvent event) {
+            return execution.get();
+        }
+
+        @Override
+        public ActionExecutionResult execute(DetectionEvent event) {
+            return execution.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package app.nzyme.core.integrations.geoip;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class GeoIpServiceTest {
+
+    @Test
+    public void testParseAsNumber() {
+        assertEquals(GeoIpService.parseAsNumber("AS15169"), Long.valueOf(15169));
+        assertEquals(GeoIpService.parseAsNumber("AS4200000000"), Long.valueOf(4200000000L));
+    }
+
+    @Test
+    public void testParseAsNumberInvalid() {
+        assertNull(GeoIpService.parseAsNumber(null));
+        assertNull(GeoIpService.parseAsNumber(""));
+        assertNull(GeoIpService.parseAsNumber("AS"));
+        assertNull(GeoIpService.parseAsNumber("15169"));
+        assertNull(GeoIpService.parseAsNumber("ASfoo"));
+    }
+
+}
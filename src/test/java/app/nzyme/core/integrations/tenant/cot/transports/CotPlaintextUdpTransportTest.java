@@ -0,0 +1,91 @@
+package app.nzyme.core.integrations.tenant.cot.transports;
+
+import app.nzyme.core.integrations.tenant.cot.protocol.CotContact;
+import app.nzyme.core.integrations.tenant.cot.protocol.CotEvent;
+import app.nzyme.core.integrations.tenant.cot.protocol.CotEventDetail;
+import app.nzyme.core.integrations.tenant.cot.protocol.CotPoint;
+import org.testng.annotations.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class CotPlaintextUdpTransportTest {
+
+    @Test
+    public void testBatchIsSentAsOneDatagramPerEvent() throws Exception, CotTransportException {
+        try (DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            receiver.setSoTimeout(5000);
+
+            CotPlaintextUdpTransport transport = new CotPlaintextUdpTransport(
+                    "127.0.0.1", receiver.getLocalPort()
+            );
+
+            CotProcessingResult result = transport.sendEvents(List.of(buildEvent("a"), buildEvent("b")));
+            assertEquals(result.messagesSent(), 2);
+
+            DatagramPacket first = receive(receiver);
+            DatagramPacket second = receive(receiver);
+            assertTrue(new String(first.getData(), 0, first.getLength()).contains("uid=\"a\""));
+            assertTrue(new String(second.getData(), 0, second.getLength()).contains("uid=\"b\""));
+            assertEquals(result.bytesSent(), first.getLength() + second.getLength());
+
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testSocketIsReusedAcrossBatches() throws Exception, CotTransportException {
+        try (DatagramSocket receiver = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            receiver.setSoTimeout(5000);
+
+            CotPlaintextUdpTransport transport = new CotPlaintextUdpTransport(
+                    "127.0.0.1", receiver.getLocalPort()
+            );
+
+            transport.sendEvents(List.of(buildEvent("a")));
+            SocketAddress firstSender = receive(receiver).getSocketAddress();
+
+            transport.sendEvents(List.of(buildEvent("b")));
+            SocketAddress secondSender = receive(receiver).getSocketAddress();
+
+            assertEquals(secondSender, firstSender);
+
+            transport.close();
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception, CotTransportException {
+        CotPlaintextUdpTransport transport = new CotPlaintextUdpTransport("127.0.0.1", 1);
+
+        CotProcessingResult result = transport.sendEvents(List.of());
+        assertEquals(result.messagesSent(), 0);
+        assertEquals(result.bytesSent(), 0);
+    }
+
+    private static DatagramPacket receive(DatagramSocket receiver) throws Exception {
+        DatagramPacket packet = new DatagramPacket(new byte[8192], 8192);
+        receiver.receive(packet);
+        return packet;
+    }
+
+    private static CotEvent buildEvent(String uid) {
+        return CotEvent.create(
+                "2.0",
+                uid,
+                "m-g",
+                "a-f-G-E-S",
+                "2025-01-01T00:00:00.000Z",
+                "2025-01-01T00:00:00.000Z",
+                "2025-01-01T00:02:00.000Z",
+                CotPoint.create(49.0, 8.0, 0.0, 9999999.0, 9999999.0),
+                CotEventDetail.create("Test", null, null, CotContact.create(uid), null)
+        );
+    }
+
+}
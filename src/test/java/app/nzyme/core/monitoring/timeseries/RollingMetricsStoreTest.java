@@ -0,0 +1,125 @@
+package app.nzyme.core.monitoring.timeseries;
+
+import app.nzyme.core.taps.db.metrics.BucketSize;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class RollingMetricsStoreTest {
+
+    private static final DateTime NOW = DateTime.now().minuteOfHour().roundFloorCopy();
+
+    @Test
+    public void testDownsamplesValuesOfSameMinute() {
+        RollingMetricsStore store = new RollingMetricsStore(60, 10);
+        UUID tap = UUID.randomUUID();
+
+        store.markCoveredSince(tap, "gauge", NOW.minusHours(1));
+        store.record(tap, "gauge", 2, NOW.minusMinutes(2).plusSeconds(10));
+        store.record(tap, "gauge", 8, NOW.minusMinutes(2).plusSeconds(20));
+        store.record(tap, "gauge", 5, NOW.minusMinutes(2).plusSeconds(30));
+        store.record(tap, "gauge", 1, NOW.minusMinutes(1));
+
+        List<RollingMetricsBucket> buckets = store.findHistogram(
+                tap, "gauge", NOW.minusMinutes(30), BucketSize.MINUTE
+        ).orElseThrow();
+
+        assertEquals(buckets.size(), 2);
+        assertEquals(buckets.get(0).bucket(), NOW.minusMinutes(1));
+        assertEquals(buckets.get(0).sum(), 1.0);
+
+        RollingMetricsBucket b = buckets.get(1);
+        assertEquals(b.bucket(), NOW.minusMinutes(2));
+        assertEquals(b.minimum(), 2.0);
+        assertEquals(b.maximum(), 8.0);
+        assertEquals(b.sum(), 15.0);
+        assertEquals(b.average(), 5.0);
+    }
+
+    @Test
+    public void testAggregatesMinutesIntoHours() {
+        RollingMetricsStore store = new RollingMetricsStore(180, 10);
+        UUID node = UUID.randomUUID();
+        DateTime hour = NOW.hourOfDay().roundFloorCopy().minusHours(1);
+
+        store.markCoveredSince(node, "gauge", NOW.minusHours(3));
+        store.record(node, "gauge", 10, hour.plusMinutes(5));
+        store.record(node, "gauge", 20, hour.plusMinutes(6));
+        store.record(node, "gauge", 30, hour.plusMinutes(6).plusSeconds(30));
+        store.record(node, "gauge", 40, hour.plusMinutes(59));
+
+        List<RollingMetricsBucket> buckets = store.findHistogram(
+                node, "gauge", NOW.minusMinutes(170), BucketSize.HOUR
+        ).orElseThrow();
+
+        assertEquals(buckets.size(), 1);
+        assertEquals(buckets.get(0).bucket(), hour);
+        assertEquals(buckets.get(0).minimum(), 10.0);
+        assertEquals(buckets.get(0).maximum(), 40.0);
+        assertEquals(buckets.get(0).sum(), 100.0);
+        assertEquals(buckets.get(0).average(), 25.0);
+    }
+
+    @Test
+    public void testOnlyAnswersCoveredWindows() {
+        RollingMetricsStore store = new RollingMetricsStore(60, 10);
+        UUID tap = UUID.randomUUID();
+
+        assertTrue(store.findHistogram(tap, "gauge", NOW.minusMinutes(5), BucketSize.MINUTE).isEmpty());
+
+        store.record(tap, "gauge", 1, NOW.minusMinutes(10));
+
+        // Recording started within the window. Earlier values may exist in the database.
+        assertTrue(store.findHistogram(tap, "gauge", NOW.minusMinutes(20), BucketSize.MINUTE).isEmpty());
+        assertEquals(store.findHistogram(tap, "gauge", NOW.minusMinutes(10), BucketSize.MINUTE).orElseThrow().size(), 1);
+
+        // Window is longer than the ring.
+        store.markCoveredSince(tap, "gauge", NOW.minusHours(5));
+        assertTrue(store.findHistogram(tap, "gauge", NOW.minusHours(2), BucketSize.MINUTE).isEmpty());
+
+        // Covered, but no values in window.
+        Optional<List<RollingMetricsBucket>> empty = store.findHistogram(
+                tap, "gauge", NOW.minusMinutes(5), BucketSize.MINUTE
+        );
+        assertTrue(empty.isPresent());
+        assertTrue(empty.get().isEmpty());
+    }
+
+    @Test
+    public void testRingDropsRotatedOutValues() {
+        RollingMetricsStore store = new RollingMetricsStore(10, 10);
+        UUID tap = UUID.randomUUID();
+
+        store.markCoveredSince(tap, "gauge", NOW.minusMinutes(8));
+        store.record(tap, "gauge", 100, NOW.minusMinutes(25));
+        store.record(tap, "gauge", 1, NOW.minusMinutes(5));
+        store.record(tap, "gauge", 100, NOW.minusMinutes(25));
+        store.record(tap, "gauge", 2, NOW.minusMinutes(16));
+
+        List<RollingMetricsBucket> buckets = store.findHistogram(
+                tap, "gauge", NOW.minusMinutes(8), BucketSize.DAY
+        ).orElseThrow();
+
+        double sum = buckets.stream().mapToDouble(RollingMetricsBucket::sum).sum();
+        assertEquals(sum, 1.0);
+    }
+
+    @Test
+    public void testLimitsAndEvictsSeries() {
+        RollingMetricsStore store = new RollingMetricsStore(10, 2);
+
+        store.record(UUID.randomUUID(), "gauge", 1, NOW.minusMinutes(30));
+        store.record(UUID.randomUUID(), "gauge", 1, NOW);
+        store.record(UUID.randomUUID(), "gauge", 1, NOW);
+        assertEquals(store.size(), 2);
+
+        store.evictStale(NOW);
+        assertEquals(store.size(), 1);
+    }
+
+}
@@ -0,0 +1,120 @@
+package app.nzyme.core.periodicals;
+
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.MetricRegistry;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.testng.Assert.*;
+
+public class PeriodicalManagerTest {
+
+    @Test
+    public void testOverrunningPeriodicalNeverRunsConcurrently() throws InterruptedException {
+        MetricRegistry metrics = new MetricRegistry();
+        PeriodicalManager manager = new PeriodicalManager(metrics, 4, () -> true);
+
+        SlowPeriodical slow = new SlowPeriodical(200);
+        manager.scheduleAtFixedRate(slow, 0, 20, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(1000);
+        manager.shutdown();
+
+        assertFalse(slow.overlapped.get());
+        assertTrue(slow.runs.get() >= 2);
+        assertTrue(metrics.meter(name(MetricNames.PERIODICALS_SKIPS, "SlowPeriodical")).getCount() > 0);
+        assertTrue(metrics.meter(name(MetricNames.PERIODICALS_OVERRUNS, "SlowPeriodical")).getCount() > 0);
+    }
+
+    @Test
+    public void testOverrunningPeriodicalDoesNotDelayOthers() throws InterruptedException {
+        PeriodicalManager manager = new PeriodicalManager(new MetricRegistry(), 2, () -> true);
+
+        manager.scheduleAtFixedRate(new SlowPeriodical(5000), 0, 10, TimeUnit.MILLISECONDS);
+
+        CountingPeriodical fast = new CountingPeriodical(5);
+        manager.scheduleAtFixedRate(fast, 50, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(fast.latch.await(2, TimeUnit.SECONDS));
+        manager.shutdown();
+    }
+
+    @Test
+    public void testLeaderOnlyPeriodicalOnlyRunsOnLeader() throws InterruptedException {
+        AtomicBoolean leader = new AtomicBoolean(false);
+        PeriodicalManager manager = new PeriodicalManager(new MetricRegistry(), 2, leader::get);
+
+        CountingPeriodical periodical = new CountingPeriodical(1);
+        manager.scheduleAtFixedRateOnLeader(periodical, 0, 10, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(200);
+        assertEquals(periodical.runs.get(), 0);
+
+        leader.set(true);
+        assertTrue(periodical.latch.await(2, TimeUnit.SECONDS));
+        manager.shutdown();
+    }
+
+    private static final class SlowPeriodical extends Periodical {
+
+        private final long durationMs;
+
+        private final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicInteger runs = new AtomicInteger(0);
+        private final AtomicBoolean overlapped = new AtomicBoolean(false);
+
+        private SlowPeriodical(long durationMs) {
+            this.durationMs = durationMs;
+        }
+
+        @Override
+        protected void execute() {
+            if (running.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+
+            try {
+                Thread.sleep(durationMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+                runs.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "Slow";
+        }
+
+    }
+
+    private static final class CountingPeriodical extends Periodical {
+
+        private final CountDownLatch latch;
+        private final AtomicInteger runs = new AtomicInteger(0);
+
+        private CountingPeriodical(int expectedRuns) {
+            this.latch = new CountDownLatch(expectedRuns);
+        }
+
+        @Override
+        protected void execute() {
+            runs.incrementAndGet();
+            latch.countDown();
+        }
+
+        @Override
+        public String getName() {
+            return "Counting";
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package app.nzyme.core.security.authentication;
+
+import app.nzyme.core.security.authentication.db.TapPermissionEntry;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.*;
+
+public class TapSecretIndexTest {
+
+    private static TapPermissionEntry buildTap(String name) {
+        return TapPermissionEntry.create(
+                1,
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                name,
+                name,
+                null,
+                null,
+                "encrypted",
+                null,
+                null,
+                null,
+                null,
+                DateTime.now(),
+                DateTime.now(),
+                null
+        );
+    }
+
+    @Test
+    public void testFindsTapBySecret() {
+        TapPermissionEntry tap1 = buildTap("tap1");
+        TapPermissionEntry tap2 = buildTap("tap2");
+
+        TapSecretIndex index = new TapSecretIndex(
+                () -> Map.of("secret1", tap1, "secret2", tap2), new MetricRegistry()
+        );
+
+        assertEquals(index.find("secret1").orElseThrow(), tap1);
+        assertEquals(index.find("secret2").orElseThrow(), tap2);
+        assertTrue(index.find("secret3").isEmpty());
+        assertTrue(index.find("").isEmpty());
+    }
+
+    @Test
+    public void testLoadsOnlyAfterInvalidation() {
+        AtomicInteger loads = new AtomicInteger(0);
+        TapPermissionEntry tap = buildTap("tap");
+
+        TapSecretIndex index = new TapSecretIndex(() -> {
+            loads.incrementAndGet();
+            return Map.of("secret", tap);
+        }, new MetricRegistry());
+
+        index.find("secret");
+        index.find("secret");
+        index.find("wrong");
+        assertEquals(loads.get(), 1);
+
+        index.invalidate();
+        index.find("secret");
+        assertEquals(loads.get(), 2);
+    }
+
+    @Test
+    public void testRotatedSecretIsPickedUpAfterInvalidation() {
+        TapPermissionEntry tap = buildTap("tap");
+        AtomicReference<Map<String, TapPermissionEntry>> taps = new AtomicReference<>(Map.of("old", tap));
+
+        TapSecretIndex index = new TapSecretIndex(taps::get, new MetricRegistry());
+        assertTrue(index.find("old").isPresent());
+
+        taps.set(Map.of("new", tap));
+        assertTrue(index.find("new").isEmpty());
+
+        index.invalidate();
+        assertTrue(index.find("old").isEmpty());
+        assertTrue(index.find("new").isPresent());
+    }
+
+    @Test
+    public void testSkipsTapsThatCannotBeIndexed() {
+        TapPermissionEntry broken = buildTap("broken");
+        TapPermissionEntry tap = buildTap("tap");
+
+        // A null secret fails hashing.
+        Map<String, TapPermissionEntry> taps = Maps.newHashMap();
+        taps.put(null, broken);
+        taps.put("secret", tap);
+
+        TapSecretIndex index = new TapSecretIndex(() -> taps, new MetricRegistry());
+
+        assertEquals(index.find("secret").orElseThrow(), tap);
+        assertTrue(index.find("broken").isEmpty());
+    }
+
+}
@@ -0,0 +1,232 @@
+package app.nzyme.core.tables.dot11;
+
+import app.nzyme.core.MockNzyme;
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.database.OrderDirection;
+import app.nzyme.core.dot11.Dot11;
+import app.nzyme.core.dot11.db.BSSIDSummary;
+import app.nzyme.core.dot11.rollups.Dot11RollupResolution;
+import app.nzyme.core.rest.resources.taps.reports.tables.dot11.*;
+import app.nzyme.core.tables.TablesService;
+import app.nzyme.core.tables.dot11.monitoring.Dot11MonitoringSnapshot;
+import app.nzyme.core.taps.Tap;
+import app.nzyme.core.util.TimeRange;
+import app.nzyme.core.util.filters.Filters;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class Dot11RollupWriterTest {
+
+    private static final String BSSID_A = "00:C0:CA:B1:4F:9E";
+    private static final String BSSID_B = "B0:FC:0D:A1:B2:C3";
+
+    // Old enough for short time ranges to be answered from the raw tables. Both reports are in the same minute.
+    private static final DateTime FIRST_REPORT = DateTime.now().minusDays(3)
+            .withSecondOfMinute(10)
+            .withMillisOfSecond(0);
+    private static final DateTime SECOND_REPORT = FIRST_REPORT.plusSeconds(20);
+
+    @Test
+    public void testReportsOfOneBucketAreMerged() throws Exception {
+        NzymeNode nzyme = new MockNzyme();
+        Tap tap = buildTap();
+        writeReports(nzyme, tap);
+
+        for (Dot11RollupResolution resolution : Dot11RollupResolution.values()) {
+            List<Map<String, Object>> bssids = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT bssid, signal_strength_sum, signal_strength_count, " +
+                                    "hidden_ssid_frames, ARRAY_TO_STRING(ssids, ',') AS ssids, " +
+                                    "ARRAY_TO_STRING(fingerprints, ',') AS fingerprints, " +
+                                    "ARRAY_TO_STRING(security_protocols, ',') AS security_protocols, " +
+                                    "ARRAY_TO_STRING(infrastructure_types, ',') AS infrastructure_types, " +
+                                    "ARRAY_TO_STRING(client_macs, ',') AS client_macs " +
+                                    "FROM <table> WHERE tap_uuid = :tap_uuid ORDER BY bssid")
+                            .define("table", resolution.getBssidTable())
+                            .bind("tap_uuid", tap.uuid())
+                            .mapToMap()
+                            .list()
+            );
+
+            assertEquals(bssids.size(), 2);
+
+            // Counters are summed and sets are unioned. Hidden SSID is skipped. Sanitized SSIDs are merged.
+            Map<String, Object> a = bssids.get(0);
+            assertEquals(a.get("bssid"), BSSID_A);
+            assertEquals((double) a.get("signal_strength_sum"), -110.0, 0.01);
+            assertEquals(a.get("signal_strength_count"), 2L);
+            assertEquals(a.get("hidden_ssid_frames"), 12L);
+            assertEquals(a.get("ssids"), "Home");
+            assertEquals(a.get("fingerprints"), "fp-a1,fp-a2");
+            assertEquals(a.get("security_protocols"), "None,WPA2");
+            assertEquals(a.get("infrastructure_types"), "infrastructure");
+            assertEquals(a.get("client_macs"), "AA:AA:AA:AA:AA:01,AA:AA:AA:AA:AA:02");
+
+            // No advertised networks at all. Security protocols default to "None".
+            Map<String, Object> b = bssids.get(1);
+            assertEquals(b.get("bssid"), BSSID_B);
+            assertEquals(b.get("signal_strength_count"), 1L);
+            assertEquals(b.get("ssids"), "");
+            assertEquals(b.get("security_protocols"), "None");
+            assertEquals(b.get("client_macs"), "");
+
+            List<Map<String, Object>> ssids = nzyme.getDatabase().withHandle(handle ->
+                    handle.createQuery("SELECT bssid, ssid, signal_strength_sum, signal_strength_count, " +
+                                    "beacon_advertisements, proberesp_advertisements " +
+                                    "FROM <table> WHERE tap_uuid = :tap_uuid ORDER BY bssid, ssid")
+                            .define("table", resolution.getSsidTable())
+                            .bind("tap_uuid", tap.uuid())
+                            .mapToMap()
+                            .list()
+            );
+
+            // Both raw SSIDs of every report are merged into one row.
+            assertEquals(ssids.size(), 1);
+            assertEquals(ssids.get(0).get("bssid"), BSSID_A);
+            assertEquals(ssids.get(0).get("ssid"), "Home");
+            assertEquals((double) ssids.get(0).get("signal_strength_sum"), -220.0, 0.01);
+            assertEquals(ssids.get(0).get("signal_strength_count"), 4L);
+            assertEquals(ssids.get(0).get("beacon_advertisements"), 100L);
+            assertEquals(ssids.get(0).get("proberesp_advertisements"), 8L);
+        }
+    }
+
+    @Test
+    public void testRollupQueriesMatchRawQueries() throws Exception {
+        NzymeNode nzyme = new MockNzyme();
+        Tap tap = buildTap();
+        writeReports(nzyme, tap);
+
+        TimeRange rawRange = TimeRange.create(FIRST_REPORT.minusMinutes(30), FIRST_REPORT.plusMinutes(30), false);
+        TimeRange rollupRange = TimeRange.create(FIRST_REPORT.minusDays(1), DateTime.now(), false);
+        assertEquals(Dot11RollupResolution.select(rawRange), Optional.empty());
+        assertEquals(Dot11RollupResolution.select(rollupRange), Optional.of(Dot11RollupResolution.HOUR));
+
+        Dot11 dot11 = nzyme.getDot11();
+        Filters filters = Filters.create(Maps.newHashMap());
+        List<UUID> taps = List.of(tap.uuid());
+
+        assertEquals(dot11.countBSSIDs(rawRange, filters, taps), 2);
+        assertEquals(dot11.countBSSIDs(rollupRange, filters, taps), 2);
+
+        List<BSSIDSummary> raw = dot11.findBSSIDs(
+                rawRange, filters, Dot11.BssidOrderColumn.BSSID, OrderDirection.ASC, 10, 0, taps
+        );
+        List<BSSIDSummary> rollup = dot11.findBSSIDs(
+                rollupRange, filters, Dot11.BssidOrderColumn.BSSID, OrderDirection.ASC, 10, 0, taps
+        );
+
+        // Only BSSID A is compared. The raw query returns NULL array elements for BSSIDs without SSIDs or clients.
+        assertEquals(raw.size(), 2);
+        assertEquals(rollup.size(), 2);
+
+        BSSIDSummary r = raw.get(0);
+        BSSIDSummary s = rollup.get(0);
+        assertEquals(r.bssid(), BSSID_A);
+        assertEquals(s.bssid(), BSSID_A);
+        assertEquals(s.signalStrengthAverage(), r.signalStrengthAverage(), 0.01);
+        assertEquals(s.firstSeen().getMillis(), r.firstSeen().getMillis());
+        assertEquals(s.lastSeen().getMillis(), r.lastSeen().getMillis());
+        assertEquals(s.clientCount(), r.clientCount());
+        assertEquals(Sets.newHashSet(s.ssids()), Sets.newHashSet(r.ssids()));
+        assertEquals(Sets.newHashSet(s.securityProtocols()), Sets.newHashSet(r.securityProtocols()));
+        assertEquals(Sets.newHashSet(s.fingerprints()), Sets.newHashSet(r.fingerprints()));
+        assertEquals(Sets.newHashSet(s.infrastructureTypes()), Sets.newHashSet(r.infrastructureTypes()));
+
+        // The raw query sums over joined SSID rows. The rollup holds the sum of the reports.
+        assertEquals(s.hiddenSSIDFrames(), 12);
+
+        assertEquals(raw.get(1).bssid(), BSSID_B);
+        assertEquals(rollup.get(1).bssid(), BSSID_B);
+        assertEquals(rollup.get(1).securityProtocols(), List.of("None"));
+        assertEquals(raw.get(1).securityProtocols(), List.of("None"));
+    }
+
+    private static void writeReports(NzymeNode nzyme, Tap tap) throws Exception {
+        Dot11Table table = new TablesService(nzyme).dot11();
+        Dot11MonitoringSnapshot monitoring = Dot11MonitoringSnapshot.create(
+                Collections.emptyMap(),
+                Collections.emptySet(),
+                Collections.emptyList(),
+                Collections.emptyMap(),
+                Collections.emptyList()
+        );
+
+        Map<String, Dot11BSSIDReport> first = Maps.newHashMap();
+        first.put(BSSID_A, bssid(-50, 5, "fp-a1", "AA:AA:AA:AA:AA:01", Collections.emptyList()));
+        first.put(BSSID_B, Dot11BSSIDReport.create(
+                Collections.emptyMap(), Collections.emptyMap(), 0, signal(-70), List.of("fp-b")
+        ));
+
+        Map<String, Dot11BSSIDReport> second = Maps.newHashMap();
+        second.put(BSSID_A, bssid(-60, 7, "fp-a2", "AA:AA:AA:AA:AA:02", List.of("WPA2")));
+
+        nzyme.getDatabase().useHandle(handle -> handle.useTransaction(tx ->
+                table.writeBSSIDs(tx, tap, FIRST_REPORT, first, monitoring)
+        ));
+        nzyme.getDatabase().useHandle(handle -> handle.useTransaction(tx ->
+                table.writeBSSIDs(tx, tap, SECOND_REPORT, second, monitoring)
+        ));
+    }
+
+    // Advertises "Home" twice, once with a tab that is removed by sanitizing, and a hidden SSID.
+    private static Dot11BSSIDReport bssid(float signalStrength,
+                                          long hiddenSSIDFrames,
+                                          String fingerprint,
+                                          String clientMac,
+                                          List<String> securityProtocols) {
+        Map<String, Dot11AdvertisedNetworkReport> networks = Maps.newHashMap();
+        networks.put("Home", network(signalStrength, securityProtocols));
+        networks.put("Home\t", network(signalStrength, securityProtocols));
+        networks.put("\0\0\0", network(signalStrength, securityProtocols));
+
+        Map<String, Dot11ClientStatisticsReport> clients = Maps.newHashMap();
+        clients.put(clientMac, Dot11ClientStatisticsReport.create(10, 1000, 10, 1000, signal(signalStrength)));
+        clients.put(BSSID_A, Dot11ClientStatisticsReport.create(10, 1000, 10, 1000, signal(signalStrength)));
+
+        return Dot11BSSIDReport.create(
+                networks, clients, hiddenSSIDFrames, signal(signalStrength), List.of(fingerprint)
+        );
+    }
+
+    private static Dot11AdvertisedNetworkReport network(float signalStrength, List<String> securityProtocols) {
+        return Dot11AdvertisedNetworkReport.create(
+                List.of(Dot11SecurityInformationReport.create(
+                        securityProtocols,
+                        Dot11CipherSuitesReport.create("CCMP", List.of("CCMP"), List.of("PSK")),
+                        "Disabled"
+                )),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                List.of(false),
+                signal(signalStrength),
+                Collections.emptyMap(),
+                List.of("Infrastructure"),
+                Collections.emptyMap(),
+                25,
+                2
+        );
+    }
+
+    private static Dot11SignalStrengthReport signal(float average) {
+        return Dot11SignalStrengthReport.create((long) average - 5, (long) average + 5, average);
+    }
+
+    private static Tap buildTap() {
+        return Tap.create(
+                0, UUID.randomUUID(), "test-tap", "Test tap", "0.0.0", null, null, null, null, null, null, null,
+                DateTime.now(), DateTime.now(), DateTime.now(), UUID.randomUUID(), UUID.randomUUID(), null, null,
+                null, null, "127.0.0.1", null, null
+        );
+    }
+
+}
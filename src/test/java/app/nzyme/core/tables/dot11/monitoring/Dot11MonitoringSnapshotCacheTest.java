@@ -0,0 +1,88 @@
+package app.nzyme.core.tables.dot11.monitoring;
+
+import app.nzyme.core.MockNzyme;
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.cache.CacheManager;
+import app.nzyme.core.distributed.messaging.postgres.PostgresMessageBusImpl;
+import app.nzyme.core.dot11.db.monitoring.MonitoredSSID;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class Dot11MonitoringSnapshotCacheTest {
+
+    @BeforeMethod
+    public void clean() {
+        NzymeNode nzyme = new MockNzyme();
+
+        nzyme.getDatabase().useHandle(handle -> {
+            handle.createUpdate("TRUNCATE message_bus_messages").execute();
+            handle.createUpdate("TRUNCATE nodes").execute();
+        });
+    }
+
+    @Test
+    public void testWriteAndInvalidationIsReflectedInNextSnapshot() {
+        NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+        nzyme.getNodeManager().registerSelf();
+
+        UUID organizationId = UUID.randomUUID();
+        UUID tenantId = UUID.randomUUID();
+        MonitoredSSID network = createMonitoredNetwork(nzyme, organizationId, tenantId);
+
+        Dot11MonitoringSnapshot before = nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId);
+        assertTrue(before.monitoredSSIDs().get("snapshot-test").bssids().isEmpty());
+
+        nzyme.getDot11().createMonitoredBSSID(network.id(), "00:C0:CA:95:68:3B");
+
+        // Still served from cache until invalidated.
+        assertSame(nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId), before);
+
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
+        Dot11MonitoringSnapshot after = nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId);
+        assertNotSame(after, before);
+        assertEquals(after.monitoredSSIDs().get("snapshot-test").bssids().keySet(), Set.of("00:C0:CA:95:68:3B"));
+    }
+
+    @Test
+    public void testClusterWideInvalidationMessageInvalidatesSnapshots() {
+        NzymeNode nzyme = new MockNzyme(Integer.MAX_VALUE, TimeUnit.DAYS);
+        nzyme.getNodeManager().registerSelf();
+        new CacheManager(nzyme).initialize();
+
+        UUID organizationId = UUID.randomUUID();
+        UUID tenantId = UUID.randomUUID();
+        MonitoredSSID network = createMonitoredNetwork(nzyme, organizationId, tenantId);
+
+        // Sends the invalidation message to all online nodes. That includes this node.
+        nzyme.getDot11().invalidateMonitoringSnapshotsClusterWide();
+
+        Dot11MonitoringSnapshot cached = nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId);
+        assertTrue(cached.monitoredSSIDs().get("snapshot-test").bssids().isEmpty());
+
+        // Written by another node. Only the message tells this node about it.
+        nzyme.getDot11().createMonitoredBSSID(network.id(), "00:C0:CA:95:68:3C");
+        assertSame(nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId), cached);
+
+        ((PostgresMessageBusImpl) nzyme.getMessageBus()).poll();
+
+        Dot11MonitoringSnapshot after = nzyme.getDot11().getMonitoringSnapshot(organizationId, tenantId);
+        assertNotSame(after, cached);
+        assertTrue(after.monitoredSSIDs().get("snapshot-test").bssids().containsKey("00:C0:CA:95:68:3C"));
+    }
+
+    private MonitoredSSID createMonitoredNetwork(NzymeNode nzyme, UUID organizationId, UUID tenantId) {
+        nzyme.getDot11().createMonitoredSSID("snapshot-test", organizationId, tenantId);
+        MonitoredSSID network = nzyme.getDot11().findAllMonitoredSSIDs(organizationId, tenantId).get(0);
+        nzyme.getDot11().setMonitoredSSIDEnabledState(network.id(), true);
+
+        return network;
+    }
+
+}
@@ -0,0 +1,151 @@
+package app.nzyme.core.tables.tcp;
+
+import app.nzyme.core.MockNzyme;
+import app.nzyme.core.NzymeNode;
+import app.nzyme.core.rest.resources.taps.reports.tables.tcp.TcpSessionReport;
+import app.nzyme.core.rest.resources.taps.reports.tables.tcp.TcpSessionsReport;
+import app.nzyme.core.tables.TablesService;
+import org.joda.time.DateTime;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class TCPTableTest {
+
+    private static final UUID TAP_UUID = UUID.randomUUID();
+    private static final DateTime START_TIME = DateTime.now().minusMinutes(5).withMillisOfSecond(0);
+
+    @BeforeMethod
+    public void clean() {
+        NzymeNode nzyme = new MockNzyme();
+
+        nzyme.getDatabase().useHandle(handle -> handle.createUpdate("TRUNCATE l4_sessions").execute());
+    }
+
+    @Test
+    public void testSessionLifecycleWritesSingleRow() {
+        NzymeNode nzyme = new MockNzyme();
+        TCPTable table = new TablesService(nzyme).tcp();
+
+        // New open session.
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("ESTABLISHED", null, 10, 1000)));
+        List<Map<String, Object>> rows = findSessions(nzyme);
+        assertEquals(rows.size(), 1);
+        assertNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("bytes_count"), 1000L);
+
+        // Update of open session. Updated by its indexed ID.
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("ESTABLISHED", null, 20, 2000)));
+        rows = findSessions(nzyme);
+        assertEquals(rows.size(), 1);
+        assertNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("bytes_count"), 2000L);
+        assertEquals(rows.get(0).get("segments_count"), 20L);
+
+        // Session ended.
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("CLOSEDFIN", DateTime.now(), 30, 3000)));
+        rows = findSessions(nzyme);
+        assertEquals(rows.size(), 1);
+        assertNotNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("state"), "CLOSEDFIN");
+        assertEquals(rows.get(0).get("bytes_count"), 3000L);
+        assertEquals(rows.get(0).get("segments_count"), 30L);
+    }
+
+    @Test
+    public void testStaleIndexedIdFallsBackToUpsert() {
+        NzymeNode nzyme = new MockNzyme();
+        TCPTable table = new TablesService(nzyme).tcp();
+
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("ESTABLISHED", null, 10, 1000)));
+        assertEquals(findSessions(nzyme).size(), 1);
+
+        // Row disappears behind the back of the index, for example because of retention cleaning.
+        nzyme.getDatabase().useHandle(handle -> handle.createUpdate("DELETE FROM l4_sessions").execute());
+
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("ESTABLISHED", null, 20, 2000)));
+        List<Map<String, Object>> rows = findSessions(nzyme);
+        assertEquals(rows.size(), 1);
+        assertNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("bytes_count"), 2000L);
+
+        // The new row is indexed and updated in place.
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("CLOSEDFIN", DateTime.now(), 30, 3000)));
+        rows = findSessions(nzyme);
+        assertEquals(rows.size(), 1);
+        assertNotNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("bytes_count"), 3000L);
+    }
+
+    @Test
+    public void testEndedSessionClosesOpenRowThatIsNotIndexed() {
+        NzymeNode first = new MockNzyme();
+        new TablesService(first).tcp()
+                .handleReport(TAP_UUID, DateTime.now(), report(session("ESTABLISHED", null, 10, 1000)));
+        assertEquals(findSessions(first).size(), 1);
+
+        // Fresh index, like after a restart or on another node.
+        NzymeNode second = new MockNzyme();
+        new TablesService(second).tcp()
+                .handleReport(TAP_UUID, DateTime.now(), report(session("CLOSEDRST", DateTime.now(), 30, 3000)));
+
+        List<Map<String, Object>> rows = findSessions(second);
+        assertEquals(rows.size(), 1);
+        assertNotNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("state"), "CLOSEDRST");
+        assertEquals(rows.get(0).get("bytes_count"), 3000L);
+    }
+
+    @Test
+    public void testEndedSessionWithoutAnyRowIsInsertedOnce() {
+        NzymeNode nzyme = new MockNzyme();
+        TCPTable table = new TablesService(nzyme).tcp();
+
+        table.handleReport(TAP_UUID, DateTime.now(), report(session("CLOSEDFIN", DateTime.now(), 30, 3000)));
+
+        List<Map<String, Object>> rows = findSessions(nzyme);
+        assertEquals(rows.size(), 1);
+        assertNotNull(rows.get(0).get("end_time"));
+        assertEquals(rows.get(0).get("bytes_count"), 3000L);
+    }
+
+    private static List<Map<String, Object>> findSessions(NzymeNode nzyme) {
+        return nzyme.getDatabase().withHandle(handle ->
+                handle.createQuery("SELECT state, bytes_count, segments_count, end_time FROM l4_sessions " +
+                                "WHERE tap_uuid = :tap_uuid")
+                        .bind("tap_uuid", TAP_UUID)
+                        .mapToMap()
+                        .list()
+        );
+    }
+
+    private static TcpSessionsReport report(TcpSessionReport session) {
+        return TcpSessionsReport.create(List.of(session));
+    }
+
+    private static TcpSessionReport session(String state, @Nullable DateTime endTime, long segments, long bytes) {
+        return TcpSessionReport.create(
+                state,
+                "00:C0:CA:B1:4F:9E",
+                "B0:FC:0D:A1:B2:C3",
+                "192.168.0.10",
+                52341,
+                "10.0.0.1",
+                443,
+                START_TIME,
+                endTime,
+                endTime == null ? DateTime.now() : endTime,
+                segments,
+                bytes,
+                Collections.emptyList()
+        );
+    }
+
+}
@@ -0,0 +1,85 @@
+package app.nzyme.core.taps;
+
+import app.nzyme.core.util.MetricNames;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class TapMetricsWriteBufferTest {
+
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    @Test
+    public void testFlushWritesInBatches() {
+        List<List<TapMetricsWriteBuffer.Point>> writes = new CopyOnWriteArrayList<>();
+        TapMetricsWriteBuffer buffer = new TapMetricsWriteBuffer(
+                points -> writes.add(Lists.newArrayList(points)), NEVER, 40, 1000, new MetricRegistry()
+        );
+
+        UUID tap = UUID.randomUUID();
+        for (int i = 0; i < 30; i++) {
+            buffer.writeGauge(tap, "gauge." + i, i, DateTime.now());
+        }
+        buffer.writeTimer(tap, "timer", 1.5, 9.0, DateTime.now());
+
+        assertEquals(buffer.size(), 31);
+        assertTrue(writes.isEmpty());
+
+        buffer.flush();
+
+        assertEquals(buffer.size(), 0);
+        assertEquals(writes.size(), 1);
+        assertEquals(writes.get(0).size(), 31);
+        assertNull(writes.get(0).get(0).p99());
+        assertEquals(writes.get(0).get(30).p99(), Double.valueOf(9.0));
+
+        buffer.shutdown();
+    }
+
+    @Test
+    public void testFullBatchTriggersFlush() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        TapMetricsWriteBuffer buffer = new TapMetricsWriteBuffer(
+                points -> written.countDown(), NEVER, 10, 1000, new MetricRegistry()
+        );
+
+        UUID tap = UUID.randomUUID();
+        for (int i = 0; i < 10; i++) {
+            buffer.writeGauge(tap, "gauge", i, DateTime.now());
+        }
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+
+        buffer.shutdown();
+    }
+
+    @Test
+    public void testDropsWhenFullAndFlushesOnShutdown() {
+        List<TapMetricsWriteBuffer.Point> written = new CopyOnWriteArrayList<>();
+        MetricRegistry metrics = new MetricRegistry();
+        TapMetricsWriteBuffer buffer = new TapMetricsWriteBuffer(written::addAll, NEVER, 1000, 5, metrics);
+
+        UUID tap = UUID.randomUUID();
+        for (int i = 0; i < 8; i++) {
+            buffer.writeGauge(tap, "gauge", i, DateTime.now());
+        }
+
+        assertEquals(buffer.size(), 5);
+        assertEquals(metrics.meter(MetricNames.TAP_METRICS_DROPPED).getCount(), 3);
+
+        buffer.shutdown();
+
+        assertEquals(written.size(), 5);
+        assertEquals(buffer.size(), 0);
+    }
+
+}
@@ -0,0 +1,165 @@
+package app.nzyme.core.uav.types;
+
+import app.nzyme.core.uav.db.UavTypeEntry;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+public class UavTypeIndexTest {
+
+    private static final String ALPHABET = "0123AB";
+
+    @Test
+    public void testCustomTypeFirstMatchWins() {
+        CustomUavTypeIndex index = new CustomUavTypeIndex(List.of(
+                customType("PREFIX", "1581F", "first"),
+                customType("EXACT", "1581F4XFC", "second"),
+                customType("PREFIX", "1581", "third"),
+                customType("PREFIX", "", "fourth")
+        ));
+
+        assertEquals(index.match("1581F4XFC").get().name(), "first");
+        assertEquals(index.match("1581A").get().name(), "third");
+        assertEquals(index.match("9").get().name(), "fourth");
+    }
+
+    @Test
+    public void testCustomTypeExactAndPrefix() {
+        CustomUavTypeIndex index = new CustomUavTypeIndex(List.of(
+                customType("EXACT", "1581F4XFC", "exact"),
+                customType("PREFIX", "1581F", "prefix"),
+                customType("INVALID", "1", "invalid")
+        ));
+
+        assertEquals(index.match("1581F4XFC").get().name(), "exact");
+        assertEquals(index.match("1581F4XFD").get().name(), "prefix");
+        assertEquals(index.match("1581F").get().name(), "prefix");
+        assertTrue(index.match("1581").isEmpty());
+        assertTrue(index.match("").isEmpty());
+    }
+
+    @Test
+    public void testConnectModelRangesAndSerials() {
+        ConnectUavModelIndex index = new ConnectUavModelIndex(List.of(
+                connectModel(ConnectSerialType.RANGE, "1000-1999", "Wide"),
+                connectModel(ConnectSerialType.RANGE, "1500-1600", "Narrow"),
+                connectModel(ConnectSerialType.RANGE, "BROKEN", "Broken"),
+                connectModel(ConnectSerialType.ANSICTA2063A, "2500ABC", "Serial"),
+                connectModel(ConnectSerialType.RANGE, "2000-3000", "Late")
+        ));
+
+        assertEquals(index.match("1550").get().model(), "DJI Wide");
+        assertEquals(index.match("1999").get().model(), "DJI Wide");
+        assertEquals(index.match("2500ABC").get().model(), "DJI Serial");
+        assertEquals(index.match("2500").get().model(), "DJI Late");
+        assertEquals(index.match("2500").get().type(), "Unknown");
+        assertTrue(index.match("0999").isEmpty());
+        assertTrue(index.match("3001").isEmpty());
+        assertEquals(index.size(), 5);
+    }
+
+    @Test
+    public void testIndexesMatchLinearScan() {
+        Random random = new Random(42);
+
+        for (int run = 0; run < 50; run++) {
+            List<UavTypeEntry> customTypes = Lists.newArrayList();
+            for (int i = 0; i < 20; i++) {
+                customTypes.add(customType(
+                        random.nextBoolean() ? "EXACT" : "PREFIX",
+                        randomSerial(random, random.nextBoolean() ? 2 : 4),
+                        "custom-" + i
+                ));
+            }
+
+            List<ConnectUavModel> connectModels = Lists.newArrayList();
+            for (int i = 0; i < 40; i++) {
+                if (random.nextBoolean()) {
+                    String a = randomSerial(random, 1 + random.nextInt(4));
+                    String b = randomSerial(random, 1 + random.nextInt(4));
+                    connectModels.add(connectModel(ConnectSerialType.RANGE,
+                            a.compareTo(b) <= 0 ? a + "-" + b : b + "-" + a, "model-" + i));
+                } else {
+                    connectModels.add(connectModel(ConnectSerialType.ANSICTA2063A,
+                            randomSerial(random, 4), "model-" + i));
+                }
+            }
+
+            CustomUavTypeIndex customIndex = new CustomUavTypeIndex(customTypes);
+            ConnectUavModelIndex connectIndex = new ConnectUavModelIndex(connectModels);
+
+            for (int i = 0; i < 500; i++) {
+                String serial = randomSerial(random, 1 + random.nextInt(5));
+
+                assertEquals(customIndex.match(serial), linearCustomMatch(customTypes, serial), serial);
+                assertEquals(connectIndex.match(serial), linearConnectMatch(connectModels, serial), serial);
+            }
+        }
+    }
+
+    private static Optional<UavTypeMatch> linearCustomMatch(List<UavTypeEntry> types, String serial) {
+        for (UavTypeEntry type : types) {
+            boolean matches = type.matchType().equals("EXACT")
+                    ? serial.equals(type.matchValue()) : serial.startsWith(type.matchValue());
+
+            if (matches) {
+                return Optional.of(UavTypeMatch.create(
+                        type.type(), type.name(), type.model(), type.defaultClassification()
+                ));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static Optional<UavTypeMatch> linearConnectMatch(List<ConnectUavModel> models, String serial) {
+        for (ConnectUavModel model : models) {
+            boolean matches;
+            if (model.serialType() == ConnectSerialType.RANGE) {
+                String[] parts = model.serial().split("-");
+                matches = serial.compareTo(parts[0]) >= 0 && serial.compareTo(parts[1]) <= 0;
+            } else {
+                matches = serial.equals(model.serial());
+            }
+
+            if (matches) {
+                return Optional.of(UavTypeMatch.create(
+                        model.classification() == null ? "Unknown" : model.classification(),
+                        null,
+                        model.make() + " " + model.model(),
+                        null
+                ));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static String randomSerial(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+
+        return sb.toString();
+    }
+
+    private static UavTypeEntry customType(String matchType, String matchValue, String name) {
+        return UavTypeEntry.create(
+                0, UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), matchType, matchValue,
+                "FRIENDLY", "Quadcopter", name, "Model", DateTime.now(), DateTime.now()
+        );
+    }
+
+    private static ConnectUavModel connectModel(ConnectSerialType serialType, String serial, String model) {
+        return ConnectUavModel.create("1", "DJI", model, "SS3-MT2WD", null, serialType, serial);
+    }
+
+}
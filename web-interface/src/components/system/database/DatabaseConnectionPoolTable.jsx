@@ -0,0 +1,48 @@
+import React from "react";
+import numeral from "numeral";
+import LoadingSpinner from "../../misc/LoadingSpinner";
+import TimerRow from "../../misc/metrics/TimerRow";
+
+function DatabaseConnectionPoolTable(props) {
+
+  const pool = props.pool;
+
+  if (!pool) {
+    return <LoadingSpinner />
+  }
+
+  return (
+      <React.Fragment>
+        <dl className="mb-3">
+          <dt>Active Connections</dt>
+          <dd>{numeral(pool.active).format("0,0")}</dd>
+          <dt>Idle Connections</dt>
+          <dd>{numeral(pool.idle).format("0,0")}</dd>
+          <dt>Threads Waiting for Connection</dt>
+          <dd>{numeral(pool.waiting).format("0,0")}</dd>
+          <dt>Total Connections</dt>
+          <dd>{numeral(pool.total).format("0,0")} / {numeral(pool.max_size).format("0,0")}</dd>
+        </dl>
+
+        <table className="table table-sm table-hover table-striped">
+          <thead>
+          <tr>
+            <th>Metric</th>
+            <th>Max</th>
+            <th>Min</th>
+            <th>Mean</th>
+            <th>P99</th>
+            <th>StdDev</th>
+            <th>Calls</th>
+          </tr>
+          </thead>
+          <tbody>
+          <TimerRow title="Connection Acquisition" timer={pool.acquire_timing}/>
+          </tbody>
+        </table>
+      </React.Fragment>
+  )
+
+}
+
+export default DatabaseConnectionPoolTable;
@@ -2,6 +2,7 @@ import React, {useEffect, useState} from "react";
 import SystemService from "../../../services/SystemService";
 import CardTitleWithControls from "../../shared/CardTitleWithControls";
 import GlobalDatabaseUsageTable from "./GlobalDatabaseUsageTable";
+import DatabaseConnectionPoolTable from "./DatabaseConnectionPoolTable";
 import {notify} from "react-notify-toast";
 
 const systemService = new SystemService();
@@ -9,6 +10,7 @@ const systemService = new SystemService();
 function DatabasePage() {
 
   const [sizes, setSizes] = useState();
+  const [pool, setPool] = useState();
   const [revision, setRevision] = useState(new Date());
 
   useEffect(() => {
@@ -16,6 +18,10 @@ function DatabasePage() {
     systemService.getDatabaseGlobalSizes(setSizes);
   }, [revision])
 
+  useEffect(() => {
+    systemService.getDatabaseConnectionPool(setPool);
+  }, [])
+
   const onPurge = () => {
     setRevision(new Date());
     notify.show('Data purge request submitted. It can take a while to complete.', 'success');
@@ -43,6 +49,16 @@ function DatabasePage() {
                   </div>
                 </div>
               </div>
+
+              <div className="col-xl-12 col-xxl-6">
+                <div className="card">
+                  <div className="card-body">
+                    <CardTitleWithControls title="Connection Pool of this Node" slim={true} />
+
+                    <DatabaseConnectionPoolTable pool={pool} />
+                  </div>
+                </div>
+              </div>
             </div>
           </div>
         </div>
@@ -60,6 +60,10 @@ class SystemService {
     RESTClient.get(`/system/database/sizes/organization/${organizationId}/tenants/${tenantId}`, {}, (response) => setSizes(response.data))
   }
 
+  getDatabaseConnectionPool(setPool) {
+    RESTClient.get("/system/database/pool", {}, (response) => setPool(response.data))
+  }
+
   purgeDatabaseGlobalCategory(category, onSuccess) {
     RESTClient.post(`/system/database/purge/category/${category}`, {}, onSuccess)
   }